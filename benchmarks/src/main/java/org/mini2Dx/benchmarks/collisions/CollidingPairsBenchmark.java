@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mini2Dx.core.collisions.ConcurrentPointQuadTree;
+import org.mini2Dx.core.collisions.PairCallback;
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding every overlapping pair of elements with
+ * {@link QuadTree#findCollidingPairs(PairCallback)} against the previous
+ * approach of running a region query per element. The concurrent
+ * implementations are also measured splitting the search across a
+ * {@link ForkJoinPool}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CollidingPairsBenchmark {
+	@Param({ QuadTreeBenchmarkSupport.POINT_QUAD_TREE, QuadTreeBenchmarkSupport.REGION_QUAD_TREE,
+			QuadTreeBenchmarkSupport.LOOSE_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.CONCURRENT_POINT_QUAD_TREE,
+			QuadTreeBenchmarkSupport.CONCURRENT_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.SPATIAL_HASH_GRID,
+			QuadTreeBenchmarkSupport.DYNAMIC_AABB_TREE })
+	public String implementation;
+	@Param({ "1000", "10000" })
+	public int elementCount;
+	@Param({ "8", "32" })
+	public int elementLimitPerQuad;
+
+	private QuadTree<CollisionBox> quadTree;
+	private List<CollisionBox> elements;
+	private ForkJoinPool pool;
+	private final List<CollisionBox> result = new ArrayList<CollisionBox>();
+	private final AtomicInteger totalPairs = new AtomicInteger();
+	private final PairCallback<CollisionBox> callback = new PairCallback<CollisionBox>() {
+		@Override
+		public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+			totalPairs.incrementAndGet();
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(QuadTreeBenchmarkSupport.SEED);
+		elements = QuadTreeBenchmarkSupport.createElements(random, elementCount);
+
+		quadTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad, 0);
+		quadTree.addAll(elements);
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public int findCollidingPairs() {
+		totalPairs.set(0);
+		quadTree.findCollidingPairs(callback);
+		return totalPairs.get();
+	}
+
+	/**
+	 * Implementations other than the concurrent quad trees search on a single
+	 * thread
+	 */
+	@Benchmark
+	public int findCollidingPairsInParallel() {
+		totalPairs.set(0);
+		if (quadTree instanceof ConcurrentPointQuadTree) {
+			((ConcurrentPointQuadTree<CollisionBox>) quadTree).findCollidingPairs(callback, pool);
+		} else {
+			quadTree.findCollidingPairs(callback);
+		}
+		return totalPairs.get();
+	}
+
+	/**
+	 * The previous approach, which visits every pair twice
+	 */
+	@Benchmark
+	public int findCollidingPairsWithRegionQueries() {
+		int pairs = 0;
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			CollisionBox element = elements.get(i);
+			result.clear();
+			quadTree.getElementsWithinRegion(result, element);
+			for (int j = result.size() - 1; j >= 0; j--) {
+				if (result.get(j) != element) {
+					pairs++;
+				}
+			}
+		}
+		return pairs / 2;
+	}
+}
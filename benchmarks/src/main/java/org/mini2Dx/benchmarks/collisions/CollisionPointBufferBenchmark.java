@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.engine.geom.CollisionPoint;
+import org.mini2Dx.core.engine.geom.CollisionPointBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares moving and interpolating a large number of points stored in a
+ * {@link CollisionPointBuffer} against the same number of
+ * {@link CollisionPoint} instances
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CollisionPointBufferBenchmark {
+	private static final int TOTAL_POINTS = 100000;
+
+	private CollisionPointBuffer buffer;
+	private CollisionPoint[] points;
+
+	@Setup
+	public void setup() {
+		buffer = new CollisionPointBuffer(TOTAL_POINTS);
+		points = new CollisionPoint[TOTAL_POINTS];
+		for (int i = 0; i < TOTAL_POINTS; i++) {
+			buffer.add(i % 1024, i / 1024);
+			points[i] = new CollisionPoint(i % 1024, i / 1024);
+		}
+	}
+
+	@Benchmark
+	public CollisionPointBuffer interpolateBuffer() {
+		buffer.preUpdate();
+		for (int i = 0; i < TOTAL_POINTS; i++) {
+			buffer.translate(buffer.getHandle(i), 1f, 1f);
+		}
+		buffer.interpolate(0.5f);
+		return buffer;
+	}
+
+	@Benchmark
+	public CollisionPoint[] interpolatePoints() {
+		for (int i = 0; i < TOTAL_POINTS; i++) {
+			CollisionPoint point = points[i];
+			point.preUpdate();
+			point.add(1f, 1f);
+			point.interpolate(null, 0.5f);
+		}
+		return points;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.collisions.ConcurrentPointQuadTree;
+import org.mini2Dx.core.collisions.ConcurrentRegionQuadTree;
+import org.mini2Dx.core.collisions.LockStrategy;
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures multi-threaded access to {@link ConcurrentPointQuadTree} and
+ * {@link ConcurrentRegionQuadTree}. All threads share a single tree.
+ * 
+ * {@link #query(QueryState)} only reads from the tree and should be run with
+ * different thread counts (e.g. <code>-t 1</code>, <code>-t 4</code>,
+ * <code>-t 8</code>) to measure read scaling. The <code>readWrite</code>
+ * group runs 8 querying threads against 1 thread moving elements; the ratio
+ * can be changed with <code>-tg</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentQuadTreeBenchmark {
+	private static final int TOTAL_QUERIES = 1024;
+
+	@Param({ QuadTreeBenchmarkSupport.CONCURRENT_POINT_QUAD_TREE,
+			QuadTreeBenchmarkSupport.CONCURRENT_REGION_QUAD_TREE })
+	public String implementation;
+	@Param({ "1000", "10000" })
+	public int elementCount;
+	@Param({ "8", "32" })
+	public int elementLimitPerQuad;
+	@Param({ "0", "4" })
+	public int mergeWatermark;
+	@Param({ "READ_WRITE", "OPTIMISTIC_READ" })
+	public LockStrategy lockStrategy;
+
+	private QuadTree<CollisionBox> quadTree;
+	private List<CollisionBox> elements;
+	private Rectangle[] regions;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(QuadTreeBenchmarkSupport.SEED);
+		elements = QuadTreeBenchmarkSupport.createElements(random, elementCount);
+
+		quadTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad, mergeWatermark,
+				lockStrategy);
+		quadTree.addAll(elements);
+
+		regions = QuadTreeBenchmarkSupport.createRegions(random, TOTAL_QUERIES);
+	}
+
+	/**
+	 * Per-thread query state
+	 */
+	@State(Scope.Thread)
+	public static class QueryState {
+		private final List<CollisionBox> result = new ArrayList<CollisionBox>();
+		private final Random random = new Random();
+		private int queryIndex;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			queryIndex = random.nextInt(TOTAL_QUERIES);
+		}
+	}
+
+	/**
+	 * Per-thread movement state
+	 */
+	@State(Scope.Thread)
+	public static class MoveState {
+		private final Random random = new Random(QuadTreeBenchmarkSupport.SEED);
+		private int elementIndex;
+	}
+
+	@Benchmark
+	public int query(QueryState state) {
+		state.queryIndex = (state.queryIndex + 1) % TOTAL_QUERIES;
+		state.result.clear();
+		quadTree.getElementsWithinRegion(state.result, regions[state.queryIndex]);
+		return state.result.size();
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(8)
+	public int readWriteQuery(QueryState state) {
+		return query(state);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public CollisionBox readWriteMove(MoveState state) {
+		state.elementIndex = (state.elementIndex + 1) % elements.size();
+		CollisionBox element = elements.get(state.elementIndex);
+		element.setPosition(QuadTreeBenchmarkSupport.clamp(element.getX() + state.random.nextFloat() * 64f - 32f),
+				QuadTreeBenchmarkSupport.clamp(element.getY() + state.random.nextFloat() * 64f - 32f));
+		return element;
+	}
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.mini2Dx.core.collisions.ConcurrentPointQuadTree;
+import org.mini2Dx.core.collisions.ConcurrentRegionQuadTree;
+import org.mini2Dx.core.collisions.DynamicAabbTree;
+import org.mini2Dx.core.collisions.LockStrategy;
+import org.mini2Dx.core.collisions.LooseRegionQuadTree;
+import org.mini2Dx.core.collisions.PointQuadTree;
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.collisions.RegionQuadTree;
+import org.mini2Dx.core.collisions.SpatialHashGrid;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+/**
+ * Creates {@link QuadTree} instances and workloads for benchmarks. All
+ * workloads are generated from a fixed seed so that results are comparable
+ * between runs.
+ */
+public class QuadTreeBenchmarkSupport {
+	public static final String POINT_QUAD_TREE = "PointQuadTree";
+	public static final String REGION_QUAD_TREE = "RegionQuadTree";
+	public static final String LOOSE_REGION_QUAD_TREE = "LooseRegionQuadTree";
+	public static final String CONCURRENT_POINT_QUAD_TREE = "ConcurrentPointQuadTree";
+	public static final String CONCURRENT_REGION_QUAD_TREE = "ConcurrentRegionQuadTree";
+	public static final String SPATIAL_HASH_GRID = "SpatialHashGrid";
+	public static final String DYNAMIC_AABB_TREE = "DynamicAabbTree";
+
+	public static final float WORLD_SIZE = 4096f;
+	public static final float MAX_ELEMENT_SIZE = 32f;
+	public static final float QUERY_SIZE = 256f;
+	public static final float MAX_WALL_LENGTH = 2048f;
+	public static final float MAX_TRIGGER_SIZE = 1024f;
+	public static final float CELL_SIZE = 64f;
+	public static final long SEED = 1289176382L;
+
+	/**
+	 * Creates a {@link QuadTree} implementation covering the benchmark world
+	 * 
+	 * @param implementation
+	 *            The simple class name of the {@link QuadTree} implementation
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a quad before it is split
+	 * @param mergeWatermark
+	 *            The merge watermark of the quads
+	 * @return A new, empty {@link QuadTree}
+	 */
+	public static QuadTree<CollisionBox> createQuadTree(String implementation, int elementLimitPerQuad,
+			int mergeWatermark) {
+		return createQuadTree(implementation, elementLimitPerQuad, mergeWatermark, LockStrategy.READ_WRITE);
+	}
+
+	/**
+	 * Creates a {@link QuadTree} implementation covering the benchmark world
+	 * 
+	 * @param implementation
+	 *            The simple class name of the {@link QuadTree} implementation
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a quad before it is split
+	 * @param mergeWatermark
+	 *            The merge watermark of the quads
+	 * @param lockStrategy
+	 *            The {@link LockStrategy} to use if the implementation is
+	 *            thread-safe
+	 * @return A new, empty {@link QuadTree}
+	 */
+	public static QuadTree<CollisionBox> createQuadTree(String implementation, int elementLimitPerQuad,
+			int mergeWatermark, LockStrategy lockStrategy) {
+		if (implementation.equals(POINT_QUAD_TREE)) {
+			return new PointQuadTree<CollisionBox>(elementLimitPerQuad, mergeWatermark, 0f, 0f, WORLD_SIZE,
+					WORLD_SIZE);
+		}
+		if (implementation.equals(REGION_QUAD_TREE)) {
+			return new RegionQuadTree<CollisionBox>(elementLimitPerQuad, mergeWatermark, 0f, 0f, WORLD_SIZE,
+					WORLD_SIZE);
+		}
+		if (implementation.equals(LOOSE_REGION_QUAD_TREE)) {
+			return new LooseRegionQuadTree<CollisionBox>(elementLimitPerQuad, mergeWatermark, 0f, 0f, WORLD_SIZE,
+					WORLD_SIZE);
+		}
+		if (implementation.equals(CONCURRENT_POINT_QUAD_TREE)) {
+			return new ConcurrentPointQuadTree<CollisionBox>(elementLimitPerQuad, mergeWatermark, lockStrategy, 0f,
+					0f, WORLD_SIZE, WORLD_SIZE);
+		}
+		if (implementation.equals(CONCURRENT_REGION_QUAD_TREE)) {
+			return new ConcurrentRegionQuadTree<CollisionBox>(elementLimitPerQuad, mergeWatermark, lockStrategy, 0f,
+					0f, WORLD_SIZE, WORLD_SIZE);
+		}
+		if (implementation.equals(SPATIAL_HASH_GRID)) {
+			return new SpatialHashGrid<CollisionBox>(CELL_SIZE, 0f, 0f, WORLD_SIZE, WORLD_SIZE);
+		}
+		if (implementation.equals(DYNAMIC_AABB_TREE)) {
+			return new DynamicAabbTree<CollisionBox>(0f, 0f, WORLD_SIZE, WORLD_SIZE);
+		}
+		throw new IllegalArgumentException("Unknown quad tree implementation " + implementation);
+	}
+
+	/**
+	 * Creates randomly positioned and sized {@link CollisionBox}es that fit
+	 * entirely inside the benchmark world
+	 * 
+	 * @param random
+	 *            The {@link Random} instance to use
+	 * @param total
+	 *            The amount of elements to create
+	 * @return A new {@link List} of elements
+	 */
+	public static List<CollisionBox> createElements(Random random, int total) {
+		List<CollisionBox> result = new ArrayList<CollisionBox>(total);
+		for (int i = 0; i < total; i++) {
+			float width = 1f + random.nextFloat() * (MAX_ELEMENT_SIZE - 1f);
+			float height = 1f + random.nextFloat() * (MAX_ELEMENT_SIZE - 1f);
+			float x = random.nextFloat() * (WORLD_SIZE - width);
+			float y = random.nextFloat() * (WORLD_SIZE - height);
+			result.add(new CollisionBox(x, y, width, height));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates randomly positioned {@link CollisionBox}es of mixed sizes that
+	 * fit entirely inside the benchmark world. Most elements are small, as
+	 * with {@link #createElements(Random, int)}, but 1 in 20 is a long
+	 * horizontal or vertical wall and 1 in 50 is a large trigger zone.
+	 * 
+	 * @param random
+	 *            The {@link Random} instance to use
+	 * @param total
+	 *            The amount of elements to create
+	 * @return A new {@link List} of elements
+	 */
+	public static List<CollisionBox> createMixedSizeElements(Random random, int total) {
+		List<CollisionBox> result = new ArrayList<CollisionBox>(total);
+		for (int i = 0; i < total; i++) {
+			float width, height;
+			if (i % 50 == 0) {
+				width = MAX_TRIGGER_SIZE / 4f + random.nextFloat() * (MAX_TRIGGER_SIZE * 0.75f);
+				height = MAX_TRIGGER_SIZE / 4f + random.nextFloat() * (MAX_TRIGGER_SIZE * 0.75f);
+			} else if (i % 20 == 0) {
+				float length = MAX_WALL_LENGTH / 4f + random.nextFloat() * (MAX_WALL_LENGTH * 0.75f);
+				boolean horizontal = random.nextBoolean();
+				width = horizontal ? length : MAX_ELEMENT_SIZE / 2f;
+				height = horizontal ? MAX_ELEMENT_SIZE / 2f : length;
+			} else {
+				width = 1f + random.nextFloat() * (MAX_ELEMENT_SIZE - 1f);
+				height = 1f + random.nextFloat() * (MAX_ELEMENT_SIZE - 1f);
+			}
+			float x = random.nextFloat() * (WORLD_SIZE - width);
+			float y = random.nextFloat() * (WORLD_SIZE - height);
+			result.add(new CollisionBox(x, y, width, height));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates randomly positioned query regions
+	 * 
+	 * @param random
+	 *            The {@link Random} instance to use
+	 * @param total
+	 *            The amount of regions to create
+	 * @return A new array of regions
+	 */
+	public static Rectangle[] createRegions(Random random, int total) {
+		Rectangle[] result = new Rectangle[total];
+		for (int i = 0; i < total; i++) {
+			result[i] = new Rectangle(random.nextFloat() * (WORLD_SIZE - QUERY_SIZE),
+					random.nextFloat() * (WORLD_SIZE - QUERY_SIZE), QUERY_SIZE, QUERY_SIZE);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates query points. Half of the points are placed on existing
+	 * elements so that point queries return results.
+	 * 
+	 * @param random
+	 *            The {@link Random} instance to use
+	 * @param elements
+	 *            The elements in the {@link QuadTree} being queried
+	 * @param total
+	 *            The amount of points to create
+	 * @return A new array of points
+	 */
+	public static Point[] createPoints(Random random, List<CollisionBox> elements, int total) {
+		Point[] result = new Point[total];
+		for (int i = 0; i < total; i++) {
+			if (i % 2 == 0 && !elements.isEmpty()) {
+				CollisionBox element = elements.get(random.nextInt(elements.size()));
+				result[i] = new Point(element.getX(), element.getY());
+			} else {
+				result[i] = new Point(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates randomly positioned {@link LineSegment}s that are at most
+	 * {@link #QUERY_SIZE} long on each axis
+	 * 
+	 * @param random
+	 *            The {@link Random} instance to use
+	 * @param total
+	 *            The amount of {@link LineSegment}s to create
+	 * @return A new array of {@link LineSegment}s
+	 */
+	public static LineSegment[] createLineSegments(Random random, int total) {
+		LineSegment[] result = new LineSegment[total];
+		for (int i = 0; i < total; i++) {
+			float x1 = random.nextFloat() * WORLD_SIZE;
+			float y1 = random.nextFloat() * WORLD_SIZE;
+			float x2 = clamp(x1 + (random.nextFloat() * 2f - 1f) * QUERY_SIZE);
+			float y2 = clamp(y1 + (random.nextFloat() * 2f - 1f) * QUERY_SIZE);
+			result[i] = new LineSegment(x1, y1, x2, y2);
+		}
+		return result;
+	}
+
+	/**
+	 * Clamps a coordinate to the benchmark world
+	 * 
+	 * @param value
+	 *            The coordinate
+	 * @return The coordinate if it is within the world, otherwise the nearest
+	 *         edge of the world
+	 */
+	public static float clamp(float value) {
+		if (value < 0f) {
+			return 0f;
+		}
+		if (value > WORLD_SIZE - MAX_ELEMENT_SIZE) {
+			return WORLD_SIZE - MAX_ELEMENT_SIZE;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.collisions.PointQuadTree;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading static elements into an empty {@link PointQuadTree} or
+ * {@link org.mini2Dx.core.collisions.RegionQuadTree} through
+ * {@link PointQuadTree#bulkLoad(java.util.Collection)} against
+ * {@link PointQuadTree#addAll(List)} and individual adds. Run with
+ * <code>-prof gc</code> to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuadTreeBulkLoadBenchmark {
+	@Param({ QuadTreeBenchmarkSupport.POINT_QUAD_TREE, QuadTreeBenchmarkSupport.REGION_QUAD_TREE,
+			QuadTreeBenchmarkSupport.LOOSE_REGION_QUAD_TREE })
+	public String implementation;
+	@Param({ "1000", "10000", "50000" })
+	public int elementCount;
+	@Param({ "8", "32", "128" })
+	public int elementLimitPerQuad;
+
+	private List<CollisionBox> elements;
+	private PointQuadTree<CollisionBox> emptyTree;
+
+	/**
+	 * Elements are recreated for every invocation so that position change
+	 * listeners registered by previous invocations do not accumulate
+	 */
+	@Setup(Level.Invocation)
+	public void setup() {
+		elements = QuadTreeBenchmarkSupport.createElements(new Random(QuadTreeBenchmarkSupport.SEED), elementCount);
+		emptyTree = (PointQuadTree<CollisionBox>) QuadTreeBenchmarkSupport.createQuadTree(implementation,
+				elementLimitPerQuad, 0);
+	}
+
+	@Benchmark
+	public PointQuadTree<CollisionBox> add() {
+		for (int i = 0; i < elements.size(); i++) {
+			emptyTree.add(elements.get(i));
+		}
+		return emptyTree;
+	}
+
+	@Benchmark
+	public PointQuadTree<CollisionBox> addAll() {
+		emptyTree.addAll(elements);
+		return emptyTree;
+	}
+
+	@Benchmark
+	public PointQuadTree<CollisionBox> bulkLoad() {
+		emptyTree.bulkLoad(elements);
+		return emptyTree;
+	}
+}
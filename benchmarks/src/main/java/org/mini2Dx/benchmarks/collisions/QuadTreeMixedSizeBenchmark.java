@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.collisions.DynamicAabbTree;
+import org.mini2Dx.core.collisions.ElementVisitor;
+import org.mini2Dx.core.collisions.PairCallback;
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the region quad trees against the {@link DynamicAabbTree} on
+ * worlds of mixed size elements created by
+ * {@link QuadTreeBenchmarkSupport#createMixedSizeElements(Random, int)}.
+ * Walls and trigger zones are static while the small elements move a short
+ * distance in {@link #moveSmallElements()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuadTreeMixedSizeBenchmark {
+	private static final float MAX_SPEED = 8f;
+	private static final int TOTAL_QUERIES = 1024;
+
+	@Param({ QuadTreeBenchmarkSupport.REGION_QUAD_TREE, QuadTreeBenchmarkSupport.LOOSE_REGION_QUAD_TREE,
+			QuadTreeBenchmarkSupport.DYNAMIC_AABB_TREE })
+	public String implementation;
+	@Param({ "1000", "10000" })
+	public int elementCount;
+	@Param({ "8", "32" })
+	public int elementLimitPerQuad;
+
+	private QuadTree<CollisionBox> quadTree;
+	private final List<CollisionBox> smallElements = new ArrayList<CollisionBox>();
+	private float[] velocityX, velocityY;
+	private Rectangle[] regions;
+	private int queryIndex, totalVisited, totalPairs;
+
+	private final ElementVisitor<CollisionBox> visitor = new ElementVisitor<CollisionBox>() {
+		@Override
+		public boolean visit(CollisionBox element) {
+			totalVisited++;
+			return true;
+		}
+	};
+	private final PairCallback<CollisionBox> callback = new PairCallback<CollisionBox>() {
+		@Override
+		public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+			totalPairs++;
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(QuadTreeBenchmarkSupport.SEED);
+		List<CollisionBox> elements = QuadTreeBenchmarkSupport.createMixedSizeElements(random, elementCount);
+		for (int i = 0; i < elements.size(); i++) {
+			CollisionBox element = elements.get(i);
+			if (element.getWidth() <= QuadTreeBenchmarkSupport.MAX_ELEMENT_SIZE
+					&& element.getHeight() <= QuadTreeBenchmarkSupport.MAX_ELEMENT_SIZE) {
+				smallElements.add(element);
+			}
+		}
+
+		quadTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad, 0);
+		quadTree.addAll(elements);
+
+		velocityX = new float[smallElements.size()];
+		velocityY = new float[smallElements.size()];
+		for (int i = 0; i < smallElements.size(); i++) {
+			velocityX[i] = (random.nextFloat() * 2f - 1f) * MAX_SPEED;
+			velocityY[i] = (random.nextFloat() * 2f - 1f) * MAX_SPEED;
+		}
+		regions = QuadTreeBenchmarkSupport.createRegions(random, TOTAL_QUERIES);
+	}
+
+	@Benchmark
+	public int forEachWithinRegion() {
+		queryIndex = (queryIndex + 1) % TOTAL_QUERIES;
+		totalVisited = 0;
+		quadTree.forEachWithinRegion(regions[queryIndex], visitor);
+		return totalVisited;
+	}
+
+	@Benchmark
+	public QuadTree<CollisionBox> moveSmallElements() {
+		for (int i = 0; i < smallElements.size(); i++) {
+			CollisionBox element = smallElements.get(i);
+			float x = element.getX() + velocityX[i];
+			float y = element.getY() + velocityY[i];
+
+			if (x != QuadTreeBenchmarkSupport.clamp(x)) {
+				velocityX[i] = -velocityX[i];
+				x = QuadTreeBenchmarkSupport.clamp(x);
+			}
+			if (y != QuadTreeBenchmarkSupport.clamp(y)) {
+				velocityY[i] = -velocityY[i];
+				y = QuadTreeBenchmarkSupport.clamp(y);
+			}
+			element.setPosition(x, y);
+		}
+		return quadTree;
+	}
+
+	@Benchmark
+	public int findCollidingPairs() {
+		totalPairs = 0;
+		quadTree.findCollidingPairs(callback);
+		return totalPairs;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building up and tearing down {@link QuadTree}s through
+ * {@link QuadTree#add(org.mini2Dx.core.engine.Positionable)},
+ * {@link QuadTree#addAll(List)}, {@link QuadTree#remove(org.mini2Dx.core.engine.Positionable)}
+ * and {@link QuadTree#removeAll(List)}. Each invocation operates on
+ * {@link #elementCount} elements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuadTreeMutationBenchmark {
+	@Param({ QuadTreeBenchmarkSupport.POINT_QUAD_TREE, QuadTreeBenchmarkSupport.REGION_QUAD_TREE,
+			QuadTreeBenchmarkSupport.LOOSE_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.CONCURRENT_POINT_QUAD_TREE,
+			QuadTreeBenchmarkSupport.CONCURRENT_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.SPATIAL_HASH_GRID,
+			QuadTreeBenchmarkSupport.DYNAMIC_AABB_TREE })
+	public String implementation;
+	@Param({ "100", "1000", "10000" })
+	public int elementCount;
+	@Param({ "8", "32", "128" })
+	public int elementLimitPerQuad;
+	@Param({ "0", "4" })
+	public int mergeWatermark;
+
+	private List<CollisionBox> elementsToAdd;
+	private List<CollisionBox> elementsToRemove;
+	private QuadTree<CollisionBox> emptyTree;
+	private QuadTree<CollisionBox> populatedTree;
+
+	/**
+	 * Elements are recreated for every invocation so that position change
+	 * listeners registered by previous invocations do not accumulate
+	 */
+	@Setup(Level.Invocation)
+	public void setup() {
+		elementsToAdd = QuadTreeBenchmarkSupport.createElements(new Random(QuadTreeBenchmarkSupport.SEED),
+				elementCount);
+		elementsToRemove = QuadTreeBenchmarkSupport.createElements(new Random(QuadTreeBenchmarkSupport.SEED),
+				elementCount);
+
+		emptyTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad, mergeWatermark);
+		populatedTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad,
+				mergeWatermark);
+		populatedTree.addAll(elementsToRemove);
+	}
+
+	@Benchmark
+	public QuadTree<CollisionBox> add() {
+		for (int i = 0; i < elementsToAdd.size(); i++) {
+			emptyTree.add(elementsToAdd.get(i));
+		}
+		return emptyTree;
+	}
+
+	@Benchmark
+	public QuadTree<CollisionBox> addAll() {
+		emptyTree.addAll(elementsToAdd);
+		return emptyTree;
+	}
+
+	@Benchmark
+	public QuadTree<CollisionBox> remove() {
+		for (int i = elementsToRemove.size() - 1; i >= 0; i--) {
+			populatedTree.remove(elementsToRemove.get(i));
+		}
+		return populatedTree;
+	}
+
+	@Benchmark
+	public QuadTree<CollisionBox> removeAll() {
+		populatedTree.removeAll(elementsToRemove);
+		return populatedTree;
+	}
+}
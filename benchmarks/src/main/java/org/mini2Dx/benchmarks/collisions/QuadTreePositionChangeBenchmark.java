@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of
+ * {@link QuadTree#positionChanged(org.mini2Dx.core.engine.Positionable)}
+ * churn. {@link #moveAll()} simulates one frame in which every element moves
+ * a short distance, {@link #teleport()} moves a single element to a random
+ * location which usually forces it into a different quad. When
+ * {@link #deferPositionChanges} is enabled, {@link #moveAll()} flushes the
+ * batched changes once at the end of the frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuadTreePositionChangeBenchmark {
+	private static final float MAX_SPEED = 8f;
+	private static final int TOTAL_TELEPORTS = 1024;
+
+	@Param({ QuadTreeBenchmarkSupport.POINT_QUAD_TREE, QuadTreeBenchmarkSupport.REGION_QUAD_TREE,
+			QuadTreeBenchmarkSupport.LOOSE_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.CONCURRENT_POINT_QUAD_TREE,
+			QuadTreeBenchmarkSupport.CONCURRENT_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.SPATIAL_HASH_GRID,
+			QuadTreeBenchmarkSupport.DYNAMIC_AABB_TREE })
+	public String implementation;
+	@Param({ "100", "1000", "10000" })
+	public int elementCount;
+	@Param({ "8", "32", "128" })
+	public int elementLimitPerQuad;
+	@Param({ "0", "4" })
+	public int mergeWatermark;
+	@Param({ "false", "true" })
+	public boolean deferPositionChanges;
+
+	private QuadTree<CollisionBox> quadTree;
+	private List<CollisionBox> elements;
+	private float[] velocityX, velocityY;
+	private float[] teleportX, teleportY;
+	private int teleportIndex;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(QuadTreeBenchmarkSupport.SEED);
+		elements = QuadTreeBenchmarkSupport.createElements(random, elementCount);
+
+		quadTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad, mergeWatermark);
+		quadTree.addAll(elements);
+		quadTree.setDeferPositionChanges(deferPositionChanges);
+
+		velocityX = new float[elementCount];
+		velocityY = new float[elementCount];
+		for (int i = 0; i < elementCount; i++) {
+			velocityX[i] = (random.nextFloat() * 2f - 1f) * MAX_SPEED;
+			velocityY[i] = (random.nextFloat() * 2f - 1f) * MAX_SPEED;
+		}
+
+		teleportX = new float[TOTAL_TELEPORTS];
+		teleportY = new float[TOTAL_TELEPORTS];
+		for (int i = 0; i < TOTAL_TELEPORTS; i++) {
+			teleportX[i] = QuadTreeBenchmarkSupport.clamp(random.nextFloat() * QuadTreeBenchmarkSupport.WORLD_SIZE);
+			teleportY[i] = QuadTreeBenchmarkSupport.clamp(random.nextFloat() * QuadTreeBenchmarkSupport.WORLD_SIZE);
+		}
+	}
+
+	@Benchmark
+	public QuadTree<CollisionBox> moveAll() {
+		for (int i = 0; i < elements.size(); i++) {
+			CollisionBox element = elements.get(i);
+			float x = element.getX() + velocityX[i];
+			float y = element.getY() + velocityY[i];
+
+			if (x != QuadTreeBenchmarkSupport.clamp(x)) {
+				velocityX[i] = -velocityX[i];
+				x = QuadTreeBenchmarkSupport.clamp(x);
+			}
+			if (y != QuadTreeBenchmarkSupport.clamp(y)) {
+				velocityY[i] = -velocityY[i];
+				y = QuadTreeBenchmarkSupport.clamp(y);
+			}
+			element.setPosition(x, y);
+		}
+		quadTree.flushPositionChanges();
+		return quadTree;
+	}
+
+	@Benchmark
+	public CollisionBox teleport() {
+		teleportIndex = (teleportIndex + 1) % TOTAL_TELEPORTS;
+		CollisionBox element = elements.get(teleportIndex % elements.size());
+		element.setPosition(teleportX[teleportIndex], teleportY[teleportIndex]);
+		quadTree.flushPositionChanges();
+		return element;
+	}
+}
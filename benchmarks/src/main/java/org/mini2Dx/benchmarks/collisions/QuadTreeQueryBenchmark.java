@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.collisions.ElementVisitor;
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.collisions.RaycastResult;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link QuadTree} query types against a populated tree. Queries
+ * cycle through pre-generated regions, points and line segments and reuse a
+ * single result list or {@link ElementVisitor} so that only the query itself
+ * is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuadTreeQueryBenchmark {
+	private static final int TOTAL_QUERIES = 1024;
+	private static final int NEAREST_ELEMENTS = 8;
+	private static final float RADIUS = 128f;
+
+	@Param({ QuadTreeBenchmarkSupport.POINT_QUAD_TREE, QuadTreeBenchmarkSupport.REGION_QUAD_TREE,
+			QuadTreeBenchmarkSupport.LOOSE_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.CONCURRENT_POINT_QUAD_TREE,
+			QuadTreeBenchmarkSupport.CONCURRENT_REGION_QUAD_TREE, QuadTreeBenchmarkSupport.SPATIAL_HASH_GRID,
+			QuadTreeBenchmarkSupport.DYNAMIC_AABB_TREE })
+	public String implementation;
+	@Param({ "100", "1000", "10000" })
+	public int elementCount;
+	@Param({ "8", "32", "128" })
+	public int elementLimitPerQuad;
+	@Param({ "0", "4" })
+	public int mergeWatermark;
+
+	private QuadTree<CollisionBox> quadTree;
+	private Rectangle[] regions;
+	private Point[] points;
+	private LineSegment[] lineSegments;
+	private final List<CollisionBox> result = new ArrayList<CollisionBox>();
+	private final RaycastResult<CollisionBox> raycastResult = new RaycastResult<CollisionBox>();
+	private final CountingVisitor visitor = new CountingVisitor();
+	private int queryIndex;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(QuadTreeBenchmarkSupport.SEED);
+		List<CollisionBox> elements = QuadTreeBenchmarkSupport.createElements(random, elementCount);
+
+		quadTree = QuadTreeBenchmarkSupport.createQuadTree(implementation, elementLimitPerQuad, mergeWatermark);
+		quadTree.addAll(elements);
+
+		regions = QuadTreeBenchmarkSupport.createRegions(random, TOTAL_QUERIES);
+		points = QuadTreeBenchmarkSupport.createPoints(random, elements, TOTAL_QUERIES);
+		lineSegments = QuadTreeBenchmarkSupport.createLineSegments(random, TOTAL_QUERIES);
+	}
+
+	private int nextQueryIndex() {
+		queryIndex = (queryIndex + 1) % TOTAL_QUERIES;
+		return queryIndex;
+	}
+
+	@Benchmark
+	public int getElementsWithinRegion() {
+		result.clear();
+		quadTree.getElementsWithinRegion(result, regions[nextQueryIndex()]);
+		return result.size();
+	}
+
+	@Benchmark
+	public int forEachWithinRegion() {
+		visitor.total = 0;
+		quadTree.forEachWithinRegion(regions[nextQueryIndex()], visitor);
+		return visitor.total;
+	}
+
+	@Benchmark
+	public int getElementsContainingPoint() {
+		result.clear();
+		quadTree.getElementsContainingPoint(result, points[nextQueryIndex()]);
+		return result.size();
+	}
+
+	@Benchmark
+	public int getElementsIntersectingLineSegment() {
+		result.clear();
+		quadTree.getElementsIntersectingLineSegment(result, lineSegments[nextQueryIndex()]);
+		return result.size();
+	}
+
+	@Benchmark
+	public int forEachIntersectingLineSegment() {
+		visitor.total = 0;
+		quadTree.forEachIntersectingLineSegment(lineSegments[nextQueryIndex()], visitor);
+		return visitor.total;
+	}
+
+	@Benchmark
+	public int getNearestElements() {
+		result.clear();
+		Point point = points[nextQueryIndex()];
+		quadTree.getNearestElements(result, point.x, point.y, NEAREST_ELEMENTS);
+		return result.size();
+	}
+
+	@Benchmark
+	public int getElementsWithinRadius() {
+		result.clear();
+		Point point = points[nextQueryIndex()];
+		quadTree.getElementsWithinRadius(result, point.x, point.y, RADIUS);
+		return result.size();
+	}
+
+	@Benchmark
+	public int forEachWithinRadius() {
+		visitor.total = 0;
+		Point point = points[nextQueryIndex()];
+		quadTree.forEachWithinRadius(point.x, point.y, RADIUS, visitor);
+		return visitor.total;
+	}
+
+	@Benchmark
+	public float raycast() {
+		quadTree.raycast(lineSegments[nextQueryIndex()], raycastResult);
+		return raycastResult.getDistance();
+	}
+
+	private static class CountingVisitor implements ElementVisitor<CollisionBox> {
+		private int total;
+
+		@Override
+		public boolean visit(CollisionBox element) {
+			total++;
+			return true;
+		}
+	}
+}
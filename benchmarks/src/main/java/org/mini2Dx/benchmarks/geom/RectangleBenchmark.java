@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.benchmarks.geom;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mini2Dx.core.geom.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link Rectangle} operations performed every frame by
+ * interpolation and collision checks, with and without rotation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RectangleBenchmark {
+	private static final int TOTAL_CANDIDATES = 64;
+
+	@Param({ "0", "30" })
+	public float rotation;
+
+	private Rectangle rectangle, other, targetA, targetB;
+	private Rectangle[] candidates;
+	private boolean[] results;
+	private float nextX;
+
+	@Setup
+	public void setup() {
+		rectangle = new Rectangle(100f, 100f, 32f, 32f);
+		rectangle.setRotation(rotation);
+		other = new Rectangle(110f, 110f, 32f, 32f);
+		other.setRotation(rotation);
+		targetA = new Rectangle(90f, 110f, 32f, 32f);
+		targetA.setRotation(rotation);
+		targetB = new Rectangle(110f, 90f, 32f, 32f);
+		targetB.setRotation(rotation == 0f ? 0f : rotation + 10f);
+
+		candidates = new Rectangle[TOTAL_CANDIDATES];
+		results = new boolean[TOTAL_CANDIDATES];
+		for (int i = 0; i < TOTAL_CANDIDATES; i++) {
+			candidates[i] = new Rectangle(80f + ((i % 8) * 8f), 80f + ((i / 8) * 8f), 6f, 6f);
+			candidates[i].setRotation(rotation);
+		}
+	}
+
+	/**
+	 * Interpolates towards alternating targets so that the position (and
+	 * rotation, when rotated) changes on every call
+	 */
+	@Benchmark
+	public Rectangle lerp() {
+		rectangle.lerp(targetA, 0.5f);
+		return rectangle.lerp(targetB, 0.5f);
+	}
+
+	@Benchmark
+	public boolean intersects() {
+		return rectangle.intersects(other);
+	}
+
+	/**
+	 * Tests one {@link Rectangle} against a grid of candidates, some of which
+	 * only overlap its bounds when rotated
+	 */
+	@Benchmark
+	public int intersectsCandidates() {
+		return rectangle.intersects(candidates, 0, TOTAL_CANDIDATES, results);
+	}
+
+	/**
+	 * Moves the {@link Rectangle} before each intersection test so that its
+	 * min/max coordinates are out of date
+	 */
+	@Benchmark
+	public boolean moveAndIntersect() {
+		nextX = nextX == 100f ? 101f : 100f;
+		rectangle.setX(nextX);
+		return rectangle.intersects(other);
+	}
+
+	@Benchmark
+	public float rotate() {
+		rectangle.rotate(1f);
+		return rectangle.getMaxX();
+	}
+}
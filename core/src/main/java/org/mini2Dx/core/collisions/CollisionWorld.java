@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+/**
+ * Partitions elements into a static index for elements that never move, e.g.
+ * the tile collisions extracted by a <code>TiledCollisionMapper</code>, and a
+ * dynamic {@link QuadTree} for elements that do. The static index is built
+ * once by {@link #setStaticElements(Collection)} and flattened into arrays
+ * so that it is never rebalanced and does not listen for position changes.
+ * Queries search both indexes.
+ * 
+ * Static elements must not be moved. Moving them has no effect on which
+ * queries find them until {@link #setStaticElements(Collection)} is called
+ * again.
+ * 
+ * @param <T>
+ *            The type of element in the {@link CollisionWorld}
+ */
+public class CollisionWorld<T extends Positionable> {
+	private final QuadTree<T> dynamicElements;
+	private final QuadTreeSnapshot<T> staticElements = new QuadTreeSnapshot<T>();
+	private final StaticPairFinder staticPairFinder = new StaticPairFinder();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param dynamicElements
+	 *            The {@link QuadTree} to store moving elements in
+	 */
+	public CollisionWorld(QuadTree<T> dynamicElements) {
+		if (dynamicElements == null) {
+			throw new IllegalArgumentException("Dynamic elements QuadTree cannot be null");
+		}
+		this.dynamicElements = dynamicElements;
+	}
+
+	/**
+	 * Replaces the static elements of this {@link CollisionWorld}
+	 * 
+	 * @param elements
+	 *            The elements that will not move
+	 */
+	public void setStaticElements(Collection<T> elements) {
+		staticElements.build(elements, staticElements.getFrame() + 1);
+	}
+
+	/**
+	 * Adds a moving element
+	 * 
+	 * @param element
+	 *            The element to add
+	 * @return True if the element was added to the dynamic {@link QuadTree}
+	 */
+	public boolean add(T element) {
+		return dynamicElements.add(element);
+	}
+
+	/**
+	 * Removes a moving element
+	 * 
+	 * @param element
+	 *            The element to remove
+	 * @return True if the element was removed from the dynamic
+	 *         {@link QuadTree}
+	 */
+	public boolean remove(T element) {
+		return dynamicElements.remove(element);
+	}
+
+	public void addAll(List<T> elements) {
+		dynamicElements.addAll(elements);
+	}
+
+	public void removeAll(List<T> elements) {
+		dynamicElements.removeAll(elements);
+	}
+
+	public List<T> getElementsWithinRegion(Rectangle area) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRegion(result, area);
+		return result;
+	}
+
+	public void getElementsWithinRegion(Collection<T> result, Rectangle area) {
+		forEachWithinRegion(area, new ElementCollector<T>(result));
+	}
+
+	/**
+	 * Visits each static element whose bounds overlap the bounds of a
+	 * {@link Rectangle}, followed by each moving element within the
+	 * {@link Rectangle}
+	 * 
+	 * @param area
+	 *            The {@link Rectangle} to search within
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped the query
+	 */
+	public boolean forEachWithinRegion(Rectangle area, ElementVisitor<T> visitor) {
+		if (!staticElements.forEachWithinRegion(area, visitor)) {
+			return false;
+		}
+		return dynamicElements.forEachWithinRegion(area, visitor);
+	}
+
+	public List<T> getElementsContainingPoint(Point point) {
+		List<T> result = new ArrayList<T>();
+		getElementsContainingPoint(result, point);
+		return result;
+	}
+
+	public void getElementsContainingPoint(Collection<T> result, Point point) {
+		forEachContainingPoint(point, new ElementCollector<T>(result));
+	}
+
+	/**
+	 * Visits each static element whose bounds contain a {@link Point},
+	 * followed by each moving element containing the {@link Point}
+	 * 
+	 * @param point
+	 *            The {@link Point} to search at
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped the query
+	 */
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor) {
+		if (!staticElements.forEachContainingPoint(point.x, point.y, visitor)) {
+			return false;
+		}
+		return dynamicElements.forEachContainingPoint(point, visitor);
+	}
+
+	/**
+	 * Visits every static element followed by every moving element
+	 * 
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped iterating
+	 */
+	public boolean forEachElement(ElementVisitor<T> visitor) {
+		if (!staticElements.forEachElement(visitor)) {
+			return false;
+		}
+		return dynamicElements.forEachElement(visitor);
+	}
+
+	/**
+	 * Finds all pairs of overlapping moving elements and all moving elements
+	 * whose bounds overlap the bounds of a static element. Static elements
+	 * are never paired with each other. Pairs with a static element pass the
+	 * moving element first.
+	 * 
+	 * @param callback
+	 *            The {@link PairCallback} to call for each pair
+	 */
+	public void findCollidingPairs(PairCallback<T> callback) {
+		dynamicElements.findCollidingPairs(callback);
+		if (staticElements.getTotalElements() == 0) {
+			return;
+		}
+		staticPairFinder.callback = callback;
+		dynamicElements.forEachElement(staticPairFinder);
+		staticPairFinder.callback = null;
+	}
+
+	public int getTotalStaticElements() {
+		return staticElements.getTotalElements();
+	}
+
+	public int getTotalDynamicElements() {
+		return dynamicElements.getTotalElements();
+	}
+
+	public int getTotalElements() {
+		return getTotalStaticElements() + getTotalDynamicElements();
+	}
+
+	/**
+	 * Returns the {@link QuadTree} moving elements are stored in
+	 * 
+	 * @return
+	 */
+	public QuadTree<T> getDynamicElements() {
+		return dynamicElements;
+	}
+
+	/**
+	 * Pairs each moving element it visits with the static elements it
+	 * overlaps
+	 */
+	private class StaticPairFinder implements ElementVisitor<T> {
+		private final ElementVisitor<T> staticElementVisitor = new ElementVisitor<T>() {
+			@Override
+			public boolean visit(T element) {
+				callback.onCollidingPair(dynamicElement, element);
+				return true;
+			}
+		};
+		private PairCallback<T> callback;
+		private T dynamicElement;
+
+		@Override
+		public boolean visit(T element) {
+			dynamicElement = element;
+			staticElements.forEachOverlapping(element, staticElementVisitor);
+			dynamicElement = null;
+			return true;
+		}
+	}
+}
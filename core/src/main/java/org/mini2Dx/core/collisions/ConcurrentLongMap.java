@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * A thread-safe wrapper around a {@link LongMap}. Lookups take the read lock
+ * so that they can run in parallel with each other.
+ * 
+ * @param <V>
+ *            The type of value
+ */
+class ConcurrentLongMap<V> {
+	private final LongMap<V> map = new LongMap<V>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock(false);
+
+	public V get(long key) {
+		lock.readLock().lock();
+		try {
+			return map.get(key);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void put(long key, V value) {
+		lock.writeLock().lock();
+		try {
+			map.put(key, value);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a key only if it is mapped to a specific value
+	 * 
+	 * @param key
+	 *            The key to remove
+	 * @param value
+	 *            The value the key must be mapped to
+	 * @return True if the key was removed
+	 */
+	public boolean remove(long key, V value) {
+		lock.writeLock().lock();
+		try {
+			if (map.get(key) != value) {
+				return false;
+			}
+			map.remove(key);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
@@ -13,11 +13,18 @@ package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
 import org.mini2Dx.core.geom.LineSegment;
 import org.mini2Dx.core.geom.Parallelogram;
 import org.mini2Dx.core.geom.Point;
@@ -29,6 +36,13 @@ import com.badlogic.gdx.graphics.Color;
 /**
  * Implements a thread-safe point quadtree
  * 
+ * The <code>forEach</code> queries call their {@link ElementVisitor} during
+ * the search while holding the read locks of the quad being searched and its
+ * parents, so the {@link ElementVisitor} must not add, remove or move
+ * elements. Optimistic searches (see {@link LockStrategy#OPTIMISTIC_READ})
+ * collect their elements and visit them once every quad searched has been
+ * validated.
+ * 
  * @see <a href="http://en.wikipedia.org/wiki/Quadtree#Point_quadtree">
  *      Wikipedia: Point Quad Tree</a>
  */
@@ -38,16 +52,49 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 	public static Color QUAD_COLOR = new Color(1f, 0f, 0f, 0.5f);
 	public static Color ELEMENT_COLOR = new Color(0f, 0f, 1f, 0.5f);
 
+	private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+	private static final ThreadLocal<List<Object>> VISITOR_BUFFER = new ThreadLocal<List<Object>>() {
+		@Override
+		protected List<Object> initialValue() {
+			return new ArrayList<Object>();
+		}
+	};
+
 	protected ConcurrentPointQuadTree<T> parent;
+	protected ConcurrentPointQuadTree<T> root = this;
 	protected ConcurrentPointQuadTree<T> topLeft, topRight, bottomLeft, bottomRight;
 	protected List<T> elements;
 
 	protected final int elementLimitPerQuad;
 	protected final int mergeWatermark;
+	protected final LockStrategy lockStrategy;
 	protected final ReadWriteLock lock;
+	/**
+	 * Set to the same instance as {@link #lock} when using
+	 * {@link LockStrategy#OPTIMISTIC_READ}, otherwise null
+	 */
+	protected final OptimisticReadWriteLock optimisticLock;
 
 	protected int totalElementsCache = -1;
 
+	/**
+	 * Only used by the root quad. Maps each moved element to the quad it was
+	 * stored in when it moved, or null if it is not stored in any quad.
+	 * Access is synchronized on the {@link Map} itself.
+	 */
+	protected volatile Map<T, ConcurrentPointQuadTree<T>> pendingPositionChanges;
+	protected volatile boolean deferPositionChanges;
+	/**
+	 * Only used by the root quad. Created on first use if statistics are
+	 * enabled.
+	 */
+	protected transient volatile QuadTreeStatistics statistics;
+	/**
+	 * Only used by the root quad. Created on first use.
+	 */
+	protected transient volatile ConcurrentLongMap<T> elementsById;
+
 	/**
 	 * Constructs a {@link ConcurrentPointQuadTree} with a specified element
 	 * limit and watermark
@@ -70,6 +117,33 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 	 */
 	public ConcurrentPointQuadTree(int elementLimitPerQuad, int mergeWatermark, float x, float y, float width,
 			float height) {
+		this(elementLimitPerQuad, mergeWatermark, LockStrategy.READ_WRITE, x, y, width, height);
+	}
+
+	/**
+	 * Constructs a {@link ConcurrentPointQuadTree} with a specified element
+	 * limit, watermark and {@link LockStrategy}
+	 * 
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a quad before it is split
+	 *            into 4 child {@link ConcurrentPointQuadTree}s
+	 * @param mergeWatermark
+	 *            When a parent {@link ConcurrentPointQuadTree}'s total elements
+	 *            go lower than this mark, the child
+	 *            {@link ConcurrentPointQuadTree}s will be merged back together
+	 * @param lockStrategy
+	 *            The {@link LockStrategy} used by this quad and its child quads
+	 * @param x
+	 *            The x coordinate of the {@link ConcurrentPointQuadTree}
+	 * @param y
+	 *            The y coordiante of the {@link ConcurrentPointQuadTree}
+	 * @param width
+	 *            The width of the {@link ConcurrentPointQuadTree}
+	 * @param height
+	 *            The height of the {@link ConcurrentPointQuadTree}
+	 */
+	public ConcurrentPointQuadTree(int elementLimitPerQuad, int mergeWatermark, LockStrategy lockStrategy, float x,
+			float y, float width, float height) {
 		super(x, y, width, height);
 
 		if (mergeWatermark >= elementLimitPerQuad) {
@@ -78,7 +152,19 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 
 		this.elementLimitPerQuad = elementLimitPerQuad;
 		this.mergeWatermark = mergeWatermark;
-		this.lock = new ReentrantReadWriteLock(false);
+		this.lockStrategy = lockStrategy;
+
+		switch (lockStrategy) {
+		case OPTIMISTIC_READ:
+			optimisticLock = new OptimisticReadWriteLock();
+			lock = optimisticLock;
+			break;
+		case READ_WRITE:
+		default:
+			optimisticLock = null;
+			lock = new ReentrantReadWriteLock(false);
+			break;
+		}
 
 		elements = new ArrayList<T>();
 	}
@@ -120,8 +206,9 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 	 *            The height of the {@link ConcurrentPointQuadTree}
 	 */
 	public ConcurrentPointQuadTree(ConcurrentPointQuadTree<T> parent, float x, float y, float width, float height) {
-		this(parent.getElementLimitPerQuad(), x, y, width, height);
+		this(parent.getElementLimitPerQuad(), 0, parent.getLockStrategy(), x, y, width, height);
 		this.parent = parent;
+		this.root = parent.root;
 	}
 
 	public void debugRender(Graphics g) {
@@ -160,26 +247,14 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 				elementsWithinQuad.add(element);
 			}
 		}
+		addElementIds(elementsWithinQuad);
 		
 		lock.writeLock().lock();
 		
 		if(topLeft != null) {
 			lock.readLock().lock();
 			lock.writeLock().unlock();
-			for(T element : elementsWithinQuad) {
-				if (topLeft.add(element)) {
-					continue;
-				}
-				if (topRight.add(element)) {
-					continue;
-				}
-				if (bottomLeft.add(element)) {
-					continue;
-				}
-				if (bottomRight.add(element)) {
-					continue;
-				}
-			}
+			addAllToChildren(elementsWithinQuad);
 			lock.readLock().unlock();
 			return;
 		}
@@ -204,6 +279,7 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			return false;
 		}
 		clearTotalElementsCache();
+		addElementId(element);
 		return addElement(element);
 	}
 
@@ -249,6 +325,68 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 		return false;
 	}
 
+	/**
+	 * Distributes elements amongst the child quads. Each child receives its
+	 * share through a single {@link #addAll(List)} call so that it is only
+	 * locked once per batch.
+	 * 
+	 * @param elementsToAdd
+	 *            The elements to distribute
+	 * @return The elements that do not belong in a child quad
+	 */
+	protected List<T> addAllToChildren(List<T> elementsToAdd) {
+		List<List<T>> childElements = new ArrayList<List<T>>(4);
+		for (int i = 0; i < 4; i++) {
+			childElements.add(new ArrayList<T>());
+		}
+		List<T> result = new ArrayList<T>();
+		for (int i = 0; i < elementsToAdd.size(); i++) {
+			T element = elementsToAdd.get(i);
+			byte childIndex = getChildIndex(element);
+			if (childIndex < 0) {
+				result.add(element);
+				continue;
+			}
+			childElements.get(childIndex).add(element);
+		}
+		topLeft.addAll(childElements.get(0));
+		topRight.addAll(childElements.get(1));
+		bottomLeft.addAll(childElements.get(2));
+		bottomRight.addAll(childElements.get(3));
+		return result;
+	}
+
+	/**
+	 * Returns the index of the child quad an element would be placed in
+	 * 
+	 * @param element
+	 *            The element
+	 * @return 0 - 3 for top left, top right, bottom left and bottom right
+	 *         respectively or -1 if the element does not belong to a child
+	 */
+	protected byte getChildIndex(T element) {
+		if (getRotation() != 0f) {
+			if (topLeft.contains(element.getX(), element.getY())) {
+				return 0;
+			}
+			if (topRight.contains(element.getX(), element.getY())) {
+				return 1;
+			}
+			if (bottomLeft.contains(element.getX(), element.getY())) {
+				return 2;
+			}
+			if (bottomRight.contains(element.getX(), element.getY())) {
+				return 3;
+			}
+			return -1;
+		}
+		//Axis-aligned quads can be resolved without testing each child
+		if (element.getY() <= topLeft.getMaxY()) {
+			return (byte) (element.getX() <= topLeft.getMaxX() ? 0 : 1);
+		}
+		return (byte) (element.getX() <= topLeft.getMaxX() ? 2 : 3);
+	}
+
 	protected void subdivide() {
 		lock.readLock().lock();
 		if (topLeft != null) {
@@ -264,6 +402,9 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			lock.writeLock().unlock();
 			return;
 		}
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordSubdivision();
+		}
 
 		float halfWidth = width / 2f;
 		float halfHeight = height / 2f;
@@ -277,7 +418,11 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			T element = elements.remove(i);
 			element.removePositionChangeListener(this);
 			lock.readLock().lock();
-			addElementToChild(element);
+			if (addElementToChild(element)) {
+				continue;
+			}
+			//Element moved outside this quad while position changes are deferred
+			addPendingPositionChange(element, null, false);
 		}
 
 		lock.writeLock().unlock();
@@ -331,6 +476,9 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			lock.writeLock().unlock();
 			return;
 		}
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordMerge();
+		}
 
 		topLeft.getElements(elements);
 		topRight.getElements(elements);
@@ -347,6 +495,7 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			bottomRight.elements.remove(element);
 			element.removePositionChangeListener(bottomRight);
 			element.addPostionChangeListener(this);
+			addPendingPositionChange(element, this, true);
 		}
 
 		topLeft = null;
@@ -362,6 +511,9 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 		if(elementsToRemove == null || elementsToRemove.isEmpty()) {
 			return;
 		}
+		if (parent == null) {
+			flushPositionChanges();
+		}
 		clearTotalElementsCache();
 		
 		List<T> elementsWithinQuad = new ArrayList<T>();
@@ -370,6 +522,7 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 				elementsWithinQuad.add(element);
 			}
 		}
+		removeElementIds(elementsWithinQuad);
 		
 		lock.writeLock().lock();
 		if(topLeft != null) {
@@ -394,7 +547,9 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			}
 		}
 		
-		elements.removeAll(elementsWithinQuad);
+		for(T element : elementsWithinQuad) {
+			removeFromElements(element);
+		}
 		lock.writeLock().unlock();
 		
 		for(T element : elementsWithinQuad) {
@@ -412,11 +567,17 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 	public boolean remove(T element) {
 		if (element == null)
 			return false;
+		if (parent == null) {
+			flushPositionChanges();
+		}
 
 		if (!this.contains(element.getX(), element.getY())) {
 			return false;
 		}
 		clearTotalElementsCache();
+		if (parent == null) {
+			removeElementId(element);
+		}
 
 		lock.readLock().lock();
 		if (topLeft != null) {
@@ -447,6 +608,25 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 		return false;
 	}
 
+	/**
+	 * Removes an element from this quad's element list by identity.
+	 * {@link List#remove(Object)} cannot be used as equally sized elements
+	 * at the same position are considered equal.
+	 * 
+	 * @param element
+	 *            The element to remove
+	 * @return True if the element was removed
+	 */
+	protected boolean removeFromElements(T element) {
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			if (elements.get(i) == element) {
+				elements.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected boolean removeElement(T element) {
 		lock.writeLock().lock();
 		
@@ -457,7 +637,7 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 			return removeElementFromChild(element);
 		}
 		
-		boolean result = elements.remove(element);
+		boolean result = removeFromElements(element);
 		lock.writeLock().unlock();
 		element.removePositionChangeListener(this);
 
@@ -477,21 +657,88 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 	}
 
 	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram) {
+		forEachWithinRegion(parallelogram, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRegion(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		if (optimisticLock != null) {
+			List<T> buffer = getVisitorBuffer();
+			int fromIndex = buffer.size();
+			for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+				if (addElementsWithinRegionOptimistically(buffer, parallelogram)) {
+					return visitBuffer(buffer, fromIndex, visitor);
+				}
+				truncateBuffer(buffer, fromIndex);
+			}
+		}
+		return forEachWithinRegionLocked(parallelogram, visitor);
+	}
+
+	protected boolean forEachWithinRegionLocked(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		recordVisit();
 		lock.readLock().lock();
-		if (topLeft != null) {
-			topLeft.getElementsWithinRegion(result, parallelogram);
-			topRight.getElementsWithinRegion(result, parallelogram);
-			bottomLeft.getElementsWithinRegion(result, parallelogram);
-			bottomRight.getElementsWithinRegion(result, parallelogram);
-		} else {
+		try {
+			if (topLeft != null) {
+				return topLeft.forEachWithinRegionLocked(parallelogram, visitor)
+						&& topRight.forEachWithinRegionLocked(parallelogram, visitor)
+						&& bottomLeft.forEachWithinRegionLocked(parallelogram, visitor)
+						&& bottomRight.forEachWithinRegionLocked(parallelogram, visitor);
+			}
 			for (int i = elements.size() - 1; i >= 0; i--) {
 				T element = elements.get(i);
-				if (element != null && parallelogram.contains(element.getX(), element.getY())) {
-					result.add(element);
+				if (element != null && parallelogram.contains(element.getX(), element.getY())
+						&& !visitor.visit(element)) {
+					return false;
 				}
 			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
 		}
-		lock.readLock().unlock();
+	}
+
+	/**
+	 * Adds the elements within a region to a buffer without locking. The
+	 * child quads are only searched once the reads of this quad have been
+	 * validated and this quad is validated again afterwards, as a merge moves
+	 * the elements of the child quads into this quad.
+	 * 
+	 * @param buffer
+	 *            The buffer returned by {@link #getVisitorBuffer()}
+	 * @param parallelogram
+	 *            The region to search
+	 * @return False if a quad was modified during the search
+	 */
+	protected boolean addElementsWithinRegionOptimistically(List<T> buffer, Parallelogram parallelogram) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (topLeftChild == null) {
+			try {
+				for (int i = elements.size() - 1; i >= 0; i--) {
+					T element = elements.get(i);
+					if (element != null && parallelogram.contains(element.getX(), element.getY())) {
+						buffer.add(element);
+					}
+				}
+			} catch (RuntimeException e) {
+				return false;
+			}
+			return optimisticLock.validate(stamp);
+		}
+		return optimisticLock.validate(stamp)
+				&& topLeftChild.addElementsWithinRegionOptimistically(buffer, parallelogram)
+				&& topRightChild.addElementsWithinRegionOptimistically(buffer, parallelogram)
+				&& bottomLeftChild.addElementsWithinRegionOptimistically(buffer, parallelogram)
+				&& bottomRightChild.addElementsWithinRegionOptimistically(buffer, parallelogram)
+				&& optimisticLock.validate(stamp);
 	}
 
 	@Override
@@ -503,21 +750,43 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 
 	@Override
 	public void getElementsContainingPoint(Collection<T> result, Point point) {
-		lock.readLock().lock();
-		if (topLeft != null) {
-			if (topLeft.contains(point)) {
-				topLeft.getElementsContainingPoint(result, point);
-			}
-			if (topRight.contains(point)) {
-				topRight.getElementsContainingPoint(result, point);
-			}
-			if (bottomLeft.contains(point)) {
-				bottomLeft.getElementsContainingPoint(result, point);
+		forEachContainingPoint(point, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor) {
+		if (optimisticLock != null) {
+			List<T> buffer = getVisitorBuffer();
+			int fromIndex = buffer.size();
+			for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+				if (addElementsContainingPointOptimistically(buffer, point)) {
+					return visitBuffer(buffer, fromIndex, visitor);
+				}
+				truncateBuffer(buffer, fromIndex);
 			}
-			if (bottomRight.contains(point)) {
-				bottomRight.getElementsContainingPoint(result, point);
+		}
+		return forEachContainingPointLocked(point, visitor);
+	}
+
+	protected boolean forEachContainingPointLocked(Point point, ElementVisitor<T> visitor) {
+		recordVisit();
+		lock.readLock().lock();
+		try {
+			if (topLeft != null) {
+				if (topLeft.contains(point) && !topLeft.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				if (topRight.contains(point) && !topRight.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				if (bottomLeft.contains(point) && !bottomLeft.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				if (bottomRight.contains(point) && !bottomRight.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				return true;
 			}
-		} else {
 			for (int i = elements.size() - 1; i >= 0; i--) {
 				T element = elements.get(i);
 				if (element == null) {
@@ -529,128 +798,1314 @@ public class ConcurrentPointQuadTree<T extends Positionable> extends Rectangle i
 				if (element.getY() != point.y) {
 					continue;
 				}
-				result.add(element);
+				if (!visitor.visit(element)) {
+					return false;
+				}
 			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
 		}
-		lock.readLock().unlock();
-	}
-
-	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
-		List<T> result = new ArrayList<T>();
-		getElementsIntersectingLineSegment(result, lineSegment);
-		return result;
 	}
 
-	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
-		lock.readLock().lock();
-		if (topLeft != null) {
-			if (topLeft.intersects(lineSegment) || topLeft.contains(lineSegment.getPointA())
-					|| topLeft.contains(lineSegment.getPointB())) {
-				topLeft.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-			if (topRight.intersects(lineSegment) || topRight.contains(lineSegment.getPointA())
-					|| topRight.contains(lineSegment.getPointB())) {
-				topRight.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-			if (bottomLeft.intersects(lineSegment) || bottomLeft.contains(lineSegment.getPointA())
-					|| bottomLeft.contains(lineSegment.getPointB())) {
-				bottomLeft.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-			if (bottomRight.intersects(lineSegment) || bottomRight.contains(lineSegment.getPointA())
-					|| bottomRight.contains(lineSegment.getPointB())) {
-				bottomRight.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-		} else {
-			for (int i = elements.size() - 1; i >= 0; i--) {
-				T element = elements.get(i);
-				if (element != null && lineSegment.contains(element.getX(), element.getY())) {
-					result.add(element);
+	/**
+	 * Adds the elements containing a {@link Point} to a buffer without
+	 * locking
+	 * 
+	 * @see #addElementsWithinRegionOptimistically(List, Parallelogram)
+	 */
+	protected boolean addElementsContainingPointOptimistically(List<T> buffer, Point point) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (topLeftChild == null) {
+			try {
+				for (int i = elements.size() - 1; i >= 0; i--) {
+					T element = elements.get(i);
+					if (element != null && element.getX() == point.x && element.getY() == point.y) {
+						buffer.add(element);
+					}
 				}
+			} catch (RuntimeException e) {
+				return false;
 			}
+			return optimisticLock.validate(stamp);
 		}
-		lock.readLock().unlock();
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild.contains(point) && !topLeftChild.addElementsContainingPointOptimistically(buffer, point)) {
+			return false;
+		}
+		if (topRightChild.contains(point)
+				&& !topRightChild.addElementsContainingPointOptimistically(buffer, point)) {
+			return false;
+		}
+		if (bottomLeftChild.contains(point)
+				&& !bottomLeftChild.addElementsContainingPointOptimistically(buffer, point)) {
+			return false;
+		}
+		if (bottomRightChild.contains(point)
+				&& !bottomRightChild.addElementsContainingPointOptimistically(buffer, point)) {
+			return false;
+		}
+		return optimisticLock.validate(stamp);
 	}
 
-	public List<T> getElements() {
-		List<T> result = new ArrayList<T>();
-		getElements(result);
-		return result;
+	@Override
+	public boolean sweep(CollisionBox collisionBox, SweepResult<T> result) {
+		result.begin(collisionBox);
+		forEachWithinRegion(result.getSweptBounds(), result.getVisitor());
+		return result.end();
 	}
 
-	public void getElements(List<T> result) {
-		lock.readLock().lock();
-		if (topLeft != null) {
-			topLeft.getElements(result);
-			topRight.getElements(result);
-			bottomLeft.getElements(result);
-			bottomRight.getElements(result);
-		} else {
-			result.addAll(elements);
+	public boolean raycast(LineSegment lineSegment, RaycastResult<T> result) {
+		result.begin(lineSegment);
+		if (optimisticLock != null) {
+			for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+				if (raycastQuadOptimistically(lineSegment, result)) {
+					return result.end();
+				}
+				result.begin(lineSegment);
+			}
 		}
-		lock.readLock().unlock();
+		raycastQuad(lineSegment, result);
+		return result.end();
 	}
 
-	public int getTotalQuads() {
+	/**
+	 * Tests this quad's elements against a raycast then visits the child
+	 * quads in the order the ray enters them
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} being cast
+	 * @param result
+	 *            The {@link RaycastResult} in progress
+	 */
+	protected void raycastQuad(LineSegment lineSegment, RaycastResult<T> result) {
+		recordVisit();
 		lock.readLock().lock();
-		if (topLeft != null) {
-			int result = topLeft.getTotalQuads();
-			result += topRight.getTotalQuads();
-			result += bottomLeft.getTotalQuads();
-			result += bottomRight.getTotalQuads();
-			lock.readLock().unlock();
-			return result;
-		} else {
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null) {
+					result.offer(element, getRaycastFraction(element, lineSegment, result));
+				}
+			}
+			if (topLeft != null) {
+				raycastChildren(topLeft, topRight, bottomLeft, bottomRight, lineSegment, result, false);
+			}
+		} finally {
 			lock.readLock().unlock();
-			return 1;
 		}
 	}
 
-	public int getTotalElements() {
-		if (totalElementsCache >= 0) {
-			return totalElementsCache;
+	/**
+	 * Tests this quad's elements against a raycast without locking
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} being cast
+	 * @param result
+	 *            The {@link RaycastResult} in progress
+	 * @return False if a quad was modified during the raycast, in which case
+	 *         the {@link RaycastResult} must be discarded
+	 * @see #addElementsWithinRegionOptimistically(List, Parallelogram)
+	 */
+	protected boolean raycastQuadOptimistically(LineSegment lineSegment, RaycastResult<T> result) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
 		}
-		lock.readLock().lock();
-		if (topLeft != null) {
-			totalElementsCache = topLeft.getTotalElements();
-			totalElementsCache += topRight.getTotalElements();
-			totalElementsCache += bottomLeft.getTotalElements();
-			totalElementsCache += bottomRight.getTotalElements();
-		} else {
-			totalElementsCache = elements.size();
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null) {
+					result.offer(element, getRaycastFraction(element, lineSegment, result));
+				}
+			}
+		} catch (RuntimeException e) {
+			return false;
 		}
-		lock.readLock().unlock();
-		return totalElementsCache;
-	}
-
-	protected void clearTotalElementsCache() {
-		totalElementsCache = -1;
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild == null) {
+			return true;
+		}
+		return raycastChildren(topLeftChild, topRightChild, bottomLeftChild, bottomRightChild, lineSegment, result,
+				true) && optimisticLock.validate(stamp);
 	}
 
-	@Override
-	public void positionChanged(T moved) {
-		if (this.contains(moved.getX(), moved.getY()))
-			return;
-
-		removeElement(moved);
+	/**
+	 * Raycasts the child quads in the order the ray enters them until no
+	 * nearer element is possible
+	 * 
+	 * @return False if an optimistic read of a child quad failed
+	 */
+	private boolean raycastChildren(ConcurrentPointQuadTree<T> topLeft, ConcurrentPointQuadTree<T> topRight,
+			ConcurrentPointQuadTree<T> bottomLeft, ConcurrentPointQuadTree<T> bottomRight, LineSegment lineSegment,
+			RaycastResult<T> result, boolean optimistically) {
+		float topLeftEntry = result.getEntryFraction(topLeft.getMinX(), topLeft.getMinY(), topLeft.getMaxX(),
+				topLeft.getMaxY());
+		float topRightEntry = result.getEntryFraction(topRight.getMinX(), topRight.getMinY(), topRight.getMaxX(),
+				topRight.getMaxY());
+		float bottomLeftEntry = result.getEntryFraction(bottomLeft.getMinX(), bottomLeft.getMinY(),
+				bottomLeft.getMaxX(), bottomLeft.getMaxY());
+		float bottomRightEntry = result.getEntryFraction(bottomRight.getMinX(), bottomRight.getMinY(),
+				bottomRight.getMaxX(), bottomRight.getMaxY());
 
-		QuadTree<T> parentQuad = parent;
-		while (parentQuad != null) {
-			if (parentQuad.add(moved)) {
-				return;
+		for (int i = 0; i < 4; i++) {
+			float entry = Math.min(Math.min(topLeftEntry, topRightEntry), Math.min(bottomLeftEntry, bottomRightEntry));
+			if (!result.isNearer(entry)) {
+				break;
+			}
+			ConcurrentPointQuadTree<T> child;
+			if (entry == topLeftEntry) {
+				topLeftEntry = Float.MAX_VALUE;
+				child = topLeft;
+			} else if (entry == topRightEntry) {
+				topRightEntry = Float.MAX_VALUE;
+				child = topRight;
+			} else if (entry == bottomLeftEntry) {
+				bottomLeftEntry = Float.MAX_VALUE;
+				child = bottomLeft;
+			} else {
+				bottomRightEntry = Float.MAX_VALUE;
+				child = bottomRight;
+			}
+			if (!optimistically) {
+				child.raycastQuad(lineSegment, result);
+			} else if (!child.raycastQuadOptimistically(lineSegment, result)) {
+				return false;
 			}
-			parentQuad = parentQuad.getParent();
 		}
+		return true;
 	}
 
-	public QuadTree<T> getParent() {
-		return parent;
+	/**
+	 * Returns how far along a raycast an element is hit
+	 * 
+	 * @param element
+	 *            The element to test
+	 * @param lineSegment
+	 *            The {@link LineSegment} being cast
+	 * @param result
+	 *            The {@link RaycastResult} in progress
+	 * @return A value between 0 and 1 if the element is hit
+	 */
+	protected float getRaycastFraction(T element, LineSegment lineSegment, RaycastResult<T> result) {
+		return result.getPointFraction(element.getX(), element.getY());
 	}
 
-	public int getElementLimitPerQuad() {
-		return elementLimitPerQuad;
+	public void findCollidingPairs(PairCallback<T> callback) {
+		findCollidingPairs(new SweepAndPrune<T>(callback, getCollisionMargin()));
 	}
 
-	public int getMergeWatermark() {
-		return mergeWatermark;
+	/**
+	 * Reports each pair of overlapping elements exactly once, splitting the
+	 * search across a {@link ForkJoinPool}. The {@link PairCallback} will be
+	 * notified from multiple threads at once.
+	 * 
+	 * @param callback
+	 *            The thread-safe {@link PairCallback} to report pairs to
+	 * @param pool
+	 *            The {@link ForkJoinPool} to search with
+	 */
+	public void findCollidingPairs(PairCallback<T> callback, ForkJoinPool pool) {
+		pool.invoke(new CollidingPairsTask<T>(callback, getCollisionMargin(), this, null));
+	}
+
+	/**
+	 * Reports the overlapping pairs within this quad and its children. Each
+	 * quad is read optimistically or under the read lock and then released so
+	 * that no lock is held while the {@link PairCallback} is notified.
+	 * 
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to test elements with
+	 */
+	protected void findCollidingPairs(SweepAndPrune<T> sweepAndPrune) {
+		recordVisit();
+		sweepAndPrune.clear();
+		long stamp = optimisticLock != null ? optimisticLock.tryOptimisticRead() : 0L;
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (!addElementsOptimistically(stamp, sweepAndPrune, SweepAndPrune.GROUP_ALL)) {
+			lock.readLock().lock();
+			sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_ALL);
+			topLeftChild = topLeft;
+			topRightChild = topRight;
+			bottomLeftChild = bottomLeft;
+			bottomRightChild = bottomRight;
+			lock.readLock().unlock();
+		}
+
+		if (topLeftChild == null) {
+			sweepAndPrune.sweep();
+			return;
+		}
+		if (sweepAndPrune.getTotalElements() > 0) {
+			topLeftChild.addCollisionCandidates(sweepAndPrune);
+			topRightChild.addCollisionCandidates(sweepAndPrune);
+			bottomLeftChild.addCollisionCandidates(sweepAndPrune);
+			bottomRightChild.addCollisionCandidates(sweepAndPrune);
+			sweepAndPrune.sweep();
+		}
+		topLeftChild.findCollidingPairs(sweepAndPrune);
+		topRightChild.findCollidingPairs(sweepAndPrune);
+		bottomLeftChild.findCollidingPairs(sweepAndPrune);
+		bottomRightChild.findCollidingPairs(sweepAndPrune);
+
+		topLeftChild.findCollidingPairs(sweepAndPrune, topRightChild);
+		topLeftChild.findCollidingPairs(sweepAndPrune, bottomLeftChild);
+		topLeftChild.findCollidingPairs(sweepAndPrune, bottomRightChild);
+		topRightChild.findCollidingPairs(sweepAndPrune, bottomLeftChild);
+		topRightChild.findCollidingPairs(sweepAndPrune, bottomRightChild);
+		bottomLeftChild.findCollidingPairs(sweepAndPrune, bottomRightChild);
+	}
+
+	/**
+	 * Reports the overlapping pairs between the elements of this quad and its
+	 * children and the elements of another quad that is not its parent or
+	 * child. Only the quads whose bounds overlap are visited.
+	 * 
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to test elements with
+	 * @param quad
+	 *            The other quad
+	 */
+	protected void findCollidingPairs(SweepAndPrune<T> sweepAndPrune, ConcurrentPointQuadTree<T> quad) {
+		if (!sweepAndPrune.isOverlapping(this, quad)) {
+			return;
+		}
+		sweepAndPrune.clear();
+		long stamp = optimisticLock != null ? optimisticLock.tryOptimisticRead() : 0L;
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (!addElementsOptimistically(stamp, sweepAndPrune, SweepAndPrune.GROUP_A)) {
+			lock.readLock().lock();
+			sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_A);
+			topLeftChild = topLeft;
+			topRightChild = topRight;
+			bottomLeftChild = bottomLeft;
+			bottomRightChild = bottomRight;
+			lock.readLock().unlock();
+		}
+
+		if (sweepAndPrune.getTotalElements() > 0) {
+			quad.addCollisionCandidates(sweepAndPrune);
+			sweepAndPrune.sweep();
+		}
+		if (topLeftChild == null) {
+			return;
+		}
+		topLeftChild.findCollidingPairs(sweepAndPrune, quad);
+		topRightChild.findCollidingPairs(sweepAndPrune, quad);
+		bottomLeftChild.findCollidingPairs(sweepAndPrune, quad);
+		bottomRightChild.findCollidingPairs(sweepAndPrune, quad);
+	}
+
+	/**
+	 * Adds the elements of this quad and its children that could overlap the
+	 * elements already added to a {@link SweepAndPrune}
+	 * 
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to add to
+	 */
+	protected void addCollisionCandidates(SweepAndPrune<T> sweepAndPrune) {
+		if (!sweepAndPrune.isOverlappingAddedElements(this)) {
+			return;
+		}
+		long stamp = optimisticLock != null ? optimisticLock.tryOptimisticRead() : 0L;
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (!addElementsOptimistically(stamp, sweepAndPrune, SweepAndPrune.GROUP_B)) {
+			lock.readLock().lock();
+			sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_B);
+			topLeftChild = topLeft;
+			topRightChild = topRight;
+			bottomLeftChild = bottomLeft;
+			bottomRightChild = bottomRight;
+			lock.readLock().unlock();
+		}
+
+		if (topLeftChild == null) {
+			return;
+		}
+		topLeftChild.addCollisionCandidates(sweepAndPrune);
+		topRightChild.addCollisionCandidates(sweepAndPrune);
+		bottomLeftChild.addCollisionCandidates(sweepAndPrune);
+		bottomRightChild.addCollisionCandidates(sweepAndPrune);
+	}
+
+	/**
+	 * Returns how far the bounds of the elements in this quad and its children
+	 * extend from their positions
+	 * 
+	 * @return The largest {@link SweepAndPrune#getMargin(Positionable)}
+	 */
+	protected float getCollisionMargin() {
+		float result = 0f;
+		lock.readLock().lock();
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			T element = elements.get(i);
+			if (element != null) {
+				result = Math.max(result, SweepAndPrune.getMargin(element));
+			}
+		}
+		if (topLeft != null) {
+			result = Math.max(result, topLeft.getCollisionMargin());
+			result = Math.max(result, topRight.getCollisionMargin());
+			result = Math.max(result, bottomLeft.getCollisionMargin());
+			result = Math.max(result, bottomRight.getCollisionMargin());
+		}
+		lock.readLock().unlock();
+		return result;
+	}
+
+	public List<T> getNearestElements(float x, float y, int k) {
+		List<T> result = new ArrayList<T>();
+		getNearestElements(result, x, y, k);
+		return result;
+	}
+
+	public void getNearestElements(Collection<T> result, float x, float y, int k) {
+		if (k <= 0) {
+			return;
+		}
+		NearestElementSearch<T, ConcurrentPointQuadTree<T>> search = new NearestElementSearch<T, ConcurrentPointQuadTree<T>>(
+				x, y, k);
+		search.offerQuad(this, getMinX(), getMinY(), getMaxX(), getMaxY());
+
+		ConcurrentPointQuadTree<T> quad = search.pollQuad();
+		while (quad != null) {
+			quad.addNearestElements(search);
+			quad = search.pollQuad();
+		}
+		search.getElements(result);
+	}
+
+	/**
+	 * Offers this quad's elements and child quads to a
+	 * {@link NearestElementSearch}. The quad is read optimistically when
+	 * possible, otherwise while holding the read lock.
+	 * 
+	 * @param search
+	 *            The search in progress
+	 */
+	protected void addNearestElements(NearestElementSearch<T, ConcurrentPointQuadTree<T>> search) {
+		recordVisit();
+		if (optimisticLock != null) {
+			long stamp = optimisticLock.tryOptimisticRead();
+			ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+			ConcurrentPointQuadTree<T> topRightChild = topRight;
+			ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+			ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+			List<T> buffer = getVisitorBuffer();
+			int fromIndex = buffer.size();
+			if (addElementsOptimistically(stamp, buffer)) {
+				for (int i = fromIndex; i < buffer.size(); i++) {
+					search.offerElement(buffer.get(i));
+				}
+				truncateBuffer(buffer, fromIndex);
+				if (topLeftChild != null) {
+					addNearestQuads(search, topLeftChild, topRightChild, bottomLeftChild, bottomRightChild);
+				}
+				return;
+			}
+		}
+		lock.readLock().lock();
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			T element = elements.get(i);
+			if (element != null) {
+				search.offerElement(element);
+			}
+		}
+		if (topLeft != null) {
+			addNearestQuads(search, topLeft, topRight, bottomLeft, bottomRight);
+		}
+		lock.readLock().unlock();
+	}
+
+	private void addNearestQuads(NearestElementSearch<T, ConcurrentPointQuadTree<T>> search,
+			ConcurrentPointQuadTree<T> topLeft, ConcurrentPointQuadTree<T> topRight,
+			ConcurrentPointQuadTree<T> bottomLeft, ConcurrentPointQuadTree<T> bottomRight) {
+		search.offerQuad(topLeft, topLeft.getMinX(), topLeft.getMinY(), topLeft.getMaxX(), topLeft.getMaxY());
+		search.offerQuad(topRight, topRight.getMinX(), topRight.getMinY(), topRight.getMaxX(), topRight.getMaxY());
+		search.offerQuad(bottomLeft, bottomLeft.getMinX(), bottomLeft.getMinY(), bottomLeft.getMaxX(),
+				bottomLeft.getMaxY());
+		search.offerQuad(bottomRight, bottomRight.getMinX(), bottomRight.getMinY(), bottomRight.getMaxX(),
+				bottomRight.getMaxY());
+	}
+
+	public List<T> getElementsWithinRadius(float x, float y, float radius) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRadius(result, x, y, radius);
+		return result;
+	}
+
+	public void getElementsWithinRadius(Collection<T> result, float x, float y, float radius) {
+		forEachWithinRadius(x, y, radius, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRadius(float x, float y, float radius, ElementVisitor<T> visitor) {
+		if (radius < 0f) {
+			return true;
+		}
+		float radiusSquared = radius * radius;
+		if (optimisticLock != null) {
+			List<T> buffer = getVisitorBuffer();
+			int fromIndex = buffer.size();
+			for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+				if (addElementsWithinRadiusOptimistically(buffer, x, y, radiusSquared)) {
+					return visitBuffer(buffer, fromIndex, visitor);
+				}
+				truncateBuffer(buffer, fromIndex);
+			}
+		}
+		return forEachWithinRadiusSquared(x, y, radiusSquared, visitor);
+	}
+
+	protected boolean forEachWithinRadiusSquared(float x, float y, float radiusSquared, ElementVisitor<T> visitor) {
+		recordVisit();
+		lock.readLock().lock();
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element == null) {
+					continue;
+				}
+				float dx = element.getX() - x;
+				float dy = element.getY() - y;
+				if ((dx * dx) + (dy * dy) <= radiusSquared && !visitor.visit(element)) {
+					return false;
+				}
+			}
+			if (topLeft == null) {
+				return true;
+			}
+			if (topLeft.getDistanceSquaredTo(x, y) <= radiusSquared
+					&& !topLeft.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+				return false;
+			}
+			if (topRight.getDistanceSquaredTo(x, y) <= radiusSquared
+					&& !topRight.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+				return false;
+			}
+			if (bottomLeft.getDistanceSquaredTo(x, y) <= radiusSquared
+					&& !bottomLeft.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+				return false;
+			}
+			if (bottomRight.getDistanceSquaredTo(x, y) <= radiusSquared
+					&& !bottomRight.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+				return false;
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the elements within a radius to a buffer without locking
+	 * 
+	 * @see #addElementsWithinRegionOptimistically(List, Parallelogram)
+	 */
+	protected boolean addElementsWithinRadiusOptimistically(List<T> buffer, float x, float y,
+			float radiusSquared) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element == null) {
+					continue;
+				}
+				float dx = element.getX() - x;
+				float dy = element.getY() - y;
+				if ((dx * dx) + (dy * dy) <= radiusSquared) {
+					buffer.add(element);
+				}
+			}
+		} catch (RuntimeException e) {
+			return false;
+		}
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild == null) {
+			return true;
+		}
+		if (topLeftChild.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !topLeftChild.addElementsWithinRadiusOptimistically(buffer, x, y, radiusSquared)) {
+			return false;
+		}
+		if (topRightChild.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !topRightChild.addElementsWithinRadiusOptimistically(buffer, x, y, radiusSquared)) {
+			return false;
+		}
+		if (bottomLeftChild.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !bottomLeftChild.addElementsWithinRadiusOptimistically(buffer, x, y, radiusSquared)) {
+			return false;
+		}
+		if (bottomRightChild.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !bottomRightChild.addElementsWithinRadiusOptimistically(buffer, x, y, radiusSquared)) {
+			return false;
+		}
+		return optimisticLock.validate(stamp);
+	}
+
+	protected float getDistanceSquaredTo(float x, float y) {
+		return NearestElementSearch.getDistanceSquared(x, y, getMinX(), getMinY(), getMaxX(), getMaxY());
+	}
+
+	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
+		List<T> result = new ArrayList<T>();
+		getElementsIntersectingLineSegment(result, lineSegment);
+		return result;
+	}
+
+	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
+		forEachIntersectingLineSegment(lineSegment, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachIntersectingLineSegment(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		if (optimisticLock != null) {
+			List<T> buffer = getVisitorBuffer();
+			int fromIndex = buffer.size();
+			for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+				if (addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+					return visitBuffer(buffer, fromIndex, visitor);
+				}
+				truncateBuffer(buffer, fromIndex);
+			}
+		}
+		return forEachIntersectingLineSegmentLocked(lineSegment, visitor);
+	}
+
+	protected boolean forEachIntersectingLineSegmentLocked(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		recordVisit();
+		lock.readLock().lock();
+		try {
+			if (topLeft != null) {
+				if (topLeft.isIntersecting(lineSegment)
+						&& !topLeft.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				if (topRight.isIntersecting(lineSegment)
+						&& !topRight.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				if (bottomLeft.isIntersecting(lineSegment)
+						&& !bottomLeft.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				if (bottomRight.isIntersecting(lineSegment)
+						&& !bottomRight.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				return true;
+			}
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && lineSegment.contains(element.getX(), element.getY())
+						&& !visitor.visit(element)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns if a {@link LineSegment} passes through or ends within this
+	 * quad
+	 */
+	protected boolean isIntersecting(LineSegment lineSegment) {
+		return intersects(lineSegment) || contains(lineSegment.getPointA()) || contains(lineSegment.getPointB());
+	}
+
+	/**
+	 * Adds the elements intersecting a {@link LineSegment} to a buffer
+	 * without locking
+	 * 
+	 * @see #addElementsWithinRegionOptimistically(List, Parallelogram)
+	 */
+	protected boolean addElementsIntersectingLineSegmentOptimistically(List<T> buffer, LineSegment lineSegment) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (topLeftChild == null) {
+			try {
+				for (int i = elements.size() - 1; i >= 0; i--) {
+					T element = elements.get(i);
+					if (element != null && lineSegment.contains(element.getX(), element.getY())) {
+						buffer.add(element);
+					}
+				}
+			} catch (RuntimeException e) {
+				return false;
+			}
+			return optimisticLock.validate(stamp);
+		}
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild.isIntersecting(lineSegment)
+				&& !topLeftChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+			return false;
+		}
+		if (topRightChild.isIntersecting(lineSegment)
+				&& !topRightChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+			return false;
+		}
+		if (bottomLeftChild.isIntersecting(lineSegment)
+				&& !bottomLeftChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+			return false;
+		}
+		if (bottomRightChild.isIntersecting(lineSegment)
+				&& !bottomRightChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+			return false;
+		}
+		return optimisticLock.validate(stamp);
+	}
+
+	public List<T> getElements() {
+		List<T> result = new ArrayList<T>();
+		getElements(result);
+		return result;
+	}
+
+	public void getElements(List<T> result) {
+		forEachElement(new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachElement(ElementVisitor<T> visitor) {
+		lock.readLock().lock();
+		try {
+			if (topLeft != null) {
+				return topLeft.forEachElement(visitor) && topRight.forEachElement(visitor)
+						&& bottomLeft.forEachElement(visitor) && bottomRight.forEachElement(visitor);
+			}
+			for (int i = 0; i < elements.size(); i++) {
+				if (!visitor.visit(elements.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getTotalQuads() {
+		lock.readLock().lock();
+		if (topLeft != null) {
+			int result = topLeft.getTotalQuads();
+			result += topRight.getTotalQuads();
+			result += bottomLeft.getTotalQuads();
+			result += bottomRight.getTotalQuads();
+			lock.readLock().unlock();
+			return result;
+		} else {
+			lock.readLock().unlock();
+			return 1;
+		}
+	}
+
+	public int getTotalElements() {
+		if (totalElementsCache >= 0) {
+			return totalElementsCache;
+		}
+		lock.readLock().lock();
+		if (topLeft != null) {
+			totalElementsCache = topLeft.getTotalElements();
+			totalElementsCache += topRight.getTotalElements();
+			totalElementsCache += bottomLeft.getTotalElements();
+			totalElementsCache += bottomRight.getTotalElements();
+		} else {
+			totalElementsCache = elements.size();
+		}
+		lock.readLock().unlock();
+		return totalElementsCache;
+	}
+
+	protected void clearTotalElementsCache() {
+		totalElementsCache = -1;
+	}
+
+	protected void clearTotalElementsCacheToRoot() {
+		for (ConcurrentPointQuadTree<T> quad = this; quad != null; quad = quad.parent) {
+			quad.clearTotalElementsCache();
+		}
+	}
+
+	/**
+	 * Returns the current thread's buffer for collecting the elements of an
+	 * optimistic read until the read has been validated. Visitors may run
+	 * further queries so each query only uses the buffer from its size at the
+	 * start of the query.
+	 * 
+	 * @return The buffer, possibly containing elements of enclosing queries
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<T> getVisitorBuffer() {
+		return (List<T>) (List<?>) VISITOR_BUFFER.get();
+	}
+
+	/**
+	 * Passes the elements collected in the visitor buffer to an
+	 * {@link ElementVisitor} and removes them from the buffer
+	 * 
+	 * @param buffer
+	 *            The buffer returned by {@link #getVisitorBuffer()}
+	 * @param fromIndex
+	 *            The size of the buffer before the elements were collected
+	 * @param visitor
+	 *            The {@link ElementVisitor} to pass the elements to
+	 * @return False if the {@link ElementVisitor} stopped early
+	 */
+	protected boolean visitBuffer(List<T> buffer, int fromIndex, ElementVisitor<T> visitor) {
+		int toIndex = buffer.size();
+		try {
+			for (int i = fromIndex; i < toIndex; i++) {
+				if (!visitor.visit(buffer.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			truncateBuffer(buffer, fromIndex);
+		}
+	}
+
+	/**
+	 * Removes the elements collected in the visitor buffer since a query
+	 * started
+	 * 
+	 * @param buffer
+	 *            The buffer returned by {@link #getVisitorBuffer()}
+	 * @param size
+	 *            The size of the buffer before the elements were collected
+	 */
+	protected void truncateBuffer(List<T> buffer, int size) {
+		for (int i = buffer.size() - 1; i >= size; i--) {
+			buffer.remove(i);
+		}
+	}
+
+	/**
+	 * Adds this quad's elements to a buffer without locking
+	 * 
+	 * @param stamp
+	 *            The stamp returned by
+	 *            {@link OptimisticReadWriteLock#tryOptimisticRead()} before
+	 *            this quad was read
+	 * @param buffer
+	 *            The buffer returned by {@link #getVisitorBuffer()}
+	 * @return False if this quad was modified during the read, in which case
+	 *         nothing is added and the quad must be read again while holding
+	 *         the read lock
+	 */
+	protected boolean addElementsOptimistically(long stamp, List<T> buffer) {
+		if (stamp == 0L) {
+			return false;
+		}
+		int fromIndex = buffer.size();
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null) {
+					buffer.add(element);
+				}
+			}
+		} catch (RuntimeException e) {
+			truncateBuffer(buffer, fromIndex);
+			return false;
+		}
+		if (!optimisticLock.validate(stamp)) {
+			truncateBuffer(buffer, fromIndex);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds this quad's elements to a {@link SweepAndPrune} without locking
+	 * 
+	 * @param stamp
+	 *            The stamp returned by
+	 *            {@link OptimisticReadWriteLock#tryOptimisticRead()} before
+	 *            this quad was read or 0 if the quad is not read
+	 *            optimistically
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to add to
+	 * @param group
+	 *            The group to add the elements to
+	 * @return False if the quad must be read again while holding the read
+	 *         lock
+	 */
+	protected boolean addElementsOptimistically(long stamp, SweepAndPrune<T> sweepAndPrune, int group) {
+		List<T> buffer = getVisitorBuffer();
+		int fromIndex = buffer.size();
+		if (!addElementsOptimistically(stamp, buffer)) {
+			return false;
+		}
+		sweepAndPrune.addAll(buffer.subList(fromIndex, buffer.size()), group);
+		truncateBuffer(buffer, fromIndex);
+		return true;
+	}
+
+	@Override
+	public void positionChanged(T moved) {
+		if (this.contains(moved.getX(), moved.getY()))
+			return;
+		if (addPendingPositionChange(moved, this, false))
+			return;
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordReinsert();
+		}
+
+		removeElement(moved);
+		clearTotalElementsCacheToRoot();
+
+		QuadTree<T> parentQuad = parent;
+		while (parentQuad != null) {
+			if (parentQuad.add(moved)) {
+				return;
+			}
+			parentQuad = parentQuad.getParent();
+		}
+		//Moved outside of the root quad
+		getRoot().removeElementId(moved);
+	}
+
+	/**
+	 * Records a position change to be processed by
+	 * {@link #flushPositionChanges()} if position changes are deferred
+	 * 
+	 * @param moved
+	 *            The element that moved
+	 * @param quad
+	 *            The quad the element is stored in or null if it is not
+	 *            stored in any quad
+	 * @param onlyIfPending
+	 *            True if the quad should only be updated for an element that
+	 *            already has a pending position change
+	 * @return False if position changes are not deferred
+	 */
+	protected boolean addPendingPositionChange(T moved, ConcurrentPointQuadTree<T> quad, boolean onlyIfPending) {
+		ConcurrentPointQuadTree<T> root = getRoot();
+		if (!root.deferPositionChanges) {
+			return false;
+		}
+		Map<T, ConcurrentPointQuadTree<T>> pendingPositionChanges = root.pendingPositionChanges;
+		synchronized (pendingPositionChanges) {
+			if (!onlyIfPending || pendingPositionChanges.containsKey(moved)) {
+				pendingPositionChanges.put(moved, quad);
+			}
+		}
+		return true;
+	}
+
+	public void setDeferPositionChanges(boolean deferPositionChanges) {
+		if (parent != null) {
+			getRoot().setDeferPositionChanges(deferPositionChanges);
+			return;
+		}
+		synchronized (this) {
+			if (pendingPositionChanges == null) {
+				pendingPositionChanges = new IdentityHashMap<T, ConcurrentPointQuadTree<T>>();
+			}
+		}
+		this.deferPositionChanges = deferPositionChanges;
+		if (!deferPositionChanges) {
+			flushPositionChanges();
+		}
+	}
+
+	public boolean isDeferringPositionChanges() {
+		return getRoot().deferPositionChanges;
+	}
+
+	public void flushPositionChanges() {
+		if (parent != null) {
+			getRoot().flushPositionChanges();
+			return;
+		}
+		Map<T, ConcurrentPointQuadTree<T>> pendingPositionChanges = this.pendingPositionChanges;
+		if (pendingPositionChanges == null) {
+			return;
+		}
+
+		Map<ConcurrentPointQuadTree<T>, List<T>> movedElementsByQuad = new IdentityHashMap<ConcurrentPointQuadTree<T>, List<T>>(
+				pendingPositionChanges.size());
+		List<T> elementsToReinsert = new ArrayList<T>();
+		synchronized (pendingPositionChanges) {
+			if (pendingPositionChanges.isEmpty()) {
+				return;
+			}
+			for (Map.Entry<T, ConcurrentPointQuadTree<T>> pendingPositionChange : pendingPositionChanges.entrySet()) {
+				ConcurrentPointQuadTree<T> quad = pendingPositionChange.getValue();
+				if (quad == null) {
+					elementsToReinsert.add(pendingPositionChange.getKey());
+					continue;
+				}
+				List<T> movedElements = movedElementsByQuad.get(quad);
+				if (movedElements == null) {
+					movedElements = new ArrayList<T>();
+					movedElementsByQuad.put(quad, movedElements);
+				}
+				movedElements.add(pendingPositionChange.getKey());
+			}
+			pendingPositionChanges.clear();
+		}
+
+		for (Map.Entry<ConcurrentPointQuadTree<T>, List<T>> movedElements : movedElementsByQuad.entrySet()) {
+			movedElements.getKey().removeMovedElements(movedElements.getValue(), elementsToReinsert);
+		}
+		//Elements are only added back if they are still within this quad
+		for (int i = 0; i < elementsToReinsert.size(); i++) {
+			removeElementId(elementsToReinsert.get(i));
+		}
+		addAll(elementsToReinsert);
+		mergeAfterPositionChanges(movedElementsByQuad.keySet());
+	}
+
+	/**
+	 * Removes elements that have moved outside of this quad while holding the
+	 * write lock once
+	 * 
+	 * @param movedElements
+	 *            The elements that moved while stored in this quad
+	 * @param result
+	 *            The {@link List} to add removed elements to
+	 */
+	protected void removeMovedElements(List<T> movedElements, List<T> result) {
+		int resultOffset = result.size();
+
+		lock.writeLock().lock();
+		for (int i = 0; i < movedElements.size(); i++) {
+			T element = movedElements.get(i);
+			if (containsElement(element)) {
+				continue;
+			}
+			if (removeFromElements(element)) {
+				result.add(element);
+				if (QuadTreeStatistics.ENABLED) {
+					getStatistics().recordReinsert();
+				}
+			}
+		}
+		lock.writeLock().unlock();
+
+		if (result.size() == resultOffset) {
+			return;
+		}
+		for (int i = resultOffset; i < result.size(); i++) {
+			result.get(i).removePositionChangeListener(this);
+		}
+		clearTotalElementsCacheToRoot();
+	}
+
+	/**
+	 * Merges the parents of quads that elements were removed from, deepest
+	 * first so that no quad is merged after its parent
+	 * 
+	 * @param quads
+	 *            The quads elements were removed from
+	 */
+	private void mergeAfterPositionChanges(Collection<ConcurrentPointQuadTree<T>> quads) {
+		if (mergeWatermark <= 0) {
+			return;
+		}
+		Map<ConcurrentPointQuadTree<T>, Boolean> uniqueParents = new IdentityHashMap<ConcurrentPointQuadTree<T>, Boolean>(quads.size());
+		for (ConcurrentPointQuadTree<T> quad : quads) {
+			if (quad.parent != null) {
+				uniqueParents.put(quad.parent, Boolean.TRUE);
+			}
+		}
+		List<ConcurrentPointQuadTree<T>> parents = new ArrayList<ConcurrentPointQuadTree<T>>(uniqueParents.keySet());
+		Collections.sort(parents, new Comparator<ConcurrentPointQuadTree<T>>() {
+			@Override
+			public int compare(ConcurrentPointQuadTree<T> quad1, ConcurrentPointQuadTree<T> quad2) {
+				return quad2.getDepth() - quad1.getDepth();
+			}
+		});
+		for (ConcurrentPointQuadTree<T> quad : parents) {
+			quad.lock.readLock().lock();
+			if (quad.topLeft != null && quad.isMergable()) {
+				quad.merge();
+			}
+			quad.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns if an element belongs in this quad based on its current
+	 * position
+	 * 
+	 * @param element
+	 *            The element to test
+	 * @return True if the element belongs in this quad
+	 */
+	protected boolean containsElement(T element) {
+		return this.contains(element.getX(), element.getY());
+	}
+
+	@Override
+	public T getElementById(long id) {
+		ConcurrentLongMap<T> elementsById = getRoot().elementsById;
+		if (elementsById == null) {
+			return null;
+		}
+		return elementsById.get(id);
+	}
+
+	/**
+	 * Records an element added to this quad so that it can be found by
+	 * {@link #getElementById(long)}. Only the root quad records elements.
+	 * 
+	 * @param element
+	 *            The element being added
+	 */
+	protected void addElementId(T element) {
+		if (parent != null) {
+			return;
+		}
+		ConcurrentLongMap<T> elementsById = this.elementsById;
+		if (elementsById == null) {
+			synchronized (this) {
+				if (this.elementsById == null) {
+					this.elementsById = new ConcurrentLongMap<T>();
+				}
+				elementsById = this.elementsById;
+			}
+		}
+		elementsById.put(element.getId(), element);
+	}
+
+	protected void addElementIds(List<T> elementsToAdd) {
+		for (int i = 0; i < elementsToAdd.size(); i++) {
+			addElementId(elementsToAdd.get(i));
+		}
+	}
+
+	/**
+	 * Stops an element being found by {@link #getElementById(long)}. Must be
+	 * called on the root quad.
+	 * 
+	 * @param element
+	 *            The element being removed
+	 */
+	protected void removeElementId(T element) {
+		ConcurrentLongMap<T> elementsById = this.elementsById;
+		if (elementsById == null) {
+			return;
+		}
+		elementsById.remove(element.getId(), element);
+	}
+
+	protected void removeElementIds(List<T> elementsToRemove) {
+		if (parent != null) {
+			return;
+		}
+		for (int i = 0; i < elementsToRemove.size(); i++) {
+			removeElementId(elementsToRemove.get(i));
+		}
+	}
+
+	@Override
+	public QuadTreeStatistics getStatistics() {
+		if (!QuadTreeStatistics.ENABLED) {
+			return null;
+		}
+		ConcurrentPointQuadTree<T> root = getRoot();
+		QuadTreeStatistics result = root.statistics;
+		if (result != null) {
+			return result;
+		}
+		synchronized (root) {
+			if (root.statistics == null) {
+				root.statistics = new QuadTreeStatistics();
+			}
+			return root.statistics;
+		}
+	}
+
+	@Override
+	public void updateStatistics() {
+		if (!QuadTreeStatistics.ENABLED) {
+			return;
+		}
+		QuadTreeStatistics statistics = getStatistics();
+		synchronized (statistics) {
+			statistics.beginStructure();
+			getRoot().recordStructure(statistics, 0);
+			statistics.endStructure();
+		}
+	}
+
+	/**
+	 * Records this quad and its child quads in the structural statistics
+	 * 
+	 * @param statistics
+	 *            The {@link QuadTreeStatistics} being updated
+	 * @param depth
+	 *            The depth of this quad
+	 */
+	protected void recordStructure(QuadTreeStatistics statistics, int depth) {
+		lock.readLock().lock();
+		statistics.recordNode(depth, topLeft == null, elements.size());
+		if (topLeft != null) {
+			topLeft.recordStructure(statistics, depth + 1);
+			topRight.recordStructure(statistics, depth + 1);
+			bottomLeft.recordStructure(statistics, depth + 1);
+			bottomRight.recordStructure(statistics, depth + 1);
+		}
+		lock.readLock().unlock();
+	}
+
+	/**
+	 * Records a query visiting this quad if statistics are enabled
+	 */
+	protected void recordVisit() {
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordNodeVisit(this == root, elements.size());
+		}
+	}
+
+	protected ConcurrentPointQuadTree<T> getRoot() {
+		return root;
+	}
+
+	protected int getDepth() {
+		int result = 0;
+		for (ConcurrentPointQuadTree<T> quad = parent; quad != null; quad = quad.parent) {
+			result++;
+		}
+		return result;
+	}
+
+	public QuadTree<T> getParent() {
+		return parent;
+	}
+
+	public int getElementLimitPerQuad() {
+		return elementLimitPerQuad;
+	}
+
+	public int getMergeWatermark() {
+		return mergeWatermark;
+	}
+
+	public LockStrategy getLockStrategy() {
+		return lockStrategy;
+	}
+
+	/**
+	 * Splits {@link ConcurrentPointQuadTree#findCollidingPairs(PairCallback)}
+	 * into a task per child quad and per pair of child quads until the quads
+	 * are small enough to search on a single thread
+	 */
+	private static class CollidingPairsTask<T extends Positionable> extends RecursiveAction {
+		private static final long serialVersionUID = -3318658153409036371L;
+		private static final int SEQUENTIAL_THRESHOLD = 256;
+
+		private final PairCallback<T> callback;
+		private final float margin;
+		private final ConcurrentPointQuadTree<T> quad, otherQuad;
+
+		public CollidingPairsTask(PairCallback<T> callback, float margin, ConcurrentPointQuadTree<T> quad,
+				ConcurrentPointQuadTree<T> otherQuad) {
+			this.callback = callback;
+			this.margin = margin;
+			this.quad = quad;
+			this.otherQuad = otherQuad;
+		}
+
+		@Override
+		protected void compute() {
+			SweepAndPrune<T> sweepAndPrune = new SweepAndPrune<T>(callback, margin);
+			if (otherQuad != null) {
+				quad.findCollidingPairs(sweepAndPrune, otherQuad);
+				return;
+			}
+			if (quad.getTotalElements() <= SEQUENTIAL_THRESHOLD) {
+				quad.findCollidingPairs(sweepAndPrune);
+				return;
+			}
+
+			long stamp = quad.optimisticLock != null ? quad.optimisticLock.tryOptimisticRead() : 0L;
+			ConcurrentPointQuadTree<T> topLeft = quad.topLeft;
+			ConcurrentPointQuadTree<T> topRight = quad.topRight;
+			ConcurrentPointQuadTree<T> bottomLeft = quad.bottomLeft;
+			ConcurrentPointQuadTree<T> bottomRight = quad.bottomRight;
+			if (!quad.addElementsOptimistically(stamp, sweepAndPrune, SweepAndPrune.GROUP_ALL)) {
+				quad.lock.readLock().lock();
+				sweepAndPrune.addAll(quad.elements, SweepAndPrune.GROUP_ALL);
+				topLeft = quad.topLeft;
+				topRight = quad.topRight;
+				bottomLeft = quad.bottomLeft;
+				bottomRight = quad.bottomRight;
+				quad.lock.readLock().unlock();
+			}
+
+			if (topLeft == null) {
+				sweepAndPrune.sweep();
+				return;
+			}
+			if (sweepAndPrune.getTotalElements() > 0) {
+				topLeft.addCollisionCandidates(sweepAndPrune);
+				topRight.addCollisionCandidates(sweepAndPrune);
+				bottomLeft.addCollisionCandidates(sweepAndPrune);
+				bottomRight.addCollisionCandidates(sweepAndPrune);
+				sweepAndPrune.sweep();
+			}
+			invokeAll(new CollidingPairsTask<T>(callback, margin, topLeft, null),
+					new CollidingPairsTask<T>(callback, margin, topRight, null),
+					new CollidingPairsTask<T>(callback, margin, bottomLeft, null),
+					new CollidingPairsTask<T>(callback, margin, bottomRight, null),
+					new CollidingPairsTask<T>(callback, margin, topLeft, topRight),
+					new CollidingPairsTask<T>(callback, margin, topLeft, bottomLeft),
+					new CollidingPairsTask<T>(callback, margin, topLeft, bottomRight),
+					new CollidingPairsTask<T>(callback, margin, topRight, bottomLeft),
+					new CollidingPairsTask<T>(callback, margin, topRight, bottomRight),
+					new CollidingPairsTask<T>(callback, margin, bottomLeft, bottomRight));
+		}
 	}
 }
@@ -12,7 +12,6 @@
 package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import org.mini2Dx.core.engine.geom.CollisionBox;
@@ -57,6 +56,34 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 		super(elementLimit, mergeWatermark, x, y, width, height);
 	}
 
+	/**
+	 * Constructs a {@link ConcurrentRegionQuadTree} with a specified element
+	 * limit, watermark and {@link LockStrategy}
+	 * 
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a
+	 *            {@link ConcurrentRegionQuadTree} before it is split into 4
+	 *            child quads
+	 * @param mergeWatermark
+	 *            When a parent {@link ConcurrentRegionQuadTree}'s total
+	 *            elements go lower than this mark, the child
+	 *            {@link ConcurrentRegionQuadTree}s will be merged back together
+	 * @param lockStrategy
+	 *            The {@link LockStrategy} used by this quad and its child quads
+	 * @param x
+	 *            The x coordinate of the {@link ConcurrentRegionQuadTree}
+	 * @param y
+	 *            The y coordiante of the {@link ConcurrentRegionQuadTree}
+	 * @param width
+	 *            The width of the {@link ConcurrentRegionQuadTree}
+	 * @param height
+	 *            The height of the {@link ConcurrentRegionQuadTree}
+	 */
+	public ConcurrentRegionQuadTree(int elementLimit, int mergeWatermark, LockStrategy lockStrategy, float x, float y,
+			float width, float height) {
+		super(elementLimit, mergeWatermark, lockStrategy, x, y, width, height);
+	}
+
 	/**
 	 * Constructs a {@link ConcurrentRegionQuadTree} with a specified element
 	 * limit and no merging watermark. As elements are removed, small sized
@@ -133,6 +160,7 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 				elementsWithinQuad.add(element);
 			}
 		}
+		addElementIds(elementsWithinQuad);
 		clearTotalElementsCache();
 		
 		lock.writeLock().lock();
@@ -140,25 +168,7 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 		if(topLeft != null) {
 			lock.readLock().lock();
 			lock.writeLock().unlock();
-			for(int i = elementsWithinQuad.size() - 1; i >= 0; i--) {
-				T element = elementsWithinQuad.get(i);
-				if (topLeft.add(element)) {
-					elementsWithinQuad.remove(i);
-					continue;
-				}
-				if (topRight.add(element)) {
-					elementsWithinQuad.remove(i);
-					continue;
-				}
-				if (bottomLeft.add(element)) {
-					elementsWithinQuad.remove(i);
-					continue;
-				}
-				if (bottomRight.add(element)) {
-					elementsWithinQuad.remove(i);
-					continue;
-				}
-			}
+			elementsWithinQuad = addAllToChildren(elementsWithinQuad);
 			lock.readLock().unlock();
 			if(elementsWithinQuad.isEmpty()) {
 				return;
@@ -188,6 +198,7 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 			return false;
 		}
 		clearTotalElementsCache();
+		addElementId(element);
 		
 		if (!addElement(element)) {
 			return false;
@@ -246,6 +257,47 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 		return false;
 	}
 
+	@Override
+	protected byte getChildIndex(T element) {
+		if (getRotation() != 0f) {
+			if (topLeft.contains(element)) {
+				return 0;
+			}
+			if (topRight.contains(element)) {
+				return 1;
+			}
+			if (bottomLeft.contains(element)) {
+				return 2;
+			}
+			if (bottomRight.contains(element)) {
+				return 3;
+			}
+			return -1;
+		}
+		//Axis-aligned quads can be resolved by comparing bounds
+		float midX = topLeft.getMaxX();
+		float midY = topLeft.getMaxY();
+		boolean left = element.getMinX() >= getMinX() && element.getMaxX() <= midX;
+		boolean right = element.getMinX() >= midX && element.getMaxX() <= getMaxX();
+		if (element.getMinY() >= getMinY() && element.getMaxY() <= midY) {
+			if (left) {
+				return 0;
+			}
+			if (right) {
+				return 1;
+			}
+		}
+		if (element.getMinY() >= midY && element.getMaxY() <= getMaxY()) {
+			if (left) {
+				return 2;
+			}
+			if (right) {
+				return 3;
+			}
+		}
+		return -1;
+	}
+
 	@Override
 	protected void subdivide() {
 		lock.readLock().lock();
@@ -262,6 +314,9 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 			lock.writeLock().unlock();
 			return;
 		}
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordSubdivision();
+		}
 
 		float halfWidth = width / 2f;
 		float halfHeight = height / 2f;
@@ -275,7 +330,8 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 			lock.readLock().lock();
 			T element = elements.get(i);
 			if (addElementToChild(element)) {
-				elements.remove(element);
+				//Remove by index as equal sized elements at the same position are equal
+				elements.remove(i);
 				element.removePositionChangeListener(this);
 			}
 		}
@@ -288,6 +344,9 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 		if(elementsToRemove == null || elementsToRemove.isEmpty()) {
 			return;
 		}
+		if (parent == null) {
+			flushPositionChanges();
+		}
 		clearTotalElementsCache();
 		
 		List<T> elementsWithinQuad = new ArrayList<T>();
@@ -296,6 +355,7 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 				elementsWithinQuad.add(element);
 			}
 		}
+		removeElementIds(elementsWithinQuad);
 		
 		lock.writeLock().lock();
 		if(topLeft != null) {
@@ -320,7 +380,9 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 			}
 		}
 		
-		elements.removeAll(elementsWithinQuad);
+		for(T element : elementsWithinQuad) {
+			removeFromElements(element);
+		}
 		lock.writeLock().unlock();
 		
 		for(T element : elementsWithinQuad) {
@@ -339,11 +401,17 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 	public boolean remove(T element) {
 		if (element == null)
 			return false;
+		if (parent == null) {
+			flushPositionChanges();
+		}
 
 		if (!this.intersects(element) && !this.contains(element)) {
 			return false;
 		}
 		clearTotalElementsCache();
+		if (parent == null) {
+			removeElementId(element);
+		}
 		return removeElement(element);
 	}
 	
@@ -362,7 +430,7 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 			lock.writeLock().lock();
 		}
 		
-		boolean result = elements.remove(element);
+		boolean result = removeFromElements(element);
 		lock.writeLock().unlock();
 		element.removePositionChangeListener(this);
 
@@ -383,31 +451,91 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 	}
 
 	@Override
-	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram) {
+	protected boolean forEachWithinRegionLocked(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		recordVisit();
 		lock.readLock().lock();
-		if (topLeft != null) {
-			if (topLeft.contains(parallelogram) || topLeft.intersects(parallelogram)) {
-				topLeft.getElementsWithinRegion(result, parallelogram);
+		try {
+			if (topLeft != null) {
+				if ((topLeft.intersects(parallelogram) || topLeft.contains(parallelogram))
+						&& !topLeft.forEachWithinRegionLocked(parallelogram, visitor)) {
+					return false;
+				}
+				if ((topRight.intersects(parallelogram) || topRight.contains(parallelogram))
+						&& !topRight.forEachWithinRegionLocked(parallelogram, visitor)) {
+					return false;
+				}
+				if ((bottomLeft.intersects(parallelogram) || bottomLeft.contains(parallelogram))
+						&& !bottomLeft.forEachWithinRegionLocked(parallelogram, visitor)) {
+					return false;
+				}
+				if ((bottomRight.intersects(parallelogram) || bottomRight.contains(parallelogram))
+						&& !bottomRight.forEachWithinRegionLocked(parallelogram, visitor)) {
+					return false;
+				}
+			}
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element == null)
+					continue;
+				if ((element.intersects(parallelogram) || parallelogram.contains(element))
+						&& !visitor.visit(element)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the elements within a region to a buffer without locking. Elements
+	 * are stored in every quad that contains them, so each quad's own
+	 * elements are read after its child quads and validated with them.
+	 */
+	@Override
+	protected boolean addElementsWithinRegionOptimistically(List<T> buffer, Parallelogram parallelogram) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild != null) {
+			if ((topLeftChild.intersects(parallelogram) || topLeftChild.contains(parallelogram))
+					&& !topLeftChild.addElementsWithinRegionOptimistically(buffer, parallelogram)) {
+				return false;
 			}
-			if (topRight.contains(parallelogram) || topRight.intersects(parallelogram)) {
-				topRight.getElementsWithinRegion(result, parallelogram);
+			if ((topRightChild.intersects(parallelogram) || topRightChild.contains(parallelogram))
+					&& !topRightChild.addElementsWithinRegionOptimistically(buffer, parallelogram)) {
+				return false;
 			}
-			if (bottomLeft.contains(parallelogram) || bottomLeft.intersects(parallelogram)) {
-				bottomLeft.getElementsWithinRegion(result, parallelogram);
+			if ((bottomLeftChild.intersects(parallelogram) || bottomLeftChild.contains(parallelogram))
+					&& !bottomLeftChild.addElementsWithinRegionOptimistically(buffer, parallelogram)) {
+				return false;
 			}
-			if (bottomRight.contains(parallelogram) || bottomRight.intersects(parallelogram)) {
-				bottomRight.getElementsWithinRegion(result, parallelogram);
+			if ((bottomRightChild.intersects(parallelogram) || bottomRightChild.contains(parallelogram))
+					&& !bottomRightChild.addElementsWithinRegionOptimistically(buffer, parallelogram)) {
+				return false;
 			}
 		}
-		for (int i = elements.size() - 1; i >= 0; i--) {
-			T element = elements.get(i);
-			if (element == null)
-				continue;
-			if (parallelogram.contains(element) || parallelogram.intersects(element)) {
-				result.add(element);
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && (element.intersects(parallelogram) || parallelogram.contains(element))) {
+					buffer.add(element);
+				}
 			}
+		} catch (RuntimeException e) {
+			return false;
 		}
-		lock.readLock().unlock();
+		return optimisticLock.validate(stamp);
 	}
 
 	@Override
@@ -418,32 +546,94 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 	}
 
 	@Override
-	public void getElementsContainingPoint(Collection<T> result, Point point) {
+	protected boolean forEachContainingPointLocked(Point point, ElementVisitor<T> visitor) {
+		recordVisit();
 		lock.readLock().lock();
-		if (topLeft != null) {
-			if (topLeft.contains(point)) {
-				topLeft.getElementsContainingPoint(result, point);
+		try {
+			if (topLeft != null) {
+				if (topLeft.contains(point) && !topLeft.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				if (topRight.contains(point) && !topRight.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				if (bottomLeft.contains(point) && !bottomLeft.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+				if (bottomRight.contains(point) && !bottomRight.forEachContainingPointLocked(point, visitor)) {
+					return false;
+				}
+			}
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && element.contains(point) && !visitor.visit(element)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	protected boolean addElementsContainingPointOptimistically(List<T> buffer, Point point) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild != null) {
+			if (topLeftChild.contains(point)
+					&& !topLeftChild.addElementsContainingPointOptimistically(buffer, point)) {
+				return false;
 			}
-			if (topRight.contains(point)) {
-				topRight.getElementsContainingPoint(result, point);
+			if (topRightChild.contains(point)
+					&& !topRightChild.addElementsContainingPointOptimistically(buffer, point)) {
+				return false;
 			}
-			if (bottomLeft.contains(point)) {
-				bottomLeft.getElementsContainingPoint(result, point);
+			if (bottomLeftChild.contains(point)
+					&& !bottomLeftChild.addElementsContainingPointOptimistically(buffer, point)) {
+				return false;
 			}
-			if (bottomRight.contains(point)) {
-				bottomRight.getElementsContainingPoint(result, point);
+			if (bottomRightChild.contains(point)
+					&& !bottomRightChild.addElementsContainingPointOptimistically(buffer, point)) {
+				return false;
 			}
 		}
-		for (int i = elements.size() - 1; i >= 0; i--) {
-			T element = elements.get(i);
-			if (element != null && element.contains(point)) {
-				result.add(element);
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && element.contains(point)) {
+					buffer.add(element);
+				}
 			}
+		} catch (RuntimeException e) {
+			return false;
 		}
-		lock.readLock().unlock();
+		return optimisticLock.validate(stamp);
 	}
 
+	/**
+	 * Always returns 0 as elements are only stored in quads that contain them
+	 */
 	@Override
+	protected float getCollisionMargin() {
+		return 0f;
+	}
+
+	@Override
+	protected float getRaycastFraction(T element, LineSegment lineSegment, RaycastResult<T> result) {
+		return element.getIntersectionFraction(lineSegment);
+	}
+
 	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
 		List<T> result = new ArrayList<T>();
 		getElementsIntersectingLineSegment(result, lineSegment);
@@ -451,33 +641,83 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 	}
 
 	@Override
-	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
+	protected boolean forEachIntersectingLineSegmentLocked(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		recordVisit();
 		lock.readLock().lock();
-		if (topLeft != null) {
-			if (topLeft.intersects(lineSegment) || topLeft.contains(lineSegment.getPointA())
-					|| topLeft.contains(lineSegment.getPointB())) {
-				topLeft.getElementsIntersectingLineSegment(result, lineSegment);
+		try {
+			if (topLeft != null) {
+				if (topLeft.isIntersecting(lineSegment)
+						&& !topLeft.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				if (topRight.isIntersecting(lineSegment)
+						&& !topRight.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				if (bottomLeft.isIntersecting(lineSegment)
+						&& !bottomLeft.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
+				if (bottomRight.isIntersecting(lineSegment)
+						&& !bottomRight.forEachIntersectingLineSegmentLocked(lineSegment, visitor)) {
+					return false;
+				}
 			}
-			if (topRight.intersects(lineSegment) || topRight.contains(lineSegment.getPointA())
-					|| topRight.contains(lineSegment.getPointB())) {
-				topRight.getElementsIntersectingLineSegment(result, lineSegment);
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && element.intersects(lineSegment) && !visitor.visit(element)) {
+					return false;
+				}
 			}
-			if (bottomLeft.intersects(lineSegment) || bottomLeft.contains(lineSegment.getPointA())
-					|| bottomLeft.contains(lineSegment.getPointB())) {
-				bottomLeft.getElementsIntersectingLineSegment(result, lineSegment);
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	protected boolean addElementsIntersectingLineSegmentOptimistically(List<T> buffer, LineSegment lineSegment) {
+		recordVisit();
+		long stamp = optimisticLock.tryOptimisticRead();
+		if (stamp == 0L) {
+			return false;
+		}
+		ConcurrentPointQuadTree<T> topLeftChild = topLeft;
+		ConcurrentPointQuadTree<T> topRightChild = topRight;
+		ConcurrentPointQuadTree<T> bottomLeftChild = bottomLeft;
+		ConcurrentPointQuadTree<T> bottomRightChild = bottomRight;
+		if (!optimisticLock.validate(stamp)) {
+			return false;
+		}
+		if (topLeftChild != null) {
+			if (topLeftChild.isIntersecting(lineSegment)
+					&& !topLeftChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+				return false;
+			}
+			if (topRightChild.isIntersecting(lineSegment)
+					&& !topRightChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+				return false;
 			}
-			if (bottomRight.intersects(lineSegment) || bottomRight.contains(lineSegment.getPointA())
-					|| bottomRight.contains(lineSegment.getPointB())) {
-				bottomRight.getElementsIntersectingLineSegment(result, lineSegment);
+			if (bottomLeftChild.isIntersecting(lineSegment)
+					&& !bottomLeftChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+				return false;
+			}
+			if (bottomRightChild.isIntersecting(lineSegment)
+					&& !bottomRightChild.addElementsIntersectingLineSegmentOptimistically(buffer, lineSegment)) {
+				return false;
 			}
 		}
-		for (int i = elements.size() - 1; i >= 0; i--) {
-			T element = elements.get(i);
-			if (element != null && element.intersects(lineSegment)) {
-				result.add(element);
+		try {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && element.intersects(lineSegment)) {
+					buffer.add(element);
+				}
 			}
+		} catch (RuntimeException e) {
+			return false;
 		}
-		lock.readLock().unlock();
+		return optimisticLock.validate(stamp);
 	}
 
 	@Override
@@ -488,16 +728,24 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 	}
 
 	@Override
-	public void getElements(List<T> result) {
+	public boolean forEachElement(ElementVisitor<T> visitor) {
 		lock.readLock().lock();
-		if (topLeft != null) {
-			((ConcurrentRegionQuadTree<T>) topLeft).getElements(result);
-			((ConcurrentRegionQuadTree<T>) topRight).getElements(result);
-			((ConcurrentRegionQuadTree<T>) bottomLeft).getElements(result);
-			((ConcurrentRegionQuadTree<T>) bottomRight).getElements(result);
+		try {
+			if (topLeft != null) {
+				if (!topLeft.forEachElement(visitor) || !topRight.forEachElement(visitor)
+						|| !bottomLeft.forEachElement(visitor) || !bottomRight.forEachElement(visitor)) {
+					return false;
+				}
+			}
+			for (int i = 0; i < elements.size(); i++) {
+				if (!visitor.visit(elements.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.readLock().unlock();
 		}
-		result.addAll(elements);
-		lock.readLock().unlock();
 	}
 
 	@Override
@@ -520,19 +768,37 @@ public class ConcurrentRegionQuadTree<T extends CollisionBox> extends Concurrent
 		return totalElementsCache;
 	}
 
+	@Override
+	protected boolean containsElement(T element) {
+		return this.contains(element);
+	}
+
 	@Override
 	public void positionChanged(T moved) {
 		if (this.contains(moved))
 			return;
+		if (addPendingPositionChange(moved, this, false))
+			return;
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordReinsert();
+		}
 
 		removeElement(moved);
+		clearTotalElementsCacheToRoot();
 
 		QuadTree<T> parentQuad = parent;
 		while (parentQuad != null) {
+			//Only the root quad holds elements that are not entirely within it
+			if (parentQuad.getParent() != null && !parentQuad.contains(moved)) {
+				parentQuad = parentQuad.getParent();
+				continue;
+			}
 			if (parentQuad.add(moved)) {
 				return;
 			}
 			parentQuad = parentQuad.getParent();
 		}
+		//Moved outside of the root quad
+		getRoot().removeElementId(moved);
 	}
 }
\ No newline at end of file
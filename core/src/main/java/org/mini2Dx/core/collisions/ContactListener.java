@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import org.mini2Dx.core.engine.Positionable;
+
+/**
+ * Receives the contacts between elements found by a {@link ContactManager}.
+ * The element with the lower {@link Positionable#getId()} is always passed
+ * first.
+ * 
+ * @param <T>
+ *            The type of element in the {@link ContactManager}
+ */
+public interface ContactListener<T extends Positionable> {
+
+	/**
+	 * Called during the first update in which two elements overlap
+	 * 
+	 * @param elementA
+	 *            The first element of the contact
+	 * @param elementB
+	 *            The second element of the contact
+	 */
+	public void onEnter(T elementA, T elementB);
+
+	/**
+	 * Called during each following update in which two elements still
+	 * overlap
+	 * 
+	 * @param elementA
+	 *            The first element of the contact
+	 * @param elementB
+	 *            The second element of the contact
+	 */
+	public void onStay(T elementA, T elementB);
+
+	/**
+	 * Called during the first update in which two elements no longer overlap
+	 * or after either element was removed
+	 * 
+	 * @param elementA
+	 *            The first element of the contact
+	 * @param elementB
+	 *            The second element of the contact
+	 */
+	public void onExit(T elementA, T elementB);
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mini2Dx.core.engine.PositionChangeListener;
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Tracks which elements of a {@link QuadTree} overlap each other between
+ * updates and notifies a {@link ContactListener} when contacts begin,
+ * continue and end.
+ * 
+ * Contacts are kept between updates in a {@link LongMap} keyed by the
+ * {@link Positionable#getId()} of both elements, with each element linked to
+ * its own contacts. Contacts that share a key are chained and matched by
+ * their elements. Only elements that moved since the previous update are
+ * queried against the {@link QuadTree}, so apart from
+ * {@link ContactListener#onStay(Positionable, Positionable)} being called for
+ * each ongoing contact the work done by {@link #update()} is proportional to
+ * the elements that moved and the contacts that changed. Contacts are pooled
+ * so updates do not allocate once the number of contacts stops growing.
+ * 
+ * Contacts between two elements that were added directly to the
+ * {@link QuadTree} instead of this {@link ContactManager} are not reported.
+ * If the {@link QuadTree} defers position changes they must be flushed before
+ * {@link #update()} is called. This class is not thread-safe; elements should
+ * be moved on the thread that calls {@link #update()}.
+ * 
+ * @param <T>
+ *            The type of element in the {@link ContactManager}
+ */
+public class ContactManager<T extends CollisionBox> implements PositionChangeListener<T> {
+	private final QuadTree<T> quadTree;
+	private final ContactListener<T> listener;
+
+	private final LongMap<Contact<T>> contacts = new LongMap<Contact<T>>();
+	private final LongMap<Contact<T>> elementContacts = new LongMap<Contact<T>>();
+	private final LongMap<T> movedElements = new LongMap<T>();
+	private final LongMap<T> removedElements = new LongMap<T>();
+	private final List<Contact<T>> activeContacts = new ArrayList<Contact<T>>();
+	private final List<Contact<T>> exitedContacts = new ArrayList<Contact<T>>();
+	private final List<Contact<T>> contactPool = new ArrayList<Contact<T>>();
+	private final ContactFinder contactFinder = new ContactFinder();
+
+	private long frame;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param quadTree
+	 *            The {@link QuadTree} to find contacts in
+	 * @param listener
+	 *            The {@link ContactListener} to notify of contacts
+	 */
+	public ContactManager(QuadTree<T> quadTree, ContactListener<T> listener) {
+		if (quadTree == null) {
+			throw new IllegalArgumentException("QuadTree cannot be null");
+		}
+		if (listener == null) {
+			throw new IllegalArgumentException("ContactListener cannot be null");
+		}
+		this.quadTree = quadTree;
+		this.listener = listener;
+	}
+
+	/**
+	 * Adds an element to the {@link QuadTree} and finds its contacts during
+	 * the next {@link #update()}
+	 * 
+	 * @param element
+	 *            The element to add
+	 * @return True if the element was added to the {@link QuadTree}
+	 */
+	public boolean add(T element) {
+		if (!quadTree.add(element)) {
+			return false;
+		}
+		element.addPostionChangeListener(this);
+		removedElements.remove(element.getId());
+		movedElements.put(element.getId(), element);
+		return true;
+	}
+
+	/**
+	 * Removes an element from the {@link QuadTree}. Its contacts end during
+	 * the next {@link #update()}.
+	 * 
+	 * @param element
+	 *            The element to remove
+	 * @return True if the element was removed from the {@link QuadTree}
+	 */
+	public boolean remove(T element) {
+		element.removePositionChangeListener(this);
+		movedElements.remove(element.getId());
+		if (elementContacts.containsKey(element.getId())) {
+			removedElements.put(element.getId(), element);
+		}
+		return quadTree.remove(element);
+	}
+
+	@Override
+	public void positionChanged(T moved) {
+		movedElements.put(moved.getId(), moved);
+	}
+
+	/**
+	 * Finds the contacts of elements that moved or were removed since the
+	 * previous update and notifies the {@link ContactListener}. Contacts
+	 * that ended are reported first, then each new and ongoing contact.
+	 */
+	public void update() {
+		frame++;
+		for (T element : removedElements.values()) {
+			endContacts(element);
+		}
+		removedElements.clear();
+		for (T element : movedElements.values()) {
+			updateContacts(element);
+		}
+		movedElements.clear();
+
+		for (int i = 0; i < exitedContacts.size(); i++) {
+			Contact<T> contact = exitedContacts.get(i);
+			listener.onExit(contact.elementA, contact.elementB);
+			contact.elementA = null;
+			contact.elementB = null;
+			contactPool.add(contact);
+		}
+		exitedContacts.clear();
+
+		for (int i = 0; i < activeContacts.size(); i++) {
+			Contact<T> contact = activeContacts.get(i);
+			if (contact.enteredFrame == frame) {
+				listener.onEnter(contact.elementA, contact.elementB);
+			} else {
+				listener.onStay(contact.elementA, contact.elementB);
+			}
+		}
+	}
+
+	private void updateContacts(T element) {
+		contactFinder.element = element;
+		quadTree.forEachWithinRegion(element, contactFinder);
+		contactFinder.element = null;
+
+		//Contacts that were not found again no longer overlap
+		Contact<T> contact = elementContacts.get(element.getId());
+		while (contact != null) {
+			Contact<T> next = contact.getNext(element);
+			if (contact.frame != frame) {
+				endContact(contact);
+			}
+			contact = next;
+		}
+	}
+
+	private void endContacts(T element) {
+		Contact<T> contact = elementContacts.get(element.getId());
+		while (contact != null) {
+			Contact<T> next = contact.getNext(element);
+			endContact(contact);
+			contact = next;
+		}
+	}
+
+	private void beginContact(T element, T other, long key) {
+		Contact<T> contact = contactPool.isEmpty() ? new Contact<T>() : contactPool.remove(contactPool.size() - 1);
+		if (element.getId() < other.getId()) {
+			contact.elementA = element;
+			contact.elementB = other;
+		} else {
+			contact.elementA = other;
+			contact.elementB = element;
+		}
+		contact.key = key;
+		contact.frame = frame;
+		contact.enteredFrame = frame;
+		link(contact, contact.elementA);
+		link(contact, contact.elementB);
+		contact.nextWithKey = contacts.get(key);
+		contacts.put(key, contact);
+		contact.index = activeContacts.size();
+		activeContacts.add(contact);
+	}
+
+	private void endContact(Contact<T> contact) {
+		Contact<T> head = contacts.get(contact.key);
+		if (head == contact) {
+			if (contact.nextWithKey != null) {
+				contacts.put(contact.key, contact.nextWithKey);
+			} else {
+				contacts.remove(contact.key);
+			}
+		} else {
+			while (head.nextWithKey != contact) {
+				head = head.nextWithKey;
+			}
+			head.nextWithKey = contact.nextWithKey;
+		}
+		contact.nextWithKey = null;
+		unlink(contact, contact.elementA);
+		unlink(contact, contact.elementB);
+
+		Contact<T> last = activeContacts.remove(activeContacts.size() - 1);
+		if (last != contact) {
+			activeContacts.set(contact.index, last);
+			last.index = contact.index;
+		}
+		exitedContacts.add(contact);
+	}
+
+	private void link(Contact<T> contact, T element) {
+		Contact<T> head = elementContacts.get(element.getId());
+		contact.setNext(element, head);
+		contact.setPrevious(element, null);
+		if (head != null) {
+			head.setPrevious(element, contact);
+		}
+		elementContacts.put(element.getId(), contact);
+	}
+
+	private void unlink(Contact<T> contact, T element) {
+		Contact<T> previous = contact.getPrevious(element);
+		Contact<T> next = contact.getNext(element);
+		if (previous != null) {
+			previous.setNext(element, next);
+		} else if (next != null) {
+			elementContacts.put(element.getId(), next);
+		} else {
+			elementContacts.remove(element.getId());
+		}
+		if (next != null) {
+			next.setPrevious(element, previous);
+		}
+		contact.setNext(element, null);
+		contact.setPrevious(element, null);
+	}
+
+	/**
+	 * Returns if two elements were in contact at the last {@link #update()}
+	 * 
+	 * @param elementA
+	 *            The first element
+	 * @param elementB
+	 *            The second element
+	 * @return True if the elements are in contact
+	 */
+	public boolean isInContact(T elementA, T elementB) {
+		return getContact(elementA, elementB, getContactKey(elementA.getId(), elementB.getId())) != null;
+	}
+
+	private Contact<T> getContact(T element, T other, long key) {
+		Contact<T> contact = contacts.get(key);
+		while (contact != null) {
+			if ((contact.elementA == element && contact.elementB == other)
+					|| (contact.elementA == other && contact.elementB == element)) {
+				return contact;
+			}
+			contact = contact.nextWithKey;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the total number of contacts at the last {@link #update()}
+	 * 
+	 * @return The number of pairs of elements in contact
+	 */
+	public int getTotalContacts() {
+		return activeContacts.size();
+	}
+
+	/**
+	 * Returns the key of the contact between two elements. The key is unique
+	 * for IDs lower than 2^32, above that different pairs may share a key.
+	 */
+	static long getContactKey(long id1, long id2) {
+		if (id1 > id2) {
+			long swap = id1;
+			id1 = id2;
+			id2 = swap;
+		}
+		return (id1 << 32) | (id2 & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Creates or refreshes the contacts of the element it is querying for
+	 */
+	private class ContactFinder implements ElementVisitor<T> {
+		private T element;
+
+		@Override
+		public boolean visit(T other) {
+			if (other == element || !element.intersects(other)) {
+				return true;
+			}
+			long key = getContactKey(element.getId(), other.getId());
+			Contact<T> contact = getContact(element, other, key);
+			if (contact == null) {
+				beginContact(element, other, key);
+			} else {
+				contact.frame = frame;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * A contact between two elements. Each contact is linked into a list of
+	 * contacts for each of its elements.
+	 */
+	private static class Contact<T> {
+		private T elementA, elementB;
+		private Contact<T> nextA, previousA, nextB, previousB;
+		private Contact<T> nextWithKey;
+		private long key;
+		private long frame;
+		private long enteredFrame;
+		private int index;
+
+		private Contact<T> getNext(T element) {
+			return element == elementA ? nextA : nextB;
+		}
+
+		private void setNext(T element, Contact<T> contact) {
+			if (element == elementA) {
+				nextA = contact;
+			} else {
+				nextB = contact;
+			}
+		}
+
+		private Contact<T> getPrevious(T element) {
+			return element == elementA ? previousA : previousB;
+		}
+
+		private void setPrevious(T element, Contact<T> contact) {
+			if (element == elementA) {
+				previousA = contact;
+			} else {
+				previousB = contact;
+			}
+		}
+	}
+}
@@ -0,0 +1,1084 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Parallelogram;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+import org.mini2Dx.core.graphics.Graphics;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Implements a dynamic axis-aligned bounding box tree, a bounding volume
+ * hierarchy that can be used anywhere a {@link QuadTree} is expected. Each
+ * element is stored in a leaf node whose bounds are the element's bounds
+ * enlarged by a margin. Each internal node has two children and bounds
+ * enclosing both of them.
+ * 
+ * Unlike the quad trees, the nodes are not tied to fixed quadrants, so very
+ * large or unevenly sized elements such as long walls do not collect in
+ * the upper levels of the tree. Elements that move within their enlarged
+ * bounds do not change the tree. Otherwise their leaf is enlarged further in
+ * the direction they are moving and is reinserted if it no longer fits
+ * within its parent. Tree rotations keep the tree balanced as elements are
+ * added, removed and moved.
+ * 
+ * Elements are kept while they are within or intersect the bounds of the
+ * tree and are removed when they move entirely outside of them.
+ * 
+ * @see <a href=
+ *      "http://www.randygaul.net/2013/08/06/dynamic-aabb-tree/">Dynamic
+ *      AABB Tree</a>
+ */
+public class DynamicAabbTree<T extends CollisionBox> extends Rectangle implements QuadTree<T> {
+	public static Color NODE_COLOR = new Color(1f, 0f, 0f, 0.5f);
+	public static Color ELEMENT_COLOR = new Color(0f, 0f, 1f, 0.5f);
+
+	/**
+	 * The default distance each leaf's bounds extend beyond its element's
+	 * bounds
+	 */
+	public static final float DEFAULT_AABB_MARGIN = 4f;
+
+	private static final long serialVersionUID = -3496325385236418553L;
+	private static final int NULL_NODE = -1;
+	private static final int INITIAL_CAPACITY = 16;
+	//Leaves are extended by this multiple of an element's displacement in
+	//the direction it is moving, up to a limit in multiples of the margin
+	private static final float DISPLACEMENT_MULTIPLIER = 2f;
+	private static final float MAX_DISPLACEMENT_MARGINS = 16f;
+
+	protected final float aabbMargin;
+	protected final Map<T, Integer> elementLeaves = new IdentityHashMap<T, Integer>();
+	protected final LongMap<T> elementsById = new LongMap<T>();
+	protected final Map<T, Boolean> pendingPositionChanges = new IdentityHashMap<T, Boolean>();
+	protected boolean deferPositionChanges;
+	protected final QuadTreeStatistics statistics = QuadTreeStatistics.createIfEnabled();
+
+	//Nodes are stored by index in parallel arrays. Free nodes are linked
+	//through the parent array.
+	private float[] nodeMinX, nodeMinY, nodeMaxX, nodeMaxY;
+	private int[] nodeParent, nodeChild1, nodeChild2, nodeHeight;
+	private Object[] nodeElements;
+	private float[] nodeFitX, nodeFitY;
+	private int rootNode = NULL_NODE;
+	private int freeNode = NULL_NODE;
+	private int totalNodes;
+
+	private int[] stack = new int[64];
+	private int stackSize;
+
+	/**
+	 * Constructs a {@link DynamicAabbTree} with a specified margin
+	 * 
+	 * @param aabbMargin
+	 *            The distance each leaf's bounds extend beyond its element's
+	 *            bounds. Larger margins mean fewer changes to the tree as
+	 *            elements move but less precise queries.
+	 * @param x
+	 *            The x coordinate of the {@link DynamicAabbTree}
+	 * @param y
+	 *            The y coordinate of the {@link DynamicAabbTree}
+	 * @param width
+	 *            The width of the {@link DynamicAabbTree}
+	 * @param height
+	 *            The height of the {@link DynamicAabbTree}
+	 */
+	public DynamicAabbTree(float aabbMargin, float x, float y, float width, float height) {
+		super(x, y, width, height);
+
+		if (aabbMargin < 0f) {
+			throw new IllegalArgumentException(
+					"AABB margin must be greater than or equal to 0. [AABB margin: " + aabbMargin + "]");
+		}
+		this.aabbMargin = aabbMargin;
+
+		nodeMinX = new float[0];
+		nodeMinY = new float[0];
+		nodeMaxX = new float[0];
+		nodeMaxY = new float[0];
+		nodeParent = new int[0];
+		nodeChild1 = new int[0];
+		nodeChild2 = new int[0];
+		nodeHeight = new int[0];
+		nodeElements = new Object[0];
+		nodeFitX = new float[0];
+		nodeFitY = new float[0];
+		ensureCapacity(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructs a {@link DynamicAabbTree} with the
+	 * {@link #DEFAULT_AABB_MARGIN}
+	 * 
+	 * @param x
+	 *            The x coordinate of the {@link DynamicAabbTree}
+	 * @param y
+	 *            The y coordinate of the {@link DynamicAabbTree}
+	 * @param width
+	 *            The width of the {@link DynamicAabbTree}
+	 * @param height
+	 *            The height of the {@link DynamicAabbTree}
+	 */
+	public DynamicAabbTree(float x, float y, float width, float height) {
+		this(DEFAULT_AABB_MARGIN, x, y, width, height);
+	}
+
+	public void debugRender(Graphics g) {
+		Color tmp = g.getColor();
+
+		g.setColor(NODE_COLOR);
+		g.drawRect(x, y, width, height);
+		for (int i = 0; i < nodeHeight.length; i++) {
+			if (nodeHeight[i] <= 0) {
+				continue;
+			}
+			g.drawRect(nodeMinX[i], nodeMinY[i], nodeMaxX[i] - nodeMinX[i], nodeMaxY[i] - nodeMinY[i]);
+		}
+
+		g.setColor(ELEMENT_COLOR);
+		for (T element : elementLeaves.keySet()) {
+			g.drawRect(element.getX(), element.getY(), element.getWidth(), element.getHeight());
+		}
+		g.setColor(tmp);
+	}
+
+	public void addAll(List<T> elementsToAdd) {
+		if (elementsToAdd == null || elementsToAdd.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < elementsToAdd.size(); i++) {
+			add(elementsToAdd.get(i));
+		}
+	}
+
+	public boolean add(T element) {
+		if (element == null) {
+			return false;
+		}
+		if (!isWithinTree(element)) {
+			return false;
+		}
+		if (elementLeaves.containsKey(element)) {
+			return false;
+		}
+		int leaf = allocateNode();
+		nodeElements[leaf] = element;
+		setLeafBounds(leaf, element);
+		insertLeaf(leaf);
+		elementLeaves.put(element, leaf);
+		elementsById.put(element.getId(), element);
+		element.addPostionChangeListener(this);
+		return true;
+	}
+
+	public void removeAll(List<T> elementsToRemove) {
+		if (elementsToRemove == null || elementsToRemove.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < elementsToRemove.size(); i++) {
+			remove(elementsToRemove.get(i));
+		}
+	}
+
+	public boolean remove(T element) {
+		if (element == null) {
+			return false;
+		}
+		Integer leaf = elementLeaves.remove(element);
+		if (leaf == null) {
+			return false;
+		}
+		removeLeaf(leaf);
+		freeNode(leaf);
+		elementsById.remove(element.getId());
+		element.removePositionChangeListener(this);
+		pendingPositionChanges.remove(element);
+		return true;
+	}
+
+	@Override
+	public void positionChanged(T moved) {
+		if (deferPositionChanges) {
+			pendingPositionChanges.put(moved, Boolean.TRUE);
+			return;
+		}
+		moveElement(moved);
+	}
+
+	public void setDeferPositionChanges(boolean deferPositionChanges) {
+		if (!deferPositionChanges) {
+			flushPositionChanges();
+		}
+		this.deferPositionChanges = deferPositionChanges;
+	}
+
+	public boolean isDeferringPositionChanges() {
+		return deferPositionChanges;
+	}
+
+	public void flushPositionChanges() {
+		if (pendingPositionChanges.isEmpty()) {
+			return;
+		}
+		List<T> movedElements = new ArrayList<T>(pendingPositionChanges.keySet());
+		pendingPositionChanges.clear();
+		for (int i = 0; i < movedElements.size(); i++) {
+			moveElement(movedElements.get(i));
+		}
+	}
+
+	private void moveElement(T moved) {
+		Integer leaf = elementLeaves.get(moved);
+		if (leaf == null) {
+			return;
+		}
+		boolean withinLeaf = moved.getMinX() >= nodeMinX[leaf] && moved.getMinY() >= nodeMinY[leaf]
+				&& moved.getMaxX() <= nodeMaxX[leaf] && moved.getMaxY() <= nodeMaxY[leaf];
+		//Elements within a leaf inside this tree cannot have left it
+		if (withinLeaf && nodeMinX[leaf] >= x && nodeMinY[leaf] >= y && nodeMaxX[leaf] <= getMaxX()
+				&& nodeMaxY[leaf] <= getMaxY()) {
+			return;
+		}
+		if (!isWithinTree(moved)) {
+			remove(moved);
+			return;
+		}
+		if (withinLeaf) {
+			return;
+		}
+		float displacementX = getPredictedDisplacement(moved.getX() - nodeFitX[leaf]);
+		float displacementY = getPredictedDisplacement(moved.getY() - nodeFitY[leaf]);
+		setLeafBounds(leaf, moved);
+		if (displacementX < 0f) {
+			nodeMinX[leaf] += displacementX;
+		} else {
+			nodeMaxX[leaf] += displacementX;
+		}
+		if (displacementY < 0f) {
+			nodeMinY[leaf] += displacementY;
+		} else {
+			nodeMaxY[leaf] += displacementY;
+		}
+		//Leaves that stay within their parent do not change the tree
+		int parent = nodeParent[leaf];
+		if (parent != NULL_NODE && nodeMinX[leaf] >= nodeMinX[parent] && nodeMinY[leaf] >= nodeMinY[parent]
+				&& nodeMaxX[leaf] <= nodeMaxX[parent] && nodeMaxY[leaf] <= nodeMaxY[parent]) {
+			return;
+		}
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordReinsert();
+		}
+		removeLeaf(leaf);
+		insertLeaf(leaf);
+	}
+
+	public List<T> getElementsWithinRegion(Parallelogram parallelogram) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRegion(result, parallelogram);
+		return result;
+	}
+
+	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram) {
+		forEachWithinRegion(parallelogram, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRegion(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		if (rootNode == NULL_NODE) {
+			return true;
+		}
+		float minX, minY;
+		if (parallelogram instanceof Rectangle) {
+			minX = ((Rectangle) parallelogram).getMinX();
+			minY = ((Rectangle) parallelogram).getMinY();
+		} else {
+			minX = parallelogram.getX();
+			minY = parallelogram.getY();
+		}
+		float maxX = parallelogram.getMaxX();
+		float maxY = parallelogram.getMaxY();
+
+		int base = stackSize;
+		recordQuery();
+		push(rootNode);
+		while (stackSize > base) {
+			int node = stack[--stackSize];
+			recordVisit(node);
+			if (!isOverlapping(node, minX, minY, maxX, maxY)) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				T element = getElement(node);
+				if ((element.intersects(parallelogram) || parallelogram.contains(element))
+						&& !visitor.visit(element)) {
+					stackSize = base;
+					return false;
+				}
+				continue;
+			}
+			push(nodeChild2[node]);
+			push(nodeChild1[node]);
+		}
+		return true;
+	}
+
+	public List<T> getElementsContainingPoint(Point point) {
+		List<T> result = new ArrayList<T>();
+		getElementsContainingPoint(result, point);
+		return result;
+	}
+
+	public void getElementsContainingPoint(Collection<T> result, Point point) {
+		forEachContainingPoint(point, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor) {
+		if (rootNode == NULL_NODE) {
+			return true;
+		}
+		int base = stackSize;
+		recordQuery();
+		push(rootNode);
+		while (stackSize > base) {
+			int node = stack[--stackSize];
+			recordVisit(node);
+			if (!isOverlapping(node, point.x, point.y, point.x, point.y)) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				T element = getElement(node);
+				if (element.contains(point) && !visitor.visit(element)) {
+					stackSize = base;
+					return false;
+				}
+				continue;
+			}
+			push(nodeChild2[node]);
+			push(nodeChild1[node]);
+		}
+		return true;
+	}
+
+	public List<T> getNearestElements(float x, float y, int k) {
+		List<T> result = new ArrayList<T>();
+		getNearestElements(result, x, y, k);
+		return result;
+	}
+
+	public void getNearestElements(Collection<T> result, float x, float y, int k) {
+		if (k <= 0 || rootNode == NULL_NODE) {
+			return;
+		}
+		NearestElementSearch<T, Integer> search = new NearestElementSearch<T, Integer>(x, y, k);
+		recordQuery();
+		offerNode(search, rootNode);
+
+		Integer node = search.pollQuad();
+		while (node != null) {
+			recordVisit(node);
+			offerNode(search, nodeChild1[node]);
+			offerNode(search, nodeChild2[node]);
+			node = search.pollQuad();
+		}
+		search.getElements(result);
+	}
+
+	private void offerNode(NearestElementSearch<T, Integer> search, int node) {
+		if (isLeaf(node)) {
+			search.offerElement(getElement(node));
+			return;
+		}
+		search.offerQuad(node, nodeMinX[node], nodeMinY[node], nodeMaxX[node], nodeMaxY[node]);
+	}
+
+	public List<T> getElementsWithinRadius(float x, float y, float radius) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRadius(result, x, y, radius);
+		return result;
+	}
+
+	public void getElementsWithinRadius(Collection<T> result, float x, float y, float radius) {
+		forEachWithinRadius(x, y, radius, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRadius(float x, float y, float radius, ElementVisitor<T> visitor) {
+		if (radius < 0f || rootNode == NULL_NODE) {
+			return true;
+		}
+		float radiusSquared = radius * radius;
+
+		int base = stackSize;
+		recordQuery();
+		push(rootNode);
+		while (stackSize > base) {
+			int node = stack[--stackSize];
+			recordVisit(node);
+			if (isLeaf(node)) {
+				T element = getElement(node);
+				float dx = element.getX() - x;
+				float dy = element.getY() - y;
+				if ((dx * dx) + (dy * dy) <= radiusSquared && !visitor.visit(element)) {
+					stackSize = base;
+					return false;
+				}
+				continue;
+			}
+			if (NearestElementSearch.getDistanceSquared(x, y, nodeMinX[node], nodeMinY[node], nodeMaxX[node],
+					nodeMaxY[node]) > radiusSquared) {
+				continue;
+			}
+			push(nodeChild2[node]);
+			push(nodeChild1[node]);
+		}
+		return true;
+	}
+
+	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
+		List<T> result = new ArrayList<T>();
+		getElementsIntersectingLineSegment(result, lineSegment);
+		return result;
+	}
+
+	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
+		forEachIntersectingLineSegment(lineSegment, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachIntersectingLineSegment(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		if (rootNode == NULL_NODE) {
+			return true;
+		}
+		float x1 = lineSegment.getPointA().x;
+		float y1 = lineSegment.getPointA().y;
+		float deltaX = lineSegment.getPointB().x - x1;
+		float deltaY = lineSegment.getPointB().y - y1;
+
+		int base = stackSize;
+		recordQuery();
+		push(rootNode);
+		while (stackSize > base) {
+			int node = stack[--stackSize];
+			recordVisit(node);
+			if (!isOverlappingSegment(node, x1, y1, deltaX, deltaY)) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				T element = getElement(node);
+				if (element.intersects(lineSegment) && !visitor.visit(element)) {
+					stackSize = base;
+					return false;
+				}
+				continue;
+			}
+			push(nodeChild2[node]);
+			push(nodeChild1[node]);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean sweep(CollisionBox collisionBox, SweepResult<T> result) {
+		result.begin(collisionBox);
+		forEachWithinRegion(result.getSweptBounds(), result.getVisitor());
+		return result.end();
+	}
+
+	public boolean raycast(LineSegment lineSegment, RaycastResult<T> result) {
+		result.begin(lineSegment);
+		if (rootNode == NULL_NODE || !result.isNearer(getEntryFraction(result, rootNode))) {
+			return result.end();
+		}
+
+		//Children are visited nearest first so that further nodes can be
+		//skipped once an element has been hit
+		int base = stackSize;
+		recordQuery();
+		push(rootNode);
+		while (stackSize > base) {
+			int node = stack[--stackSize];
+			recordVisit(node);
+			if (isLeaf(node)) {
+				T element = getElement(node);
+				result.offer(element, element.getIntersectionFraction(lineSegment));
+				continue;
+			}
+			int child1 = nodeChild1[node];
+			int child2 = nodeChild2[node];
+			float entry1 = getEntryFraction(result, child1);
+			float entry2 = getEntryFraction(result, child2);
+			if (entry1 > entry2) {
+				int swap = child1;
+				child1 = child2;
+				child2 = swap;
+				float swapEntry = entry1;
+				entry1 = entry2;
+				entry2 = swapEntry;
+			}
+			if (result.isNearer(entry2)) {
+				push(child2);
+			}
+			if (result.isNearer(entry1)) {
+				push(child1);
+			}
+		}
+		return result.end();
+	}
+
+	private float getEntryFraction(RaycastResult<T> result, int node) {
+		return result.getEntryFraction(nodeMinX[node], nodeMinY[node], nodeMaxX[node], nodeMaxY[node]);
+	}
+
+	/**
+	 * Reports each pair of overlapping elements exactly once. The tree is
+	 * tested against itself, descending only into pairs of nodes whose
+	 * bounds overlap.
+	 * 
+	 * @param callback
+	 *            The {@link PairCallback} to report pairs to
+	 */
+	public void findCollidingPairs(PairCallback<T> callback) {
+		if (rootNode != NULL_NODE) {
+			recordQuery();
+			findCollidingPairs(callback, rootNode);
+		}
+	}
+
+	/**
+	 * Reports the overlapping pairs within the subtree of a node
+	 */
+	private void findCollidingPairs(PairCallback<T> callback, int node) {
+		if (isLeaf(node)) {
+			return;
+		}
+		int child1 = nodeChild1[node];
+		int child2 = nodeChild2[node];
+		findCollidingPairs(callback, child1);
+		findCollidingPairs(callback, child2);
+		findCollidingPairs(callback, child1, child2);
+	}
+
+	/**
+	 * Reports the overlapping pairs between the subtrees of two nodes
+	 */
+	private void findCollidingPairs(PairCallback<T> callback, int nodeA, int nodeB) {
+		if (!isOverlapping(nodeA, nodeMinX[nodeB], nodeMinY[nodeB], nodeMaxX[nodeB], nodeMaxY[nodeB])) {
+			return;
+		}
+		if (isLeaf(nodeA)) {
+			findCollidingPairs(callback, getElement(nodeA), nodeB);
+			return;
+		}
+		if (isLeaf(nodeB)) {
+			findCollidingPairs(callback, getElement(nodeB), nodeA);
+			return;
+		}
+		//Descend into the taller node
+		if (nodeHeight[nodeA] >= nodeHeight[nodeB]) {
+			findCollidingPairs(callback, nodeChild1[nodeA], nodeB);
+			findCollidingPairs(callback, nodeChild2[nodeA], nodeB);
+		} else {
+			findCollidingPairs(callback, nodeA, nodeChild1[nodeB]);
+			findCollidingPairs(callback, nodeA, nodeChild2[nodeB]);
+		}
+	}
+
+	/**
+	 * Reports the elements in the subtree of a node that overlap an element
+	 */
+	private void findCollidingPairs(PairCallback<T> callback, T element, int node) {
+		float minX = element.getMinX();
+		float minY = element.getMinY();
+		float maxX = element.getMaxX();
+		float maxY = element.getMaxY();
+
+		int base = stackSize;
+		push(node);
+		while (stackSize > base) {
+			node = stack[--stackSize];
+			recordVisit(node);
+			if (!isOverlapping(node, minX, minY, maxX, maxY)) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				T other = getElement(node);
+				if (SweepAndPrune.intersects(element, other)) {
+					callback.onCollidingPair(element, other);
+				}
+				continue;
+			}
+			push(nodeChild2[node]);
+			push(nodeChild1[node]);
+		}
+	}
+
+	public List<T> getElements() {
+		List<T> result = new ArrayList<T>();
+		getElements(result);
+		return result;
+	}
+
+	public void getElements(List<T> result) {
+		for (int i = 0; i < nodeElements.length; i++) {
+			if (nodeElements[i] == null) {
+				continue;
+			}
+			result.add(getElement(i));
+		}
+	}
+
+	@Override
+	public boolean forEachElement(ElementVisitor<T> visitor) {
+		for (int i = 0; i < nodeElements.length; i++) {
+			if (nodeElements[i] == null) {
+				continue;
+			}
+			if (!visitor.visit(getElement(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the total amount of leaf and internal nodes in this
+	 * {@link DynamicAabbTree}
+	 */
+	public int getTotalQuads() {
+		return totalNodes;
+	}
+
+	public int getTotalElements() {
+		return elementLeaves.size();
+	}
+
+	/**
+	 * Always returns null as a {@link DynamicAabbTree} is not part of a
+	 * hierarchy of {@link QuadTree}s
+	 */
+	public QuadTree<T> getParent() {
+		return null;
+	}
+
+	/**
+	 * Returns the amount of levels below the root node. A tree with a single
+	 * element has a height of 0.
+	 * 
+	 * @return -1 if there are no elements
+	 */
+	public int getTreeHeight() {
+		if (rootNode == NULL_NODE) {
+			return -1;
+		}
+		return nodeHeight[rootNode];
+	}
+
+	/**
+	 * Returns the distance each leaf's bounds extend beyond its element's
+	 * bounds
+	 * 
+	 * @return
+	 */
+	public float getAabbMargin() {
+		return aabbMargin;
+	}
+
+	@Override
+	public T getElementById(long id) {
+		return elementsById.get(id);
+	}
+
+	@Override
+	public QuadTreeStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public void updateStatistics() {
+		if (!QuadTreeStatistics.ENABLED) {
+			return;
+		}
+		statistics.beginStructure();
+		if (rootNode != NULL_NODE) {
+			recordStructure(rootNode, 0);
+		}
+		statistics.endStructure();
+	}
+
+	private void recordStructure(int node, int depth) {
+		if (isLeaf(node)) {
+			statistics.recordNode(depth, true, 1);
+			return;
+		}
+		statistics.recordNode(depth, false, 0);
+		recordStructure(nodeChild1[node], depth + 1);
+		recordStructure(nodeChild2[node], depth + 1);
+	}
+
+	private void recordQuery() {
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordNodeVisit(true, 0);
+		}
+	}
+
+	private void recordVisit(int node) {
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordNodeVisit(false, isLeaf(node) ? 1 : 0);
+		}
+	}
+
+	private void insertLeaf(int leaf) {
+		if (rootNode == NULL_NODE) {
+			rootNode = leaf;
+			nodeParent[leaf] = NULL_NODE;
+			return;
+		}
+
+		//Descend towards the sibling that least increases the total
+		//perimeter of the tree
+		float leafMinX = nodeMinX[leaf];
+		float leafMinY = nodeMinY[leaf];
+		float leafMaxX = nodeMaxX[leaf];
+		float leafMaxY = nodeMaxY[leaf];
+		int index = rootNode;
+		while (!isLeaf(index)) {
+			int child1 = nodeChild1[index];
+			int child2 = nodeChild2[index];
+
+			float perimeter = getPerimeter(nodeMinX[index], nodeMinY[index], nodeMaxX[index], nodeMaxY[index]);
+			float combinedPerimeter = getCombinedPerimeter(index, leafMinX, leafMinY, leafMaxX, leafMaxY);
+			//Cost of pairing the leaf with this node
+			float cost = 2f * combinedPerimeter;
+			//Minimum cost of pushing the leaf further down the tree
+			float inheritanceCost = 2f * (combinedPerimeter - perimeter);
+
+			float cost1 = getDescentCost(child1, leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritanceCost;
+			float cost2 = getDescentCost(child2, leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritanceCost;
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? child1 : child2;
+		}
+
+		int sibling = index;
+		int oldParent = nodeParent[sibling];
+		int newParent = allocateNode();
+		nodeParent[newParent] = oldParent;
+		nodeChild1[newParent] = sibling;
+		nodeChild2[newParent] = leaf;
+		nodeHeight[newParent] = nodeHeight[sibling] + 1;
+		setCombinedBounds(newParent, sibling, leaf);
+		nodeParent[sibling] = newParent;
+		nodeParent[leaf] = newParent;
+
+		if (oldParent == NULL_NODE) {
+			rootNode = newParent;
+		} else if (nodeChild1[oldParent] == sibling) {
+			nodeChild1[oldParent] = newParent;
+		} else {
+			nodeChild2[oldParent] = newParent;
+		}
+		refitToRoot(nodeParent[leaf]);
+	}
+
+	private float getDescentCost(int node, float minX, float minY, float maxX, float maxY) {
+		float combinedPerimeter = getCombinedPerimeter(node, minX, minY, maxX, maxY);
+		if (isLeaf(node)) {
+			return combinedPerimeter;
+		}
+		return combinedPerimeter - getPerimeter(nodeMinX[node], nodeMinY[node], nodeMaxX[node], nodeMaxY[node]);
+	}
+
+	private void removeLeaf(int leaf) {
+		if (leaf == rootNode) {
+			rootNode = NULL_NODE;
+			return;
+		}
+
+		int parent = nodeParent[leaf];
+		int grandParent = nodeParent[parent];
+		int sibling = nodeChild1[parent] == leaf ? nodeChild2[parent] : nodeChild1[parent];
+		freeNode(parent);
+
+		nodeParent[sibling] = grandParent;
+		if (grandParent == NULL_NODE) {
+			rootNode = sibling;
+			return;
+		}
+		if (nodeChild1[grandParent] == parent) {
+			nodeChild1[grandParent] = sibling;
+		} else {
+			nodeChild2[grandParent] = sibling;
+		}
+		refitToRoot(grandParent);
+	}
+
+	/**
+	 * Rebalances and recalculates the bounds and height of a node and each
+	 * of its ancestors
+	 */
+	private void refitToRoot(int node) {
+		boolean first = true;
+		while (node != NULL_NODE) {
+			int balancedNode = balance(node);
+
+			int child1 = nodeChild1[balancedNode];
+			int child2 = nodeChild2[balancedNode];
+			int height = 1 + Math.max(nodeHeight[child1], nodeHeight[child2]);
+			float minX = Math.min(nodeMinX[child1], nodeMinX[child2]);
+			float minY = Math.min(nodeMinY[child1], nodeMinY[child2]);
+			float maxX = Math.max(nodeMaxX[child1], nodeMaxX[child2]);
+			float maxY = Math.max(nodeMaxY[child1], nodeMaxY[child2]);
+			//Ancestors of an unchanged node are unchanged
+			if (!first && balancedNode == node && height == nodeHeight[node] && minX == nodeMinX[node]
+					&& minY == nodeMinY[node] && maxX == nodeMaxX[node] && maxY == nodeMaxY[node]) {
+				return;
+			}
+			nodeHeight[balancedNode] = height;
+			nodeMinX[balancedNode] = minX;
+			nodeMinY[balancedNode] = minY;
+			nodeMaxX[balancedNode] = maxX;
+			nodeMaxY[balancedNode] = maxY;
+
+			first = false;
+			node = nodeParent[balancedNode];
+		}
+	}
+
+	/**
+	 * Rotates the taller child of a node up if the heights of its children
+	 * differ by more than 1
+	 * 
+	 * @param a
+	 *            The node to balance
+	 * @return The node now at the position of the balanced node
+	 */
+	private int balance(int a) {
+		if (isLeaf(a) || nodeHeight[a] < 2) {
+			return a;
+		}
+		int b = nodeChild1[a];
+		int c = nodeChild2[a];
+		int difference = nodeHeight[c] - nodeHeight[b];
+		if (difference > 1) {
+			rotateUp(a, c, b, false);
+			return c;
+		}
+		if (difference < -1) {
+			rotateUp(a, b, c, true);
+			return b;
+		}
+		return a;
+	}
+
+	/**
+	 * Rotates a child up to replace its parent. The parent becomes a child of
+	 * the rotated node and takes the rotated node's shorter child.
+	 * 
+	 * @param a
+	 *            The parent node
+	 * @param up
+	 *            The taller child of the parent to rotate up
+	 * @param other
+	 *            The other child of the parent
+	 * @param upIsChild1
+	 *            True if the node to rotate up is the parent's first child
+	 */
+	private void rotateUp(int a, int up, int other, boolean upIsChild1) {
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordRotation();
+		}
+		int f = nodeChild1[up];
+		int g = nodeChild2[up];
+
+		nodeChild1[up] = a;
+		nodeParent[up] = nodeParent[a];
+		nodeParent[a] = up;
+
+		int upParent = nodeParent[up];
+		if (upParent == NULL_NODE) {
+			rootNode = up;
+		} else if (nodeChild1[upParent] == a) {
+			nodeChild1[upParent] = up;
+		} else {
+			nodeChild2[upParent] = up;
+		}
+
+		//The taller grandchild stays with the rotated node
+		int taller = f;
+		int shorter = g;
+		if (nodeHeight[g] > nodeHeight[f]) {
+			taller = g;
+			shorter = f;
+		}
+		nodeChild2[up] = taller;
+		if (upIsChild1) {
+			nodeChild1[a] = shorter;
+		} else {
+			nodeChild2[a] = shorter;
+		}
+		nodeParent[shorter] = a;
+
+		setCombinedBounds(a, other, shorter);
+		setCombinedBounds(up, a, taller);
+		nodeHeight[a] = 1 + Math.max(nodeHeight[other], nodeHeight[shorter]);
+		nodeHeight[up] = 1 + Math.max(nodeHeight[a], nodeHeight[taller]);
+	}
+
+	private int allocateNode() {
+		if (freeNode == NULL_NODE) {
+			ensureCapacity(nodeParent.length * 2);
+		}
+		int node = freeNode;
+		freeNode = nodeParent[node];
+
+		nodeParent[node] = NULL_NODE;
+		nodeChild1[node] = NULL_NODE;
+		nodeChild2[node] = NULL_NODE;
+		nodeHeight[node] = 0;
+		totalNodes++;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		nodeParent[node] = freeNode;
+		nodeHeight[node] = -1;
+		nodeElements[node] = null;
+		freeNode = node;
+		totalNodes--;
+	}
+
+	private void ensureCapacity(int capacity) {
+		int previousCapacity = nodeParent.length;
+		if (capacity <= previousCapacity) {
+			return;
+		}
+		nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+		nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+		nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+		nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+		nodeParent = Arrays.copyOf(nodeParent, capacity);
+		nodeChild1 = Arrays.copyOf(nodeChild1, capacity);
+		nodeChild2 = Arrays.copyOf(nodeChild2, capacity);
+		nodeHeight = Arrays.copyOf(nodeHeight, capacity);
+		nodeElements = Arrays.copyOf(nodeElements, capacity);
+		nodeFitX = Arrays.copyOf(nodeFitX, capacity);
+		nodeFitY = Arrays.copyOf(nodeFitY, capacity);
+
+		//Link the new nodes into the free list
+		for (int i = previousCapacity; i < capacity; i++) {
+			nodeParent[i] = i + 1 < capacity ? i + 1 : freeNode;
+			nodeHeight[i] = -1;
+		}
+		freeNode = previousCapacity;
+	}
+
+	private void push(int node) {
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[stackSize++] = node;
+	}
+
+	private boolean isLeaf(int node) {
+		return nodeChild1[node] == NULL_NODE;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T getElement(int node) {
+		return (T) nodeElements[node];
+	}
+
+	private float getPredictedDisplacement(float displacement) {
+		float limit = aabbMargin * MAX_DISPLACEMENT_MARGINS;
+		return Math.max(-limit, Math.min(limit, displacement * DISPLACEMENT_MULTIPLIER));
+	}
+
+	private void setLeafBounds(int leaf, T element) {
+		nodeMinX[leaf] = element.getMinX() - aabbMargin;
+		nodeMinY[leaf] = element.getMinY() - aabbMargin;
+		nodeMaxX[leaf] = element.getMaxX() + aabbMargin;
+		nodeMaxY[leaf] = element.getMaxY() + aabbMargin;
+		nodeFitX[leaf] = element.getX();
+		nodeFitY[leaf] = element.getY();
+	}
+
+	private void setCombinedBounds(int node, int child1, int child2) {
+		nodeMinX[node] = Math.min(nodeMinX[child1], nodeMinX[child2]);
+		nodeMinY[node] = Math.min(nodeMinY[child1], nodeMinY[child2]);
+		nodeMaxX[node] = Math.max(nodeMaxX[child1], nodeMaxX[child2]);
+		nodeMaxY[node] = Math.max(nodeMaxY[child1], nodeMaxY[child2]);
+	}
+
+	private float getCombinedPerimeter(int node, float minX, float minY, float maxX, float maxY) {
+		return getPerimeter(Math.min(nodeMinX[node], minX), Math.min(nodeMinY[node], minY),
+				Math.max(nodeMaxX[node], maxX), Math.max(nodeMaxY[node], maxY));
+	}
+
+	private static float getPerimeter(float minX, float minY, float maxX, float maxY) {
+		return 2f * ((maxX - minX) + (maxY - minY));
+	}
+
+	/**
+	 * Returns if an element is within or intersects the bounds of this tree
+	 */
+	private boolean isWithinTree(T element) {
+		return element.getMinX() <= getMaxX() && element.getMaxX() >= getMinX() && element.getMinY() <= getMaxY()
+				&& element.getMaxY() >= getMinY();
+	}
+
+	private boolean isOverlapping(int node, float minX, float minY, float maxX, float maxY) {
+		return minX <= nodeMaxX[node] && maxX >= nodeMinX[node] && minY <= nodeMaxY[node] && maxY >= nodeMinY[node];
+	}
+
+	/**
+	 * Returns if a line segment passes through the bounds of a node
+	 */
+	private boolean isOverlappingSegment(int node, float x1, float y1, float deltaX, float deltaY) {
+		float entry = 0f;
+		float exit = 1f;
+		if (deltaX == 0f) {
+			if (x1 < nodeMinX[node] || x1 > nodeMaxX[node]) {
+				return false;
+			}
+		} else {
+			float entryX = (nodeMinX[node] - x1) / deltaX;
+			float exitX = (nodeMaxX[node] - x1) / deltaX;
+			entry = Math.max(entry, Math.min(entryX, exitX));
+			exit = Math.min(exit, Math.max(entryX, exitX));
+		}
+		if (deltaY == 0f) {
+			if (y1 < nodeMinY[node] || y1 > nodeMaxY[node]) {
+				return false;
+			}
+		} else {
+			float entryY = (nodeMinY[node] - y1) / deltaY;
+			float exitY = (nodeMaxY[node] - y1) / deltaY;
+			entry = Math.max(entry, Math.min(entryY, exitY));
+			exit = Math.min(exit, Math.max(entryY, exitY));
+		}
+		return entry <= exit;
+	}
+}
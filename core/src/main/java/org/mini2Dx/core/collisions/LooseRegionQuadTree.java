@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.Rectangle;
+
+/**
+ * Implements a loose region quadtree. The bounds of each quad are enlarged by
+ * a looseness factor so that elements which straddle the boundary between
+ * child quads can still be stored in a child quad instead of remaining in the
+ * parent. Each element is stored in exactly one quad, chosen by its center
+ * and size, which keeps small elements out of the upper levels of the tree
+ * where every query would test them.
+ * 
+ * Elements partially outside of the root quad are stored in the root quad.
+ * 
+ * @see <a href=
+ *      "http://www.tulrich.com/geekstuff/partitioning.html">Loose
+ *      Octrees</a>
+ */
+public class LooseRegionQuadTree<T extends CollisionBox> extends RegionQuadTree<T> {
+	private static final long serialVersionUID = 6416016287573911537L;
+
+	/**
+	 * The default looseness factor. Each quad's bounds are twice its width
+	 * and height so any element no larger than half the quad's size fits in
+	 * a child quad.
+	 */
+	public static final float DEFAULT_LOOSENESS = 2f;
+
+	protected final float looseness;
+	protected final Rectangle looseBounds = new Rectangle();
+
+	/**
+	 * Constructs a {@link LooseRegionQuadTree} with a specified element limit,
+	 * watermark and looseness
+	 * 
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a
+	 *            {@link LooseRegionQuadTree} before it is split into 4 child
+	 *            quads
+	 * @param mergeWatermark
+	 *            When a parent {@link LooseRegionQuadTree}'s total elements go
+	 *            lower than this mark, the child {@link LooseRegionQuadTree}s
+	 *            will be merged back together
+	 * @param looseness
+	 *            The factor each quad's width and height are multiplied by to
+	 *            get the bounds its elements must fit within. Must be at least
+	 *            1.
+	 * @param x
+	 *            The x coordinate of the {@link LooseRegionQuadTree}
+	 * @param y
+	 *            The y coordiante of the {@link LooseRegionQuadTree}
+	 * @param width
+	 *            The width of the {@link LooseRegionQuadTree}
+	 * @param height
+	 *            The height of the {@link LooseRegionQuadTree}
+	 */
+	public LooseRegionQuadTree(int elementLimitPerQuad, int mergeWatermark, float looseness, float x, float y,
+			float width, float height) {
+		super(elementLimitPerQuad, mergeWatermark, x, y, width, height);
+		if (looseness < 1f) {
+			throw new IllegalArgumentException(
+					"Looseness must be greater than or equal to 1. [Looseness: " + looseness + "]");
+		}
+		this.looseness = looseness;
+		setLooseBounds();
+	}
+
+	/**
+	 * Constructs a {@link LooseRegionQuadTree} with a specified element limit
+	 * and watermark and the {@link #DEFAULT_LOOSENESS}
+	 * 
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a
+	 *            {@link LooseRegionQuadTree} before it is split into 4 child
+	 *            quads
+	 * @param mergeWatermark
+	 *            When a parent {@link LooseRegionQuadTree}'s total elements go
+	 *            lower than this mark, the child {@link LooseRegionQuadTree}s
+	 *            will be merged back together
+	 * @param x
+	 *            The x coordinate of the {@link LooseRegionQuadTree}
+	 * @param y
+	 *            The y coordiante of the {@link LooseRegionQuadTree}
+	 * @param width
+	 *            The width of the {@link LooseRegionQuadTree}
+	 * @param height
+	 *            The height of the {@link LooseRegionQuadTree}
+	 */
+	public LooseRegionQuadTree(int elementLimitPerQuad, int mergeWatermark, float x, float y, float width,
+			float height) {
+		this(elementLimitPerQuad, mergeWatermark, DEFAULT_LOOSENESS, x, y, width, height);
+	}
+
+	/**
+	 * Constructs a {@link LooseRegionQuadTree} with a specified element limit,
+	 * no merging watermark and the {@link #DEFAULT_LOOSENESS}. As elements
+	 * are removed, small sized child {@link LooseRegionQuadTree}s will not be
+	 * merged back together.
+	 * 
+	 * @param elementLimitPerQuad
+	 *            The maximum number of elements in a quad before it is split
+	 *            into 4 child {@link LooseRegionQuadTree}s
+	 * @param x
+	 *            The x coordinate of the {@link LooseRegionQuadTree}
+	 * @param y
+	 *            The y coordiante of the {@link LooseRegionQuadTree}
+	 * @param width
+	 *            The width of the {@link LooseRegionQuadTree}
+	 * @param height
+	 *            The height of the {@link LooseRegionQuadTree}
+	 */
+	public LooseRegionQuadTree(int elementLimitPerQuad, float x, float y, float width, float height) {
+		this(elementLimitPerQuad, 0, DEFAULT_LOOSENESS, x, y, width, height);
+	}
+
+	/**
+	 * Constructs a {@link LooseRegionQuadTree} as a child of another
+	 * {@link LooseRegionQuadTree}
+	 * 
+	 * @param parent
+	 *            The parent {@link LooseRegionQuadTree}
+	 * @param x
+	 *            The x coordinate of the {@link LooseRegionQuadTree}
+	 * @param y
+	 *            The y coordiante of the {@link LooseRegionQuadTree}
+	 * @param width
+	 *            The width of the {@link LooseRegionQuadTree}
+	 * @param height
+	 *            The height of the {@link LooseRegionQuadTree}
+	 */
+	public LooseRegionQuadTree(LooseRegionQuadTree<T> parent, float x, float y, float width, float height) {
+		super(parent, x, y, width, height);
+		this.looseness = parent.looseness;
+		setLooseBounds();
+	}
+
+	private void setLooseBounds() {
+		float looseWidth = width * looseness;
+		float looseHeight = height * looseness;
+		looseBounds.set(x - ((looseWidth - width) / 2f), y - ((looseHeight - height) / 2f), looseWidth, looseHeight);
+	}
+
+	@Override
+	protected byte getChildIndex(T element) {
+		byte result;
+		if (element.getCenterY() <= topLeft.getMaxY()) {
+			result = (byte) (element.getCenterX() <= topLeft.getMaxX() ? 0 : 1);
+		} else {
+			result = (byte) (element.getCenterX() <= topLeft.getMaxX() ? 2 : 3);
+		}
+		if (!getChild(result).containsElement(element)) {
+			return -1;
+		}
+		return result;
+	}
+
+	private PointQuadTree<T> getChild(byte index) {
+		switch (index) {
+		case 0:
+			return topLeft;
+		case 1:
+			return topRight;
+		case 2:
+			return bottomLeft;
+		default:
+			return bottomRight;
+		}
+	}
+
+	@Override
+	protected boolean addElementToChild(T element) {
+		byte childIndex = getChildIndex(element);
+		if (childIndex < 0) {
+			return false;
+		}
+		return getChild(childIndex).add(element);
+	}
+
+	@Override
+	protected PointQuadTree<T> createChild(float x, float y, float width, float height) {
+		return new LooseRegionQuadTree<T>(this, x, y, width, height);
+	}
+
+	@Override
+	protected void init(PointQuadTree<T> parent, float x, float y, float width, float height) {
+		super.init(parent, x, y, width, height);
+		setLooseBounds();
+	}
+
+	@Override
+	protected boolean removeElementFromChild(T element) {
+		//Elements are found by their current position unless they resized
+		//without notifying this quad
+		byte childIndex = getChildIndex(element);
+		if (childIndex >= 0 && getChild(childIndex).remove(element)) {
+			return true;
+		}
+		return super.removeElementFromChild(element);
+	}
+
+	/**
+	 * Returns if an element's center is within this quad and the element is
+	 * entirely within this quad's loose bounds
+	 */
+	@Override
+	protected boolean containsElement(T element) {
+		float centerX = element.getCenterX();
+		float centerY = element.getCenterY();
+		if (centerX < getMinX() || centerX > getMaxX() || centerY < getMinY() || centerY > getMaxY()) {
+			return false;
+		}
+		return element.getMinX() >= looseBounds.getMinX() && element.getMaxX() <= looseBounds.getMaxX()
+				&& element.getMinY() >= looseBounds.getMinY() && element.getMaxY() <= looseBounds.getMaxY();
+	}
+
+	@Override
+	public void positionChanged(T moved) {
+		boolean withinQuad = parent == null ? this.contains(moved) || this.intersects(moved)
+				: containsElement(moved);
+		boolean withinChild = withinQuad && topLeft != null && getChildIndex(moved) >= 0;
+		if (withinQuad && !withinChild)
+			return;
+		if (deferPositionChange(moved))
+			return;
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordReinsert();
+		}
+
+		if (withinChild) {
+			//Moved down into a child without changing this quad's total
+			removeFromElements(moved);
+			moved.removePositionChangeListener(this);
+			addElementToChild(moved);
+			return;
+		}
+
+		removeElement(moved);
+		clearTotalElementsCacheToRoot();
+
+		PointQuadTree<T> parentQuad = parent;
+		while (parentQuad != null) {
+			//Only the root quad holds elements that are not within its loose bounds
+			if (parentQuad.parent != null && !parentQuad.containsElement(moved)) {
+				parentQuad = parentQuad.parent;
+				continue;
+			}
+			if (parentQuad.add(moved)) {
+				return;
+			}
+			parentQuad = parentQuad.parent;
+		}
+		//Moved outside of the root quad
+		getRoot().removeElementId(moved);
+	}
+
+	/**
+	 * Returns the loose bounds of this quad
+	 */
+	@Override
+	protected Rectangle getElementBounds() {
+		return looseBounds;
+	}
+
+	/**
+	 * Returns the factor each quad's width and height are multiplied by to get
+	 * the bounds its elements must fit within
+	 * 
+	 * @return
+	 */
+	public float getLooseness() {
+		return looseness;
+	}
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.Collection;
+
+import org.mini2Dx.core.engine.Positionable;
+
+/**
+ * Best-first search state used by {@link QuadTree} implementations to find
+ * the elements nearest to a point. The nearest elements found so far are kept
+ * in a max-heap bounded to the requested amount and the quads still to be
+ * visited are kept in a min-heap ordered by their distance to the point, so
+ * quads further away than the furthest element found are never visited.
+ * 
+ * @param <T>
+ *            The type of element being searched for
+ * @param <Q>
+ *            The type of quad being visited
+ */
+public class NearestElementSearch<T extends Positionable, Q> {
+	private final float x, y;
+	private final int maxElements;
+
+	private final Object[] elements;
+	private final float[] elementDistances;
+	private int totalElements;
+
+	private Object[] quads = new Object[16];
+	private float[] quadDistances = new float[16];
+	private int totalQuads;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param x
+	 *            The x coordinate to search from
+	 * @param y
+	 *            The y coordinate to search from
+	 * @param maxElements
+	 *            The maximum amount of elements to find
+	 */
+	public NearestElementSearch(float x, float y, int maxElements) {
+		this.x = x;
+		this.y = y;
+		this.maxElements = maxElements;
+
+		elements = new Object[maxElements];
+		elementDistances = new float[maxElements];
+	}
+
+	/**
+	 * Offers an element to the search. The element is kept if fewer than the
+	 * maximum amount of elements have been found or it is nearer than the
+	 * furthest element found so far.
+	 * 
+	 * @param element
+	 *            The element to offer
+	 */
+	public void offerElement(T element) {
+		float distance = getDistanceSquared(element.getX(), element.getY());
+		if (totalElements < maxElements) {
+			elements[totalElements] = element;
+			elementDistances[totalElements] = distance;
+			siftElementUp(totalElements);
+			totalElements++;
+			return;
+		}
+		if (distance >= elementDistances[0]) {
+			return;
+		}
+		elements[0] = element;
+		elementDistances[0] = distance;
+		siftElementDown(0, totalElements);
+	}
+
+	/**
+	 * Offers a quad to be visited. The quad is only kept if it could contain
+	 * an element nearer than those already found.
+	 * 
+	 * @param quad
+	 *            The quad to visit
+	 * @param minX
+	 *            The least x coordinate of the quad
+	 * @param minY
+	 *            The least y coordinate of the quad
+	 * @param maxX
+	 *            The greatest x coordinate of the quad
+	 * @param maxY
+	 *            The greatest y coordinate of the quad
+	 */
+	public void offerQuad(Q quad, float minX, float minY, float maxX, float maxY) {
+		float distance = getDistanceSquared(x, y, minX, minY, maxX, maxY);
+		if (!isWithinSearch(distance)) {
+			return;
+		}
+		if (totalQuads == quads.length) {
+			Object[] newQuads = new Object[quads.length * 2];
+			float[] newQuadDistances = new float[quads.length * 2];
+			System.arraycopy(quads, 0, newQuads, 0, totalQuads);
+			System.arraycopy(quadDistances, 0, newQuadDistances, 0, totalQuads);
+			quads = newQuads;
+			quadDistances = newQuadDistances;
+		}
+		quads[totalQuads] = quad;
+		quadDistances[totalQuads] = distance;
+		siftQuadUp(totalQuads);
+		totalQuads++;
+	}
+
+	/**
+	 * Removes the nearest quad still to be visited
+	 * 
+	 * @return Null if there are no more quads that could contain a nearer
+	 *         element
+	 */
+	@SuppressWarnings("unchecked")
+	public Q pollQuad() {
+		if (totalQuads == 0 || !isWithinSearch(quadDistances[0])) {
+			return null;
+		}
+		Q result = (Q) quads[0];
+		totalQuads--;
+		quads[0] = quads[totalQuads];
+		quadDistances[0] = quadDistances[totalQuads];
+		quads[totalQuads] = null;
+		siftQuadDown(0);
+		return result;
+	}
+
+	/**
+	 * Returns if an element or quad at the specified squared distance could
+	 * be part of the result
+	 * 
+	 * @param distanceSquared
+	 *            The squared distance from the search point
+	 * @return True if it is nearer than the furthest element found or not
+	 *         enough elements have been found yet
+	 */
+	public boolean isWithinSearch(float distanceSquared) {
+		return totalElements < maxElements || distanceSquared < elementDistances[0];
+	}
+
+	/**
+	 * Adds the elements found to a {@link Collection}, nearest first. The
+	 * search is exhausted afterwards.
+	 * 
+	 * @param result
+	 *            The {@link Collection} to add the elements to
+	 */
+	@SuppressWarnings("unchecked")
+	public void getElements(Collection<T> result) {
+		//Heap sort places the furthest element at the end on each pass
+		for (int i = totalElements - 1; i > 0; i--) {
+			swapElements(0, i);
+			siftElementDown(0, i);
+		}
+		for (int i = 0; i < totalElements; i++) {
+			result.add((T) elements[i]);
+			elements[i] = null;
+		}
+		totalElements = 0;
+	}
+
+	/**
+	 * Returns the x coordinate being searched from
+	 * 
+	 * @return
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate being searched from
+	 * 
+	 * @return
+	 */
+	public float getY() {
+		return y;
+	}
+
+	private float getDistanceSquared(float elementX, float elementY) {
+		float dx = elementX - x;
+		float dy = elementY - y;
+		return (dx * dx) + (dy * dy);
+	}
+
+	/**
+	 * Returns the squared distance from a point to the nearest point of an
+	 * axis-aligned box
+	 * 
+	 * @param x
+	 *            The x coordinate of the point
+	 * @param y
+	 *            The y coordinate of the point
+	 * @param minX
+	 *            The least x coordinate of the box
+	 * @param minY
+	 *            The least y coordinate of the box
+	 * @param maxX
+	 *            The greatest x coordinate of the box
+	 * @param maxY
+	 *            The greatest y coordinate of the box
+	 * @return 0 if the point is inside the box
+	 */
+	public static float getDistanceSquared(float x, float y, float minX, float minY, float maxX, float maxY) {
+		float dx = Math.max(0f, Math.max(minX - x, x - maxX));
+		float dy = Math.max(0f, Math.max(minY - y, y - maxY));
+		return (dx * dx) + (dy * dy);
+	}
+
+	private void siftElementUp(int index) {
+		while (index > 0) {
+			int parentIndex = (index - 1) / 2;
+			if (elementDistances[parentIndex] >= elementDistances[index]) {
+				return;
+			}
+			swapElements(index, parentIndex);
+			index = parentIndex;
+		}
+	}
+
+	private void siftElementDown(int index, int size) {
+		while (true) {
+			int childIndex = (index * 2) + 1;
+			if (childIndex >= size) {
+				return;
+			}
+			if (childIndex + 1 < size && elementDistances[childIndex + 1] > elementDistances[childIndex]) {
+				childIndex++;
+			}
+			if (elementDistances[index] >= elementDistances[childIndex]) {
+				return;
+			}
+			swapElements(index, childIndex);
+			index = childIndex;
+		}
+	}
+
+	private void swapElements(int index1, int index2) {
+		Object element = elements[index1];
+		elements[index1] = elements[index2];
+		elements[index2] = element;
+
+		float distance = elementDistances[index1];
+		elementDistances[index1] = elementDistances[index2];
+		elementDistances[index2] = distance;
+	}
+
+	private void siftQuadUp(int index) {
+		while (index > 0) {
+			int parentIndex = (index - 1) / 2;
+			if (quadDistances[parentIndex] <= quadDistances[index]) {
+				return;
+			}
+			swapQuads(index, parentIndex);
+			index = parentIndex;
+		}
+	}
+
+	private void siftQuadDown(int index) {
+		while (true) {
+			int childIndex = (index * 2) + 1;
+			if (childIndex >= totalQuads) {
+				return;
+			}
+			if (childIndex + 1 < totalQuads && quadDistances[childIndex + 1] < quadDistances[childIndex]) {
+				childIndex++;
+			}
+			if (quadDistances[index] <= quadDistances[childIndex]) {
+				return;
+			}
+			swapQuads(index, childIndex);
+			index = childIndex;
+		}
+	}
+
+	private void swapQuads(int index1, int index2) {
+		Object quad = quads[index1];
+		quads[index1] = quads[index2];
+		quads[index2] = quad;
+
+		float distance = quadDistances[index1];
+		quadDistances[index1] = quadDistances[index2];
+		quadDistances[index2] = distance;
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link ReadWriteLock} that additionally supports optimistic reads in the
+ * style of Java 8's StampedLock (which is not available on all platforms
+ * mini2Dx supports).
+ * 
+ * A version number is incremented whenever the write lock is first acquired
+ * and when it is fully released, so the version is odd while a write is in
+ * progress. A reader calls {@link #tryOptimisticRead()}, reads the guarded
+ * state without locking and then calls {@link #validate(long)}. If validation
+ * fails the state may have been inconsistent and the reader must retry while
+ * holding the read lock. Readers must tolerate inconsistent state (including
+ * runtime exceptions) before validating.
+ */
+public class OptimisticReadWriteLock implements ReadWriteLock {
+	private static final AtomicLongFieldUpdater<OptimisticReadWriteLock> VERSION = AtomicLongFieldUpdater
+			.newUpdater(OptimisticReadWriteLock.class, "version");
+
+	private final ReentrantReadWriteLock lock;
+	private final Lock writeLock;
+
+	/**
+	 * Starts at 2 since 0 is returned for failed optimistic reads
+	 */
+	private volatile long version = 2L;
+
+	public OptimisticReadWriteLock() {
+		lock = new ReentrantReadWriteLock(false);
+		writeLock = new VersionedWriteLock();
+	}
+
+	/**
+	 * Returns a stamp to later validate with {@link #validate(long)}
+	 * 
+	 * @return 0 if the write lock is currently held
+	 */
+	public long tryOptimisticRead() {
+		long result = version;
+		if ((result & 1L) != 0L) {
+			return 0L;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns if the write lock has not been acquired since the stamp was
+	 * issued
+	 * 
+	 * @param stamp
+	 *            A stamp returned by {@link #tryOptimisticRead()}
+	 * @return False if the stamp is 0 or a write may have occurred
+	 */
+	public boolean validate(long stamp) {
+		//Compare-and-set to the same value acts as a full fence (Java 7 has
+		//no load fence) so that reads of the guarded state cannot be
+		//reordered after the version is re-read
+		return stamp != 0L && VERSION.compareAndSet(this, stamp, stamp);
+	}
+
+	@Override
+	public Lock readLock() {
+		return lock.readLock();
+	}
+
+	@Override
+	public Lock writeLock() {
+		return writeLock;
+	}
+
+	private void beginWrite() {
+		if (lock.getWriteHoldCount() == 1) {
+			version++;
+		}
+	}
+
+	private void endWrite() {
+		if (lock.getWriteHoldCount() == 1) {
+			version++;
+		}
+	}
+
+	/**
+	 * Wraps the write lock to keep the version number up to date. Only the
+	 * thread holding the write lock modifies the version.
+	 */
+	private class VersionedWriteLock implements Lock {
+
+		@Override
+		public void lock() {
+			lock.writeLock().lock();
+			beginWrite();
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			lock.writeLock().lockInterruptibly();
+			beginWrite();
+		}
+
+		@Override
+		public boolean tryLock() {
+			if (!lock.writeLock().tryLock()) {
+				return false;
+			}
+			beginWrite();
+			return true;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+			if (!lock.writeLock().tryLock(time, unit)) {
+				return false;
+			}
+			beginWrite();
+			return true;
+		}
+
+		@Override
+		public void unlock() {
+			if (lock.isWriteLockedByCurrentThread()) {
+				endWrite();
+			}
+			lock.writeLock().unlock();
+		}
+
+		@Override
+		public Condition newCondition() {
+			return lock.writeLock().newCondition();
+		}
+	}
+}
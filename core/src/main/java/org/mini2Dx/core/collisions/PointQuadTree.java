@@ -13,9 +13,14 @@ package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
 import org.mini2Dx.core.geom.LineSegment;
 import org.mini2Dx.core.geom.Parallelogram;
 import org.mini2Dx.core.geom.Point;
@@ -23,6 +28,7 @@ import org.mini2Dx.core.geom.Rectangle;
 import org.mini2Dx.core.graphics.Graphics;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.LongMap;
 
 /**
  * Implements a point quadtree
@@ -37,6 +43,7 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 	private static final long serialVersionUID = -2034928347848875105L;
 
 	protected PointQuadTree<T> parent;
+	protected PointQuadTree<T> root = this;
 	protected PointQuadTree<T> topLeft, topRight, bottomLeft, bottomRight;
 	protected List<T> elements;
 	protected final int elementLimitPerQuad;
@@ -44,6 +51,56 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 
 	protected int totalElementsCache = -1;
 
+	/**
+	 * Only used by the root quad. Maps each moved element to the quad it was
+	 * stored in when it moved, or null if it is not stored in any quad.
+	 */
+	protected Map<T, PointQuadTree<T>> pendingPositionChanges;
+	protected boolean deferPositionChanges;
+
+	/**
+	 * Only used by the root quad. Created on first use.
+	 */
+	protected transient QuadTreePool<T> pool;
+	/**
+	 * Only used by the root quad. Created on first use if statistics are
+	 * enabled.
+	 */
+	protected transient QuadTreeStatistics statistics;
+	/**
+	 * Only used by the root quad. Created on first use.
+	 */
+	protected transient LongMap<T> elementsById;
+
+	/**
+	 * The default number of calls to {@link #maintain(long)} a merged quad
+	 * must wait before it can be subdivided again
+	 */
+	public static final int DEFAULT_SUBDIVIDE_COOLDOWN = 30;
+
+	/**
+	 * Only used by the root quad
+	 */
+	protected MergePolicy mergePolicy = MergePolicy.IMMEDIATE;
+	/**
+	 * Only used by the root quad
+	 */
+	protected int subdivideCooldown = DEFAULT_SUBDIVIDE_COOLDOWN;
+	/**
+	 * Only used by the root quad. The number of times {@link #maintain(long)}
+	 * has been called.
+	 */
+	protected long maintenanceFrame;
+	/**
+	 * Only used by the root quad. Created on first use.
+	 */
+	protected transient Map<PointQuadTree<T>, Boolean> pendingMerges, pendingSubdivisions;
+	private transient List<PointQuadTree<T>> maintenanceQuads;
+	/**
+	 * The maintenance frame after which this quad may be subdivided again
+	 */
+	protected long subdivideAfterFrame;
+
 	/**
 	 * Constructs a {@link PointQuadTree} with a specified element limit and
 	 * watermark
@@ -115,6 +172,7 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 	public PointQuadTree(PointQuadTree<T> parent, float x, float y, float width, float height) {
 		this(parent.getElementLimitPerQuad(), parent.getMergeWatermark(), x, y, width, height);
 		this.parent = parent;
+		this.root = parent.root;
 	}
 
 	public void debugRender(Graphics g) {
@@ -151,6 +209,7 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 				elementsWithinQuad.add(element);
 			}
 		}
+		addElementIds(elementsWithinQuad);
 		
 		clearTotalElementsCache();
 		
@@ -164,9 +223,147 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 			elements.add(element);
 			element.addPostionChangeListener(this);
 		}
-		if (elements.size() > elementLimitPerQuad && width >= 2f && height >= 2f) {
+		if (isSubdivisionRequired()) {
+			subdivide();
+		}
+	}
+
+	/**
+	 * Adds a large amount of elements in a single pass. Unlike
+	 * {@link #addAll(List)}, the elements are partitioned into their final
+	 * quads up front so that each quad is subdivided at most once and each
+	 * element list is allocated at its final size. Use this when loading
+	 * large amounts of elements, e.g. static colliders on level load.
+	 * 
+	 * @param elementsToLoad
+	 *            The elements to add. Elements outside of this quad are
+	 *            ignored.
+	 */
+	public void bulkLoad(Collection<T> elementsToLoad) {
+		if (elementsToLoad == null || elementsToLoad.isEmpty()) {
+			return;
+		}
+
+		List<T> elementsWithinQuad = new ArrayList<T>(elementsToLoad.size());
+		for (T element : elementsToLoad) {
+			if (element != null && this.contains(element.getX(), element.getY())) {
+				elementsWithinQuad.add(element);
+			}
+		}
+		addElementIds(elementsWithinQuad);
+		bulkLoadElements(elementsWithinQuad);
+	}
+
+	/**
+	 * Places elements that are known to be within this quad into their final
+	 * quads, subdividing where required
+	 * 
+	 * @param elementsToLoad
+	 *            The elements to place. This {@link List} may be modified.
+	 */
+	protected void bulkLoadElements(List<T> elementsToLoad) {
+		clearTotalElementsCache();
+
+		if (topLeft == null) {
+			int totalElements = elements.size() + elementsToLoad.size();
+			if (totalElements <= elementLimitPerQuad || width < 2f || height < 2f) {
+				List<T> loadedElements = new ArrayList<T>(Math.max(elementLimitPerQuad, totalElements));
+				loadedElements.addAll(elements);
+				for (int i = 0; i < elementsToLoad.size(); i++) {
+					T element = elementsToLoad.get(i);
+					loadedElements.add(element);
+					element.addPostionChangeListener(this);
+				}
+				elements = loadedElements;
+				return;
+			}
+			//Existing elements are redistributed alongside the new elements
+			for (int i = 0; i < elements.size(); i++) {
+				T element = elements.get(i);
+				element.removePositionChangeListener(this);
+				elementsToLoad.add(element);
+			}
+			elements.clear();
 			subdivide();
 		}
+
+		byte[] childIndices = new byte[elementsToLoad.size()];
+		int[] childTotals = new int[4];
+		for (int i = 0; i < elementsToLoad.size(); i++) {
+			T element = elementsToLoad.get(i);
+			childIndices[i] = getChildIndex(element);
+			if (childIndices[i] >= 0) {
+				childTotals[childIndices[i]]++;
+			}
+		}
+		bulkLoadChildren(elementsToLoad, childIndices, childTotals);
+	}
+
+	/**
+	 * Returns the index of the child quad an element would be placed in
+	 * 
+	 * @param element
+	 *            The element
+	 * @return 0 - 3 for top left, top right, bottom left and bottom right
+	 *         respectively or -1 if the element does not belong to a child
+	 */
+	protected byte getChildIndex(T element) {
+		if (getRotation() != 0f) {
+			if (topLeft.contains(element.getX(), element.getY())) {
+				return 0;
+			}
+			if (topRight.contains(element.getX(), element.getY())) {
+				return 1;
+			}
+			if (bottomLeft.contains(element.getX(), element.getY())) {
+				return 2;
+			}
+			if (bottomRight.contains(element.getX(), element.getY())) {
+				return 3;
+			}
+			return -1;
+		}
+		//Axis-aligned quads can be resolved without testing each child
+		if (element.getY() <= topLeft.getMaxY()) {
+			return (byte) (element.getX() <= topLeft.getMaxX() ? 0 : 1);
+		}
+		return (byte) (element.getX() <= topLeft.getMaxX() ? 2 : 3);
+	}
+
+	/**
+	 * Partitions elements into exactly sized lists and loads them into the
+	 * child quads
+	 * 
+	 * @param elementsToLoad
+	 *            The elements to partition
+	 * @param childIndices
+	 *            The child index of each element
+	 * @param childTotals
+	 *            The total elements for each child index
+	 */
+	protected void bulkLoadChildren(List<T> elementsToLoad, byte[] childIndices, int[] childTotals) {
+		List<List<T>> childElements = new ArrayList<List<T>>(4);
+		for (int i = 0; i < childTotals.length; i++) {
+			childElements.add(new ArrayList<T>(childTotals[i]));
+		}
+		for (int i = 0; i < elementsToLoad.size(); i++) {
+			if (childIndices[i] < 0) {
+				continue;
+			}
+			childElements.get(childIndices[i]).add(elementsToLoad.get(i));
+		}
+		if (childTotals[0] > 0) {
+			topLeft.bulkLoadElements(childElements.get(0));
+		}
+		if (childTotals[1] > 0) {
+			topRight.bulkLoadElements(childElements.get(1));
+		}
+		if (childTotals[2] > 0) {
+			bottomLeft.bulkLoadElements(childElements.get(2));
+		}
+		if (childTotals[3] > 0) {
+			bottomRight.bulkLoadElements(childElements.get(3));
+		}
 	}
 
 	public boolean add(T element) {
@@ -177,6 +374,7 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 			return false;
 		}
 		clearTotalElementsCache();
+		addElementId(element);
 
 		if (topLeft != null) {
 			return addElementToChild(element);
@@ -188,7 +386,7 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 		elements.add(element);
 		element.addPostionChangeListener(this);
 
-		if (elements.size() > elementLimitPerQuad && width >= 2f && height >= 2f) {
+		if (isSubdivisionRequired()) {
 			subdivide();
 		}
 		return true;
@@ -210,23 +408,118 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 		if (topLeft != null) {
 			return;
 		}
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordSubdivision();
+		}
 
-		float halfWidth = width / 2f;
-		float halfHeight = height / 2f;
-
-		topLeft = new PointQuadTree<T>(this, x, y, halfWidth, halfHeight);
-		topRight = new PointQuadTree<T>(this, x + halfWidth, y, halfWidth, halfHeight);
-		bottomLeft = new PointQuadTree<T>(this, x, y + halfHeight, halfWidth, halfHeight);
-		bottomRight = new PointQuadTree<T>(this, x + halfWidth, y + halfHeight, halfWidth, halfHeight);
+		createChildren();
 
 		for (int i = elements.size() - 1; i >= 0; i--) {
 			T element = elements.remove(i);
 			element.removePositionChangeListener(this);
-			addElementToChild(element);
+			if (addElementToChild(element)) {
+				continue;
+			}
+			//Element moved outside this quad while position changes are deferred
+			PointQuadTree<T> root = getRoot();
+			if (root.deferPositionChanges) {
+				root.pendingPositionChanges.put(element, null);
+			}
 		}
+		getQuadPool().freeElementList(elements);
 		elements = null;
 	}
 
+	/**
+	 * Obtains the 4 child quads from the {@link QuadTreePool}
+	 */
+	protected void createChildren() {
+		float halfWidth = width / 2f;
+		float halfHeight = height / 2f;
+
+		QuadTreePool<T> pool = getQuadPool();
+		topLeft = pool.obtain(this, x, y, halfWidth, halfHeight);
+		topRight = pool.obtain(this, x + halfWidth, y, halfWidth, halfHeight);
+		bottomLeft = pool.obtain(this, x, y + halfHeight, halfWidth, halfHeight);
+		bottomRight = pool.obtain(this, x + halfWidth, y + halfHeight, halfWidth, halfHeight);
+	}
+
+	/**
+	 * Creates a new child quad of the same type as this quad. Called by the
+	 * {@link QuadTreePool} when it has no free quads.
+	 * 
+	 * @param x
+	 *            The x coordinate of the child quad
+	 * @param y
+	 *            The y coordinate of the child quad
+	 * @param width
+	 *            The width of the child quad
+	 * @param height
+	 *            The height of the child quad
+	 * @return A new quad
+	 */
+	protected PointQuadTree<T> createChild(float x, float y, float width, float height) {
+		return new PointQuadTree<T>(this, x, y, width, height);
+	}
+
+	/**
+	 * Prepares a quad obtained from the {@link QuadTreePool} for use as a
+	 * child quad
+	 * 
+	 * @param parent
+	 *            The parent quad
+	 * @param x
+	 *            The x coordinate of the quad
+	 * @param y
+	 *            The y coordinate of the quad
+	 * @param width
+	 *            The width of the quad
+	 * @param height
+	 *            The height of the quad
+	 */
+	protected void init(PointQuadTree<T> parent, float x, float y, float width, float height) {
+		set(x, y, width, height);
+		this.parent = parent;
+		this.root = parent.root;
+		this.subdivideAfterFrame = 0L;
+		if (elements == null) {
+			elements = getQuadPool().obtainElementList();
+		}
+		clearTotalElementsCache();
+	}
+
+	/**
+	 * Returns this quad and its child quads to the {@link QuadTreePool}. All
+	 * elements must have been removed beforehand.
+	 */
+	protected void release() {
+		if (topLeft != null) {
+			topLeft.release();
+			topRight.release();
+			bottomLeft.release();
+			bottomRight.release();
+			topLeft = null;
+			topRight = null;
+			bottomLeft = null;
+			bottomRight = null;
+		}
+		//The parent is kept as position changes may still be in progress
+		getQuadPool().free(this);
+	}
+
+	/**
+	 * Returns the {@link QuadTreePool} shared by all quads of this tree
+	 * 
+	 * @return The pool of the root quad
+	 */
+	public QuadTreePool<T> getQuadPool() {
+		PointQuadTree<T> root = getRoot();
+		if (root.pool == null) {
+			root.pool = new QuadTreePool<T>(root);
+		}
+		return root.pool;
+	}
+
 	protected boolean isMergable() {
 		if (topLeft == null) {
 			return false;
@@ -257,39 +550,120 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 		return topLeftTotal + topRightTotal + bottomLeftTotal + bottomRightTotal < mergeWatermark;
 	}
 
+	/**
+	 * Returns if this quad holds more elements than the element limit and
+	 * should be subdivided. If the quad was recently merged under
+	 * {@link MergePolicy#BUDGETED}, the subdivision is queued for
+	 * {@link #maintain(long)} instead.
+	 * 
+	 * @return True if this quad should be subdivided now
+	 */
+	protected boolean isSubdivisionRequired() {
+		if (elements.size() <= elementLimitPerQuad || width < 2f || height < 2f) {
+			return false;
+		}
+		if (subdivideAfterFrame == 0L) {
+			return true;
+		}
+		PointQuadTree<T> root = getRoot();
+		if (root.mergePolicy != MergePolicy.BUDGETED || root.maintenanceFrame >= subdivideAfterFrame) {
+			return true;
+		}
+		root.pendingSubdivisions.put(this, Boolean.TRUE);
+		return false;
+	}
+
+	/**
+	 * Merges this quad if it is mergable or, under
+	 * {@link MergePolicy#BUDGETED}, queues it to be merged by
+	 * {@link #maintain(long)}
+	 */
+	protected void requestMerge() {
+		if (mergeWatermark <= 0 || topLeft == null) {
+			return;
+		}
+		PointQuadTree<T> root = getRoot();
+		if (root.mergePolicy == MergePolicy.BUDGETED) {
+			root.pendingMerges.put(this, Boolean.TRUE);
+			return;
+		}
+		if (isMergable()) {
+			merge();
+		}
+	}
+
 	protected void merge() {
 		if (topLeft == null) {
 			return;
 		}
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordMerge();
+		}
+		PointQuadTree<T> root = getRoot();
+		if (root.mergePolicy == MergePolicy.BUDGETED) {
+			subdivideAfterFrame = root.maintenanceFrame + root.subdivideCooldown;
+		}
 
-		elements = new ArrayList<>();
-		topLeft.getElements(elements);
-		topRight.getElements(elements);
-		bottomLeft.getElements(elements);
-		bottomRight.getElements(elements);
-
-		for (T element : elements) {
-			topLeft.elements.remove(element);
-			element.removePositionChangeListener(topLeft);
-			topRight.elements.remove(element);
-			element.removePositionChangeListener(topRight);
-			bottomLeft.elements.remove(element);
-			element.removePositionChangeListener(bottomLeft);
-			bottomRight.elements.remove(element);
-			element.removePositionChangeListener(bottomRight);
+		if (elements == null) {
+			elements = getQuadPool().obtainElementList();
+		}
+		int fromIndex = elements.size();
+		topLeft.removeAllElements(elements);
+		topRight.removeAllElements(elements);
+		bottomLeft.removeAllElements(elements);
+		bottomRight.removeAllElements(elements);
+		Map<T, PointQuadTree<T>> pendingPositionChanges = root.deferPositionChanges ? root.pendingPositionChanges
+				: null;
+		for (int i = fromIndex; i < elements.size(); i++) {
+			T element = elements.get(i);
 			element.addPostionChangeListener(this);
+			//Pending position changes must be processed by this quad once the children are released
+			if (pendingPositionChanges != null && pendingPositionChanges.get(element) != null) {
+				pendingPositionChanges.put(element, this);
+			}
 		}
 
+		topLeft.release();
+		topRight.release();
+		bottomLeft.release();
+		bottomRight.release();
 		topLeft = null;
 		topRight = null;
 		bottomLeft = null;
 		bottomRight = null;
 	}
 	
+	/**
+	 * Removes all elements from this quad and its child quads
+	 * 
+	 * @param result
+	 *            The {@link List} to add the removed elements to
+	 */
+	protected void removeAllElements(List<T> result) {
+		if (topLeft != null) {
+			topLeft.removeAllElements(result);
+			topRight.removeAllElements(result);
+			bottomLeft.removeAllElements(result);
+			bottomRight.removeAllElements(result);
+		}
+		if (elements == null) {
+			return;
+		}
+		for (int i = 0; i < elements.size(); i++) {
+			T element = elements.get(i);
+			element.removePositionChangeListener(this);
+			result.add(element);
+		}
+		elements.clear();
+	}
+
 	public void removeAll(List<T> elementsToRemove) {
 		if(elementsToRemove == null || elementsToRemove.isEmpty()) {
 			return;
 		}
+		if (parent == null) {
+			flushPositionChanges();
+		}
 		
 		List<T> elementsWithinQuad = new ArrayList<T>();
 		for(T element : elementsToRemove) {
@@ -297,18 +671,23 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 				elementsWithinQuad.add(element);
 			}
 		}
+		removeElementIds(elementsWithinQuad);
 		
 		clearTotalElementsCache();
 		
-		if(topLeft != null) {
-			for(T element : elementsWithinQuad) {
-				removeElementFromChild(element);
+		for(T element : elementsWithinQuad) {
+			//Child quads may be merged back into this quad part way through
+			if(topLeft == null) {
+				break;
 			}
+			removeElementFromChild(element);
 		}
 		if(elements == null) {
 			return;
 		}
-		elements.removeAll(elementsWithinQuad);
+		for(T element : elementsWithinQuad) {
+			removeFromElements(element);
+		}
 		for(T element : elementsWithinQuad) {
 			element.removePositionChangeListener(this);
 		}
@@ -316,19 +695,23 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 		if (parent == null) {
 			return;
 		}
-		if (parent.isMergable()) {
-			parent.merge();
-		}
+		parent.requestMerge();
 	}
 
 	public boolean remove(T element) {
 		if (element == null)
 			return false;
+		if (parent == null) {
+			flushPositionChanges();
+		}
 
 		if (!this.contains(element.getX(), element.getY())) {
 			return false;
 		}
 		clearTotalElementsCache();
+		if (parent == null) {
+			removeElementId(element);
+		}
 
 		if (topLeft != null) {
 			return removeElementFromChild(element);
@@ -348,16 +731,33 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 		return false;
 	}
 
+	/**
+	 * Removes an element from this quad's element list by identity.
+	 * {@link List#remove(Object)} cannot be used as equally sized elements
+	 * at the same position are considered equal.
+	 * 
+	 * @param element
+	 *            The element to remove
+	 * @return True if the element was removed
+	 */
+	protected boolean removeFromElements(T element) {
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			if (elements.get(i) == element) {
+				elements.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected boolean removeElement(T element) {
-		boolean result = elements.remove(element);
+		boolean result = removeFromElements(element);
 		element.removePositionChangeListener(this);
 
-		if (parent == null) {
+		if (!result || parent == null) {
 			return result;
 		}
-		if (parent.isMergable()) {
-			parent.merge();
-		}
+		parent.requestMerge();
 		return result;
 	}
 
@@ -368,19 +768,27 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 	}
 
 	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram) {
+		forEachWithinRegion(parallelogram, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRegion(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		recordVisit();
 		if (topLeft != null) {
-			topLeft.getElementsWithinRegion(result, parallelogram);
-			topRight.getElementsWithinRegion(result, parallelogram);
-			bottomLeft.getElementsWithinRegion(result, parallelogram);
-			bottomRight.getElementsWithinRegion(result, parallelogram);
-		} else {
-			for (int i = elements.size() - 1; i >= 0; i--) {
-				T element = elements.get(i);
-				if (element != null && parallelogram.contains(element.getX(), element.getY())) {
-					result.add(element);
+			return topLeft.forEachWithinRegion(parallelogram, visitor)
+					&& topRight.forEachWithinRegion(parallelogram, visitor)
+					&& bottomLeft.forEachWithinRegion(parallelogram, visitor)
+					&& bottomRight.forEachWithinRegion(parallelogram, visitor);
+		}
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			T element = elements.get(i);
+			if (element != null && parallelogram.contains(element.getX(), element.getY())) {
+				if (!visitor.visit(element)) {
+					return false;
 				}
 			}
 		}
+		return true;
 	}
 
 	public List<T> getElementsContainingPoint(Point point) {
@@ -390,89 +798,440 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 	}
 
 	public void getElementsContainingPoint(Collection<T> result, Point point) {
+		forEachContainingPoint(point, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor) {
+		recordVisit();
 		if (topLeft != null) {
-			if (topLeft.contains(point)) {
-				topLeft.getElementsContainingPoint(result, point);
+			if (topLeft.contains(point) && !topLeft.forEachContainingPoint(point, visitor)) {
+				return false;
 			}
-			if (topRight.contains(point)) {
-				topRight.getElementsContainingPoint(result, point);
+			if (topRight.contains(point) && !topRight.forEachContainingPoint(point, visitor)) {
+				return false;
 			}
-			if (bottomLeft.contains(point)) {
-				bottomLeft.getElementsContainingPoint(result, point);
+			if (bottomLeft.contains(point) && !bottomLeft.forEachContainingPoint(point, visitor)) {
+				return false;
 			}
-			if (bottomRight.contains(point)) {
-				bottomRight.getElementsContainingPoint(result, point);
+			if (bottomRight.contains(point) && !bottomRight.forEachContainingPoint(point, visitor)) {
+				return false;
 			}
-		} else {
-			for (int i = elements.size() - 1; i >= 0; i--) {
-				T element = elements.get(i);
-				if (element == null) {
-					continue;
-				}
-				if (element.getX() != point.x) {
-					continue;
-				}
-				if (element.getY() != point.y) {
-					continue;
-				}
-				result.add(element);
+			return true;
+		}
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			T element = elements.get(i);
+			if (element == null) {
+				continue;
+			}
+			if (element.getX() != point.x) {
+				continue;
+			}
+			if (element.getY() != point.y) {
+				continue;
+			}
+			if (!visitor.visit(element)) {
+				return false;
 			}
 		}
+		return true;
 	}
 
-	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
-		List<T> result = new ArrayList<T>();
-		getElementsIntersectingLineSegment(result, lineSegment);
-		return result;
+	@Override
+	public boolean sweep(CollisionBox collisionBox, SweepResult<T> result) {
+		result.begin(collisionBox);
+		forEachWithinRegion(result.getSweptBounds(), result.getVisitor());
+		return result.end();
 	}
 
-	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
-		if (topLeft != null) {
-			if (topLeft.intersects(lineSegment) || topLeft.contains(lineSegment.getPointA())
-					|| topLeft.contains(lineSegment.getPointB())) {
-				topLeft.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-			if (topRight.intersects(lineSegment) || topRight.contains(lineSegment.getPointA())
-					|| topRight.contains(lineSegment.getPointB())) {
-				topRight.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-			if (bottomLeft.intersects(lineSegment) || bottomLeft.contains(lineSegment.getPointA())
-					|| bottomLeft.contains(lineSegment.getPointB())) {
-				bottomLeft.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-			if (bottomRight.intersects(lineSegment) || bottomRight.contains(lineSegment.getPointA())
-					|| bottomRight.contains(lineSegment.getPointB())) {
-				bottomRight.getElementsIntersectingLineSegment(result, lineSegment);
-			}
-		} else {
+	public boolean raycast(LineSegment lineSegment, RaycastResult<T> result) {
+		result.begin(lineSegment);
+		raycastQuad(lineSegment, result);
+		return result.end();
+	}
+
+	/**
+	 * Tests this quad's elements against a raycast then visits the child
+	 * quads in the order the ray enters them
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} being cast
+	 * @param result
+	 *            The {@link RaycastResult} in progress
+	 */
+	protected void raycastQuad(LineSegment lineSegment, RaycastResult<T> result) {
+		recordVisit();
+		if (elements != null) {
 			for (int i = elements.size() - 1; i >= 0; i--) {
 				T element = elements.get(i);
-				if (element != null && lineSegment.contains(element.getX(), element.getY())) {
-					result.add(element);
+				if (element != null) {
+					result.offer(element, getRaycastFraction(element, lineSegment, result));
 				}
 			}
 		}
+		if (topLeft == null) {
+			return;
+		}
+
+		float topLeftEntry = topLeft.getRaycastEntryFraction(result);
+		float topRightEntry = topRight.getRaycastEntryFraction(result);
+		float bottomLeftEntry = bottomLeft.getRaycastEntryFraction(result);
+		float bottomRightEntry = bottomRight.getRaycastEntryFraction(result);
+
+		for (int i = 0; i < 4; i++) {
+			float entry = Math.min(Math.min(topLeftEntry, topRightEntry), Math.min(bottomLeftEntry, bottomRightEntry));
+			if (!result.isNearer(entry)) {
+				return;
+			}
+			if (entry == topLeftEntry) {
+				topLeftEntry = Float.MAX_VALUE;
+				topLeft.raycastQuad(lineSegment, result);
+			} else if (entry == topRightEntry) {
+				topRightEntry = Float.MAX_VALUE;
+				topRight.raycastQuad(lineSegment, result);
+			} else if (entry == bottomLeftEntry) {
+				bottomLeftEntry = Float.MAX_VALUE;
+				bottomLeft.raycastQuad(lineSegment, result);
+			} else {
+				bottomRightEntry = Float.MAX_VALUE;
+				bottomRight.raycastQuad(lineSegment, result);
+			}
+		}
 	}
 
-	public List<T> getElements() {
-		List<T> result = new ArrayList<T>();
-		getElements(result);
-		return result;
+	private float getRaycastEntryFraction(RaycastResult<T> result) {
+		Rectangle bounds = getElementBounds();
+		return result.getEntryFraction(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
 	}
 
-	public void getElements(List<T> result) {
-		if (topLeft != null) {
-			topLeft.getElements(result);
-			topRight.getElements(result);
-			bottomLeft.getElements(result);
-			bottomRight.getElements(result);
-		} else {
-			result.addAll(elements);
-		}
+	/**
+	 * Returns how far along a raycast an element is hit
+	 * 
+	 * @param element
+	 *            The element to test
+	 * @param lineSegment
+	 *            The {@link LineSegment} being cast
+	 * @param result
+	 *            The {@link RaycastResult} in progress
+	 * @return A value between 0 and 1 if the element is hit
+	 */
+	protected float getRaycastFraction(T element, LineSegment lineSegment, RaycastResult<T> result) {
+		return result.getPointFraction(element.getX(), element.getY());
 	}
 
-	public int getTotalQuads() {
-		if (topLeft != null) {
+	public void findCollidingPairs(PairCallback<T> callback) {
+		findCollidingPairs(new SweepAndPrune<T>(callback, getCollisionMargin()));
+	}
+
+	/**
+	 * Reports the overlapping pairs within this quad and its children
+	 * 
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to test elements with
+	 */
+	protected void findCollidingPairs(SweepAndPrune<T> sweepAndPrune) {
+		recordVisit();
+		if (topLeft == null) {
+			if (elements != null && elements.size() > 1) {
+				sweepAndPrune.clear();
+				sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_ALL);
+				sweepAndPrune.sweep();
+			}
+			return;
+		}
+		if (elements != null && !elements.isEmpty()) {
+			sweepAndPrune.clear();
+			sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_ALL);
+			topLeft.addCollisionCandidates(sweepAndPrune);
+			topRight.addCollisionCandidates(sweepAndPrune);
+			bottomLeft.addCollisionCandidates(sweepAndPrune);
+			bottomRight.addCollisionCandidates(sweepAndPrune);
+			sweepAndPrune.sweep();
+		}
+		topLeft.findCollidingPairs(sweepAndPrune);
+		topRight.findCollidingPairs(sweepAndPrune);
+		bottomLeft.findCollidingPairs(sweepAndPrune);
+		bottomRight.findCollidingPairs(sweepAndPrune);
+
+		topLeft.findCollidingPairs(sweepAndPrune, topRight);
+		topLeft.findCollidingPairs(sweepAndPrune, bottomLeft);
+		topLeft.findCollidingPairs(sweepAndPrune, bottomRight);
+		topRight.findCollidingPairs(sweepAndPrune, bottomLeft);
+		topRight.findCollidingPairs(sweepAndPrune, bottomRight);
+		bottomLeft.findCollidingPairs(sweepAndPrune, bottomRight);
+	}
+
+	/**
+	 * Reports the overlapping pairs between the elements of this quad and its
+	 * children and the elements of another quad that is not its parent or
+	 * child. Only the quads whose bounds overlap are visited.
+	 * 
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to test elements with
+	 * @param quad
+	 *            The other quad
+	 */
+	protected void findCollidingPairs(SweepAndPrune<T> sweepAndPrune, PointQuadTree<T> quad) {
+		if (!sweepAndPrune.isOverlapping(getElementBounds(), quad.getElementBounds())) {
+			return;
+		}
+		if (elements != null && !elements.isEmpty()) {
+			sweepAndPrune.clear();
+			sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_A);
+			quad.addCollisionCandidates(sweepAndPrune);
+			sweepAndPrune.sweep();
+		}
+		if (topLeft == null) {
+			return;
+		}
+		topLeft.findCollidingPairs(sweepAndPrune, quad);
+		topRight.findCollidingPairs(sweepAndPrune, quad);
+		bottomLeft.findCollidingPairs(sweepAndPrune, quad);
+		bottomRight.findCollidingPairs(sweepAndPrune, quad);
+	}
+
+	/**
+	 * Adds the elements of this quad and its children that could overlap the
+	 * elements already added to a {@link SweepAndPrune}
+	 * 
+	 * @param sweepAndPrune
+	 *            The {@link SweepAndPrune} to add to
+	 */
+	protected void addCollisionCandidates(SweepAndPrune<T> sweepAndPrune) {
+		if (!sweepAndPrune.isOverlappingAddedElements(getElementBounds())) {
+			return;
+		}
+		if (elements != null) {
+			sweepAndPrune.addAll(elements, SweepAndPrune.GROUP_B);
+		}
+		if (topLeft == null) {
+			return;
+		}
+		topLeft.addCollisionCandidates(sweepAndPrune);
+		topRight.addCollisionCandidates(sweepAndPrune);
+		bottomLeft.addCollisionCandidates(sweepAndPrune);
+		bottomRight.addCollisionCandidates(sweepAndPrune);
+	}
+
+	/**
+	 * Returns how far the bounds of the elements in this quad and its children
+	 * extend from their positions
+	 * 
+	 * @return The largest {@link SweepAndPrune#getMargin(Positionable)}
+	 */
+	protected float getCollisionMargin() {
+		float result = 0f;
+		if (elements != null) {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null) {
+					result = Math.max(result, SweepAndPrune.getMargin(element));
+				}
+			}
+		}
+		if (topLeft == null) {
+			return result;
+		}
+		result = Math.max(result, topLeft.getCollisionMargin());
+		result = Math.max(result, topRight.getCollisionMargin());
+		result = Math.max(result, bottomLeft.getCollisionMargin());
+		return Math.max(result, bottomRight.getCollisionMargin());
+	}
+
+	public List<T> getNearestElements(float x, float y, int k) {
+		List<T> result = new ArrayList<T>();
+		getNearestElements(result, x, y, k);
+		return result;
+	}
+
+	public void getNearestElements(Collection<T> result, float x, float y, int k) {
+		if (k <= 0) {
+			return;
+		}
+		NearestElementSearch<T, PointQuadTree<T>> search = new NearestElementSearch<T, PointQuadTree<T>>(x, y, k);
+		offerTo(search);
+
+		PointQuadTree<T> quad = search.pollQuad();
+		while (quad != null) {
+			quad.addNearestElements(search);
+			quad = search.pollQuad();
+		}
+		search.getElements(result);
+	}
+
+	/**
+	 * Offers this quad's elements and child quads to a
+	 * {@link NearestElementSearch}
+	 * 
+	 * @param search
+	 *            The search in progress
+	 */
+	protected void addNearestElements(NearestElementSearch<T, PointQuadTree<T>> search) {
+		recordVisit();
+		if (elements != null) {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null) {
+					search.offerElement(element);
+				}
+			}
+		}
+		if (topLeft != null) {
+			topLeft.offerTo(search);
+			topRight.offerTo(search);
+			bottomLeft.offerTo(search);
+			bottomRight.offerTo(search);
+		}
+	}
+
+	private void offerTo(NearestElementSearch<T, PointQuadTree<T>> search) {
+		Rectangle bounds = getElementBounds();
+		search.offerQuad(this, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+	}
+
+	public List<T> getElementsWithinRadius(float x, float y, float radius) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRadius(result, x, y, radius);
+		return result;
+	}
+
+	public void getElementsWithinRadius(Collection<T> result, float x, float y, float radius) {
+		forEachWithinRadius(x, y, radius, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRadius(float x, float y, float radius, ElementVisitor<T> visitor) {
+		if (radius < 0f) {
+			return true;
+		}
+		return forEachWithinRadiusSquared(x, y, radius * radius, visitor);
+	}
+
+	protected boolean forEachWithinRadiusSquared(float x, float y, float radiusSquared, ElementVisitor<T> visitor) {
+		recordVisit();
+		if (elements != null) {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element == null) {
+					continue;
+				}
+				float dx = element.getX() - x;
+				float dy = element.getY() - y;
+				if ((dx * dx) + (dy * dy) <= radiusSquared && !visitor.visit(element)) {
+					return false;
+				}
+			}
+		}
+		if (topLeft == null) {
+			return true;
+		}
+		if (topLeft.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !topLeft.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+			return false;
+		}
+		if (topRight.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !topRight.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+			return false;
+		}
+		if (bottomLeft.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !bottomLeft.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+			return false;
+		}
+		if (bottomRight.getDistanceSquaredTo(x, y) <= radiusSquared
+				&& !bottomRight.forEachWithinRadiusSquared(x, y, radiusSquared, visitor)) {
+			return false;
+		}
+		return true;
+	}
+
+	protected float getDistanceSquaredTo(float x, float y) {
+		Rectangle bounds = getElementBounds();
+		return NearestElementSearch.getDistanceSquared(x, y, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(),
+				bounds.getMaxY());
+	}
+
+	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
+		List<T> result = new ArrayList<T>();
+		getElementsIntersectingLineSegment(result, lineSegment);
+		return result;
+	}
+
+	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
+		forEachIntersectingLineSegment(lineSegment, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachIntersectingLineSegment(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		recordVisit();
+		if (topLeft != null) {
+			if (topLeft.isIntersecting(lineSegment) && !topLeft.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
+			}
+			if (topRight.isIntersecting(lineSegment)
+					&& !topRight.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
+			}
+			if (bottomLeft.isIntersecting(lineSegment)
+					&& !bottomLeft.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
+			}
+			if (bottomRight.isIntersecting(lineSegment)
+					&& !bottomRight.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
+			}
+			return true;
+		}
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			T element = elements.get(i);
+			if (element != null && lineSegment.contains(element.getX(), element.getY())) {
+				if (!visitor.visit(element)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean isIntersecting(LineSegment lineSegment) {
+		return intersects(lineSegment) || contains(lineSegment.getPointA()) || contains(lineSegment.getPointB());
+	}
+
+	public List<T> getElements() {
+		List<T> result = new ArrayList<T>();
+		getElements(result);
+		return result;
+	}
+
+	public void getElements(List<T> result) {
+		if (topLeft != null) {
+			topLeft.getElements(result);
+			topRight.getElements(result);
+			bottomLeft.getElements(result);
+			bottomRight.getElements(result);
+		} else {
+			result.addAll(elements);
+		}
+	}
+
+	@Override
+	public boolean forEachElement(ElementVisitor<T> visitor) {
+		if (elements != null) {
+			for (int i = elements.size() - 1; i >= 0; i--) {
+				T element = elements.get(i);
+				if (element != null && !visitor.visit(element)) {
+					return false;
+				}
+			}
+		}
+		if (topLeft == null) {
+			return true;
+		}
+		return topLeft.forEachElement(visitor) && topRight.forEachElement(visitor)
+				&& bottomLeft.forEachElement(visitor) && bottomRight.forEachElement(visitor);
+	}
+
+	public int getTotalQuads() {
+		if (topLeft != null) {
 			int result = topLeft.getTotalQuads();
 			result += topRight.getTotalQuads();
 			result += bottomLeft.getTotalQuads();
@@ -502,12 +1261,24 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 		totalElementsCache = -1;
 	}
 
+	protected void clearTotalElementsCacheToRoot() {
+		for (PointQuadTree<T> quad = this; quad != null; quad = quad.parent) {
+			quad.clearTotalElementsCache();
+		}
+	}
+
 	@Override
 	public void positionChanged(T moved) {
 		if (this.contains(moved.getX(), moved.getY()))
 			return;
+		if (deferPositionChange(moved))
+			return;
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordReinsert();
+		}
 
 		removeElement(moved);
+		clearTotalElementsCacheToRoot();
 
 		QuadTree<T> parentQuad = parent;
 		while (parentQuad != null) {
@@ -516,6 +1287,458 @@ public class PointQuadTree<T extends Positionable> extends Rectangle implements
 			}
 			parentQuad = parentQuad.getParent();
 		}
+		//Moved outside of the root quad
+		getRoot().removeElementId(moved);
+	}
+
+	/**
+	 * Records a position change to be processed by
+	 * {@link #flushPositionChanges()} if position changes are deferred
+	 * 
+	 * @param moved
+	 *            The element that moved
+	 * @return False if the position change should be processed immediately
+	 */
+	protected boolean deferPositionChange(T moved) {
+		PointQuadTree<T> root = getRoot();
+		if (!root.deferPositionChanges) {
+			return false;
+		}
+		root.pendingPositionChanges.put(moved, this);
+		return true;
+	}
+
+	public void setDeferPositionChanges(boolean deferPositionChanges) {
+		if (parent != null) {
+			getRoot().setDeferPositionChanges(deferPositionChanges);
+			return;
+		}
+		if (!deferPositionChanges) {
+			flushPositionChanges();
+		} else if (pendingPositionChanges == null) {
+			pendingPositionChanges = new IdentityHashMap<T, PointQuadTree<T>>();
+		}
+		this.deferPositionChanges = deferPositionChanges;
+	}
+
+	public boolean isDeferringPositionChanges() {
+		return getRoot().deferPositionChanges;
+	}
+
+	public void flushPositionChanges() {
+		if (parent != null) {
+			getRoot().flushPositionChanges();
+			return;
+		}
+		if (pendingPositionChanges == null || pendingPositionChanges.isEmpty()) {
+			return;
+		}
+
+		Map<PointQuadTree<T>, List<T>> movedElementsByQuad = new IdentityHashMap<PointQuadTree<T>, List<T>>(
+				pendingPositionChanges.size());
+		List<T> elementsToReinsert = new ArrayList<T>(pendingPositionChanges.size());
+		for (Map.Entry<T, PointQuadTree<T>> pendingPositionChange : pendingPositionChanges.entrySet()) {
+			PointQuadTree<T> quad = pendingPositionChange.getValue();
+			if (quad == null) {
+				elementsToReinsert.add(pendingPositionChange.getKey());
+				continue;
+			}
+			List<T> movedElements = movedElementsByQuad.get(quad);
+			if (movedElements == null) {
+				movedElements = new ArrayList<T>();
+				movedElementsByQuad.put(quad, movedElements);
+			}
+			movedElements.add(pendingPositionChange.getKey());
+		}
+		pendingPositionChanges.clear();
+
+		//All elements are removed before any are reinserted so that no quad
+		//is subdivided while it still holds elements that moved out of it
+		for (Map.Entry<PointQuadTree<T>, List<T>> movedElements : movedElementsByQuad.entrySet()) {
+			List<T> removedElements = new ArrayList<T>(movedElements.getValue().size());
+			movedElements.getKey().removeMovedElements(movedElements.getValue(), removedElements);
+			movedElements.setValue(removedElements);
+		}
+		for (Map.Entry<PointQuadTree<T>, List<T>> removedElements : movedElementsByQuad.entrySet()) {
+			for (int i = 0; i < removedElements.getValue().size(); i++) {
+				removedElements.getKey().reinsertMovedElement(removedElements.getValue().get(i), elementsToReinsert);
+			}
+		}
+		//Elements are only added back if they are still within this quad
+		for (int i = 0; i < elementsToReinsert.size(); i++) {
+			removeElementId(elementsToReinsert.get(i));
+		}
+		bulkLoad(elementsToReinsert);
+		mergeAfterPositionChanges(movedElementsByQuad.keySet());
+	}
+
+	/**
+	 * Removes elements that have moved outside of this quad in a single pass
+	 * 
+	 * @param movedElements
+	 *            The elements that moved while stored in this quad
+	 * @param result
+	 *            The {@link List} to add removed elements to
+	 */
+	protected void removeMovedElements(List<T> movedElements, List<T> result) {
+		if (elements == null) {
+			//Quad was subdivided after the elements moved so they were placed by their new positions
+			return;
+		}
+		boolean removed = false;
+		for (int i = 0; i < movedElements.size(); i++) {
+			T element = movedElements.get(i);
+			if (containsElement(element)) {
+				continue;
+			}
+			if (!removeFromElements(element)) {
+				continue;
+			}
+			element.removePositionChangeListener(this);
+			result.add(element);
+			removed = true;
+			if (QuadTreeStatistics.ENABLED) {
+				getStatistics().recordReinsert();
+			}
+		}
+		if (!removed) {
+			return;
+		}
+		clearTotalElementsCacheToRoot();
+	}
+
+	/**
+	 * Adds an element that moved out of this quad to the lowest ancestor
+	 * that still contains it
+	 * 
+	 * @param element
+	 *            The element that moved
+	 * @param result
+	 *            The {@link List} to add the element to if only the root quad
+	 *            can place it
+	 */
+	protected void reinsertMovedElement(T element, List<T> result) {
+		PointQuadTree<T> ancestor = parent;
+		while (ancestor != null && ancestor.parent != null) {
+			if (ancestor.containsElement(element)) {
+				ancestor.add(element);
+				return;
+			}
+			ancestor = ancestor.parent;
+		}
+		result.add(element);
+	}
+
+	/**
+	 * Merges the parents of quads that elements were removed from, deepest
+	 * first so that no quad is merged after its parent
+	 * 
+	 * @param quads
+	 *            The quads elements were removed from
+	 */
+	private void mergeAfterPositionChanges(Collection<PointQuadTree<T>> quads) {
+		if (mergeWatermark <= 0) {
+			return;
+		}
+		Map<PointQuadTree<T>, Boolean> uniqueParents = new IdentityHashMap<PointQuadTree<T>, Boolean>(quads.size());
+		for (PointQuadTree<T> quad : quads) {
+			if (quad.parent != null) {
+				uniqueParents.put(quad.parent, Boolean.TRUE);
+			}
+		}
+		List<PointQuadTree<T>> parents = new ArrayList<PointQuadTree<T>>(uniqueParents.keySet());
+		Collections.sort(parents, new Comparator<PointQuadTree<T>>() {
+			@Override
+			public int compare(PointQuadTree<T> quad1, PointQuadTree<T> quad2) {
+				return quad2.getDepth() - quad1.getDepth();
+			}
+		});
+		for (PointQuadTree<T> quad : parents) {
+			quad.requestMerge();
+		}
+	}
+
+	/**
+	 * Performs queued merges and subdivisions when using
+	 * {@link MergePolicy#BUDGETED}. This should be called once per frame.
+	 * Merges are performed deepest first and at least one merge and one
+	 * subdivision are always performed so that the tree converges even with
+	 * a small budget.
+	 * 
+	 * @param budgetNanos
+	 *            The maximum time in nanoseconds to spend merging and
+	 *            subdividing quads
+	 * @return True if no merges or subdivisions remain queued
+	 */
+	public boolean maintain(long budgetNanos) {
+		if (parent != null) {
+			return getRoot().maintain(budgetNanos);
+		}
+		maintenanceFrame++;
+		if (mergePolicy != MergePolicy.BUDGETED) {
+			return true;
+		}
+		long startTime = System.nanoTime();
+		mergePending(startTime, budgetNanos);
+		subdividePending(startTime, budgetNanos);
+		return pendingMerges.isEmpty() && pendingSubdivisions.isEmpty();
+	}
+
+	private void mergePending(long startTime, long budgetNanos) {
+		if (maintenanceQuads == null) {
+			maintenanceQuads = new ArrayList<PointQuadTree<T>>();
+		}
+		boolean merged = false;
+		while (!pendingMerges.isEmpty()) {
+			maintenanceQuads.addAll(pendingMerges.keySet());
+			pendingMerges.clear();
+			Collections.sort(maintenanceQuads, new Comparator<PointQuadTree<T>>() {
+				@Override
+				public int compare(PointQuadTree<T> quad1, PointQuadTree<T> quad2) {
+					return quad2.getDepth() - quad1.getDepth();
+				}
+			});
+			for (int i = 0; i < maintenanceQuads.size(); i++) {
+				if (merged && System.nanoTime() - startTime >= budgetNanos) {
+					for (int j = i; j < maintenanceQuads.size(); j++) {
+						pendingMerges.put(maintenanceQuads.get(j), Boolean.TRUE);
+					}
+					maintenanceQuads.clear();
+					return;
+				}
+				PointQuadTree<T> quad = maintenanceQuads.get(i);
+				//Queued quads may have been merged away and reused since
+				if (!quad.isMergable()) {
+					continue;
+				}
+				quad.merge();
+				merged = true;
+				if (quad.parent != null) {
+					pendingMerges.put(quad.parent, Boolean.TRUE);
+				}
+			}
+			maintenanceQuads.clear();
+		}
+	}
+
+	private void subdividePending(long startTime, long budgetNanos) {
+		if (pendingSubdivisions.isEmpty()) {
+			return;
+		}
+		maintenanceQuads.addAll(pendingSubdivisions.keySet());
+		pendingSubdivisions.clear();
+		boolean subdivided = false;
+		for (int i = 0; i < maintenanceQuads.size(); i++) {
+			PointQuadTree<T> quad = maintenanceQuads.get(i);
+			if (subdivided && System.nanoTime() - startTime >= budgetNanos) {
+				pendingSubdivisions.put(quad, Boolean.TRUE);
+				continue;
+			}
+			if (quad.topLeft != null || quad.elements == null) {
+				continue;
+			}
+			//Quads still cooling down are queued again
+			if (quad.isSubdivisionRequired()) {
+				quad.subdivide();
+				subdivided = true;
+			}
+		}
+		maintenanceQuads.clear();
+	}
+
+	/**
+	 * Sets when quads are merged after elements are removed. Switching to
+	 * {@link MergePolicy#IMMEDIATE} performs all queued merges and
+	 * subdivisions.
+	 * 
+	 * @param mergePolicy
+	 *            The {@link MergePolicy} to use
+	 */
+	public void setMergePolicy(MergePolicy mergePolicy) {
+		if (parent != null) {
+			getRoot().setMergePolicy(mergePolicy);
+			return;
+		}
+		if (mergePolicy == null) {
+			throw new IllegalArgumentException("Merge policy cannot be null");
+		}
+		if (mergePolicy == MergePolicy.BUDGETED) {
+			if (pendingMerges == null) {
+				pendingMerges = new IdentityHashMap<PointQuadTree<T>, Boolean>();
+				pendingSubdivisions = new IdentityHashMap<PointQuadTree<T>, Boolean>();
+			}
+			this.mergePolicy = mergePolicy;
+			return;
+		}
+		if (this.mergePolicy == MergePolicy.BUDGETED) {
+			mergePending(System.nanoTime(), Long.MAX_VALUE);
+			this.mergePolicy = mergePolicy;
+			subdividePending(System.nanoTime(), Long.MAX_VALUE);
+		}
+		this.mergePolicy = mergePolicy;
+	}
+
+	public MergePolicy getMergePolicy() {
+		return getRoot().mergePolicy;
+	}
+
+	/**
+	 * Sets the number of calls to {@link #maintain(long)} a quad must wait
+	 * after being merged before it can be subdivided again. Only applies to
+	 * {@link MergePolicy#BUDGETED}.
+	 * 
+	 * @param subdivideCooldown
+	 *            The number of calls to {@link #maintain(long)}
+	 */
+	public void setSubdivideCooldown(int subdivideCooldown) {
+		if (subdivideCooldown < 0) {
+			throw new IllegalArgumentException("Subdivide cooldown cannot be negative");
+		}
+		getRoot().subdivideCooldown = subdivideCooldown;
+	}
+
+	public int getSubdivideCooldown() {
+		return getRoot().subdivideCooldown;
+	}
+
+	/**
+	 * Returns if an element belongs in this quad based on its current
+	 * position
+	 * 
+	 * @param element
+	 *            The element to test
+	 * @return True if the element belongs in this quad
+	 */
+	protected boolean containsElement(T element) {
+		return this.contains(element.getX(), element.getY());
+	}
+
+	/**
+	 * Returns the bounds that the elements of this quad and its child quads
+	 * are kept within. Queries only visit a quad if they overlap these bounds.
+	 * 
+	 * @return This quad by default
+	 */
+	protected Rectangle getElementBounds() {
+		return this;
+	}
+
+	@Override
+	public T getElementById(long id) {
+		PointQuadTree<T> root = getRoot();
+		if (root.elementsById == null) {
+			return null;
+		}
+		return root.elementsById.get(id);
+	}
+
+	/**
+	 * Records an element added to this quad so that it can be found by
+	 * {@link #getElementById(long)}. Only the root quad records elements.
+	 * 
+	 * @param element
+	 *            The element being added
+	 */
+	protected void addElementId(T element) {
+		if (parent != null) {
+			return;
+		}
+		if (elementsById == null) {
+			elementsById = new LongMap<T>();
+		}
+		elementsById.put(element.getId(), element);
+	}
+
+	protected void addElementIds(List<T> elementsToAdd) {
+		for (int i = 0; i < elementsToAdd.size(); i++) {
+			addElementId(elementsToAdd.get(i));
+		}
+	}
+
+	/**
+	 * Stops an element being found by {@link #getElementById(long)}. Must be
+	 * called on the root quad.
+	 * 
+	 * @param element
+	 *            The element being removed
+	 */
+	protected void removeElementId(T element) {
+		if (elementsById == null || elementsById.get(element.getId()) != element) {
+			return;
+		}
+		elementsById.remove(element.getId());
+	}
+
+	protected void removeElementIds(List<T> elementsToRemove) {
+		if (parent != null) {
+			return;
+		}
+		for (int i = 0; i < elementsToRemove.size(); i++) {
+			removeElementId(elementsToRemove.get(i));
+		}
+	}
+
+	@Override
+	public QuadTreeStatistics getStatistics() {
+		if (!QuadTreeStatistics.ENABLED) {
+			return null;
+		}
+		PointQuadTree<T> root = getRoot();
+		if (root.statistics == null) {
+			root.statistics = new QuadTreeStatistics();
+		}
+		return root.statistics;
+	}
+
+	@Override
+	public void updateStatistics() {
+		if (!QuadTreeStatistics.ENABLED) {
+			return;
+		}
+		QuadTreeStatistics statistics = getStatistics();
+		statistics.beginStructure();
+		getRoot().recordStructure(statistics, 0);
+		statistics.endStructure();
+	}
+
+	/**
+	 * Records this quad and its child quads in the structural statistics
+	 * 
+	 * @param statistics
+	 *            The {@link QuadTreeStatistics} being updated
+	 * @param depth
+	 *            The depth of this quad
+	 */
+	protected void recordStructure(QuadTreeStatistics statistics, int depth) {
+		statistics.recordNode(depth, topLeft == null, elements == null ? 0 : elements.size());
+		if (topLeft == null) {
+			return;
+		}
+		topLeft.recordStructure(statistics, depth + 1);
+		topRight.recordStructure(statistics, depth + 1);
+		bottomLeft.recordStructure(statistics, depth + 1);
+		bottomRight.recordStructure(statistics, depth + 1);
+	}
+
+	/**
+	 * Records a query visiting this quad if statistics are enabled
+	 */
+	protected void recordVisit() {
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordNodeVisit(this == root, elements == null ? 0 : elements.size());
+		}
+	}
+
+	protected PointQuadTree<T> getRoot() {
+		return root;
+	}
+
+	protected int getDepth() {
+		int result = 0;
+		for (PointQuadTree<T> quad = parent; quad != null; quad = quad.parent) {
+			result++;
+		}
+		return result;
 	}
 
 	public QuadTree<T> getParent() {
@@ -16,6 +16,8 @@ import java.util.List;
 
 import org.mini2Dx.core.engine.PositionChangeListener;
 import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.engine.geom.CollisionCircle;
 import org.mini2Dx.core.geom.LineSegment;
 import org.mini2Dx.core.geom.Parallelogram;
 import org.mini2Dx.core.geom.Point;
@@ -39,21 +41,220 @@ public interface QuadTree<T extends Positionable> extends PositionChangeListener
 	
 	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram);
 	
+	/**
+	 * Visits the elements within a region without allocating a result
+	 * {@link Collection}. The {@link ElementVisitor} must not add, remove or
+	 * move elements of this {@link QuadTree}.
+	 * 
+	 * @param parallelogram
+	 *            The region to search
+	 * @param visitor
+	 *            The {@link ElementVisitor} to pass each element to
+	 * @return False if the {@link ElementVisitor} stopped the query early
+	 */
+	public boolean forEachWithinRegion(Parallelogram parallelogram, ElementVisitor<T> visitor);
+	
 	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment);
 	
 	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment);
 	
+	/**
+	 * Visits the elements intersecting a {@link LineSegment} without
+	 * allocating a result {@link Collection}. The {@link ElementVisitor} must
+	 * not add, remove or move elements of this {@link QuadTree}.
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} to search along
+	 * @param visitor
+	 *            The {@link ElementVisitor} to pass each element to
+	 * @return False if the {@link ElementVisitor} stopped the query early
+	 */
+	public boolean forEachIntersectingLineSegment(LineSegment lineSegment, ElementVisitor<T> visitor);
+	
+	/**
+	 * Finds the first element a {@link LineSegment} intersects when followed
+	 * from point A to point B. Quads are visited in the order the
+	 * {@link LineSegment} enters them and the search stops once no nearer
+	 * element is possible. No objects are allocated.
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} to cast
+	 * @param result
+	 *            The {@link RaycastResult} to store the hit element, hit
+	 *            point and distance in
+	 * @return True if an element was hit
+	 */
+	public boolean raycast(LineSegment lineSegment, RaycastResult<T> result);
+	
+	/**
+	 * Finds the first element a {@link CollisionBox} touches while moving
+	 * from its previous bounds to its current bounds, so that fast moving
+	 * elements do not pass through thin elements between updates. Only
+	 * elements within the swept bounds of the {@link CollisionBox} are tested.
+	 * The {@link CollisionBox} itself is never reported.
+	 * 
+	 * @param collisionBox
+	 *            The {@link CollisionBox} to sweep
+	 * @param result
+	 *            The {@link SweepResult} to store the hit element and time of
+	 *            impact in
+	 * @return True if an element was hit
+	 * @see CollisionBox#getTimeOfImpact(CollisionBox)
+	 */
+	public boolean sweep(CollisionBox collisionBox, SweepResult<T> result);
+	
+	/**
+	 * Reports each pair of overlapping elements exactly once. Elements are
+	 * tested with sort-and-sweep within each quad and against neighbouring
+	 * quads only where their bounds overlap. {@link CollisionBox}es are tested
+	 * by their bounds, {@link CollisionCircle}s by their radius and any other
+	 * element as a point.
+	 * 
+	 * Position changes that have not been flushed are not taken into account.
+	 * The {@link PairCallback} must not add, remove or move elements of this
+	 * {@link QuadTree}.
+	 * 
+	 * @param callback
+	 *            The {@link PairCallback} to report pairs to
+	 */
+	public void findCollidingPairs(PairCallback<T> callback);
+	
 	public List<T> getElementsContainingPoint(Point point);
 	
 	public void getElementsContainingPoint(Collection<T> result, Point point);
 	
+	/**
+	 * Visits the elements containing a {@link Point} without allocating a
+	 * result {@link Collection}. The {@link ElementVisitor} must not add,
+	 * remove or move elements of this {@link QuadTree}.
+	 * 
+	 * @param point
+	 *            The {@link Point} to search at
+	 * @param visitor
+	 *            The {@link ElementVisitor} to pass each element to
+	 * @return False if the {@link ElementVisitor} stopped the query early
+	 */
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor);
+	
+	/**
+	 * Returns the elements nearest to a point, ordered from nearest to
+	 * furthest. Distance is measured to each element's x and y coordinates.
+	 * 
+	 * @param x
+	 *            The x coordinate to search from
+	 * @param y
+	 *            The y coordinate to search from
+	 * @param k
+	 *            The maximum amount of elements to return
+	 * @return An empty {@link List} if there are no elements or k is less
+	 *         than 1
+	 */
+	public List<T> getNearestElements(float x, float y, int k);
+	
+	public void getNearestElements(Collection<T> result, float x, float y, int k);
+	
+	/**
+	 * Returns all elements whose x and y coordinates are within a radius of a
+	 * point
+	 * 
+	 * @param x
+	 *            The x coordinate of the center of the circle
+	 * @param y
+	 *            The y coordinate of the center of the circle
+	 * @param radius
+	 *            The radius of the circle
+	 * @return An empty {@link List} if no elements are within the radius
+	 */
+	public List<T> getElementsWithinRadius(float x, float y, float radius);
+	
+	public void getElementsWithinRadius(Collection<T> result, float x, float y, float radius);
+	
+	/**
+	 * Visits the elements whose x and y coordinates are within a radius of a
+	 * point without allocating a result {@link Collection}. The
+	 * {@link ElementVisitor} must not add, remove or move elements of this
+	 * {@link QuadTree}.
+	 * 
+	 * @param x
+	 *            The x coordinate of the center of the circle
+	 * @param y
+	 *            The y coordinate of the center of the circle
+	 * @param radius
+	 *            The radius of the circle
+	 * @param visitor
+	 *            The {@link ElementVisitor} to pass each element to
+	 * @return False if the {@link ElementVisitor} stopped the query early
+	 */
+	public boolean forEachWithinRadius(float x, float y, float radius, ElementVisitor<T> visitor);
+	
 	public List<T> getElements();
 	
 	public void getElements(List<T> result);
 	
+	/**
+	 * Visits every element without allocating a result {@link Collection}.
+	 * The {@link ElementVisitor} must not add, remove or move elements of this
+	 * {@link QuadTree}.
+	 * 
+	 * @param visitor
+	 *            The {@link ElementVisitor} to pass each element to
+	 * @return False if the {@link ElementVisitor} stopped early
+	 */
+	public boolean forEachElement(ElementVisitor<T> visitor);
+	
+	/**
+	 * Returns the element with a specific {@link Positionable#getId()} without
+	 * searching the tree. Elements that move outside of this
+	 * {@link QuadTree} are no longer returned.
+	 * 
+	 * @param id
+	 *            The id of the element
+	 * @return Null if no element with the id is in this {@link QuadTree}
+	 */
+	public T getElementById(long id);
+	
 	public int getTotalQuads();
 	
 	public int getTotalElements();
 	
 	public QuadTree<T> getParent();
+	
+	/**
+	 * Returns the {@link QuadTreeStatistics} shared by all nodes of this tree.
+	 * The returned instance can be read by a debug overlay or registered as
+	 * an MXBean.
+	 * 
+	 * @return Null if {@link QuadTreeStatistics#ENABLED} is false
+	 */
+	public QuadTreeStatistics getStatistics();
+	
+	/**
+	 * Walks the tree to update the depth and leaf statistics and completes the
+	 * current frame of query, subdivision, merge and reinsert counters.
+	 * Typically called once per frame. Does nothing if
+	 * {@link QuadTreeStatistics#ENABLED} is false.
+	 */
+	public void updateStatistics();
+	
+	/**
+	 * Sets if element position changes are processed immediately or recorded
+	 * until {@link #flushPositionChanges()} is called. When deferred, an
+	 * element that moves several times between flushes is only reinserted
+	 * once. This is most effective when elements move several times per
+	 * update or when several threads move elements of a concurrent quad tree.
+	 * Queries made before a flush may not reflect recent moves. Disabling
+	 * deferral flushes any pending position changes.
+	 * 
+	 * @param deferPositionChanges
+	 *            True if position changes should be deferred
+	 */
+	public void setDeferPositionChanges(boolean deferPositionChanges);
+	
+	public boolean isDeferringPositionChanges();
+	
+	/**
+	 * Reinserts all elements that have moved since the last flush. Typically
+	 * called once per update when position changes are deferred.
+	 */
+	public void flushPositionChanges();
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mini2Dx.core.engine.Positionable;
+
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Pools the child quads and element lists of a single {@link PointQuadTree}
+ * so that subdividing and merging quads does not create garbage. Quads are
+ * obtained when a quad subdivides and returned when it merges.
+ * 
+ * @param <T>
+ *            The type of element in the {@link PointQuadTree}
+ */
+public class QuadTreePool<T extends Positionable> extends Pool<PointQuadTree<T>> {
+	private final PointQuadTree<T> root;
+	private final List<List<T>> freeElementLists = new ArrayList<List<T>>();
+
+	private int liveQuads = 1;
+	private int peakLiveQuads = 1;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param root
+	 *            The root {@link PointQuadTree} the pool creates quads for
+	 */
+	public QuadTreePool(PointQuadTree<T> root) {
+		super();
+		this.root = root;
+	}
+
+	@Override
+	protected PointQuadTree<T> newObject() {
+		return root.createChild(root.getX(), root.getY(), root.getWidth(), root.getHeight());
+	}
+
+	/**
+	 * Returns a quad from the pool, creating one if the pool is empty
+	 * 
+	 * @param parent
+	 *            The parent of the quad
+	 * @param x
+	 *            The x coordinate of the quad
+	 * @param y
+	 *            The y coordinate of the quad
+	 * @param width
+	 *            The width of the quad
+	 * @param height
+	 *            The height of the quad
+	 * @return An empty quad
+	 */
+	public PointQuadTree<T> obtain(PointQuadTree<T> parent, float x, float y, float width, float height) {
+		PointQuadTree<T> result = obtain();
+		result.init(parent, x, y, width, height);
+		liveQuads++;
+		peakLiveQuads = Math.max(peakLiveQuads, liveQuads);
+		return result;
+	}
+
+	@Override
+	public void free(PointQuadTree<T> quad) {
+		liveQuads--;
+		super.free(quad);
+	}
+
+	/**
+	 * Creates quads until the pool holds at least the specified amount of
+	 * free quads. Useful for sizing the pool ahead of time, e.g. with the
+	 * {@link #getPeakLiveQuads()} of a previous run.
+	 * 
+	 * @param totalFreeQuads
+	 *            The amount of free quads to hold
+	 */
+	public void preallocate(int totalFreeQuads) {
+		int total = Math.min(totalFreeQuads, max) - getFree();
+		for (int i = 0; i < total; i++) {
+			super.free(newObject());
+		}
+	}
+
+	/**
+	 * Returns an empty element list from the pool, creating one if the pool
+	 * is empty
+	 * 
+	 * @return An empty {@link List}
+	 */
+	public List<T> obtainElementList() {
+		if (freeElementLists.isEmpty()) {
+			return new ArrayList<T>(root.getElementLimitPerQuad());
+		}
+		return freeElementLists.remove(freeElementLists.size() - 1);
+	}
+
+	/**
+	 * Clears an element list and returns it to the pool
+	 * 
+	 * @param elementList
+	 *            The {@link List} to return
+	 */
+	public void freeElementList(List<T> elementList) {
+		elementList.clear();
+		freeElementLists.add(elementList);
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		freeElementLists.clear();
+	}
+
+	/**
+	 * Returns the amount of quads currently in the {@link PointQuadTree},
+	 * including the root quad. Unlike {@link PointQuadTree#getTotalQuads()},
+	 * this includes quads that have been subdivided.
+	 * 
+	 * @return
+	 */
+	public int getLiveQuads() {
+		return liveQuads;
+	}
+
+	/**
+	 * Returns the highest amount of quads that have been in the
+	 * {@link PointQuadTree} at once, including the root quad
+	 * 
+	 * @return
+	 */
+	public int getPeakLiveQuads() {
+		return peakLiveQuads;
+	}
+
+	/**
+	 * Returns the amount of quads waiting in the pool to be reused
+	 * 
+	 * @return
+	 */
+	public int getFreeQuads() {
+		return getFree();
+	}
+
+	/**
+	 * Returns the amount of element lists waiting in the pool to be reused
+	 * 
+	 * @return
+	 */
+	public int getFreeElementLists() {
+		return freeElementLists.size();
+	}
+}
@@ -0,0 +1,461 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.geom.Circle;
+import org.mini2Dx.core.geom.Rectangle;
+
+/**
+ * An immutable, compact copy of the elements of a {@link QuadTree} published
+ * by a {@link QuadTreeSnapshotBuffer}. The bounds of each element are copied
+ * when the snapshot is built and stored alongside the element references in
+ * flat arrays, partitioned into a tree of nodes that is also stored in flat
+ * arrays. Queries test the copied bounds, so a snapshot can be queried from
+ * any number of threads without locking while the {@link QuadTree} it was
+ * built from continues to be updated.
+ * 
+ * Snapshots are obtained with {@link QuadTreeSnapshotBuffer#acquire()} and
+ * must be released with {@link #release()} once the reader is finished with
+ * them so that they can be reused.
+ * 
+ * @param <T>
+ *            The type of element in the snapshot
+ */
+public class QuadTreeSnapshot<T extends Positionable> {
+	/**
+	 * The maximum number of elements in a node before it is split
+	 */
+	public static final int ELEMENTS_PER_NODE = 8;
+	/**
+	 * The maximum depth of the nodes of a snapshot
+	 */
+	public static final int MAX_DEPTH = 16;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MIN_X = 0, MIN_Y = 1, MAX_X = 2, MAX_Y = 3;
+
+	private final AtomicInteger readers = new AtomicInteger();
+	private final ElementVisitor<T> elementCopier = new ElementVisitor<T>() {
+		@Override
+		public boolean visit(T element) {
+			copyElement(element);
+			return true;
+		}
+	};
+
+	private Object[] elements = new Object[INITIAL_CAPACITY];
+	/**
+	 * The min x, min y, max x and max y of each element
+	 */
+	private float[] elementBounds = new float[INITIAL_CAPACITY * 4];
+	private int totalElements;
+
+	/**
+	 * The min x, min y, max x and max y of the elements within each node
+	 */
+	private float[] nodeBounds = new float[INITIAL_CAPACITY * 4];
+	/**
+	 * Two values per node. Leaf nodes store the index of their first element
+	 * and their total elements. Other nodes store the index of their first
+	 * child node and the negated total of their child nodes which are stored
+	 * consecutively.
+	 */
+	private int[] nodes = new int[INITIAL_CAPACITY * 2];
+	private int totalNodes;
+
+	private long frame;
+
+	QuadTreeSnapshot() {
+	}
+
+	/**
+	 * Replaces the contents of this snapshot with the elements of a
+	 * {@link QuadTree}
+	 * 
+	 * @param quadTree
+	 *            The {@link QuadTree} to copy
+	 * @param frame
+	 *            The number of the update this snapshot was built during
+	 */
+	void build(QuadTree<T> quadTree, long frame) {
+		int previousTotalElements = totalElements;
+		totalElements = 0;
+		quadTree.forEachElement(elementCopier);
+		buildNodes(previousTotalElements, frame);
+	}
+
+	/**
+	 * Replaces the contents of this snapshot with a {@link Collection} of
+	 * elements
+	 * 
+	 * @param elementsToCopy
+	 *            The elements to copy
+	 * @param frame
+	 *            The number of the update this snapshot was built during
+	 */
+	void build(Collection<T> elementsToCopy, long frame) {
+		int previousTotalElements = totalElements;
+		totalElements = 0;
+		for (T element : elementsToCopy) {
+			copyElement(element);
+		}
+		buildNodes(previousTotalElements, frame);
+	}
+
+	private void buildNodes(int previousTotalElements, long frame) {
+		for (int i = totalElements; i < previousTotalElements; i++) {
+			elements[i] = null;
+		}
+		this.frame = frame;
+
+		totalNodes = 0;
+		if (totalElements == 0) {
+			return;
+		}
+		totalNodes = 1;
+		buildNode(0, 0, totalElements, 0);
+	}
+
+	private void copyElement(T element) {
+		if (totalElements == elements.length) {
+			Object[] newElements = new Object[elements.length * 2];
+			System.arraycopy(elements, 0, newElements, 0, totalElements);
+			elements = newElements;
+			float[] newElementBounds = new float[elementBounds.length * 2];
+			System.arraycopy(elementBounds, 0, newElementBounds, 0, totalElements * 4);
+			elementBounds = newElementBounds;
+		}
+		int boundsIndex = totalElements * 4;
+		elementBounds[boundsIndex + MIN_X] = getMinX(element);
+		elementBounds[boundsIndex + MIN_Y] = getMinY(element);
+		elementBounds[boundsIndex + MAX_X] = getMaxX(element);
+		elementBounds[boundsIndex + MAX_Y] = getMaxY(element);
+		elements[totalElements] = element;
+		totalElements++;
+	}
+
+	/**
+	 * Returns the least x coordinate of an element. {@link Rectangle} and
+	 * {@link Circle} elements are bounded by their shape, all other elements
+	 * are treated as points.
+	 */
+	static float getMinX(Positionable element) {
+		if (element instanceof Rectangle) {
+			return ((Rectangle) element).getMinX();
+		} else if (element instanceof Circle) {
+			return element.getX() - ((Circle) element).getRadius();
+		}
+		return element.getX();
+	}
+
+	static float getMinY(Positionable element) {
+		if (element instanceof Rectangle) {
+			return ((Rectangle) element).getMinY();
+		} else if (element instanceof Circle) {
+			return element.getY() - ((Circle) element).getRadius();
+		}
+		return element.getY();
+	}
+
+	static float getMaxX(Positionable element) {
+		if (element instanceof Rectangle) {
+			return ((Rectangle) element).getMaxX();
+		} else if (element instanceof Circle) {
+			return element.getX() + ((Circle) element).getRadius();
+		}
+		return element.getX();
+	}
+
+	static float getMaxY(Positionable element) {
+		if (element instanceof Rectangle) {
+			return ((Rectangle) element).getMaxY();
+		} else if (element instanceof Circle) {
+			return element.getY() + ((Circle) element).getRadius();
+		}
+		return element.getY();
+	}
+
+	/**
+	 * Computes the bounds of a node and splits its elements into up to 4
+	 * child nodes by the center of each element
+	 */
+	private void buildNode(int node, int fromIndex, int toIndex, int depth) {
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = fromIndex * 4; i < toIndex * 4; i += 4) {
+			minX = Math.min(minX, elementBounds[i + MIN_X]);
+			minY = Math.min(minY, elementBounds[i + MIN_Y]);
+			maxX = Math.max(maxX, elementBounds[i + MAX_X]);
+			maxY = Math.max(maxY, elementBounds[i + MAX_Y]);
+		}
+		int boundsIndex = node * 4;
+		nodeBounds[boundsIndex + MIN_X] = minX;
+		nodeBounds[boundsIndex + MIN_Y] = minY;
+		nodeBounds[boundsIndex + MAX_X] = maxX;
+		nodeBounds[boundsIndex + MAX_Y] = maxY;
+
+		nodes[node * 2] = fromIndex;
+		nodes[(node * 2) + 1] = toIndex - fromIndex;
+		if (toIndex - fromIndex <= ELEMENTS_PER_NODE || depth >= MAX_DEPTH) {
+			return;
+		}
+
+		int splitY = partition(fromIndex, toIndex, MIN_Y, (minY + maxY) / 2f);
+		int splitTop = partition(fromIndex, splitY, MIN_X, (minX + maxX) / 2f);
+		int splitBottom = partition(splitY, toIndex, MIN_X, (minX + maxX) / 2f);
+
+		int totalChildren = 0;
+		totalChildren += splitTop > fromIndex ? 1 : 0;
+		totalChildren += splitY > splitTop ? 1 : 0;
+		totalChildren += splitBottom > splitY ? 1 : 0;
+		totalChildren += toIndex > splitBottom ? 1 : 0;
+		if (totalChildren < 2) {
+			//Elements share the same center and cannot be split
+			return;
+		}
+
+		int firstChild = totalNodes;
+		totalNodes += totalChildren;
+		ensureNodeCapacity(totalNodes);
+		nodes[node * 2] = firstChild;
+		nodes[(node * 2) + 1] = -totalChildren;
+
+		int child = firstChild;
+		child = buildChildNode(child, fromIndex, splitTop, depth);
+		child = buildChildNode(child, splitTop, splitY, depth);
+		child = buildChildNode(child, splitY, splitBottom, depth);
+		buildChildNode(child, splitBottom, toIndex, depth);
+	}
+
+	private int buildChildNode(int child, int fromIndex, int toIndex, int depth) {
+		if (toIndex == fromIndex) {
+			return child;
+		}
+		buildNode(child, fromIndex, toIndex, depth + 1);
+		return child + 1;
+	}
+
+	/**
+	 * Moves elements whose center is less than or equal to a value before
+	 * all other elements
+	 * 
+	 * @return The index of the first element whose center is greater than
+	 *         the value
+	 */
+	private int partition(int fromIndex, int toIndex, int axis, float value) {
+		int i = fromIndex;
+		int j = toIndex - 1;
+		while (i <= j) {
+			int boundsIndex = (i * 4) + axis;
+			if ((elementBounds[boundsIndex] + elementBounds[boundsIndex + 2]) / 2f <= value) {
+				i++;
+				continue;
+			}
+			swapElements(i, j);
+			j--;
+		}
+		return i;
+	}
+
+	private void swapElements(int index1, int index2) {
+		Object element = elements[index1];
+		elements[index1] = elements[index2];
+		elements[index2] = element;
+
+		int boundsIndex1 = index1 * 4;
+		int boundsIndex2 = index2 * 4;
+		for (int i = 0; i < 4; i++) {
+			float bound = elementBounds[boundsIndex1 + i];
+			elementBounds[boundsIndex1 + i] = elementBounds[boundsIndex2 + i];
+			elementBounds[boundsIndex2 + i] = bound;
+		}
+	}
+
+	private void ensureNodeCapacity(int capacity) {
+		if (capacity * 2 <= nodes.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, nodes.length / 2 * 2);
+		int[] newNodes = new int[newCapacity * 2];
+		System.arraycopy(nodes, 0, newNodes, 0, nodes.length);
+		nodes = newNodes;
+		float[] newNodeBounds = new float[newCapacity * 4];
+		System.arraycopy(nodeBounds, 0, newNodeBounds, 0, nodeBounds.length);
+		nodeBounds = newNodeBounds;
+	}
+
+	/**
+	 * Visits each element whose bounds overlap an area. Elements touching the
+	 * edge of the area are included.
+	 * 
+	 * @param minX
+	 *            The least x coordinate of the area
+	 * @param minY
+	 *            The least y coordinate of the area
+	 * @param maxX
+	 *            The greatest x coordinate of the area
+	 * @param maxY
+	 *            The greatest y coordinate of the area
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped the query
+	 */
+	public boolean forEachWithinArea(float minX, float minY, float maxX, float maxY, ElementVisitor<T> visitor) {
+		if (totalNodes == 0) {
+			return true;
+		}
+		return forEachWithinArea(0, minX, minY, maxX, maxY, visitor);
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean forEachWithinArea(int node, float minX, float minY, float maxX, float maxY,
+			ElementVisitor<T> visitor) {
+		if (!overlaps(nodeBounds, node * 4, minX, minY, maxX, maxY)) {
+			return true;
+		}
+		int first = nodes[node * 2];
+		int total = nodes[(node * 2) + 1];
+		if (total < 0) {
+			for (int i = first; i < first - total; i++) {
+				if (!forEachWithinArea(i, minX, minY, maxX, maxY, visitor)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		for (int i = first; i < first + total; i++) {
+			if (!overlaps(elementBounds, i * 4, minX, minY, maxX, maxY)) {
+				continue;
+			}
+			if (!visitor.visit((T) elements[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean overlaps(float[] bounds, int boundsIndex, float minX, float minY, float maxX,
+			float maxY) {
+		return bounds[boundsIndex + MIN_X] <= maxX && bounds[boundsIndex + MAX_X] >= minX
+				&& bounds[boundsIndex + MIN_Y] <= maxY && bounds[boundsIndex + MAX_Y] >= minY;
+	}
+
+	/**
+	 * Visits each element whose bounds overlap the bounds of a
+	 * {@link Rectangle}
+	 * 
+	 * @param area
+	 *            The {@link Rectangle} to search within
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped the query
+	 */
+	public boolean forEachWithinRegion(Rectangle area, ElementVisitor<T> visitor) {
+		return forEachWithinArea(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), visitor);
+	}
+
+	/**
+	 * Visits each element whose bounds overlap the bounds of another element.
+	 * The bounds of the other element are read when this method is called.
+	 * 
+	 * @param element
+	 *            The element to search around
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped the query
+	 */
+	public boolean forEachOverlapping(Positionable element, ElementVisitor<T> visitor) {
+		return forEachWithinArea(getMinX(element), getMinY(element), getMaxX(element), getMaxY(element), visitor);
+	}
+
+	public void getElementsWithinRegion(Collection<T> result, Rectangle area) {
+		forEachWithinRegion(area, new ElementCollector<T>(result));
+	}
+
+	/**
+	 * Visits each element whose bounds contain a point
+	 * 
+	 * @param x
+	 *            The x coordinate of the point
+	 * @param y
+	 *            The y coordinate of the point
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped the query
+	 */
+	public boolean forEachContainingPoint(float x, float y, ElementVisitor<T> visitor) {
+		return forEachWithinArea(x, y, x, y, visitor);
+	}
+
+	/**
+	 * Visits every element in this snapshot
+	 * 
+	 * @param visitor
+	 *            The {@link ElementVisitor} to call for each element
+	 * @return False if the {@link ElementVisitor} stopped iterating
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean forEachElement(ElementVisitor<T> visitor) {
+		for (int i = 0; i < totalElements; i++) {
+			if (!visitor.visit((T) elements[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Marks this snapshot as in use by a reader
+	 */
+	void retain() {
+		readers.incrementAndGet();
+	}
+
+	/**
+	 * Releases this snapshot after it was obtained by
+	 * {@link QuadTreeSnapshotBuffer#acquire()}. The snapshot must not be
+	 * queried after it is released.
+	 */
+	public void release() {
+		readers.decrementAndGet();
+	}
+
+	/**
+	 * Returns if any readers have not released this snapshot
+	 * 
+	 * @return
+	 */
+	boolean isAcquired() {
+		return readers.get() > 0;
+	}
+
+	public int getTotalElements() {
+		return totalElements;
+	}
+
+	public int getTotalNodes() {
+		return totalNodes;
+	}
+
+	/**
+	 * Returns the number of the publish that built this snapshot
+	 * 
+	 * @return 0 if no {@link QuadTree} has been published
+	 */
+	public long getFrame() {
+		return frame;
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import org.mini2Dx.core.engine.Positionable;
+
+/**
+ * Publishes read-only {@link QuadTreeSnapshot}s of a {@link QuadTree} so that
+ * other threads, e.g. a render thread, can query the tree without locking
+ * while the update thread continues to modify it.
+ * 
+ * The update thread calls {@link #publish(QuadTree)} once per update to copy
+ * the {@link QuadTree} into the back snapshot and swap it with the front
+ * snapshot. Readers call {@link #acquire()} to obtain the front snapshot and
+ * {@link QuadTreeSnapshot#release()} when finished. A snapshot is only
+ * rebuilt once all of its readers have released it, so two snapshots are
+ * reused as long as readers release snapshots before the next publish.
+ * 
+ * @param <T>
+ *            The type of element in the {@link QuadTree}
+ */
+public class QuadTreeSnapshotBuffer<T extends Positionable> {
+	private volatile QuadTreeSnapshot<T> front = new QuadTreeSnapshot<T>();
+	private QuadTreeSnapshot<T> back = new QuadTreeSnapshot<T>();
+	private long frame;
+
+	/**
+	 * Copies a {@link QuadTree} into a new snapshot and makes it available to
+	 * readers. Must only be called from a single thread.
+	 * 
+	 * @param quadTree
+	 *            The {@link QuadTree} to publish
+	 */
+	public void publish(QuadTree<T> quadTree) {
+		if (back.isAcquired()) {
+			//A reader still holds the snapshot from two publishes ago
+			back = new QuadTreeSnapshot<T>();
+		}
+		frame++;
+		back.build(quadTree, frame);
+
+		QuadTreeSnapshot<T> published = back;
+		back = front;
+		front = published;
+	}
+
+	/**
+	 * Returns the most recently published snapshot. The snapshot must be
+	 * released with {@link QuadTreeSnapshot#release()} once it is no longer
+	 * being queried.
+	 * 
+	 * @return An empty snapshot if nothing has been published
+	 */
+	public QuadTreeSnapshot<T> acquire() {
+		while (true) {
+			QuadTreeSnapshot<T> snapshot = front;
+			snapshot.retain();
+			//The snapshot may have been swapped to the back and rebuilt before it was retained
+			if (snapshot == front) {
+				return snapshot;
+			}
+			snapshot.release();
+		}
+	}
+
+	/**
+	 * Returns the number of times a {@link QuadTree} has been published
+	 * 
+	 * @return
+	 */
+	public long getFrame() {
+		return frame;
+	}
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics for tuning a {@link QuadTree}. Structural statistics (depth,
+ * total nodes and elements per leaf) are calculated by walking the tree when
+ * {@link QuadTree#updateStatistics()} is called. Counters for queries, nodes
+ * visited, elements tested, subdivisions, merges and reinserts are collected
+ * as the tree is used and reported per frame.
+ * 
+ * Statistics are only collected when the
+ * <code>mini2Dx.collisions.statistics</code> system property is set to true
+ * before the {@link QuadTree} classes are loaded. Otherwise
+ * {@link QuadTree#getStatistics()} returns null and, as {@link #ENABLED} is a
+ * constant, the JIT compiler removes all statistics collection code.
+ */
+public class QuadTreeStatistics implements QuadTreeStatisticsMXBean {
+	/**
+	 * True if {@link QuadTree} implementations collect statistics
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("mini2Dx.collisions.statistics");
+
+	/**
+	 * The number of buckets in the leaf histogram. Bucket 0 counts empty
+	 * leaves, bucket 1 counts leaves with 1 element and each following bucket
+	 * counts leaves with up to twice as many elements as the previous bucket.
+	 * The last bucket counts all larger leaves.
+	 */
+	public static final int HISTOGRAM_BUCKETS = 10;
+
+	private final AtomicLong queries = new AtomicLong();
+	private final AtomicLong nodesVisited = new AtomicLong();
+	private final AtomicLong elementsTested = new AtomicLong();
+	private final AtomicLong subdivisions = new AtomicLong();
+	private final AtomicLong merges = new AtomicLong();
+	private final AtomicLong reinserts = new AtomicLong();
+	private final AtomicLong rotations = new AtomicLong();
+
+	private volatile long queriesPerFrame, nodesVisitedPerFrame, elementsTestedPerFrame;
+	private volatile long subdivisionsPerFrame, mergesPerFrame, reinsertsPerFrame, rotationsPerFrame;
+
+	private volatile int maxDepth, totalNodes, totalLeaves, totalElements;
+	private volatile float averageDepth;
+	private volatile int[] leafHistogram = new int[HISTOGRAM_BUCKETS];
+
+	private int nextMaxDepth, nextTotalNodes, nextTotalLeaves, nextTotalElements;
+	private long nextTotalElementDepth;
+	private final int[] nextLeafHistogram = new int[HISTOGRAM_BUCKETS];
+
+	/**
+	 * Returns a new {@link QuadTreeStatistics} if statistics are enabled
+	 * 
+	 * @return Null if {@link #ENABLED} is false
+	 */
+	static QuadTreeStatistics createIfEnabled() {
+		return ENABLED ? new QuadTreeStatistics() : null;
+	}
+
+	/**
+	 * Records a node visited by a query
+	 * 
+	 * @param root
+	 *            True if the node is where the query started
+	 * @param totalElements
+	 *            The amount of elements tested in the node
+	 */
+	void recordNodeVisit(boolean root, int totalElements) {
+		if (root) {
+			queries.incrementAndGet();
+		}
+		nodesVisited.incrementAndGet();
+		if (totalElements > 0) {
+			elementsTested.addAndGet(totalElements);
+		}
+	}
+
+	void recordSubdivision() {
+		subdivisions.incrementAndGet();
+	}
+
+	void recordMerge() {
+		merges.incrementAndGet();
+	}
+
+	void recordReinsert() {
+		reinserts.incrementAndGet();
+	}
+
+	void recordRotation() {
+		rotations.incrementAndGet();
+	}
+
+	/**
+	 * Clears the structural statistics being calculated before walking a tree
+	 */
+	void beginStructure() {
+		nextMaxDepth = 0;
+		nextTotalNodes = 0;
+		nextTotalLeaves = 0;
+		nextTotalElements = 0;
+		nextTotalElementDepth = 0L;
+		Arrays.fill(nextLeafHistogram, 0);
+	}
+
+	/**
+	 * Records a node while walking a tree
+	 * 
+	 * @param depth
+	 *            The depth of the node, 0 for the root
+	 * @param leaf
+	 *            True if the node has no children
+	 * @param totalElements
+	 *            The amount of elements stored in the node itself
+	 */
+	void recordNode(int depth, boolean leaf, int totalElements) {
+		nextTotalNodes++;
+		nextMaxDepth = Math.max(nextMaxDepth, depth);
+		nextTotalElements += totalElements;
+		nextTotalElementDepth += (long) depth * totalElements;
+		if (!leaf) {
+			return;
+		}
+		nextTotalLeaves++;
+		nextLeafHistogram[getHistogramBucket(totalElements)]++;
+	}
+
+	/**
+	 * Publishes the structural statistics calculated while walking a tree and
+	 * completes the current frame of counters
+	 */
+	void endStructure() {
+		maxDepth = nextMaxDepth;
+		totalNodes = nextTotalNodes;
+		totalLeaves = nextTotalLeaves;
+		totalElements = nextTotalElements;
+		averageDepth = nextTotalElements == 0 ? 0f : nextTotalElementDepth / (float) nextTotalElements;
+		leafHistogram = Arrays.copyOf(nextLeafHistogram, HISTOGRAM_BUCKETS);
+
+		queriesPerFrame = queries.getAndSet(0L);
+		nodesVisitedPerFrame = nodesVisited.getAndSet(0L);
+		elementsTestedPerFrame = elementsTested.getAndSet(0L);
+		subdivisionsPerFrame = subdivisions.getAndSet(0L);
+		mergesPerFrame = merges.getAndSet(0L);
+		reinsertsPerFrame = reinserts.getAndSet(0L);
+		rotationsPerFrame = rotations.getAndSet(0L);
+	}
+
+	/**
+	 * Returns the leaf histogram bucket for an amount of elements
+	 * 
+	 * @param totalElements
+	 *            The amount of elements in a leaf
+	 * @return Between 0 and {@link #HISTOGRAM_BUCKETS} - 1
+	 */
+	public static int getHistogramBucket(int totalElements) {
+		if (totalElements <= 0) {
+			return 0;
+		}
+		return Math.min(HISTOGRAM_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(totalElements));
+	}
+
+	/**
+	 * Returns the depth of the deepest node
+	 * 
+	 * @return 0 if the tree is a single node
+	 */
+	@Override
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the average depth elements are stored at
+	 * 
+	 * @return 0 if the tree is empty
+	 */
+	@Override
+	public float getAverageDepth() {
+		return averageDepth;
+	}
+
+	/**
+	 * Returns the total amount of nodes, including the root
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getTotalNodes() {
+		return totalNodes;
+	}
+
+	/**
+	 * Returns the total amount of nodes without children
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getTotalLeaves() {
+		return totalLeaves;
+	}
+
+	/**
+	 * Returns the total amount of elements stored in the tree
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getTotalElements() {
+		return totalElements;
+	}
+
+	/**
+	 * Returns the amount of leaves in each bucket of the leaf histogram
+	 * 
+	 * @return A copy of the histogram
+	 * @see #getHistogramBucket(int)
+	 */
+	@Override
+	public int[] getLeafHistogram() {
+		return Arrays.copyOf(leafHistogram, HISTOGRAM_BUCKETS);
+	}
+
+	/**
+	 * Returns the amount of queries made during the last frame
+	 * 
+	 * @return
+	 */
+	@Override
+	public long getQueriesPerFrame() {
+		return queriesPerFrame;
+	}
+
+	/**
+	 * Returns the amount of nodes visited by queries during the last frame
+	 * 
+	 * @return
+	 */
+	@Override
+	public long getNodesVisitedPerFrame() {
+		return nodesVisitedPerFrame;
+	}
+
+	/**
+	 * Returns the amount of elements tested by queries during the last frame
+	 * 
+	 * @return
+	 */
+	@Override
+	public long getElementsTestedPerFrame() {
+		return elementsTestedPerFrame;
+	}
+
+	/**
+	 * Returns the average amount of nodes each query visited during the last
+	 * frame
+	 * 
+	 * @return 0 if no queries were made
+	 */
+	@Override
+	public float getNodesVisitedPerQuery() {
+		long queries = queriesPerFrame;
+		return queries == 0L ? 0f : nodesVisitedPerFrame / (float) queries;
+	}
+
+	/**
+	 * Returns the average amount of elements each query tested during the
+	 * last frame
+	 * 
+	 * @return 0 if no queries were made
+	 */
+	@Override
+	public float getElementsTestedPerQuery() {
+		long queries = queriesPerFrame;
+		return queries == 0L ? 0f : elementsTestedPerFrame / (float) queries;
+	}
+
+	/**
+	 * Returns the amount of quads subdivided during the last frame
+	 * 
+	 * @return Always 0 for {@link QuadTree} implementations without quads
+	 */
+	@Override
+	public long getSubdivisionsPerFrame() {
+		return subdivisionsPerFrame;
+	}
+
+	/**
+	 * Returns the amount of quads merged during the last frame
+	 * 
+	 * @return Always 0 for {@link QuadTree} implementations without quads
+	 */
+	@Override
+	public long getMergesPerFrame() {
+		return mergesPerFrame;
+	}
+
+	/**
+	 * Returns the amount of elements that moved to a different node during
+	 * the last frame
+	 * 
+	 * @return
+	 */
+	@Override
+	public long getReinsertsPerFrame() {
+		return reinsertsPerFrame;
+	}
+
+	/**
+	 * Returns the amount of rotations made to rebalance a
+	 * {@link DynamicAabbTree} during the last frame
+	 * 
+	 * @return Always 0 for other {@link QuadTree} implementations
+	 */
+	@Override
+	public long getRotationsPerFrame() {
+		return rotationsPerFrame;
+	}
+
+	@Override
+	public String toString() {
+		return "QuadTreeStatistics [maxDepth=" + maxDepth + ", averageDepth=" + averageDepth + ", totalNodes="
+				+ totalNodes + ", totalLeaves=" + totalLeaves + ", totalElements=" + totalElements
+				+ ", leafHistogram=" + Arrays.toString(leafHistogram) + ", queriesPerFrame=" + queriesPerFrame
+				+ ", nodesVisitedPerQuery=" + getNodesVisitedPerQuery() + ", elementsTestedPerQuery="
+				+ getElementsTestedPerQuery() + ", subdivisionsPerFrame=" + subdivisionsPerFrame
+				+ ", mergesPerFrame=" + mergesPerFrame + ", reinsertsPerFrame=" + reinsertsPerFrame + ", rotationsPerFrame=" + rotationsPerFrame + "]";
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+/**
+ * Management interface for {@link QuadTreeStatistics}. On platforms that
+ * support JMX, a {@link QuadTreeStatistics} instance can be registered with
+ * the platform MBean server to inspect a {@link QuadTree} while a game runs.
+ * All per frame values are for the last frame completed by
+ * {@link QuadTree#updateStatistics()}.
+ */
+public interface QuadTreeStatisticsMXBean {
+
+	public int getMaxDepth();
+
+	public float getAverageDepth();
+
+	public int getTotalNodes();
+
+	public int getTotalLeaves();
+
+	public int getTotalElements();
+
+	public int[] getLeafHistogram();
+
+	public long getQueriesPerFrame();
+
+	public long getNodesVisitedPerFrame();
+
+	public long getElementsTestedPerFrame();
+
+	public float getNodesVisitedPerQuery();
+
+	public float getElementsTestedPerQuery();
+
+	public long getSubdivisionsPerFrame();
+
+	public long getMergesPerFrame();
+
+	public long getReinsertsPerFrame();
+
+	public long getRotationsPerFrame();
+}
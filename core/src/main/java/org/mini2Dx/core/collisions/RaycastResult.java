@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.geom.LineSegment;
+
+/**
+ * Stores the result of {@link QuadTree#raycast(LineSegment, RaycastResult)}.
+ * Instances can be reused between raycasts so that no objects are allocated
+ * while casting.
+ * 
+ * @param <T>
+ *            The type of element that can be hit
+ */
+public class RaycastResult<T extends Positionable> {
+	private static final float NO_HIT = Float.MAX_VALUE;
+
+	private T element;
+	private float x, y, distance;
+
+	private float originX, originY, deltaX, deltaY;
+	private float fraction = NO_HIT;
+
+	/**
+	 * Prepares this result for a new raycast, clearing any previous hit
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} being cast from point A to point B
+	 */
+	void begin(LineSegment lineSegment) {
+		originX = lineSegment.getPointA().x;
+		originY = lineSegment.getPointA().y;
+		deltaX = lineSegment.getPointB().x - originX;
+		deltaY = lineSegment.getPointB().y - originY;
+		fraction = NO_HIT;
+		element = null;
+		x = 0f;
+		y = 0f;
+		distance = 0f;
+	}
+
+	/**
+	 * Completes the raycast, calculating the hit point and distance
+	 * 
+	 * @return True if an element was hit
+	 */
+	boolean end() {
+		if (element == null) {
+			return false;
+		}
+		x = originX + (deltaX * fraction);
+		y = originY + (deltaY * fraction);
+		distance = fraction * (float) Math.sqrt((deltaX * deltaX) + (deltaY * deltaY));
+		return true;
+	}
+
+	/**
+	 * Records a hit if it is nearer than the current hit
+	 * 
+	 * @param element
+	 *            The element that was hit
+	 * @param fraction
+	 *            How far along the ray the element was hit, between 0 and 1
+	 */
+	void offer(T element, float fraction) {
+		if (fraction < 0f || fraction > 1f || fraction >= this.fraction) {
+			return;
+		}
+		this.element = element;
+		this.fraction = fraction;
+	}
+
+	/**
+	 * Returns if something at the specified fraction of the ray would be
+	 * nearer than the current hit
+	 * 
+	 * @param fraction
+	 *            How far along the ray, between 0 and 1
+	 * @return False if nothing at the fraction could be the nearest hit
+	 */
+	boolean isNearer(float fraction) {
+		return fraction <= 1f && fraction < this.fraction;
+	}
+
+	/**
+	 * Returns how far along the ray it enters an axis-aligned box
+	 * 
+	 * @param minX
+	 *            The least x coordinate of the box
+	 * @param minY
+	 *            The least y coordinate of the box
+	 * @param maxX
+	 *            The greatest x coordinate of the box
+	 * @param maxY
+	 *            The greatest y coordinate of the box
+	 * @return 0 if the ray starts inside the box or {@link Float#MAX_VALUE} if
+	 *         the ray does not touch the box
+	 */
+	float getEntryFraction(float minX, float minY, float maxX, float maxY) {
+		float entry = 0f;
+		float exit = 1f;
+
+		if (deltaX == 0f) {
+			if (originX < minX || originX > maxX) {
+				return NO_HIT;
+			}
+		} else {
+			float entryX = (minX - originX) / deltaX;
+			float exitX = (maxX - originX) / deltaX;
+			if (entryX > exitX) {
+				float swap = entryX;
+				entryX = exitX;
+				exitX = swap;
+			}
+			entry = Math.max(entry, entryX);
+			exit = Math.min(exit, exitX);
+		}
+
+		if (deltaY == 0f) {
+			if (originY < minY || originY > maxY) {
+				return NO_HIT;
+			}
+		} else {
+			float entryY = (minY - originY) / deltaY;
+			float exitY = (maxY - originY) / deltaY;
+			if (entryY > exitY) {
+				float swap = entryY;
+				entryY = exitY;
+				exitY = swap;
+			}
+			entry = Math.max(entry, entryY);
+			exit = Math.min(exit, exitY);
+		}
+		if (entry > exit) {
+			return NO_HIT;
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns how far along the ray a point lies
+	 * 
+	 * @param pointX
+	 *            The x coordinate of the point
+	 * @param pointY
+	 *            The y coordinate of the point
+	 * @return {@link Float#MAX_VALUE} if the point is not on the ray
+	 */
+	float getPointFraction(float pointX, float pointY) {
+		float offsetX = pointX - originX;
+		float offsetY = pointY - originY;
+		if ((offsetX * deltaY) - (offsetY * deltaX) != 0f) {
+			return NO_HIT;
+		}
+		float lengthSquared = (deltaX * deltaX) + (deltaY * deltaY);
+		if (lengthSquared == 0f) {
+			return offsetX == 0f && offsetY == 0f ? 0f : NO_HIT;
+		}
+		float result = ((offsetX * deltaX) + (offsetY * deltaY)) / lengthSquared;
+		if (result < 0f || result > 1f) {
+			return NO_HIT;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns if the last raycast hit an element
+	 * 
+	 * @return False if nothing was hit
+	 */
+	public boolean isHit() {
+		return element != null;
+	}
+
+	/**
+	 * Returns the element hit by the last raycast
+	 * 
+	 * @return Null if nothing was hit
+	 */
+	public T getElement() {
+		return element;
+	}
+
+	/**
+	 * Returns the x coordinate where the ray first touched the element
+	 * 
+	 * @return
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate where the ray first touched the element
+	 * 
+	 * @return
+	 */
+	public float getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the distance from the start of the ray to where it first
+	 * touched the element
+	 * 
+	 * @return
+	 */
+	public float getDistance() {
+		return distance;
+	}
+}
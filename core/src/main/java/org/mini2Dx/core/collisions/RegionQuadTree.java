@@ -19,6 +19,7 @@ import org.mini2Dx.core.engine.geom.CollisionBox;
 import org.mini2Dx.core.geom.LineSegment;
 import org.mini2Dx.core.geom.Parallelogram;
 import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
 import org.mini2Dx.core.graphics.Graphics;
 
 import com.badlogic.gdx.graphics.Color;
@@ -132,6 +133,7 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 				elementsWithinQuad.add(element);
 			}
 		}
+		addElementIds(elementsWithinQuad);
 		
 		for (T element : elementsWithinQuad) {
 			if(topLeft == null) {
@@ -145,6 +147,84 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 		}
 	}
 
+	@Override
+	public void bulkLoad(Collection<T> elementsToLoad) {
+		if (elementsToLoad == null || elementsToLoad.isEmpty()) {
+			return;
+		}
+
+		List<T> elementsWithinQuad = new ArrayList<T>(elementsToLoad.size());
+		for (T element : elementsToLoad) {
+			if (element != null && (this.contains(element) || this.intersects(element))) {
+				elementsWithinQuad.add(element);
+			}
+		}
+		addElementIds(elementsWithinQuad);
+		bulkLoadElements(elementsWithinQuad);
+	}
+
+	@Override
+	protected byte getChildIndex(T element) {
+		if (getRotation() != 0f) {
+			if (topLeft.contains(element)) {
+				return 0;
+			}
+			if (topRight.contains(element)) {
+				return 1;
+			}
+			if (bottomLeft.contains(element)) {
+				return 2;
+			}
+			if (bottomRight.contains(element)) {
+				return 3;
+			}
+			return -1;
+		}
+		//Axis-aligned quads can be resolved by comparing bounds
+		float midX = topLeft.getMaxX();
+		float midY = topLeft.getMaxY();
+		boolean left = element.getMinX() >= getMinX() && element.getMaxX() <= midX;
+		boolean right = element.getMinX() >= midX && element.getMaxX() <= getMaxX();
+		if (element.getMinY() >= getMinY() && element.getMaxY() <= midY) {
+			if (left) {
+				return 0;
+			}
+			if (right) {
+				return 1;
+			}
+		}
+		if (element.getMinY() >= midY && element.getMaxY() <= getMaxY()) {
+			if (left) {
+				return 2;
+			}
+			if (right) {
+				return 3;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	protected void bulkLoadChildren(List<T> elementsToLoad, byte[] childIndices, int[] childTotals) {
+		//Elements that do not fit entirely within a child remain in this quad
+		int remainingTotal = elementsToLoad.size() - childTotals[0] - childTotals[1] - childTotals[2]
+				- childTotals[3];
+		if (remainingTotal > 0) {
+			List<T> loadedElements = new ArrayList<T>(Math.max(elementLimitPerQuad, elements.size() + remainingTotal));
+			loadedElements.addAll(elements);
+			for (int i = 0; i < elementsToLoad.size(); i++) {
+				if (childIndices[i] >= 0) {
+					continue;
+				}
+				T element = elementsToLoad.get(i);
+				loadedElements.add(element);
+				element.addPostionChangeListener(this);
+			}
+			elements = loadedElements;
+		}
+		super.bulkLoadChildren(elementsToLoad, childIndices, childTotals);
+	}
+
 	@Override
 	public boolean add(T element) {
 		if (element == null)
@@ -154,6 +234,7 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 			return false;
 		}
 		clearTotalElementsCache();
+		addElementId(element);
 
 		if (topLeft == null) {
 			return addElement(element);
@@ -185,31 +266,42 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 	protected void subdivide() {
 		if (topLeft != null)
 			return;
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordSubdivision();
+		}
 
-		float halfWidth = width / 2f;
-		float halfHeight = height / 2f;
-
-		topLeft = new RegionQuadTree<T>(this, x, y, halfWidth, halfHeight);
-		topRight = new RegionQuadTree<T>(this, x + halfWidth, y, halfWidth, halfHeight);
-		bottomLeft = new RegionQuadTree<T>(this, x, y + halfHeight, halfWidth, halfHeight);
-		bottomRight = new RegionQuadTree<T>(this, x + halfWidth, y + halfHeight, halfWidth, halfHeight);
+		createChildren();
 
 		for (int i = elements.size() - 1; i >= 0; i--) {
-			if (addElementToChild(elements.get(i))) {
-				removeElement(elements.get(i));
+			T element = elements.get(i);
+			if (addElementToChild(element)) {
+				//Remove by index as equal sized elements at the same position are equal
+				elements.remove(i);
+				element.removePositionChangeListener(this);
 			}
 		}
 	}
 
+	@Override
+	protected PointQuadTree<T> createChild(float x, float y, float width, float height) {
+		return new RegionQuadTree<T>(this, x, y, width, height);
+	}
+
 	@Override
 	public boolean remove(T element) {
 		if (element == null)
 			return false;
+		if (parent == null) {
+			flushPositionChanges();
+		}
 
 		if (!this.intersects(element) && !this.contains(element)) {
 			return false;
 		}
 		clearTotalElementsCache();
+		if (parent == null) {
+			removeElementId(element);
+		}
 
 		if (removeElement(element)) {
 			return true;
@@ -228,25 +320,41 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 	}
 
 	@Override
-	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram) {
+	public boolean forEachWithinRegion(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		recordVisit();
 		if (topLeft != null) {
-			if (topLeft.contains(parallelogram) || topLeft.intersects(parallelogram))
-				topLeft.getElementsWithinRegion(result, parallelogram);
-			if (topRight.contains(parallelogram) || topRight.intersects(parallelogram))
-				topRight.getElementsWithinRegion(result, parallelogram);
-			if (bottomLeft.contains(parallelogram) || bottomLeft.intersects(parallelogram))
-				bottomLeft.getElementsWithinRegion(result, parallelogram);
-			if (bottomRight.contains(parallelogram) || bottomRight.intersects(parallelogram))
-				bottomRight.getElementsWithinRegion(result, parallelogram);
+			if (isOverlapping(topLeft.getElementBounds(), parallelogram)
+					&& !topLeft.forEachWithinRegion(parallelogram, visitor))
+				return false;
+			if (isOverlapping(topRight.getElementBounds(), parallelogram)
+					&& !topRight.forEachWithinRegion(parallelogram, visitor))
+				return false;
+			if (isOverlapping(bottomLeft.getElementBounds(), parallelogram)
+					&& !bottomLeft.forEachWithinRegion(parallelogram, visitor))
+				return false;
+			if (isOverlapping(bottomRight.getElementBounds(), parallelogram)
+					&& !bottomRight.forEachWithinRegion(parallelogram, visitor))
+				return false;
 		}
 		for (int i = elements.size() - 1; i >= 0; i--) {
 			T element = elements.get(i);
 			if (element == null)
 				continue;
-			if (parallelogram.contains(element) || parallelogram.intersects(element)) {
-				result.add(element);
+			if (element.intersects(parallelogram) || parallelogram.contains(element)) {
+				if (!visitor.visit(element))
+					return false;
 			}
 		}
+		return true;
+	}
+
+	private static boolean isOverlapping(Rectangle bounds, Parallelogram parallelogram) {
+		return bounds.intersects(parallelogram) || bounds.contains(parallelogram);
+	}
+
+	private static boolean isOverlapping(Rectangle bounds, LineSegment lineSegment) {
+		return bounds.intersects(lineSegment) || bounds.contains(lineSegment.getPointA())
+				|| bounds.contains(lineSegment.getPointB());
 	}
 
 	@Override
@@ -257,26 +365,42 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 	}
 
 	@Override
-	public void getElementsContainingPoint(Collection<T> result, Point point) {
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor) {
+		recordVisit();
 		if (topLeft != null) {
-			if (topLeft.contains(point))
-				topLeft.getElementsContainingPoint(result, point);
-			if (topRight.contains(point))
-				topRight.getElementsContainingPoint(result, point);
-			if (bottomLeft.contains(point))
-				bottomLeft.getElementsContainingPoint(result, point);
-			if (bottomRight.contains(point))
-				bottomRight.getElementsContainingPoint(result, point);
+			if (topLeft.getElementBounds().contains(point) && !topLeft.forEachContainingPoint(point, visitor))
+				return false;
+			if (topRight.getElementBounds().contains(point) && !topRight.forEachContainingPoint(point, visitor))
+				return false;
+			if (bottomLeft.getElementBounds().contains(point) && !bottomLeft.forEachContainingPoint(point, visitor))
+				return false;
+			if (bottomRight.getElementBounds().contains(point)
+					&& !bottomRight.forEachContainingPoint(point, visitor))
+				return false;
 		}
 		for (int i = elements.size() - 1; i >= 0; i--) {
 			T element = elements.get(i);
 			if (element != null && element.contains(point)) {
-				result.add(element);
+				if (!visitor.visit(element))
+					return false;
 			}
 		}
+		return true;
+	}
+
+	/**
+	 * Always returns 0 as elements are only stored in quads that contain them
+	 */
+	@Override
+	protected float getCollisionMargin() {
+		return 0f;
 	}
 
 	@Override
+	protected float getRaycastFraction(T element, LineSegment lineSegment, RaycastResult<T> result) {
+		return element.getIntersectionFraction(lineSegment);
+	}
+
 	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
 		List<T> result = new ArrayList<T>();
 		getElementsIntersectingLineSegment(result, lineSegment);
@@ -284,31 +408,35 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 	}
 
 	@Override
-	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
+	public boolean forEachIntersectingLineSegment(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		recordVisit();
 		if (topLeft != null) {
-			if (topLeft.intersects(lineSegment) || topLeft.contains(lineSegment.getPointA())
-					|| topLeft.contains(lineSegment.getPointB())) {
-				topLeft.getElementsIntersectingLineSegment(result, lineSegment);
+			if (isOverlapping(topLeft.getElementBounds(), lineSegment)
+					&& !topLeft.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
 			}
-			if (topRight.intersects(lineSegment) || topRight.contains(lineSegment.getPointA())
-					|| topRight.contains(lineSegment.getPointB())) {
-				topRight.getElementsIntersectingLineSegment(result, lineSegment);
+			if (isOverlapping(topRight.getElementBounds(), lineSegment)
+					&& !topRight.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
 			}
-			if (bottomLeft.intersects(lineSegment) || bottomLeft.contains(lineSegment.getPointA())
-					|| bottomLeft.contains(lineSegment.getPointB())) {
-				bottomLeft.getElementsIntersectingLineSegment(result, lineSegment);
+			if (isOverlapping(bottomLeft.getElementBounds(), lineSegment)
+					&& !bottomLeft.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
 			}
-			if (bottomRight.intersects(lineSegment) || bottomRight.contains(lineSegment.getPointA())
-					|| bottomRight.contains(lineSegment.getPointB())) {
-				bottomRight.getElementsIntersectingLineSegment(result, lineSegment);
+			if (isOverlapping(bottomRight.getElementBounds(), lineSegment)
+					&& !bottomRight.forEachIntersectingLineSegment(lineSegment, visitor)) {
+				return false;
 			}
 		}
 		for (int i = elements.size() - 1; i >= 0; i--) {
 			T element = elements.get(i);
 			if (element != null && element.intersects(lineSegment)) {
-				result.add(element);
+				if (!visitor.visit(element)) {
+					return false;
+				}
 			}
 		}
+		return true;
 	}
 
 	@Override
@@ -346,19 +474,37 @@ public class RegionQuadTree<T extends CollisionBox> extends PointQuadTree<T> {
 		return totalElementsCache;
 	}
 
+	@Override
+	protected boolean containsElement(T element) {
+		return this.contains(element);
+	}
+
 	@Override
 	public void positionChanged(T moved) {
 		if (this.contains(moved))
 			return;
+		if (deferPositionChange(moved))
+			return;
+		if (QuadTreeStatistics.ENABLED) {
+			getStatistics().recordReinsert();
+		}
 
 		removeElement(moved);
+		clearTotalElementsCacheToRoot();
 
 		QuadTree<T> parentQuad = parent;
 		while (parentQuad != null) {
+			//Only the root quad holds elements that are not entirely within it
+			if (parentQuad.getParent() != null && !parentQuad.contains(moved)) {
+				parentQuad = parentQuad.getParent();
+				continue;
+			}
 			if (parentQuad.add(moved)) {
 				return;
 			}
 			parentQuad = parentQuad.getParent();
 		}
+		//Moved outside of the root quad
+		getRoot().removeElementId(moved);
 	}
 }
@@ -0,0 +1,736 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Parallelogram;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+import org.mini2Dx.core.graphics.Graphics;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Implements a uniform spatial hash grid. The area is divided into fixed size
+ * cells so inserts, removals and moves are constant time with no subdividing
+ * or merging. This suits dense, evenly populated areas better than a
+ * {@link PointQuadTree} and can be used anywhere a {@link QuadTree} is
+ * expected.
+ * 
+ * Elements are stored by their x and y coordinate.
+ * 
+ * @see <a href="http://en.wikipedia.org/wiki/Spatial_hashing">Wikipedia:
+ *      Spatial Hashing</a>
+ */
+public class SpatialHashGrid<T extends Positionable> extends Rectangle implements QuadTree<T> {
+	public static Color CELL_COLOR = new Color(1f, 0f, 0f, 0.5f);
+	public static Color ELEMENT_COLOR = new Color(0f, 0f, 1f, 0.5f);
+
+	private static final long serialVersionUID = 5462946718431366357L;
+
+	protected final float cellSize;
+	protected final int totalColumns, totalRows;
+	protected final List<T>[] cells;
+	protected final Map<T, List<T>> elementCells = new IdentityHashMap<T, List<T>>();
+	protected final LongMap<T> elementsById = new LongMap<T>();
+	protected final Map<T, Boolean> pendingPositionChanges = new IdentityHashMap<T, Boolean>();
+	protected boolean deferPositionChanges;
+	protected final QuadTreeStatistics statistics = QuadTreeStatistics.createIfEnabled();
+
+	/**
+	 * Constructs a {@link SpatialHashGrid} with a specified cell size
+	 * 
+	 * @param cellSize
+	 *            The width and height of each cell
+	 * @param x
+	 *            The x coordinate of the {@link SpatialHashGrid}
+	 * @param y
+	 *            The y coordinate of the {@link SpatialHashGrid}
+	 * @param width
+	 *            The width of the {@link SpatialHashGrid}
+	 * @param height
+	 *            The height of the {@link SpatialHashGrid}
+	 */
+	@SuppressWarnings("unchecked")
+	public SpatialHashGrid(float cellSize, float x, float y, float width, float height) {
+		super(x, y, width, height);
+
+		if (cellSize <= 0f) {
+			throw new IllegalArgumentException("Cell size must be greater than 0. [Cell size: " + cellSize + "]");
+		}
+
+		this.cellSize = cellSize;
+		this.totalColumns = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.totalRows = Math.max(1, (int) Math.ceil(height / cellSize));
+		this.cells = createCells(totalColumns * totalRows);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> List<T>[] createCells(int totalCells) {
+		return (List<T>[]) new List<?>[totalCells];
+	}
+
+	public void debugRender(Graphics g) {
+		Color tmp = g.getColor();
+
+		g.setColor(CELL_COLOR);
+		g.drawRect(x, y, width, height);
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] == null || cells[i].isEmpty()) {
+				continue;
+			}
+			g.drawRect(x + ((i % totalColumns) * cellSize), y + ((i / totalColumns) * cellSize), cellSize, cellSize);
+		}
+
+		g.setColor(ELEMENT_COLOR);
+		for (T element : elementCells.keySet()) {
+			g.fillRect(element.getX(), element.getY(), 1f, 1f);
+		}
+		g.setColor(tmp);
+	}
+
+	public void addAll(List<T> elementsToAdd) {
+		if (elementsToAdd == null || elementsToAdd.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < elementsToAdd.size(); i++) {
+			add(elementsToAdd.get(i));
+		}
+	}
+
+	public boolean add(T element) {
+		if (element == null) {
+			return false;
+		}
+		if (!this.contains(element.getX(), element.getY())) {
+			return false;
+		}
+		if (elementCells.containsKey(element)) {
+			return false;
+		}
+		List<T> cell = getOrCreateCell(getCellIndex(element.getX(), element.getY()));
+		cell.add(element);
+		elementCells.put(element, cell);
+		elementsById.put(element.getId(), element);
+		element.addPostionChangeListener(this);
+		return true;
+	}
+
+	public void removeAll(List<T> elementsToRemove) {
+		if (elementsToRemove == null || elementsToRemove.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < elementsToRemove.size(); i++) {
+			remove(elementsToRemove.get(i));
+		}
+	}
+
+	public boolean remove(T element) {
+		if (element == null) {
+			return false;
+		}
+		List<T> cell = elementCells.remove(element);
+		if (cell == null) {
+			return false;
+		}
+		removeFromCell(cell, element);
+		elementsById.remove(element.getId());
+		element.removePositionChangeListener(this);
+		pendingPositionChanges.remove(element);
+		return true;
+	}
+
+	@Override
+	public void positionChanged(T moved) {
+		if (deferPositionChanges) {
+			pendingPositionChanges.put(moved, Boolean.TRUE);
+			return;
+		}
+		moveElement(moved);
+	}
+
+	public void setDeferPositionChanges(boolean deferPositionChanges) {
+		if (!deferPositionChanges) {
+			flushPositionChanges();
+		}
+		this.deferPositionChanges = deferPositionChanges;
+	}
+
+	public boolean isDeferringPositionChanges() {
+		return deferPositionChanges;
+	}
+
+	public void flushPositionChanges() {
+		if (pendingPositionChanges.isEmpty()) {
+			return;
+		}
+		List<T> movedElements = new ArrayList<T>(pendingPositionChanges.keySet());
+		pendingPositionChanges.clear();
+		for (int i = 0; i < movedElements.size(); i++) {
+			moveElement(movedElements.get(i));
+		}
+	}
+
+	private void moveElement(T moved) {
+		List<T> previousCell = elementCells.get(moved);
+		if (previousCell == null) {
+			return;
+		}
+		if (!this.contains(moved.getX(), moved.getY())) {
+			remove(moved);
+			return;
+		}
+		List<T> nextCell = getOrCreateCell(getCellIndex(moved.getX(), moved.getY()));
+		if (nextCell == previousCell) {
+			return;
+		}
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordReinsert();
+		}
+		removeFromCell(previousCell, moved);
+		nextCell.add(moved);
+		elementCells.put(moved, nextCell);
+	}
+
+	public List<T> getElementsWithinRegion(Parallelogram parallelogram) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRegion(result, parallelogram);
+		return result;
+	}
+
+	public void getElementsWithinRegion(Collection<T> result, Parallelogram parallelogram) {
+		forEachWithinRegion(parallelogram, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRegion(Parallelogram parallelogram, ElementVisitor<T> visitor) {
+		recordQuery();
+		float minX, minY;
+		if (parallelogram instanceof Rectangle) {
+			minX = ((Rectangle) parallelogram).getMinX();
+			minY = ((Rectangle) parallelogram).getMinY();
+		} else {
+			minX = parallelogram.getX();
+			minY = parallelogram.getY();
+		}
+		if (minX > getMaxX() || minY > getMaxY() || parallelogram.getMaxX() < x || parallelogram.getMaxY() < y) {
+			return true;
+		}
+		int minColumn = getColumn(minX);
+		int maxColumn = getColumn(parallelogram.getMaxX());
+		int minRow = getRow(minY);
+		int maxRow = getRow(parallelogram.getMaxY());
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				List<T> cell = cells[(row * totalColumns) + column];
+				if (cell == null) {
+					continue;
+				}
+				recordVisit(cell);
+				for (int i = cell.size() - 1; i >= 0; i--) {
+					T element = cell.get(i);
+					if (parallelogram.contains(element.getX(), element.getY()) && !visitor.visit(element)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	public List<T> getElementsContainingPoint(Point point) {
+		List<T> result = new ArrayList<T>();
+		getElementsContainingPoint(result, point);
+		return result;
+	}
+
+	public void getElementsContainingPoint(Collection<T> result, Point point) {
+		forEachContainingPoint(point, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachContainingPoint(Point point, ElementVisitor<T> visitor) {
+		recordQuery();
+		if (!this.contains(point)) {
+			return true;
+		}
+		List<T> cell = cells[getCellIndex(point.x, point.y)];
+		if (cell == null) {
+			return true;
+		}
+		recordVisit(cell);
+		for (int i = cell.size() - 1; i >= 0; i--) {
+			T element = cell.get(i);
+			if (element.getX() != point.x) {
+				continue;
+			}
+			if (element.getY() != point.y) {
+				continue;
+			}
+			if (!visitor.visit(element)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public List<T> getNearestElements(float x, float y, int k) {
+		List<T> result = new ArrayList<T>();
+		getNearestElements(result, x, y, k);
+		return result;
+	}
+
+	public void getNearestElements(Collection<T> result, float x, float y, int k) {
+		if (k <= 0) {
+			return;
+		}
+		NearestElementSearch<T, List<T>> search = new NearestElementSearch<T, List<T>>(x, y, k);
+		recordQuery();
+		int column = getColumn(x);
+		int row = getRow(y);
+		int maxRing = Math.max(Math.max(column, totalColumns - 1 - column), Math.max(row, totalRows - 1 - row));
+
+		//Search rings of cells outwards from the nearest cell
+		for (int ring = 0; ring <= maxRing; ring++) {
+			int minColumn = column - ring;
+			int maxColumn = column + ring;
+			int minRow = row - ring;
+			int maxRow = row + ring;
+
+			for (int cellRow = Math.max(minRow, 0); cellRow <= Math.min(maxRow, totalRows - 1); cellRow++) {
+				if (cellRow == minRow || cellRow == maxRow) {
+					for (int cellColumn = Math.max(minColumn, 0); cellColumn <= Math.min(maxColumn,
+							totalColumns - 1); cellColumn++) {
+						addNearestElements(search, cellColumn, cellRow);
+					}
+					continue;
+				}
+				if (minColumn >= 0) {
+					addNearestElements(search, minColumn, cellRow);
+				}
+				if (maxColumn < totalColumns) {
+					addNearestElements(search, maxColumn, cellRow);
+				}
+			}
+
+			//Stop once no cell outside the searched rings can be nearer
+			float distanceToUnsearched = Float.MAX_VALUE;
+			if (minColumn > 0) {
+				distanceToUnsearched = Math.min(distanceToUnsearched, x - (this.x + (minColumn * cellSize)));
+			}
+			if (maxColumn < totalColumns - 1) {
+				distanceToUnsearched = Math.min(distanceToUnsearched, this.x + ((maxColumn + 1) * cellSize) - x);
+			}
+			if (minRow > 0) {
+				distanceToUnsearched = Math.min(distanceToUnsearched, y - (this.y + (minRow * cellSize)));
+			}
+			if (maxRow < totalRows - 1) {
+				distanceToUnsearched = Math.min(distanceToUnsearched, this.y + ((maxRow + 1) * cellSize) - y);
+			}
+			distanceToUnsearched = Math.max(0f, distanceToUnsearched);
+			if (!search.isWithinSearch(distanceToUnsearched * distanceToUnsearched)) {
+				break;
+			}
+		}
+		search.getElements(result);
+	}
+
+	private void addNearestElements(NearestElementSearch<T, List<T>> search, int column, int row) {
+		List<T> cell = cells[(row * totalColumns) + column];
+		if (cell == null || cell.isEmpty()) {
+			return;
+		}
+		float cellX = this.x + (column * cellSize);
+		float cellY = this.y + (row * cellSize);
+		float distance = NearestElementSearch.getDistanceSquared(search.getX(), search.getY(), cellX, cellY,
+				cellX + cellSize, cellY + cellSize);
+		if (!search.isWithinSearch(distance)) {
+			return;
+		}
+		recordVisit(cell);
+		for (int i = cell.size() - 1; i >= 0; i--) {
+			search.offerElement(cell.get(i));
+		}
+	}
+
+	public List<T> getElementsWithinRadius(float x, float y, float radius) {
+		List<T> result = new ArrayList<T>();
+		getElementsWithinRadius(result, x, y, radius);
+		return result;
+	}
+
+	public void getElementsWithinRadius(Collection<T> result, float x, float y, float radius) {
+		forEachWithinRadius(x, y, radius, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachWithinRadius(float x, float y, float radius, ElementVisitor<T> visitor) {
+		recordQuery();
+		if (radius < 0f) {
+			return true;
+		}
+		if (x - radius > getMaxX() || y - radius > getMaxY() || x + radius < this.x || y + radius < this.y) {
+			return true;
+		}
+		int minColumn = getColumn(x - radius);
+		int maxColumn = getColumn(x + radius);
+		int minRow = getRow(y - radius);
+		int maxRow = getRow(y + radius);
+		float radiusSquared = radius * radius;
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				List<T> cell = cells[(row * totalColumns) + column];
+				if (cell == null) {
+					continue;
+				}
+				recordVisit(cell);
+				for (int i = cell.size() - 1; i >= 0; i--) {
+					T element = cell.get(i);
+					float dx = element.getX() - x;
+					float dy = element.getY() - y;
+					if ((dx * dx) + (dy * dy) <= radiusSquared && !visitor.visit(element)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	public List<T> getElementsIntersectingLineSegment(LineSegment lineSegment) {
+		List<T> result = new ArrayList<T>();
+		getElementsIntersectingLineSegment(result, lineSegment);
+		return result;
+	}
+
+	public void getElementsIntersectingLineSegment(Collection<T> result, LineSegment lineSegment) {
+		forEachIntersectingLineSegment(lineSegment, new ElementCollector<T>(result));
+	}
+
+	@Override
+	public boolean forEachIntersectingLineSegment(LineSegment lineSegment, ElementVisitor<T> visitor) {
+		recordQuery();
+		float x1 = lineSegment.getPointA().x;
+		float y1 = lineSegment.getPointA().y;
+		float x2 = lineSegment.getPointB().x;
+		float y2 = lineSegment.getPointB().y;
+		if (lineSegment.getMinX() > getMaxX() || lineSegment.getMinY() > getMaxY() || lineSegment.getMaxX() < x
+				|| lineSegment.getMaxY() < y) {
+			return true;
+		}
+
+		int minRow = getRow(Math.min(y1, y2));
+		int maxRow = getRow(Math.max(y1, y2));
+
+		for (int row = minRow; row <= maxRow; row++) {
+			// Only visit the columns the segment passes through within this row
+			float segmentMinX = lineSegment.getMinX();
+			float segmentMaxX = lineSegment.getMaxX();
+			if (y1 != y2) {
+				float rowMinY = y + (row * cellSize);
+				float rowMaxY = rowMinY + cellSize;
+				float xAtRowMinY = x1 + ((x2 - x1) * ((rowMinY - y1) / (y2 - y1)));
+				float xAtRowMaxY = x1 + ((x2 - x1) * ((rowMaxY - y1) / (y2 - y1)));
+				segmentMinX = Math.max(segmentMinX, Math.min(xAtRowMinY, xAtRowMaxY));
+				segmentMaxX = Math.min(segmentMaxX, Math.max(xAtRowMinY, xAtRowMaxY));
+			}
+			int minColumn = getColumn(segmentMinX);
+			int maxColumn = getColumn(segmentMaxX);
+
+			for (int column = minColumn; column <= maxColumn; column++) {
+				List<T> cell = cells[(row * totalColumns) + column];
+				if (cell == null) {
+					continue;
+				}
+				recordVisit(cell);
+				for (int i = cell.size() - 1; i >= 0; i--) {
+					T element = cell.get(i);
+					if (lineSegment.contains(element.getX(), element.getY()) && !visitor.visit(element)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean sweep(CollisionBox collisionBox, SweepResult<T> result) {
+		result.begin(collisionBox);
+		forEachWithinRegion(result.getSweptBounds(), result.getVisitor());
+		return result.end();
+	}
+
+	public boolean raycast(LineSegment lineSegment, RaycastResult<T> result) {
+		result.begin(lineSegment);
+		recordQuery();
+		if (lineSegment.getMinX() > getMaxX() || lineSegment.getMinY() > getMaxY() || lineSegment.getMaxX() < x
+				|| lineSegment.getMaxY() < y) {
+			return result.end();
+		}
+		float x1 = lineSegment.getPointA().x;
+		float y1 = lineSegment.getPointA().y;
+		float deltaX = lineSegment.getPointB().x - x1;
+		float deltaY = lineSegment.getPointB().y - y1;
+
+		// Walk the cells the segment crosses in order (DDA), starting from the clamped cell of point A
+		int column = getColumn(x1);
+		int row = getRow(y1);
+		int columnStep = deltaX > 0f ? 1 : -1;
+		int rowStep = deltaY > 0f ? 1 : -1;
+		float columnFraction = deltaX == 0f ? Float.MAX_VALUE : Math.abs(cellSize / deltaX);
+		float rowFraction = deltaY == 0f ? Float.MAX_VALUE : Math.abs(cellSize / deltaY);
+		float nextColumnFraction = getNextBoundaryFraction(x1, deltaX, this.x + ((column + 1) * cellSize),
+				this.x + (column * cellSize), column + columnStep, totalColumns);
+		float nextRowFraction = getNextBoundaryFraction(y1, deltaY, this.y + ((row + 1) * cellSize),
+				this.y + (row * cellSize), row + rowStep, totalRows);
+
+		while (true) {
+			List<T> cell = cells[(row * totalColumns) + column];
+			if (cell != null) {
+				recordVisit(cell);
+				for (int i = cell.size() - 1; i >= 0; i--) {
+					T element = cell.get(i);
+					result.offer(element, result.getPointFraction(element.getX(), element.getY()));
+				}
+			}
+			if (!result.isNearer(Math.min(nextColumnFraction, nextRowFraction))) {
+				break;
+			}
+			if (nextColumnFraction < nextRowFraction) {
+				column += columnStep;
+				nextColumnFraction = column + columnStep < 0 || column + columnStep >= totalColumns
+						? Float.MAX_VALUE : nextColumnFraction + columnFraction;
+			} else {
+				row += rowStep;
+				nextRowFraction = row + rowStep < 0 || row + rowStep >= totalRows ? Float.MAX_VALUE
+						: nextRowFraction + rowFraction;
+			}
+		}
+		return result.end();
+	}
+
+	private float getNextBoundaryFraction(float origin, float delta, float upperBoundary, float lowerBoundary,
+			int next, int total) {
+		if (delta == 0f || next < 0 || next >= total) {
+			return Float.MAX_VALUE;
+		}
+		return ((delta > 0f ? upperBoundary : lowerBoundary) - origin) / delta;
+	}
+
+	public void findCollidingPairs(PairCallback<T> callback) {
+		recordQuery();
+		float margin = 0f;
+		for (T element : elementCells.keySet()) {
+			margin = Math.max(margin, SweepAndPrune.getMargin(element));
+		}
+		SweepAndPrune<T> sweepAndPrune = new SweepAndPrune<T>(callback, margin);
+		// Elements further apart than this many rows cannot overlap
+		int range = (int) Math.min(totalRows, Math.ceil((margin * 2f) / cellSize));
+
+		// Each row is swept together with the rows after it that could
+		// contain overlapping elements so each pair of rows is swept once
+		for (int row = 0; row < totalRows; row++) {
+			sweepAndPrune.clear();
+			addRow(sweepAndPrune, row, SweepAndPrune.GROUP_ALL);
+			if (sweepAndPrune.getTotalElements() == 0) {
+				continue;
+			}
+			for (int nextRow = row + 1; nextRow <= row + range && nextRow < totalRows; nextRow++) {
+				addRow(sweepAndPrune, nextRow, SweepAndPrune.GROUP_B);
+			}
+			sweepAndPrune.sweep();
+		}
+	}
+
+	private void addRow(SweepAndPrune<T> sweepAndPrune, int row, int group) {
+		for (int column = 0; column < totalColumns; column++) {
+			List<T> cell = cells[(row * totalColumns) + column];
+			if (cell != null) {
+				recordVisit(cell);
+				sweepAndPrune.addAll(cell, group);
+			}
+		}
+	}
+
+	public List<T> getElements() {
+		List<T> result = new ArrayList<T>();
+		getElements(result);
+		return result;
+	}
+
+	public void getElements(List<T> result) {
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] == null) {
+				continue;
+			}
+			result.addAll(cells[i]);
+		}
+	}
+
+	@Override
+	public boolean forEachElement(ElementVisitor<T> visitor) {
+		for (int i = 0; i < cells.length; i++) {
+			List<T> cell = cells[i];
+			if (cell == null) {
+				continue;
+			}
+			for (int j = cell.size() - 1; j >= 0; j--) {
+				if (!visitor.visit(cell.get(j))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the total amount of cells in this {@link SpatialHashGrid}
+	 */
+	public int getTotalQuads() {
+		return cells.length;
+	}
+
+	public int getTotalElements() {
+		return elementCells.size();
+	}
+
+	/**
+	 * Always returns null as a {@link SpatialHashGrid} has no hierarchy
+	 */
+	public QuadTree<T> getParent() {
+		return null;
+	}
+
+	@Override
+	public T getElementById(long id) {
+		return elementsById.get(id);
+	}
+
+	@Override
+	public QuadTreeStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Records each cell as a leaf beneath the grid itself
+	 */
+	@Override
+	public void updateStatistics() {
+		if (!QuadTreeStatistics.ENABLED) {
+			return;
+		}
+		statistics.beginStructure();
+		statistics.recordNode(0, false, 0);
+		for (int i = 0; i < cells.length; i++) {
+			statistics.recordNode(1, true, cells[i] == null ? 0 : cells[i].size());
+		}
+		statistics.endStructure();
+	}
+
+	private void recordQuery() {
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordNodeVisit(true, 0);
+		}
+	}
+
+	private void recordVisit(List<T> cell) {
+		if (QuadTreeStatistics.ENABLED) {
+			statistics.recordNodeVisit(false, cell.size());
+		}
+	}
+
+	private List<T> getOrCreateCell(int index) {
+		List<T> cell = cells[index];
+		if (cell == null) {
+			cell = new ArrayList<T>();
+			cells[index] = cell;
+		}
+		return cell;
+	}
+
+	private void removeFromCell(List<T> cell, T element) {
+		for (int i = cell.size() - 1; i >= 0; i--) {
+			if (cell.get(i) != element) {
+				continue;
+			}
+			int last = cell.size() - 1;
+			cell.set(i, cell.get(last));
+			cell.remove(last);
+			return;
+		}
+	}
+
+	private int getCellIndex(float x, float y) {
+		return (getRow(y) * totalColumns) + getColumn(x);
+	}
+
+	private int getColumn(float x) {
+		int result = (int) ((x - this.x) / cellSize);
+		if (result < 0) {
+			return 0;
+		}
+		if (result >= totalColumns) {
+			return totalColumns - 1;
+		}
+		return result;
+	}
+
+	private int getRow(float y) {
+		int result = (int) ((y - this.y) / cellSize);
+		if (result < 0) {
+			return 0;
+		}
+		if (result >= totalRows) {
+			return totalRows - 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the width and height of each cell
+	 * 
+	 * @return
+	 */
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Returns the amount of cell columns
+	 * 
+	 * @return
+	 */
+	public int getTotalColumns() {
+		return totalColumns;
+	}
+
+	/**
+	 * Returns the amount of cell rows
+	 * 
+	 * @return
+	 */
+	public int getTotalRows() {
+		return totalRows;
+	}
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.List;
+
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.engine.geom.CollisionCircle;
+import org.mini2Dx.core.geom.Rectangle;
+
+/**
+ * Sort-and-sweep state used by {@link QuadTree} implementations to find
+ * overlapping pairs of elements. Elements are sorted by the least x
+ * coordinate of their bounds and each element is only tested against the
+ * elements that start before it ends along the x axis. The buffers are reused
+ * between sweeps so a query only allocates while they grow.
+ * 
+ * Elements added to {@link #GROUP_ALL} are tested against every other
+ * element. Elements added to any other group are only tested against
+ * elements of {@link #GROUP_ALL} and of other groups, which allows elements
+ * that were already tested against each other to share a sweep.
+ * 
+ * {@link CollisionBox}es are tested by their bounds, {@link CollisionCircle}s
+ * by their radius and any other {@link Positionable} as a point.
+ * 
+ * @param <T>
+ *            The type of element being tested
+ */
+public class SweepAndPrune<T extends Positionable> {
+	public static final int GROUP_ALL = 0;
+	public static final int GROUP_A = 1;
+	public static final int GROUP_B = 2;
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private final PairCallback<T> callback;
+	private final float margin;
+
+	private Object[] elements = new Object[16];
+	private float[] minX = new float[16];
+	private float[] minY = new float[16];
+	private float[] maxX = new float[16];
+	private float[] maxY = new float[16];
+	private int[] groups = new int[16];
+	private int[] order = new int[16];
+	private int totalElements;
+
+	private float boundsMinX, boundsMinY, boundsMaxX, boundsMaxY;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param callback
+	 *            The {@link PairCallback} to report overlapping pairs to
+	 * @param margin
+	 *            The furthest any element's bounds extend from its position,
+	 *            see {@link #getMargin(Positionable)}
+	 */
+	public SweepAndPrune(PairCallback<T> callback, float margin) {
+		this.callback = callback;
+		this.margin = margin;
+		clear();
+	}
+
+	/**
+	 * Removes all elements ready for the next sweep
+	 */
+	public void clear() {
+		for (int i = 0; i < totalElements; i++) {
+			elements[i] = null;
+		}
+		totalElements = 0;
+		boundsMinX = Float.MAX_VALUE;
+		boundsMinY = Float.MAX_VALUE;
+		boundsMaxX = -Float.MAX_VALUE;
+		boundsMaxY = -Float.MAX_VALUE;
+	}
+
+	/**
+	 * Adds elements to the next sweep
+	 * 
+	 * @param elementsToAdd
+	 *            The elements to add. Null elements are ignored.
+	 * @param group
+	 *            The group to add the elements to
+	 */
+	public void addAll(List<T> elementsToAdd, int group) {
+		for (int i = elementsToAdd.size() - 1; i >= 0; i--) {
+			T element = elementsToAdd.get(i);
+			if (element != null) {
+				add(element, group);
+			}
+		}
+	}
+
+	/**
+	 * Adds an element to the next sweep
+	 * 
+	 * @param element
+	 *            The element to add
+	 * @param group
+	 *            The group to add the element to
+	 */
+	public void add(T element, int group) {
+		if (totalElements == elements.length) {
+			grow();
+		}
+		int index = totalElements;
+		elements[index] = element;
+		groups[index] = group;
+		if (element instanceof CollisionBox) {
+			CollisionBox box = (CollisionBox) element;
+			minX[index] = box.getMinX();
+			minY[index] = box.getMinY();
+			maxX[index] = box.getMaxX();
+			maxY[index] = box.getMaxY();
+		} else if (element instanceof CollisionCircle) {
+			CollisionCircle circle = (CollisionCircle) element;
+			minX[index] = circle.getX() - circle.getRadius();
+			minY[index] = circle.getY() - circle.getRadius();
+			maxX[index] = circle.getX() + circle.getRadius();
+			maxY[index] = circle.getY() + circle.getRadius();
+		} else {
+			minX[index] = element.getX();
+			minY[index] = element.getY();
+			maxX[index] = element.getX();
+			maxY[index] = element.getY();
+		}
+		if (group != GROUP_B) {
+			boundsMinX = Math.min(boundsMinX, minX[index]);
+			boundsMinY = Math.min(boundsMinY, minY[index]);
+			boundsMaxX = Math.max(boundsMaxX, maxX[index]);
+			boundsMaxY = Math.max(boundsMaxY, maxY[index]);
+		}
+		totalElements++;
+	}
+
+	/**
+	 * Reports all overlapping pairs amongst the added elements to the
+	 * {@link PairCallback}
+	 */
+	@SuppressWarnings("unchecked")
+	public void sweep() {
+		if (totalElements < 2) {
+			return;
+		}
+		for (int i = 0; i < totalElements; i++) {
+			order[i] = i;
+		}
+		sort(0, totalElements - 1);
+
+		for (int i = 0; i < totalElements; i++) {
+			int a = order[i];
+			for (int j = i + 1; j < totalElements; j++) {
+				int b = order[j];
+				if (minX[b] > maxX[a]) {
+					break;
+				}
+				if (groups[a] == groups[b] && groups[a] != GROUP_ALL) {
+					continue;
+				}
+				if (minY[b] > maxY[a] || maxY[b] < minY[a]) {
+					continue;
+				}
+				if (intersects((Positionable) elements[a], (Positionable) elements[b])) {
+					callback.onCollidingPair((T) elements[a], (T) elements[b]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns if elements positioned in two quads could overlap
+	 * 
+	 * @param quadA
+	 *            The first quad
+	 * @param quadB
+	 *            The second quad
+	 * @return False if no element in one quad can overlap an element in the
+	 *         other
+	 */
+	public boolean isOverlapping(Rectangle quadA, Rectangle quadB) {
+		float distance = margin * 2f;
+		return quadA.getMinX() - distance <= quadB.getMaxX() && quadB.getMinX() - distance <= quadA.getMaxX()
+				&& quadA.getMinY() - distance <= quadB.getMaxY() && quadB.getMinY() - distance <= quadA.getMaxY();
+	}
+
+	/**
+	 * Returns if elements positioned in a quad could overlap the elements
+	 * added to {@link #GROUP_ALL} or {@link #GROUP_A} so far
+	 * 
+	 * @param quad
+	 *            The quad
+	 * @return False if no element in the quad can overlap those elements
+	 */
+	public boolean isOverlappingAddedElements(Rectangle quad) {
+		return quad.getMinX() - margin <= boundsMaxX && boundsMinX <= quad.getMaxX() + margin
+				&& quad.getMinY() - margin <= boundsMaxY && boundsMinY <= quad.getMaxY() + margin;
+	}
+
+	/**
+	 * Returns the margin this sweep was created with
+	 * 
+	 * @return The furthest any element's bounds extend from its position
+	 */
+	public float getMargin() {
+		return margin;
+	}
+
+	/**
+	 * Returns the amount of elements added since the last {@link #clear()}
+	 * 
+	 * @return 0 if no elements have been added
+	 */
+	public int getTotalElements() {
+		return totalElements;
+	}
+
+	/**
+	 * Returns how far the bounds of an element extend from its position
+	 * 
+	 * @param element
+	 *            The element
+	 * @return 0 for elements tested as points
+	 */
+	public static float getMargin(Positionable element) {
+		if (element instanceof CollisionBox) {
+			CollisionBox box = (CollisionBox) element;
+			return Math.max(Math.max(box.getX() - box.getMinX(), box.getMaxX() - box.getX()),
+					Math.max(box.getY() - box.getMinY(), box.getMaxY() - box.getY()));
+		}
+		if (element instanceof CollisionCircle) {
+			return ((CollisionCircle) element).getRadius();
+		}
+		return 0f;
+	}
+
+	/**
+	 * Returns if two elements overlap
+	 * 
+	 * @param elementA
+	 *            The first element
+	 * @param elementB
+	 *            The second element
+	 * @return True if the elements overlap
+	 */
+	public static boolean intersects(Positionable elementA, Positionable elementB) {
+		if (elementB instanceof CollisionBox && !(elementA instanceof CollisionBox)) {
+			return intersects(elementB, elementA);
+		}
+		if (elementB instanceof CollisionCircle && !(elementA instanceof CollisionBox)
+				&& !(elementA instanceof CollisionCircle)) {
+			return intersects(elementB, elementA);
+		}
+		if (elementA instanceof CollisionBox) {
+			CollisionBox box = (CollisionBox) elementA;
+			if (elementB instanceof CollisionBox) {
+				return box.intersects((CollisionBox) elementB);
+			}
+			if (elementB instanceof CollisionCircle) {
+				CollisionCircle circle = (CollisionCircle) elementB;
+				float distanceX = circle.getX() - Math.max(box.getMinX(), Math.min(circle.getX(), box.getMaxX()));
+				float distanceY = circle.getY() - Math.max(box.getMinY(), Math.min(circle.getY(), box.getMaxY()));
+				return (distanceX * distanceX) + (distanceY * distanceY) <= circle.getRadius()
+						* circle.getRadius();
+			}
+			return box.contains(elementB.getX(), elementB.getY());
+		}
+		if (elementA instanceof CollisionCircle) {
+			CollisionCircle circle = (CollisionCircle) elementA;
+			if (elementB instanceof CollisionCircle) {
+				return circle.intersects((CollisionCircle) elementB);
+			}
+			return circle.getDistanceTo(elementB.getX(), elementB.getY()) == 0f;
+		}
+		return elementA.getX() == elementB.getX() && elementA.getY() == elementB.getY();
+	}
+
+	private void sort(int low, int high) {
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			float pivot = minX[order[(low + high) >>> 1]];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (minX[order[i]] < pivot) {
+					i++;
+				}
+				while (minX[order[j]] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			// Recurse into the smaller half to bound the stack depth
+			if (j - low < high - i) {
+				sort(low, j);
+				low = i;
+			} else {
+				sort(i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			int index = order[i];
+			float key = minX[index];
+			int j = i - 1;
+			while (j >= low && minX[order[j]] > key) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = index;
+		}
+	}
+
+	private void grow() {
+		int capacity = elements.length * 2;
+		Object[] nextElements = new Object[capacity];
+		System.arraycopy(elements, 0, nextElements, 0, totalElements);
+		elements = nextElements;
+		minX = copyOf(minX, capacity);
+		minY = copyOf(minY, capacity);
+		maxX = copyOf(maxX, capacity);
+		maxY = copyOf(maxY, capacity);
+		int[] nextGroups = new int[capacity];
+		System.arraycopy(groups, 0, nextGroups, 0, totalElements);
+		groups = nextGroups;
+		order = new int[capacity];
+	}
+
+	private float[] copyOf(float[] values, int capacity) {
+		float[] result = new float[capacity];
+		System.arraycopy(values, 0, result, 0, totalElements);
+		return result;
+	}
+}
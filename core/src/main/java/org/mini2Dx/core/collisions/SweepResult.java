@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.engine.geom.CollisionCircle;
+import org.mini2Dx.core.geom.Rectangle;
+
+/**
+ * Stores the result of {@link QuadTree#sweep(CollisionBox, SweepResult)}.
+ * Instances can be reused between sweeps so that no objects are allocated
+ * while sweeping.
+ * 
+ * @param <T>
+ *            The type of element that can be hit
+ */
+public class SweepResult<T extends Positionable> {
+	private static final float NO_HIT = Float.MAX_VALUE;
+
+	private final Rectangle sweptBounds = new Rectangle();
+	private final ElementVisitor<T> visitor = new ElementVisitor<T>() {
+		@Override
+		public boolean visit(T element) {
+			offer(element);
+			return true;
+		}
+	};
+
+	private CollisionBox collisionBox;
+	private T element;
+	private float timeOfImpact = NO_HIT;
+
+	/**
+	 * Prepares this result for a new sweep, clearing any previous hit
+	 * 
+	 * @param collisionBox
+	 *            The {@link CollisionBox} being swept from its previous bounds
+	 *            to its current bounds
+	 */
+	void begin(CollisionBox collisionBox) {
+		this.collisionBox = collisionBox;
+		collisionBox.getSweptBounds(sweptBounds);
+		element = null;
+		timeOfImpact = NO_HIT;
+	}
+
+	/**
+	 * Completes the sweep
+	 * 
+	 * @return True if an element was hit
+	 */
+	boolean end() {
+		collisionBox = null;
+		return element != null;
+	}
+
+	/**
+	 * Records a hit if the swept {@link CollisionBox} touches the element
+	 * sooner than the current hit. {@link CollisionBox}es are tested by their
+	 * movement, {@link CollisionCircle}s by their bounds and any other element
+	 * as a point.
+	 * 
+	 * @param element
+	 *            The element to test
+	 */
+	void offer(T element) {
+		if (element == collisionBox) {
+			return;
+		}
+		float result;
+		if (element instanceof CollisionBox) {
+			result = collisionBox.getTimeOfImpact((CollisionBox) element);
+		} else if (element instanceof CollisionCircle) {
+			CollisionCircle circle = (CollisionCircle) element;
+			float radius = circle.getRadius();
+			result = collisionBox.getTimeOfImpact(circle.getX() - radius, circle.getY() - radius,
+					circle.getX() + radius, circle.getY() + radius);
+		} else {
+			result = collisionBox.getTimeOfImpact(element.getX(), element.getY(), element.getX(), element.getY());
+		}
+		if (result < 0f || result >= timeOfImpact) {
+			return;
+		}
+		this.element = element;
+		this.timeOfImpact = result;
+	}
+
+	/**
+	 * Returns the bounds swept by the {@link CollisionBox} being tested
+	 * 
+	 * @return
+	 */
+	Rectangle getSweptBounds() {
+		return sweptBounds;
+	}
+
+	/**
+	 * Returns the {@link ElementVisitor} that offers each visited element to
+	 * this result
+	 * 
+	 * @return
+	 */
+	ElementVisitor<T> getVisitor() {
+		return visitor;
+	}
+
+	/**
+	 * Returns if the last sweep hit an element
+	 * 
+	 * @return False if nothing was hit
+	 */
+	public boolean isHit() {
+		return element != null;
+	}
+
+	/**
+	 * Returns the element hit first by the last sweep
+	 * 
+	 * @return Null if nothing was hit
+	 */
+	public T getElement() {
+		return element;
+	}
+
+	/**
+	 * Returns how far through its movement the swept {@link CollisionBox}
+	 * first touched the element
+	 * 
+	 * @return Between 0 and 1 or {@link Float#MAX_VALUE} if nothing was hit
+	 */
+	public float getTimeOfImpact() {
+		return timeOfImpact;
+	}
+}
@@ -11,10 +11,7 @@
  */
 package org.mini2Dx.core.engine.geom;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.mini2Dx.core.engine.PositionChangeListener;
 import org.mini2Dx.core.engine.Positionable;
@@ -29,14 +26,23 @@ import com.badlogic.gdx.math.Vector2;
  * objects can use this class to move around the game world and retrieve the
  * appropriate rendering coordinates after interpolating between the previous
  * and current position.
+ * 
+ * The previous and rendering bounds are not allocated until
+ * {@link #preUpdate()} and {@link #interpolate(GameContainer, float)} are
+ * first called. Until then they are the current bounds, so colliders that
+ * never move only store their current bounds.
  */
 public class CollisionBox extends Rectangle implements Positionable {
 	private static final long serialVersionUID = -8217730724587578266L;
+	private static final AtomicReferenceFieldUpdater<CollisionBox, Object> POSITION_CHANGE_LISTENERS = AtomicReferenceFieldUpdater
+			.newUpdater(CollisionBox.class, Object.class, "positionChangeListeners");
 
 	private final long id;
-	private final ReentrantReadWriteLock positionChangeListenerLock;
-	
-	private List<PositionChangeListener> positionChangeListeners;
+
+	/**
+	 * @see PositionChangeListeners
+	 */
+	private volatile Object positionChangeListeners;
 
 	private Rectangle previousRectangle;
 	private Rectangle renderRectangle;
@@ -48,10 +54,6 @@ public class CollisionBox extends Rectangle implements Positionable {
 	public CollisionBox(float x, float y, float width, float height) {
 		super(x, y, width, height);
 		this.id = CollisionIdSequence.nextId();
-		
-		positionChangeListenerLock = new ReentrantReadWriteLock();
-		previousRectangle = new Rectangle(x, y, width, height);
-		renderRectangle = new Rectangle(x, y, width, height);
 	}
 	
 	/**
@@ -59,6 +61,9 @@ public class CollisionBox extends Rectangle implements Positionable {
 	 * before any changes are made to this object
 	 */
 	public void preUpdate() {
+		if (previousRectangle == null) {
+			previousRectangle = new Rectangle();
+		}
 		previousRectangle.set(this);
 	}
 
@@ -68,21 +73,153 @@ public class CollisionBox extends Rectangle implements Positionable {
 
 	@Override
 	public void interpolate(GameContainer gc, float alpha) {
+		if (previousRectangle == null) {
+			return;
+		}
+		if (renderRectangle == null) {
+			renderRectangle = new Rectangle();
+		}
 		renderRectangle.set(previousRectangle.lerp(this, alpha));
 	}
 
+	/**
+	 * Returns the bounds this {@link CollisionBox} had when
+	 * {@link #preUpdate()} was last called
+	 */
+	private Rectangle getPreviousRectangle() {
+		return previousRectangle == null ? this : previousRectangle;
+	}
+
+	private Rectangle getRenderRectangle() {
+		return renderRectangle == null ? this : renderRectangle;
+	}
+
+	/**
+	 * Stores the axis-aligned bounds this {@link CollisionBox} swept through
+	 * while moving from its previous bounds to its current bounds. The
+	 * result can be passed to
+	 * {@link org.mini2Dx.core.collisions.QuadTree#forEachWithinRegion(org.mini2Dx.core.geom.Parallelogram, org.mini2Dx.core.collisions.ElementVisitor)}
+	 * to find everything it may have passed through since
+	 * {@link #preUpdate()} was called.
+	 * 
+	 * @param result
+	 *            The {@link Rectangle} to store the swept bounds in
+	 * @return The result {@link Rectangle}
+	 */
+	public Rectangle getSweptBounds(Rectangle result) {
+		Rectangle previousRectangle = getPreviousRectangle();
+		float minX = Math.min(previousRectangle.getMinX(), getMinX());
+		float minY = Math.min(previousRectangle.getMinY(), getMinY());
+		float maxX = Math.max(previousRectangle.getMaxX(), getMaxX());
+		float maxY = Math.max(previousRectangle.getMaxY(), getMaxY());
+		result.set(minX, minY, maxX - minX, maxY - minY);
+		return result;
+	}
+
+	/**
+	 * Returns how far through its movement since {@link #preUpdate()} this
+	 * {@link CollisionBox} first touches another moving {@link CollisionBox}.
+	 * Both boxes are treated as axis-aligned boxes the size of their previous
+	 * bounds moving at a constant speed, so fast moving boxes are not missed
+	 * when they pass through each other between updates.
+	 * 
+	 * @param collisionBox
+	 *            The other {@link CollisionBox}
+	 * @return 0 if the boxes were already touching, up to 1 if they first
+	 *         touch at their current bounds or -1 if they do not touch
+	 */
+	public float getTimeOfImpact(CollisionBox collisionBox) {
+		Rectangle previousRectangle = getPreviousRectangle();
+		Rectangle otherPrevious = collisionBox.getPreviousRectangle();
+		float velocityX = (getMinX() - previousRectangle.getMinX())
+				- (collisionBox.getMinX() - otherPrevious.getMinX());
+		float velocityY = (getMinY() - previousRectangle.getMinY())
+				- (collisionBox.getMinY() - otherPrevious.getMinY());
+		return getTimeOfImpact(velocityX, velocityY, otherPrevious.getMinX(), otherPrevious.getMinY(),
+				otherPrevious.getMaxX(), otherPrevious.getMaxY());
+	}
+
+	/**
+	 * Returns how far through its movement since {@link #preUpdate()} this
+	 * {@link CollisionBox} first touches a stationary axis-aligned box
+	 * 
+	 * @param minX
+	 *            The least x coordinate of the box
+	 * @param minY
+	 *            The least y coordinate of the box
+	 * @param maxX
+	 *            The greatest x coordinate of the box
+	 * @param maxY
+	 *            The greatest y coordinate of the box
+	 * @return 0 if this {@link CollisionBox} was already touching the box, up
+	 *         to 1 if it first touches at its current bounds or -1 if it does
+	 *         not touch the box
+	 */
+	public float getTimeOfImpact(float minX, float minY, float maxX, float maxY) {
+		Rectangle previousRectangle = getPreviousRectangle();
+		return getTimeOfImpact(getMinX() - previousRectangle.getMinX(), getMinY() - previousRectangle.getMinY(),
+				minX, minY, maxX, maxY);
+	}
+
+	private float getTimeOfImpact(float velocityX, float velocityY, float minX, float minY, float maxX,
+			float maxY) {
+		Rectangle previousRectangle = getPreviousRectangle();
+		float previousMinX = previousRectangle.getMinX();
+		float previousMinY = previousRectangle.getMinY();
+		float previousMaxX = previousRectangle.getMaxX();
+		float previousMaxY = previousRectangle.getMaxY();
+
+		float entry = 0f;
+		float exit = 1f;
+
+		if (velocityX == 0f) {
+			if (previousMaxX < minX || previousMinX > maxX) {
+				return -1f;
+			}
+		} else {
+			float entryX = (minX - previousMaxX) / velocityX;
+			float exitX = (maxX - previousMinX) / velocityX;
+			if (entryX > exitX) {
+				float swap = entryX;
+				entryX = exitX;
+				exitX = swap;
+			}
+			entry = Math.max(entry, entryX);
+			exit = Math.min(exit, exitX);
+		}
+
+		if (velocityY == 0f) {
+			if (previousMaxY < minY || previousMinY > maxY) {
+				return -1f;
+			}
+		} else {
+			float entryY = (minY - previousMaxY) / velocityY;
+			float exitY = (maxY - previousMinY) / velocityY;
+			if (entryY > exitY) {
+				float swap = entryY;
+				entryY = exitY;
+				exitY = swap;
+			}
+			entry = Math.max(entry, entryY);
+			exit = Math.min(exit, exitY);
+		}
+		if (entry > exit) {
+			return -1f;
+		}
+		return entry;
+	}
+
 	/**
 	 * @see Positionable#addPostionChangeListener(PositionChangeListener)
 	 */
 	@Override
 	public <T extends Positionable> void addPostionChangeListener(
 			PositionChangeListener<T> listener) {
-		positionChangeListenerLock.writeLock().lock();
-		if (positionChangeListeners == null) {
-			positionChangeListeners = new ArrayList<PositionChangeListener>(1);
-		}
-		positionChangeListeners.add(listener);
-		positionChangeListenerLock.writeLock().unlock();
+		Object listeners;
+		do {
+			listeners = positionChangeListeners;
+		} while (!POSITION_CHANGE_LISTENERS.compareAndSet(this, listeners,
+				PositionChangeListeners.add(listeners, listener)));
 	}
 
 	/**
@@ -91,29 +228,18 @@ public class CollisionBox extends Rectangle implements Positionable {
 	@Override
 	public <T extends Positionable> void removePositionChangeListener(
 			PositionChangeListener<T> listener) {
-		if (positionChangeListeners == null) {
-			return;
-		}
-		positionChangeListenerLock.writeLock().lock();
-		positionChangeListeners.remove(listener);
-		positionChangeListenerLock.writeLock().unlock();
+		Object listeners;
+		do {
+			listeners = positionChangeListeners;
+			if (listeners == null) {
+				return;
+			}
+		} while (!POSITION_CHANGE_LISTENERS.compareAndSet(this, listeners,
+				PositionChangeListeners.remove(listeners, listener)));
 	}
 
 	private void notifyPositionChangeListeners() {
-		if (positionChangeListeners == null) {
-			return;
-		}
-		positionChangeListenerLock.readLock().lock();
-		for (int i = positionChangeListeners.size() - 1; i >= 0; i--) {
-			if(i >= positionChangeListeners.size()) {
-				i = positionChangeListeners.size() - 1;
-			}
-			PositionChangeListener listener = positionChangeListeners.get(i);
-			positionChangeListenerLock.readLock().unlock();
-			listener.positionChanged(this);
-			positionChangeListenerLock.readLock().lock();
-		}
-		positionChangeListenerLock.readLock().unlock();
+		PositionChangeListeners.notify(positionChangeListeners, this);
 	}
 
 	@Override
@@ -163,8 +289,12 @@ public class CollisionBox extends Rectangle implements Positionable {
 		boolean notifyPositionListeners = x != getX() || y != getY();
 		
 		super.set(x, y, width, height);
-		previousRectangle.set(x, y, width, height);
-		renderRectangle.set(previousRectangle);
+		if (previousRectangle != null) {
+			previousRectangle.set(x, y, width, height);
+		}
+		if (renderRectangle != null) {
+			renderRectangle.set(getPreviousRectangle());
+		}
 		
 		if(!notifyPositionListeners) {
 			return;
@@ -181,8 +311,7 @@ public class CollisionBox extends Rectangle implements Positionable {
 	 */
 	public void forceToWidth(float width) {
 		super.setWidth(width);
-		previousRectangle.set(this);
-		renderRectangle.set(this);
+		resetInterpolation();
 	}
 
 	/**
@@ -194,8 +323,16 @@ public class CollisionBox extends Rectangle implements Positionable {
 	 */
 	public void forceToHeight(float height) {
 		super.setHeight(height);
-		previousRectangle.set(this);
-		renderRectangle.set(this);
+		resetInterpolation();
+	}
+
+	private void resetInterpolation() {
+		if (previousRectangle != null) {
+			previousRectangle.set(this);
+		}
+		if (renderRectangle != null) {
+			renderRectangle.set(this);
+		}
 	}
 
 	@Override
@@ -275,23 +412,23 @@ public class CollisionBox extends Rectangle implements Positionable {
 	}
 
 	public float getRenderX() {
-		return renderRectangle.getX();
+		return getRenderRectangle().getX();
 	}
 
 	public float getRenderY() {
-		return renderRectangle.getY();
+		return getRenderRectangle().getY();
 	}
 
 	public float getRenderWidth() {
-		return renderRectangle.getWidth();
+		return getRenderRectangle().getWidth();
 	}
 
 	public float getRenderHeight() {
-		return renderRectangle.getHeight();
+		return getRenderRectangle().getHeight();
 	}
 
 	public float getRenderRotation() {
-		return renderRectangle.getRotation();
+		return getRenderRectangle().getRotation();
 	}
 
 	public long getId() {
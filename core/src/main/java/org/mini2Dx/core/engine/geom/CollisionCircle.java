@@ -11,10 +11,7 @@
  */
 package org.mini2Dx.core.engine.geom;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.mini2Dx.core.engine.PositionChangeListener;
 import org.mini2Dx.core.engine.Positionable;
@@ -26,13 +23,21 @@ import org.mini2Dx.core.geom.Circle;
  * objects can use this class to move around the game world and retrieve the
  * appropriate rendering coordinates after interpolating between the previous
  * and current position.
+ * 
+ * The previous and rendering circles are not allocated until
+ * {@link #preUpdate()} and {@link #interpolate(GameContainer, float)} are
+ * first called. Until then they are the current circle.
  */
 public class CollisionCircle extends Circle implements Positionable {
+	private static final AtomicReferenceFieldUpdater<CollisionCircle, Object> POSITION_CHANGE_LISTENERS = AtomicReferenceFieldUpdater
+			.newUpdater(CollisionCircle.class, Object.class, "positionChangeListeners");
 	
 	private final long id;
-	private final ReadWriteLock positionChangeListenerLock;
 	
-	private List<PositionChangeListener> positionChangeListeners;
+	/**
+	 * @see PositionChangeListeners
+	 */
+	private volatile Object positionChangeListeners;
 	
 	private Circle previousCircle;
 	private Circle renderCircle;
@@ -40,19 +45,11 @@ public class CollisionCircle extends Circle implements Positionable {
 	public CollisionCircle(int radius) {
 		super(radius);
 		this.id = CollisionIdSequence.nextId();
-		
-		positionChangeListenerLock = new ReentrantReadWriteLock();
-		previousCircle = new Circle(radius);
-		renderCircle = new Circle(radius);
 	}
 	
 	public CollisionCircle(float centerX, float centerY, int radius) {
 		super(centerX, centerY, radius);
 		this.id = CollisionIdSequence.nextId();
-		
-		positionChangeListenerLock = new ReentrantReadWriteLock();
-		previousCircle = new Circle(centerX, centerY, radius);
-		renderCircle = new Circle(centerX, centerY, radius);
 	}
 	
 	/**
@@ -60,6 +57,9 @@ public class CollisionCircle extends Circle implements Positionable {
 	 * before any changes are made to this object
 	 */
 	public void preUpdate() {
+		if (previousCircle == null) {
+			previousCircle = new Circle((int) getRadius());
+		}
 		previousCircle.set(this);
 	}
 	
@@ -69,8 +69,22 @@ public class CollisionCircle extends Circle implements Positionable {
 
 	@Override
 	public void interpolate(GameContainer gc, float alpha) {
+		if (previousCircle == null) {
+			return;
+		}
+		if (renderCircle == null) {
+			renderCircle = new Circle((int) getRadius());
+		}
 		renderCircle.set(previousCircle.lerp(this, alpha));
 	}
+
+	private Circle getPreviousCircle() {
+		return previousCircle == null ? this : previousCircle;
+	}
+
+	private Circle getRenderCircle() {
+		return renderCircle == null ? this : renderCircle;
+	}
 	
 	@Override
 	public float getDistanceTo(Positionable positionable) {
@@ -80,40 +94,28 @@ public class CollisionCircle extends Circle implements Positionable {
 	@Override
 	public <T extends Positionable> void addPostionChangeListener(
 			PositionChangeListener<T> listener) {
-		positionChangeListenerLock.writeLock().lock();
-		if (positionChangeListeners == null) {
-			positionChangeListeners = new ArrayList<PositionChangeListener>();
-		}
-		positionChangeListeners.add(listener);
-		positionChangeListenerLock.writeLock().unlock();
+		Object listeners;
+		do {
+			listeners = positionChangeListeners;
+		} while (!POSITION_CHANGE_LISTENERS.compareAndSet(this, listeners,
+				PositionChangeListeners.add(listeners, listener)));
 	}
 
 	@Override
 	public <T extends Positionable> void removePositionChangeListener(
 			PositionChangeListener<T> listener) {
-		if (positionChangeListeners == null) {
-			return;
-		}
-		positionChangeListenerLock.writeLock().lock();
-		positionChangeListeners.remove(listener);
-		positionChangeListenerLock.writeLock().unlock();
+		Object listeners;
+		do {
+			listeners = positionChangeListeners;
+			if (listeners == null) {
+				return;
+			}
+		} while (!POSITION_CHANGE_LISTENERS.compareAndSet(this, listeners,
+				PositionChangeListeners.remove(listeners, listener)));
 	}
 	
 	private void notifyPositionChangeListeners() {
-		if (positionChangeListeners == null) {
-			return;
-		}
-		positionChangeListenerLock.readLock().lock();
-		for (int i = positionChangeListeners.size() - 1; i >= 0; i--) {
-			if(i >= positionChangeListeners.size()) {
-				i = positionChangeListeners.size() - 1;
-			}
-			PositionChangeListener listener = positionChangeListeners.get(i);
-			positionChangeListenerLock.readLock().unlock();
-			listener.positionChanged(this);
-			positionChangeListenerLock.readLock().lock();
-		}
-		positionChangeListenerLock.readLock().unlock();
+		PositionChangeListeners.notify(positionChangeListeners, this);
 	}
 	
 	/**
@@ -129,8 +131,12 @@ public class CollisionCircle extends Circle implements Positionable {
 		boolean notifyPositionListeners = x != getX() || y != getY();
 		
 		super.setCenter(x, y);
-		previousCircle.setCenter(x, y);
-		renderCircle.setCenter(x, y);
+		if (previousCircle != null) {
+			previousCircle.setCenter(x, y);
+		}
+		if (renderCircle != null) {
+			renderCircle.setCenter(x, y);
+		}
 		
 		if(!notifyPositionListeners) {
 			return;
@@ -154,27 +160,27 @@ public class CollisionCircle extends Circle implements Positionable {
 	}
 	
 	public float getRenderX() {
-		return renderCircle.getX();
+		return getRenderCircle().getX();
 	}
 	
 	public float getRenderY() {
-		return renderCircle.getY();
+		return getRenderCircle().getY();
 	}
 	
 	public float getRenderRadius() {
-		return renderCircle.getRadius();
+		return getRenderCircle().getRadius();
 	}
 	
 	public float getPreviousX() {
-		return previousCircle.getX();
+		return getPreviousCircle().getX();
 	}
 	
 	public float getPreviousY() {
-		return previousCircle.getY();
+		return getPreviousCircle().getY();
 	}
 
 	public float getPreviousRadius() {
-		return previousCircle.getRadius();
+		return getPreviousCircle().getRadius();
 	}
 
 	public long getId() {
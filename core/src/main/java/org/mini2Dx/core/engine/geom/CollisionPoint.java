@@ -11,10 +11,7 @@
  */
 package org.mini2Dx.core.engine.geom;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.mini2Dx.core.engine.PositionChangeListener;
 import org.mini2Dx.core.engine.Positionable;
@@ -28,14 +25,22 @@ import com.badlogic.gdx.math.Vector2;
  * objects can use this class to move around the game world and retrieve the
  * appropriate rendering coordinates after interpolating between the previous
  * and current position.
+ * 
+ * The previous and rendering positions are not allocated until
+ * {@link #preUpdate()} and {@link #interpolate(GameContainer, float)} are
+ * first called. Until then they are the current position.
  */
 public class CollisionPoint extends Point implements Positionable {
 	private static final long serialVersionUID = -7752697723641315393L;
+	private static final AtomicReferenceFieldUpdater<CollisionPoint, Object> POSITION_CHANGE_LISTENERS = AtomicReferenceFieldUpdater
+			.newUpdater(CollisionPoint.class, Object.class, "positionChangeListeners");
 	
 	private final long id;
-	private final ReadWriteLock positionChangeListenerLock;
 	
-	private List<PositionChangeListener> positionChangeListeners;
+	/**
+	 * @see PositionChangeListeners
+	 */
+	private volatile Object positionChangeListeners;
 	
 	private Point previousPosition;
 	private Point renderPosition;
@@ -47,19 +52,11 @@ public class CollisionPoint extends Point implements Positionable {
 	public CollisionPoint(float x, float y) {
 		super(x, y);
 		this.id = CollisionIdSequence.nextId();
-		
-		positionChangeListenerLock = new ReentrantReadWriteLock();
-		previousPosition = new Point(x, y);
-		renderPosition = new Point(x, y);
 	}
 
 	public CollisionPoint(Point point) {
 		super(point);
 		this.id = CollisionIdSequence.nextId();
-		
-		positionChangeListenerLock = new ReentrantReadWriteLock();
-		previousPosition = new Point(point);
-		renderPosition = new Point(point);
 	}
 	
 	/**
@@ -67,6 +64,9 @@ public class CollisionPoint extends Point implements Positionable {
 	 * before any changes are made to this object
 	 */
 	public void preUpdate() {
+		if (previousPosition == null) {
+			previousPosition = new Point();
+		}
 		previousPosition.set(this);
 	}
 	
@@ -76,6 +76,12 @@ public class CollisionPoint extends Point implements Positionable {
 
 	@Override
 	public void interpolate(GameContainer gc, float alpha) {
+		if (previousPosition == null) {
+			return;
+		}
+		if (renderPosition == null) {
+			renderPosition = new Point();
+		}
 		renderPosition.set(previousPosition.lerp(this, alpha));
 	}
 
@@ -85,42 +91,30 @@ public class CollisionPoint extends Point implements Positionable {
 	}
 	
 	private void notifyPositionChangeListeners() {
-		if (positionChangeListeners == null) {
-			return;
-		}
-		positionChangeListenerLock.readLock().lock();
-		for (int i = positionChangeListeners.size() - 1; i >= 0; i--) {
-			if(i >= positionChangeListeners.size()) {
-				i = positionChangeListeners.size() - 1;
-			}
-			PositionChangeListener listener = positionChangeListeners.get(i);
-			positionChangeListenerLock.readLock().unlock();
-			listener.positionChanged(this);
-			positionChangeListenerLock.readLock().lock();
-		}
-		positionChangeListenerLock.readLock().unlock();
+		PositionChangeListeners.notify(positionChangeListeners, this);
 	}
 	
 	@Override
 	public <T extends Positionable> void addPostionChangeListener(
 			PositionChangeListener<T> listener) {
-		positionChangeListenerLock.writeLock().lock();
-		if (positionChangeListeners == null) {
-			positionChangeListeners = new ArrayList<PositionChangeListener>(1);
-		}
-		positionChangeListeners.add(listener);
-		positionChangeListenerLock.writeLock().unlock();
+		Object listeners;
+		do {
+			listeners = positionChangeListeners;
+		} while (!POSITION_CHANGE_LISTENERS.compareAndSet(this, listeners,
+				PositionChangeListeners.add(listeners, listener)));
 	}
 
 	@Override
 	public <T extends Positionable> void removePositionChangeListener(
 			PositionChangeListener<T> listener) {
-		if (positionChangeListeners == null) {
-			return;
-		}
-		positionChangeListenerLock.writeLock().lock();
-		positionChangeListeners.remove(listener);
-		positionChangeListenerLock.writeLock().unlock();
+		Object listeners;
+		do {
+			listeners = positionChangeListeners;
+			if (listeners == null) {
+				return;
+			}
+		} while (!POSITION_CHANGE_LISTENERS.compareAndSet(this, listeners,
+				PositionChangeListeners.remove(listeners, listener)));
 	}
 	
 	/**
@@ -136,8 +130,12 @@ public class CollisionPoint extends Point implements Positionable {
 		boolean notifyPositionListeners = x != getX() || y != getY();
 		
 		super.set(x, y);
-		previousPosition.set(x, y);
-		renderPosition.set(x, y);
+		if (previousPosition != null) {
+			previousPosition.set(x, y);
+		}
+		if (renderPosition != null) {
+			renderPosition.set(x, y);
+		}
 		
 		if(!notifyPositionListeners) {
 			return;
@@ -167,11 +165,11 @@ public class CollisionPoint extends Point implements Positionable {
 	}
 	
 	public float getRenderX() {
-		return renderPosition.getX();
+		return renderPosition == null ? getX() : renderPosition.getX();
 	}
 	
 	public float getRenderY() {
-		return renderPosition.getY();
+		return renderPosition == null ? getY() : renderPosition.getY();
 	}
 
 	public long getId() {
@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.engine.geom;
+
+import java.util.Arrays;
+
+import org.mini2Dx.core.collisions.ElementVisitor;
+import org.mini2Dx.core.collisions.QuadTree;
+import org.mini2Dx.core.collisions.RaycastResult;
+import org.mini2Dx.core.engine.Positionable;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+
+/**
+ * Stores large numbers of moving points, e.g. particles or projectiles,
+ * without an object per point. The current, previous and rendering
+ * positions and the ID of each point are stored in parallel arrays and
+ * points are addressed by integer handles that stay the same while other
+ * points are added and removed.
+ * 
+ * {@link #preUpdate()} and {@link #interpolate(float)} process every point
+ * in a single loop over the arrays. Points can be tested against the
+ * elements of a {@link QuadTree}, e.g. the static geometry of a level, with
+ * {@link #findCollisions(QuadTree, PointCollisionListener)} and
+ * {@link #findSweptCollisions(QuadTree, RaycastResult, PointCollisionListener)}.
+ * 
+ * This class is not thread-safe.
+ */
+public class CollisionPointBuffer {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int NO_INDEX = -1;
+
+	private final Point queryPoint = new Point();
+	private final LineSegment queryLineSegment = new LineSegment(0f, 0f, 0f, 0f);
+	private final CollisionVisitor collisionVisitor = new CollisionVisitor();
+
+	private float[] x, y;
+	private float[] previousX, previousY;
+	private float[] renderX, renderY;
+	private long[] ids;
+	/**
+	 * The handle of the point stored at each index
+	 */
+	private int[] handles;
+	/**
+	 * The index each handle is stored at or {@link #NO_INDEX} if the handle
+	 * is not in use
+	 */
+	private int[] indices;
+	private int[] freeHandles;
+	private int totalFreeHandles;
+	private int totalHandles;
+	private int size;
+
+	/**
+	 * Creates a {@link CollisionPointBuffer} with the default capacity
+	 */
+	public CollisionPointBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param initialCapacity
+	 *            The number of points to allocate storage for. Adding more
+	 *            points than this grows the storage.
+	 */
+	public CollisionPointBuffer(int initialCapacity) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("Initial capacity must be greater than 0");
+		}
+		x = new float[initialCapacity];
+		y = new float[initialCapacity];
+		previousX = new float[initialCapacity];
+		previousY = new float[initialCapacity];
+		renderX = new float[initialCapacity];
+		renderY = new float[initialCapacity];
+		ids = new long[initialCapacity];
+		handles = new int[initialCapacity];
+		indices = new int[initialCapacity];
+		freeHandles = new int[initialCapacity];
+	}
+
+	/**
+	 * Adds a point
+	 * 
+	 * @param x
+	 *            The x coordinate of the point
+	 * @param y
+	 *            The y coordinate of the point
+	 * @return The handle of the point
+	 */
+	public int add(float x, float y) {
+		if (size == this.x.length) {
+			grow();
+		}
+		int handle = totalFreeHandles > 0 ? freeHandles[--totalFreeHandles] : totalHandles++;
+		int index = size++;
+		this.x[index] = x;
+		this.y[index] = y;
+		previousX[index] = x;
+		previousY[index] = y;
+		renderX[index] = x;
+		renderY[index] = y;
+		ids[index] = CollisionIdSequence.nextId();
+		handles[index] = handle;
+		indices[handle] = index;
+		return handle;
+	}
+
+	/**
+	 * Removes a point. The handle may be returned by {@link #add(float, float)}
+	 * for a new point afterwards.
+	 * 
+	 * @param handle
+	 *            The handle of the point
+	 * @return False if the handle was not in use
+	 */
+	public boolean remove(int handle) {
+		if (!contains(handle)) {
+			return false;
+		}
+		int index = indices[handle];
+		int last = --size;
+		if (index != last) {
+			x[index] = x[last];
+			y[index] = y[last];
+			previousX[index] = previousX[last];
+			previousY[index] = previousY[last];
+			renderX[index] = renderX[last];
+			renderY[index] = renderY[last];
+			ids[index] = ids[last];
+			handles[index] = handles[last];
+			indices[handles[index]] = index;
+		}
+		indices[handle] = NO_INDEX;
+		freeHandles[totalFreeHandles++] = handle;
+		return true;
+	}
+
+	/**
+	 * Removes all points
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			indices[handles[i]] = NO_INDEX;
+			freeHandles[totalFreeHandles++] = handles[i];
+		}
+		size = 0;
+	}
+
+	private void grow() {
+		int capacity = x.length * 2;
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		previousX = Arrays.copyOf(previousX, capacity);
+		previousY = Arrays.copyOf(previousY, capacity);
+		renderX = Arrays.copyOf(renderX, capacity);
+		renderY = Arrays.copyOf(renderY, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+		handles = Arrays.copyOf(handles, capacity);
+		indices = Arrays.copyOf(indices, capacity);
+		freeHandles = Arrays.copyOf(freeHandles, capacity);
+	}
+
+	/**
+	 * This method needs to be called at the start of each frame before any
+	 * points are moved
+	 */
+	public void preUpdate() {
+		System.arraycopy(x, 0, previousX, 0, size);
+		System.arraycopy(y, 0, previousY, 0, size);
+	}
+
+	/**
+	 * Interpolates the rendering position of every point between its
+	 * previous and current position
+	 * 
+	 * @param alpha
+	 *            The interpolation alpha between 0 and 1
+	 */
+	public void interpolate(float alpha) {
+		final float[] x = this.x, previousX = this.previousX, renderX = this.renderX;
+		final float[] y = this.y, previousY = this.previousY, renderY = this.renderY;
+		final int size = this.size;
+		for (int i = 0; i < size; i++) {
+			renderX[i] = previousX[i] + ((x[i] - previousX[i]) * alpha);
+		}
+		for (int i = 0; i < size; i++) {
+			renderY[i] = previousY[i] + ((y[i] - previousY[i]) * alpha);
+		}
+	}
+
+	/**
+	 * Calls a {@link PointCollisionListener} for each element of a
+	 * {@link QuadTree} that contains the current position of a point. The
+	 * listener may remove the point it was called for.
+	 * 
+	 * @param quadTree
+	 *            The {@link QuadTree} to test the points against
+	 * @param listener
+	 *            The {@link PointCollisionListener} to notify
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Positionable> void findCollisions(QuadTree<T> quadTree, PointCollisionListener<T> listener) {
+		collisionVisitor.listener = (PointCollisionListener<Positionable>) listener;
+		//Removing the current point only moves an already tested point
+		for (int i = size - 1; i >= 0; i--) {
+			queryPoint.set(x[i], y[i]);
+			collisionVisitor.handle = handles[i];
+			quadTree.forEachContainingPoint(queryPoint, (ElementVisitor<T>) collisionVisitor);
+		}
+		collisionVisitor.listener = null;
+	}
+
+	/**
+	 * Calls a {@link PointCollisionListener} for the first element of a
+	 * {@link QuadTree} each point touches when moving from its previous
+	 * position to its current position, so that fast moving points do not
+	 * pass through thin elements between updates. The listener may remove the
+	 * point it was called for.
+	 * 
+	 * @param quadTree
+	 *            The {@link QuadTree} to test the points against
+	 * @param result
+	 *            The {@link RaycastResult} to store each hit in. It holds the
+	 *            hit point when the listener is called.
+	 * @param listener
+	 *            The {@link PointCollisionListener} to notify
+	 */
+	public <T extends Positionable> void findSweptCollisions(QuadTree<T> quadTree, RaycastResult<T> result,
+			PointCollisionListener<T> listener) {
+		for (int i = size - 1; i >= 0; i--) {
+			if (x[i] == previousX[i] && y[i] == previousY[i]) {
+				continue;
+			}
+			queryLineSegment.set(previousX[i], previousY[i], x[i], y[i]);
+			if (quadTree.raycast(queryLineSegment, result)) {
+				listener.onCollision(handles[i], result.getElement());
+			}
+		}
+	}
+
+	/**
+	 * Returns if a handle refers to a point in this
+	 * {@link CollisionPointBuffer}
+	 * 
+	 * @param handle
+	 *            The handle of the point
+	 * @return True if the handle is in use
+	 */
+	public boolean contains(int handle) {
+		return handle >= 0 && handle < totalHandles && indices[handle] != NO_INDEX;
+	}
+
+	private int getIndex(int handle) {
+		if (!contains(handle)) {
+			throw new IllegalArgumentException("No point exists for handle " + handle);
+		}
+		return indices[handle];
+	}
+
+	/**
+	 * Sets the current position of a point
+	 * 
+	 * @param handle
+	 *            The handle of the point
+	 * @param x
+	 *            The x coordinate to set
+	 * @param y
+	 *            The y coordinate to set
+	 */
+	public void set(int handle, float x, float y) {
+		int index = getIndex(handle);
+		this.x[index] = x;
+		this.y[index] = y;
+	}
+
+	/**
+	 * Moves the current position of a point
+	 * 
+	 * @param handle
+	 *            The handle of the point
+	 * @param x
+	 *            The amount to add to the x coordinate
+	 * @param y
+	 *            The amount to add to the y coordinate
+	 */
+	public void translate(int handle, float x, float y) {
+		int index = getIndex(handle);
+		this.x[index] += x;
+		this.y[index] += y;
+	}
+
+	/**
+	 * Sets the current position of a point and force updates the previous
+	 * and rendering positions to match
+	 * 
+	 * @param handle
+	 *            The handle of the point
+	 * @param x
+	 *            The x coordinate to set
+	 * @param y
+	 *            The y coordinate to set
+	 */
+	public void forceTo(int handle, float x, float y) {
+		int index = getIndex(handle);
+		this.x[index] = x;
+		this.y[index] = y;
+		previousX[index] = x;
+		previousY[index] = y;
+		renderX[index] = x;
+		renderY[index] = y;
+	}
+
+	public float getX(int handle) {
+		return x[getIndex(handle)];
+	}
+
+	public float getY(int handle) {
+		return y[getIndex(handle)];
+	}
+
+	public float getRenderX(int handle) {
+		return renderX[getIndex(handle)];
+	}
+
+	public float getRenderY(int handle) {
+		return renderY[getIndex(handle)];
+	}
+
+	public long getId(int handle) {
+		return ids[getIndex(handle)];
+	}
+
+	/**
+	 * Returns the handle of the point stored at an index. Points are stored
+	 * from index 0 to {@link #size()} - 1 so this can be used to iterate over
+	 * all points. Removing a point changes the index of another point.
+	 * 
+	 * @param index
+	 *            The index between 0 and {@link #size()} - 1
+	 * @return The handle of the point
+	 */
+	public int getHandle(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not between 0 and " + size);
+		}
+		return handles[index];
+	}
+
+	/**
+	 * Returns the number of points
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Passes each element containing the point being tested to the
+	 * {@link PointCollisionListener}
+	 */
+	private class CollisionVisitor implements ElementVisitor<Positionable> {
+		private PointCollisionListener<Positionable> listener;
+		private int handle;
+
+		@Override
+		public boolean visit(Positionable element) {
+			return listener.onCollision(handle, element) && contains(handle);
+		}
+	}
+}
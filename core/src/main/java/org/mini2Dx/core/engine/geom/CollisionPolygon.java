@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.engine.geom;
+
+import org.mini2Dx.core.geom.Circle;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Parallelogram;
+import org.mini2Dx.core.geom.Polygon;
+import org.mini2Dx.core.geom.Rectangle;
+import org.mini2Dx.core.graphics.Graphics;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * A {@link CollisionBox} shaped as a convex {@link Polygon}. The
+ * {@link CollisionBox} is the bounding box of the {@link Polygon} and the
+ * vertices are stored relative to its (unrotated) top-left corner, so moving,
+ * rotating, resizing and interpolating the {@link CollisionBox} moves,
+ * rotates and scales the {@link Polygon} with it. {@link CollisionPolygon}s
+ * can be stored in a {@link org.mini2Dx.core.collisions.RegionQuadTree}
+ * alongside other {@link CollisionBox}es. Intersection and containment tests
+ * against a {@link CollisionPolygon} test against the {@link Polygon} itself.
+ * 
+ * The width and height must not be 0 when the {@link Polygon} is used.
+ */
+public class CollisionPolygon extends CollisionBox {
+	private static final long serialVersionUID = -3553196573830441547L;
+
+	private final Polygon polygon;
+	private final float[] localVertices;
+	private final float[] transformedVertices;
+	private final float initialWidth, initialHeight;
+	private float polygonWidth, polygonHeight, polygonRotation;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param x
+	 *            The x coordinate the vertices are relative to
+	 * @param y
+	 *            The y coordinate the vertices are relative to
+	 * @param vertices
+	 *            The x and y offsets of each vertex in order, e.g. x0, y0,
+	 *            x1, y1, x2, y2. The vertices must form a convex polygon.
+	 */
+	public CollisionPolygon(float x, float y, float[] vertices) {
+		this(new Polygon(x, y, vertices));
+	}
+
+	private CollisionPolygon(Polygon polygon) {
+		super(polygon.getMinX(), polygon.getMinY(), polygon.getWidth(), polygon.getHeight());
+		this.polygon = polygon;
+		initialWidth = polygon.getWidth();
+		initialHeight = polygon.getHeight();
+		polygonWidth = initialWidth;
+		polygonHeight = initialHeight;
+
+		int totalVertices = polygon.getNumberOfSides();
+		localVertices = new float[totalVertices * 2];
+		transformedVertices = new float[totalVertices * 2];
+		for (int i = 0; i < totalVertices; i++) {
+			localVertices[i * 2] = polygon.getVertexX(i) - polygon.getMinX();
+			localVertices[(i * 2) + 1] = polygon.getVertexY(i) - polygon.getMinY();
+		}
+		polygon.setVertices(localVertices);
+		polygon.setPosition(getX(), getY());
+	}
+
+	/**
+	 * Returns the {@link Polygon} at the current position, rotation and size
+	 * of this {@link CollisionPolygon}
+	 * 
+	 * @return The {@link Polygon} shape of this {@link CollisionPolygon}
+	 */
+	public Polygon getPolygon() {
+		return polygon;
+	}
+
+	/**
+	 * Moves, scales and rotates the {@link Polygon} with this
+	 * {@link CollisionPolygon} so that reading it does not modify it
+	 */
+	@Override
+	protected void boundsChanged() {
+		float width = getWidth(), height = getHeight(), rotation = getRotation();
+		if (width != polygonWidth || height != polygonHeight || rotation != polygonRotation) {
+			transformVertices(width, height, rotation);
+		}
+		//The vertices are relative to the (rotated) top-left corner
+		polygon.setPosition(getX(), getY());
+	}
+
+	@Override
+	protected boolean isBoundingBox() {
+		return true;
+	}
+
+	private void transformVertices(float width, float height, float rotation) {
+		float scaleX = width / initialWidth;
+		float scaleY = height / initialHeight;
+		float cos = 1f, sin = 0f;
+		if (rotation != 0f) {
+			cos = MathUtils.cos(rotation * MathUtils.degreesToRadians);
+			sin = MathUtils.sin(rotation * MathUtils.degreesToRadians);
+		}
+		for (int i = 0; i < localVertices.length; i += 2) {
+			float vertexX = localVertices[i] * scaleX;
+			float vertexY = localVertices[i + 1] * scaleY;
+			transformedVertices[i] = (cos * vertexX) - (sin * vertexY);
+			transformedVertices[i + 1] = (sin * vertexX) + (cos * vertexY);
+		}
+		polygon.setVertices(transformedVertices);
+		polygonWidth = width;
+		polygonHeight = height;
+		polygonRotation = rotation;
+	}
+
+	@Override
+	public boolean intersects(Rectangle rectangle) {
+		if (rectangle instanceof CollisionPolygon) {
+			return getPolygon().intersects(((CollisionPolygon) rectangle).getPolygon());
+		}
+		return getPolygon().intersects(rectangle);
+	}
+
+	@Override
+	public boolean intersects(Parallelogram parallelogram) {
+		if (parallelogram instanceof Rectangle) {
+			return intersects((Rectangle) parallelogram);
+		}
+		return super.intersects(parallelogram);
+	}
+
+	@Override
+	public boolean intersects(float x, float y, float width, float height) {
+		return getPolygon().intersects(x, y, width, height);
+	}
+
+	@Override
+	public boolean intersects(LineSegment lineSegment) {
+		return getPolygon().intersects(lineSegment);
+	}
+
+	/**
+	 * Returns if the specified {@link Circle} intersects this
+	 * {@link CollisionPolygon}
+	 * 
+	 * @param circle
+	 *            The {@link Circle} to test for intersection
+	 * @return True if the {@link Circle} and {@link CollisionPolygon}
+	 *         intersect
+	 */
+	public boolean intersects(Circle circle) {
+		return getPolygon().intersects(circle);
+	}
+
+	/**
+	 * Returns if the specified {@link Polygon} intersects this
+	 * {@link CollisionPolygon}
+	 * 
+	 * @param polygon
+	 *            The {@link Polygon} to test for intersection
+	 * @return True if the {@link Polygon}s intersect
+	 */
+	public boolean intersects(Polygon polygon) {
+		return getPolygon().intersects(polygon);
+	}
+
+	@Override
+	public float getIntersectionFraction(LineSegment lineSegment) {
+		return getPolygon().getIntersectionFraction(lineSegment);
+	}
+
+	@Override
+	public boolean contains(float x, float y) {
+		return getPolygon().contains(x, y);
+	}
+
+	@Override
+	public int getNumberOfSides() {
+		return polygon.getNumberOfSides();
+	}
+
+	@Override
+	public void draw(Graphics g) {
+		getPolygon().draw(g);
+	}
+
+	/**
+	 * Tests multiple {@link Rectangle}s for intersection with the
+	 * {@link Polygon}
+	 */
+	@Override
+	public int intersects(Rectangle[] candidates, int offset, int length, boolean[] results) {
+		int result = 0;
+		for (int i = 0; i < length; i++) {
+			Rectangle candidate = candidates[offset + i];
+			results[i] = candidate != null && intersects(candidate);
+			if (results[i]) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "CollisionPolygon [x=" + getX() + ", y=" + getY() + ", width=" + getWidth() + ", height="
+				+ getHeight() + ", sides=" + polygon.getNumberOfSides() + "]";
+	}
+}
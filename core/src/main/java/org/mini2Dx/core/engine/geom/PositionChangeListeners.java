@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.engine.geom;
+
+import org.mini2Dx.core.engine.PositionChangeListener;
+import org.mini2Dx.core.engine.Positionable;
+
+/**
+ * Manages the {@link PositionChangeListener}s of a collision shape stored in a
+ * single field without a per-instance lock. The field holds null when there
+ * are no listeners, the listener itself when there is only one or a
+ * copy-on-write array when there are several. Shapes replace the field with
+ * the result of {@link #add(Object, PositionChangeListener)} and
+ * {@link #remove(Object, PositionChangeListener)} using a compare-and-set so
+ * that listeners can be added and removed from multiple threads.
+ */
+final class PositionChangeListeners {
+
+	private PositionChangeListeners() {
+	}
+
+	/**
+	 * Returns the listeners with a listener added
+	 * 
+	 * @param listeners
+	 *            The current listeners field
+	 * @param listener
+	 *            The {@link PositionChangeListener} to add
+	 * @return The new listeners field
+	 */
+	static Object add(Object listeners, PositionChangeListener<?> listener) {
+		if (listeners == null) {
+			return listener;
+		}
+		if (!(listeners instanceof PositionChangeListener<?>[])) {
+			return new PositionChangeListener<?>[] { (PositionChangeListener<?>) listeners, listener };
+		}
+		PositionChangeListener<?>[] array = (PositionChangeListener<?>[]) listeners;
+		PositionChangeListener<?>[] result = new PositionChangeListener<?>[array.length + 1];
+		System.arraycopy(array, 0, result, 0, array.length);
+		result[array.length] = listener;
+		return result;
+	}
+
+	/**
+	 * Returns the listeners with the first occurrence of a listener removed
+	 * 
+	 * @param listeners
+	 *            The current listeners field
+	 * @param listener
+	 *            The {@link PositionChangeListener} to remove
+	 * @return The new listeners field
+	 */
+	static Object remove(Object listeners, PositionChangeListener<?> listener) {
+		if (listeners == listener) {
+			return null;
+		}
+		if (!(listeners instanceof PositionChangeListener<?>[])) {
+			return listeners;
+		}
+		PositionChangeListener<?>[] array = (PositionChangeListener<?>[]) listeners;
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] != listener) {
+				continue;
+			}
+			if (array.length == 2) {
+				return array[1 - i];
+			}
+			PositionChangeListener<?>[] result = new PositionChangeListener<?>[array.length - 1];
+			System.arraycopy(array, 0, result, 0, i);
+			System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+			return result;
+		}
+		return listeners;
+	}
+
+	/**
+	 * Notifies the listeners that a shape moved, most recently added first
+	 * 
+	 * @param listeners
+	 *            The current listeners field
+	 * @param moved
+	 *            The shape that moved
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static void notify(Object listeners, Positionable moved) {
+		if (listeners == null) {
+			return;
+		}
+		if (!(listeners instanceof PositionChangeListener<?>[])) {
+			((PositionChangeListener) listeners).positionChanged(moved);
+			return;
+		}
+		PositionChangeListener[] array = (PositionChangeListener[]) listeners;
+		for (int i = array.length - 1; i >= 0; i--) {
+			array[i].positionChanged(moved);
+		}
+	}
+}
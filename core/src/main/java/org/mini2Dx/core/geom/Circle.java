@@ -43,7 +43,10 @@ public class Circle implements Shape {
 	}
 
 	public boolean intersects(Circle circle) {
-		return center.dst(circle.center) <= radius + circle.radius;
+		final float distanceX = circle.center.x - center.x;
+		final float distanceY = circle.center.y - center.y;
+		final float radii = radius + circle.radius;
+		return (distanceX * distanceX) + (distanceY * distanceY) <= radii * radii;
 	}
 
 	public float getDistanceTo(Point point) {
@@ -16,12 +16,41 @@ import com.badlogic.gdx.math.Vector2;
 /**
  * Provides implementations for detecting intersections between geom package objects.
  * 
+ * The methods taking raw coordinates do not allocate and are used by the geom
+ * package objects themselves.
+ * 
  * Note: This exists because LibGDX implementations weren't accurate
  */
 public class Intersector {
 	public static boolean intersectLines(Vector2 p1, Vector2 p2, Vector2 p3, Vector2 p4, Vector2 intersection) {
-		float x1 = p1.x, y1 = p1.y, x2 = p2.x, y2 = p2.y, x3 = p3.x, y3 = p3.y, x4 = p4.x, y4 = p4.y;
+		return intersectLines(p1.x, p1.y, p2.x, p2.y, p3.x, p3.y, p4.x, p4.y, intersection);
+	}
 
+	/**
+	 * Returns the point at which two (infinite) lines intersect
+	 * 
+	 * @param x1
+	 *            The x coordinate of the first point on the first line
+	 * @param y1
+	 *            The y coordinate of the first point on the first line
+	 * @param x2
+	 *            The x coordinate of the second point on the first line
+	 * @param y2
+	 *            The y coordinate of the second point on the first line
+	 * @param x3
+	 *            The x coordinate of the first point on the second line
+	 * @param y3
+	 *            The y coordinate of the first point on the second line
+	 * @param x4
+	 *            The x coordinate of the second point on the second line
+	 * @param y4
+	 *            The y coordinate of the second point on the second line
+	 * @param intersection
+	 *            The {@link Vector2} to store the intersection in
+	 * @return False if the lines are parallel
+	 */
+	public static boolean intersectLines(float x1, float y1, float x2, float y2, float x3, float y3, float x4,
+			float y4, Vector2 intersection) {
 		float det3 = det(x1 - x2, y1 - y2, x3 - x4, y3 - y4);
 		if(det3 == 0)
 			return false;
@@ -37,6 +66,174 @@ public class Intersector {
 
 		return true;
 	}
+
+	/**
+	 * Returns if two line segments intersect
+	 * 
+	 * @param x1
+	 *            The x coordinate of point A of the first segment
+	 * @param y1
+	 *            The y coordinate of point A of the first segment
+	 * @param x2
+	 *            The x coordinate of point B of the first segment
+	 * @param y2
+	 *            The y coordinate of point B of the first segment
+	 * @param x3
+	 *            The x coordinate of point A of the second segment
+	 * @param y3
+	 *            The y coordinate of point A of the second segment
+	 * @param x4
+	 *            The x coordinate of point B of the second segment
+	 * @param y4
+	 *            The y coordinate of point B of the second segment
+	 * @return False if the segments do not intersect or either has zero length
+	 */
+	public static boolean intersectSegments(float x1, float y1, float x2, float y2, float x3, float y3, float x4,
+			float y4) {
+		// Return false if either of the lines have zero length
+		if (x1 == x2 && y1 == y2 || x3 == x4 && y3 == y4) {
+			return false;
+		}
+		// Fastest method, based on Franklin Antonio's
+		// "Faster Line Segment Intersection" topic "in Graphics Gems III" book
+		// (http://www.graphicsgems.org/)
+		float ax = x2 - x1;
+		float ay = y2 - y1;
+		float bx = x3 - x4;
+		float by = y3 - y4;
+		float cx = x1 - x3;
+		float cy = y1 - y3;
+
+		float alphaNumerator = by * cx - bx * cy;
+		float commonDenominator = ay * bx - ax * by;
+		if (commonDenominator > 0) {
+			if (alphaNumerator < 0 || alphaNumerator > commonDenominator) {
+				return false;
+			}
+		} else if (commonDenominator < 0) {
+			if (alphaNumerator > 0 || alphaNumerator < commonDenominator) {
+				return false;
+			}
+		}
+		float betaNumerator = ax * cy - ay * cx;
+		if (commonDenominator > 0) {
+			if (betaNumerator < 0 || betaNumerator > commonDenominator) {
+				return false;
+			}
+		} else if (commonDenominator < 0) {
+			if (betaNumerator > 0 || betaNumerator < commonDenominator) {
+				return false;
+			}
+		}
+		if (commonDenominator == 0) {
+			// This code wasn't in Franklin Antonio's method. It was added by
+			// Keith Woodward.
+			// The lines are parallel.
+			// Check if they're collinear.
+			float y3LessY1 = y3 - y1;
+			float collinearityTestForP3 = x1 * (y2 - y3) + x2 * (y3LessY1) + x3
+					* (y1 - y2); // see
+									// http://mathworld.wolfram.com/Collinear.html
+			// If p3 is collinear with p1 and p2 then p4 will also be collinear,
+			// since p1-p2 is parallel with p3-p4
+			if (collinearityTestForP3 == 0) {
+				// The lines are collinear. Now check if they overlap.
+				if (x1 >= x3 && x1 <= x4 || x1 <= x3 && x1 >= x4 || x2 >= x3
+						&& x2 <= x4 || x2 <= x3 && x2 >= x4 || x3 >= x1
+						&& x3 <= x2 || x3 <= x1 && x3 >= x2) {
+					if (y1 >= y3 && y1 <= y4 || y1 <= y3 && y1 >= y4
+							|| y2 >= y3 && y2 <= y4 || y2 <= y3 && y2 >= y4
+							|| y3 >= y1 && y3 <= y2 || y3 <= y1 && y3 >= y2) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if two line segments intersect and stores the point they
+	 * intersect at. Collinear segments that overlap store the first end point
+	 * within the overlap.
+	 * 
+	 * @param x1
+	 *            The x coordinate of point A of the first segment
+	 * @param y1
+	 *            The y coordinate of point A of the first segment
+	 * @param x2
+	 *            The x coordinate of point B of the first segment
+	 * @param y2
+	 *            The y coordinate of point B of the first segment
+	 * @param x3
+	 *            The x coordinate of point A of the second segment
+	 * @param y3
+	 *            The y coordinate of point A of the second segment
+	 * @param x4
+	 *            The x coordinate of point B of the second segment
+	 * @param y4
+	 *            The y coordinate of point B of the second segment
+	 * @param intersection
+	 *            The {@link Vector2} to store the intersection in. Unchanged
+	 *            if the segments do not intersect.
+	 * @return False if the segments do not intersect or either has zero length
+	 */
+	public static boolean intersectSegments(float x1, float y1, float x2, float y2, float x3, float y3, float x4,
+			float y4, Vector2 intersection) {
+		if (!intersectSegments(x1, y1, x2, y2, x3, y3, x4, y4)) {
+			return false;
+		}
+		if (intersectLines(x1, y1, x2, y2, x3, y3, x4, y4, intersection)) {
+			return true;
+		}
+		if (isPointOnSegment(x1, y1, x3, y3, x4, y4)) {
+			intersection.set(x1, y1);
+		} else if (isPointOnSegment(x2, y2, x3, y3, x4, y4)) {
+			intersection.set(x2, y2);
+		} else {
+			//The second segment is entirely within the first
+			intersection.set(x3, y3);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if a coordinate is on a line segment
+	 * 
+	 * @param x
+	 *            The x coordinate
+	 * @param y
+	 *            The y coordinate
+	 * @param x1
+	 *            The x coordinate of point A of the segment
+	 * @param y1
+	 *            The y coordinate of point A of the segment
+	 * @param x2
+	 *            The x coordinate of point B of the segment
+	 * @param y2
+	 *            The y coordinate of point B of the segment
+	 * @return False if the coordinate is not on the same line as the segment
+	 *         OR is not between its end points
+	 */
+	public static boolean isPointOnSegment(float x, float y, float x1, float y1, float x2, float y2) {
+		float areaOfTriangle = (x1 * (y2 - y) + x2 * (y - y1) + x
+				* (y1 - y2)) / 2f;
+		if (areaOfTriangle == 0f) {
+			if (x == x1 && y == y1)
+				return true;
+			if (x == x2 && y == y2)
+				return true;
+			if (x == x1) {
+				/* Same x axis */
+				return (y > y1 && y < y2) || (y > y2 && y < y1);
+			} else {
+				/* Same y axis */
+				return (x > x1 && x < x2) || (x > x2 && x < x1);
+			}
+		}
+		return false;
+	}
 	
 	private static float det (float a, float b, float c, float d) {
 		return (a * d) - (b * c);
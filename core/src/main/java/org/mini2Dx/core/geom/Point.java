@@ -55,13 +55,41 @@ public class Point extends Vector2 {
 		if (degrees == 0)
 			return;
 
+		rotateAround(x, y, center.x, center.y, degrees, this);
+	}
+
+	/**
+	 * Rotates a coordinate around another coordinate without allocating
+	 * 
+	 * @param x
+	 *            The x coordinate to rotate
+	 * @param y
+	 *            The y coordinate to rotate
+	 * @param centerX
+	 *            The x coordinate to rotate around
+	 * @param centerY
+	 *            The y coordinate to rotate around
+	 * @param degrees
+	 *            The angle to rotate by in degrees
+	 * @param result
+	 *            The {@link Vector2} to store the rotated coordinate in
+	 * @return The result {@link Vector2}
+	 */
+	public static <T extends Vector2> T rotateAround(float x, float y, float centerX, float centerY,
+			float degrees, T result) {
+		if (degrees == 0) {
+			result.set(x, y);
+			return result;
+		}
+
 		float cos = MathUtils.cos(degrees * MathUtils.degreesToRadians);
 		float sin = MathUtils.sin(degrees * MathUtils.degreesToRadians);
 
-		float newX = (cos * (x - center.x) - sin * (y - center.y) + center.x);
-		float newY = (sin * (x - center.x) + cos * (y - center.y) + center.y);
+		float newX = (cos * (x - centerX) - sin * (y - centerY) + centerX);
+		float newY = (sin * (x - centerX) + cos * (y - centerY) + centerY);
 
-		set(newX, newY);
+		result.set(newX, newY);
+		return result;
 	}
 
 	/**
@@ -75,22 +103,25 @@ public class Point extends Vector2 {
 	 *         is not between a and b on the same line
 	 */
 	public boolean isOnLineBetween(Point a, Point b) {
-		float areaOfTriangle = (a.x * (b.y - y) + b.x * (y - a.y) + x
-				* (a.y - b.y)) / 2f;
-		if (areaOfTriangle == 0f) {
-			if (x == a.x && y == a.y)
-				return true;
-			if (x == b.x && y == b.y)
-				return true;
-			if (x == a.x) {
-				/* Same x axis */
-				return (y > a.y && y < b.y) || (y > b.y && y < a.y);
-			} else {
-				/* Same y axis */
-				return (x > a.x && x < b.x) || (x > b.x && x < a.x);
-			}
-		}
-		return false;
+		return isOnLineBetween(x, y, a, b);
+	}
+
+	/**
+	 * Returns if a coordinate is between a and b on a line
+	 * 
+	 * @param x
+	 *            The x coordinate
+	 * @param y
+	 *            The y coordinate
+	 * @param a
+	 *            {@link Point} a on a line
+	 * @param b
+	 *            {@link Point} b on a line
+	 * @return False if the coordinate is not on the same line as a and b OR is
+	 *         not between a and b on the same line
+	 */
+	public static boolean isOnLineBetween(float x, float y, Point a, Point b) {
+		return Intersector.isPointOnSegment(x, y, a.x, a.y, b.x, b.y);
 	}
 
 	/**
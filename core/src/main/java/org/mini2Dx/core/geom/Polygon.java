@@ -0,0 +1,547 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.geom;
+
+import org.mini2Dx.core.graphics.Graphics;
+
+/**
+ * Implements a convex polygon. The vertices are relative to the polygon's x
+ * and y coordinate so moving the polygon does not change its shape.
+ * 
+ * The edge normals, the distance of each edge from the polygon's position and
+ * the min/max offsets of the vertices are computed once when the vertices are
+ * set. Intersection tests compare the min/max bounds first and then use
+ * the separating axis theorem without allocating.
+ */
+public class Polygon implements Shape {
+	private float[] vertices;
+	private float[] normals;
+	private float[] edgeDistances;
+	private float minOffsetX, minOffsetY, maxOffsetX, maxOffsetY;
+	private float x, y;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param x
+	 *            The x coordinate the vertices are relative to
+	 * @param y
+	 *            The y coordinate the vertices are relative to
+	 * @param vertices
+	 *            The x and y offsets of each vertex in order, e.g. x0, y0,
+	 *            x1, y1, x2, y2. The vertices can be in clockwise or
+	 *            counter-clockwise order but must form a convex polygon.
+	 */
+	public Polygon(float x, float y, float[] vertices) {
+		this.x = x;
+		this.y = y;
+		setVertices(vertices);
+	}
+
+	/**
+	 * Replaces the vertices of this {@link Polygon}. No memory is allocated
+	 * if the number of vertices is unchanged.
+	 * 
+	 * @param vertices
+	 *            The x and y offsets of each vertex in order, relative to the
+	 *            polygon's x and y coordinate. The vertices can be in
+	 *            clockwise or counter-clockwise order but must form a convex
+	 *            polygon.
+	 */
+	public void setVertices(float[] vertices) {
+		if (vertices.length < 6 || vertices.length % 2 != 0) {
+			throw new IllegalArgumentException(
+					"A polygon requires at least 3 vertices as x,y pairs. [Values: " + vertices.length + "]");
+		}
+		int totalVertices = vertices.length / 2;
+		float area = 0f;
+		float minOffsetX = vertices[0], minOffsetY = vertices[1];
+		float maxOffsetX = vertices[0], maxOffsetY = vertices[1];
+		for (int i = 0; i < totalVertices; i++) {
+			float vertexX = vertices[i * 2];
+			float vertexY = vertices[(i * 2) + 1];
+			int next = ((i + 1) % totalVertices) * 2;
+			area += (vertexX * vertices[next + 1]) - (vertices[next] * vertexY);
+
+			minOffsetX = vertexX < minOffsetX ? vertexX : minOffsetX;
+			minOffsetY = vertexY < minOffsetY ? vertexY : minOffsetY;
+			maxOffsetX = vertexX > maxOffsetX ? vertexX : maxOffsetX;
+			maxOffsetY = vertexY > maxOffsetY ? vertexY : maxOffsetY;
+		}
+		if (area == 0f) {
+			throw new IllegalArgumentException("A polygon's vertices must not all be on a single line");
+		}
+
+		//Orient the normals outwards regardless of the order of the vertices
+		float winding = area > 0f ? 1f : -1f;
+		for (int i = 0; i < totalVertices; i++) {
+			int next = ((i + 1) % totalVertices) * 2;
+			int afterNext = ((i + 2) % totalVertices) * 2;
+			float edgeX = vertices[next] - vertices[i * 2];
+			float edgeY = vertices[next + 1] - vertices[(i * 2) + 1];
+			float nextEdgeX = vertices[afterNext] - vertices[next];
+			float nextEdgeY = vertices[afterNext + 1] - vertices[next + 1];
+			if (((edgeX * nextEdgeY) - (edgeY * nextEdgeX)) * winding < 0f) {
+				throw new IllegalArgumentException("A polygon's vertices must form a convex polygon");
+			}
+		}
+
+		if (this.vertices == null || this.vertices.length != vertices.length) {
+			this.vertices = new float[vertices.length];
+			normals = new float[vertices.length];
+			edgeDistances = new float[totalVertices];
+		}
+		System.arraycopy(vertices, 0, this.vertices, 0, vertices.length);
+		this.minOffsetX = minOffsetX;
+		this.minOffsetY = minOffsetY;
+		this.maxOffsetX = maxOffsetX;
+		this.maxOffsetY = maxOffsetY;
+
+		for (int i = 0; i < totalVertices; i++) {
+			int next = ((i + 1) % totalVertices) * 2;
+			float edgeX = vertices[next] - vertices[i * 2];
+			float edgeY = vertices[next + 1] - vertices[(i * 2) + 1];
+			float length = (float) Math.sqrt((edgeX * edgeX) + (edgeY * edgeY));
+			if (length == 0f) {
+				//Duplicate vertices do not add an axis
+				normals[i * 2] = 0f;
+				normals[(i * 2) + 1] = 0f;
+				edgeDistances[i] = 0f;
+				continue;
+			}
+			float normalX = (edgeY / length) * winding;
+			float normalY = (-edgeX / length) * winding;
+			normals[i * 2] = normalX;
+			normals[(i * 2) + 1] = normalY;
+			edgeDistances[i] = (vertices[i * 2] * normalX) + (vertices[(i * 2) + 1] * normalY);
+		}
+	}
+
+	/**
+	 * Returns if the specified point is inside or on the edge of this
+	 * {@link Polygon}
+	 * 
+	 * @param x
+	 *            The x coordinate of the point
+	 * @param y
+	 *            The y coordinate of the point
+	 * @return True if the point is within this {@link Polygon}
+	 */
+	public boolean contains(float x, float y) {
+		float offsetX = x - this.x;
+		float offsetY = y - this.y;
+		for (int i = 0; i < edgeDistances.length; i++) {
+			if ((offsetX * normals[i * 2]) + (offsetY * normals[(i * 2) + 1]) > edgeDistances[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if the specified {@link Point} is inside or on the edge of this
+	 * {@link Polygon}
+	 * 
+	 * @param point
+	 *            The {@link Point} to test
+	 * @return True if the {@link Point} is within this {@link Polygon}
+	 */
+	public boolean contains(Point point) {
+		return contains(point.x, point.y);
+	}
+
+	/**
+	 * Returns if the specified {@link Rectangle} intersects this
+	 * {@link Polygon}
+	 * 
+	 * @param rectangle
+	 *            The {@link Rectangle} to test for intersection
+	 * @return True if the {@link Rectangle} and {@link Polygon} intersect
+	 */
+	public boolean intersects(Rectangle rectangle) {
+		if (getMaxX() < rectangle.getMinX() || rectangle.getMaxX() < getMinX() || getMaxY() < rectangle.getMinY()
+				|| rectangle.getMaxY() < getMinY()) {
+			return false;
+		}
+		return intersects(rectangle.x, rectangle.y, rectangle.width, rectangle.height, rectangle.cos,
+				rectangle.sin);
+	}
+
+	/**
+	 * Returns if the specified unrotated rectangle intersects this
+	 * {@link Polygon}
+	 * 
+	 * @param x
+	 *            The x coordinate of the rectangle
+	 * @param y
+	 *            The y coordinate of the rectangle
+	 * @param width
+	 *            The width of the rectangle
+	 * @param height
+	 *            The height of the rectangle
+	 * @return True if the rectangle and {@link Polygon} intersect
+	 */
+	public boolean intersects(float x, float y, float width, float height) {
+		if (getMaxX() < x || x + width < getMinX() || getMaxY() < y || y + height < getMinY()) {
+			return false;
+		}
+		return intersects(x, y, width, height, 1f, 0f);
+	}
+
+	/**
+	 * Returns if a rectangle rotated around its top-left corner intersects
+	 * this {@link Polygon}. The min/max bounds must already overlap.
+	 */
+	private boolean intersects(float rectangleX, float rectangleY, float rectangleWidth, float rectangleHeight,
+			float cos, float sin) {
+		float widthX = cos * rectangleWidth, widthY = sin * rectangleWidth;
+		float heightX = -sin * rectangleHeight, heightY = cos * rectangleHeight;
+		for (int i = 0; i < edgeDistances.length; i++) {
+			float normalX = normals[i * 2];
+			float normalY = normals[(i * 2) + 1];
+			float widthProjection = (widthX * normalX) + (widthY * normalY);
+			float heightProjection = (heightX * normalX) + (heightY * normalY);
+			float minProjection = ((rectangleX - x) * normalX) + ((rectangleY - y) * normalY)
+					+ (widthProjection < 0f ? widthProjection : 0f) + (heightProjection < 0f ? heightProjection : 0f);
+			if (minProjection > edgeDistances[i]) {
+				return false;
+			}
+		}
+		//The bounds comparison already tested the axes of unrotated rectangles
+		if (sin == 0f) {
+			return true;
+		}
+		float origin = (rectangleX * cos) + (rectangleY * sin);
+		if (isSeparated(cos, sin, origin, origin + rectangleWidth)) {
+			return false;
+		}
+		origin = (rectangleY * cos) - (rectangleX * sin);
+		return !isSeparated(-sin, cos, origin, origin + rectangleHeight);
+	}
+
+	/**
+	 * Returns if the specified {@link Circle} intersects this {@link Polygon}
+	 * 
+	 * @param circle
+	 *            The {@link Circle} to test for intersection
+	 * @return True if the {@link Circle} and {@link Polygon} intersect
+	 */
+	public boolean intersects(Circle circle) {
+		float radius = circle.getRadius();
+		float centerX = circle.getX();
+		float centerY = circle.getY();
+		if (getMaxX() < centerX - radius || centerX + radius < getMinX() || getMaxY() < centerY - radius
+				|| centerY + radius < getMinY()) {
+			return false;
+		}
+		float offsetX = centerX - x;
+		float offsetY = centerY - y;
+		for (int i = 0; i < edgeDistances.length; i++) {
+			if ((offsetX * normals[i * 2]) + (offsetY * normals[(i * 2) + 1]) - radius > edgeDistances[i]) {
+				return false;
+			}
+		}
+		//The remaining axis is from the nearest vertex to the circle's center
+		float axisX = 0f, axisY = 0f;
+		float nearestDistance = Float.MAX_VALUE;
+		for (int i = 0; i < vertices.length; i += 2) {
+			float distanceX = offsetX - vertices[i];
+			float distanceY = offsetY - vertices[i + 1];
+			float distance = (distanceX * distanceX) + (distanceY * distanceY);
+			if (distance < nearestDistance) {
+				nearestDistance = distance;
+				axisX = distanceX;
+				axisY = distanceY;
+			}
+		}
+		if (nearestDistance == 0f) {
+			return true;
+		}
+		float length = (float) Math.sqrt(nearestDistance);
+		axisX /= length;
+		axisY /= length;
+		float centerProjection = (centerX * axisX) + (centerY * axisY);
+		return !isSeparated(axisX, axisY, centerProjection - radius, centerProjection + radius);
+	}
+
+	/**
+	 * Returns if the specified {@link LineSegment} intersects this
+	 * {@link Polygon}
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} to test for intersection
+	 * @return True if the {@link LineSegment} and {@link Polygon} intersect
+	 */
+	public boolean intersects(LineSegment lineSegment) {
+		return intersectsLineSegment(lineSegment.pointA.x, lineSegment.pointA.y, lineSegment.pointB.x,
+				lineSegment.pointB.y);
+	}
+
+	/**
+	 * Returns if the specified line segment intersects this {@link Polygon}
+	 * 
+	 * @param x1
+	 *            The x coordinate of the start of the line segment
+	 * @param y1
+	 *            The y coordinate of the start of the line segment
+	 * @param x2
+	 *            The x coordinate of the end of the line segment
+	 * @param y2
+	 *            The y coordinate of the end of the line segment
+	 * @return True if the line segment and {@link Polygon} intersect
+	 */
+	public boolean intersectsLineSegment(float x1, float y1, float x2, float y2) {
+		if (getMaxX() < (x1 < x2 ? x1 : x2) || (x1 > x2 ? x1 : x2) < getMinX()
+				|| getMaxY() < (y1 < y2 ? y1 : y2) || (y1 > y2 ? y1 : y2) < getMinY()) {
+			return false;
+		}
+		for (int i = 0; i < edgeDistances.length; i++) {
+			float normalX = normals[i * 2];
+			float normalY = normals[(i * 2) + 1];
+			float projection1 = ((x1 - x) * normalX) + ((y1 - y) * normalY);
+			float projection2 = ((x2 - x) * normalX) + ((y2 - y) * normalY);
+			if ((projection1 < projection2 ? projection1 : projection2) > edgeDistances[i]) {
+				return false;
+			}
+		}
+		float axisX = y1 - y2;
+		float axisY = x2 - x1;
+		float projection = (x1 * axisX) + (y1 * axisY);
+		return !isSeparated(axisX, axisY, projection, projection);
+	}
+
+	/**
+	 * Returns if the specified {@link Polygon} intersects this one
+	 * 
+	 * @param polygon
+	 *            The {@link Polygon} to test for intersection
+	 * @return True if the {@link Polygon}s intersect
+	 */
+	public boolean intersects(Polygon polygon) {
+		if (getMaxX() < polygon.getMinX() || polygon.getMaxX() < getMinX() || getMaxY() < polygon.getMinY()
+				|| polygon.getMaxY() < getMinY()) {
+			return false;
+		}
+		return !hasSeparatingAxis(polygon) && !polygon.hasSeparatingAxis(this);
+	}
+
+	/**
+	 * Returns if one of the edge normals of this {@link Polygon} separates it
+	 * from another {@link Polygon}
+	 */
+	private boolean hasSeparatingAxis(Polygon polygon) {
+		float offsetX = polygon.x - x;
+		float offsetY = polygon.y - y;
+		for (int i = 0; i < edgeDistances.length; i++) {
+			float normalX = normals[i * 2];
+			float normalY = normals[(i * 2) + 1];
+			float minProjection = Float.MAX_VALUE;
+			for (int j = 0; j < polygon.vertices.length; j += 2) {
+				float projection = ((offsetX + polygon.vertices[j]) * normalX)
+						+ ((offsetY + polygon.vertices[j + 1]) * normalY);
+				minProjection = projection < minProjection ? projection : minProjection;
+			}
+			if (minProjection > edgeDistances[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns if the projection of this {@link Polygon} onto an axis does not
+	 * overlap the specified projection
+	 */
+	private boolean isSeparated(float axisX, float axisY, float min, float max) {
+		float minProjection = Float.MAX_VALUE;
+		float maxProjection = -Float.MAX_VALUE;
+		for (int i = 0; i < vertices.length; i += 2) {
+			float projection = ((x + vertices[i]) * axisX) + ((y + vertices[i + 1]) * axisY);
+			minProjection = projection < minProjection ? projection : minProjection;
+			maxProjection = projection > maxProjection ? projection : maxProjection;
+		}
+		return max < minProjection || maxProjection < min;
+	}
+
+	/**
+	 * Returns how far along a {@link LineSegment} it first touches this
+	 * {@link Polygon}
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} to test
+	 * @return 0 if the start of the {@link LineSegment} is within this
+	 *         {@link Polygon}, up to 1 if the {@link LineSegment} touches this
+	 *         {@link Polygon} or -1 if they do not intersect
+	 */
+	public float getIntersectionFraction(LineSegment lineSegment) {
+		float x1 = lineSegment.pointA.x, y1 = lineSegment.pointA.y;
+		if (contains(x1, y1)) {
+			return 0f;
+		}
+		float segmentX = lineSegment.pointB.x - x1;
+		float segmentY = lineSegment.pointB.y - y1;
+		int totalVertices = edgeDistances.length;
+		float result = -1f;
+		for (int i = 0; i < totalVertices; i++) {
+			int next = ((i + 1) % totalVertices) * 2;
+			float edgeX = vertices[next] - vertices[i * 2];
+			float edgeY = vertices[next + 1] - vertices[(i * 2) + 1];
+			float denominator = (segmentX * edgeY) - (segmentY * edgeX);
+			if (denominator == 0f) {
+				//Parallel edges are touched by the adjacent edges first
+				continue;
+			}
+			float offsetX = x + vertices[i * 2] - x1;
+			float offsetY = y + vertices[(i * 2) + 1] - y1;
+			float fraction = ((offsetX * edgeY) - (offsetY * edgeX)) / denominator;
+			float edgeFraction = ((offsetX * segmentY) - (offsetY * segmentX)) / denominator;
+			if (fraction < 0f || fraction > 1f || edgeFraction < 0f || edgeFraction > 1f) {
+				continue;
+			}
+			if (result < 0f || fraction < result) {
+				result = fraction;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @see Shape#getNumberOfSides()
+	 */
+	@Override
+	public int getNumberOfSides() {
+		return edgeDistances.length;
+	}
+
+	/**
+	 * @see Shape#draw(Graphics)
+	 */
+	@Override
+	public void draw(Graphics g) {
+		int totalVertices = edgeDistances.length;
+		for (int i = 0; i < totalVertices; i++) {
+			int next = ((i + 1) % totalVertices) * 2;
+			g.drawLineSegment(x + vertices[i * 2], y + vertices[(i * 2) + 1], x + vertices[next],
+					y + vertices[next + 1]);
+		}
+	}
+
+	/**
+	 * Returns the x coordinate of a vertex
+	 * 
+	 * @param index
+	 *            The index of the vertex
+	 * @return The x coordinate of the vertex
+	 */
+	public float getVertexX(int index) {
+		return x + vertices[index * 2];
+	}
+
+	/**
+	 * Returns the y coordinate of a vertex
+	 * 
+	 * @param index
+	 *            The index of the vertex
+	 * @return The y coordinate of the vertex
+	 */
+	public float getVertexY(int index) {
+		return y + vertices[(index * 2) + 1];
+	}
+
+	/**
+	 * Returns the x coordinate the vertices are relative to
+	 */
+	@Override
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate the vertices are relative to
+	 */
+	@Override
+	public float getY() {
+		return y;
+	}
+
+	public void setX(float x) {
+		this.x = x;
+	}
+
+	public void setY(float y) {
+		this.y = y;
+	}
+
+	public void setPosition(float x, float y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Returns the least x coordinate of this {@link Polygon}
+	 * 
+	 * @return
+	 */
+	public float getMinX() {
+		return x + minOffsetX;
+	}
+
+	/**
+	 * Returns the least y coordinate of this {@link Polygon}
+	 * 
+	 * @return
+	 */
+	public float getMinY() {
+		return y + minOffsetY;
+	}
+
+	/**
+	 * Returns the greatest x coordinate of this {@link Polygon}
+	 * 
+	 * @return
+	 */
+	public float getMaxX() {
+		return x + maxOffsetX;
+	}
+
+	/**
+	 * Returns the greatest y coordinate of this {@link Polygon}
+	 * 
+	 * @return
+	 */
+	public float getMaxY() {
+		return y + maxOffsetY;
+	}
+
+	/**
+	 * Returns the width of the bounds of this {@link Polygon}
+	 * 
+	 * @return
+	 */
+	public float getWidth() {
+		return maxOffsetX - minOffsetX;
+	}
+
+	/**
+	 * Returns the height of the bounds of this {@link Polygon}
+	 * 
+	 * @return
+	 */
+	public float getHeight() {
+		return maxOffsetY - minOffsetY;
+	}
+
+	@Override
+	public String toString() {
+		return "Polygon [x=" + x + ", y=" + y + ", vertices=" + edgeDistances.length + "]";
+	}
+}
@@ -20,17 +20,32 @@ import org.mini2Dx.core.engine.PositionChangeListener;
 import org.mini2Dx.core.engine.Positionable;
 import org.mini2Dx.core.graphics.Graphics;
 
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 
 /**
  * Implements a rotatable rectangle. Adds extra functionality to the default
  * rectangle implementation in LibGDX
+ * 
+ * The x and y coordinates are always the (rotated) top-left corner. The other
+ * corners, the center and the min/max coordinates are only computed when they
+ * are requested after a change and the sine and cosine of the rotation are
+ * only computed when the rotation changes. When the {@link Rectangle} is not
+ * rotated, no rotation math is performed at all.
  */
 public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 		Parallelogram {
 	private static final long serialVersionUID = 4016090439885217620L;
 	private float rotation;
-	Point topLeft, topRight, bottomLeft, bottomRight, center, rotationalCenter;
+	float cos = 1f, sin = 0f;
+	/**
+	 * The point rotations are performed around or null if rotations are
+	 * performed around the top-left corner
+	 */
+	private Point rotationalCenter;
+	Point topLeft, topRight, bottomLeft, bottomRight, center;
+	private boolean cornersDirty = true;
+	private boolean minMaxDirty = true;
 	private float minX, minY, maxX, maxY;
 
 	/**
@@ -55,13 +70,6 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	public Rectangle(float x, float y, float width, float height) {
 		super(x, y, width, height);
-		topLeft = new Point(x, y);
-		topRight = new Point(x + width, y);
-		bottomLeft = new Point(x, y + height);
-		bottomRight = new Point(x + width, y + height);
-		center = new Point(x + (width / 2f), y + (height / 2f));
-		rotationalCenter = topLeft;
-		recalculateMinMax();
 	}
 
 	/**
@@ -73,6 +81,8 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	public void debug(Graphics g) {
 		this.draw(g);
+		updateCorners();
+		Point rotationalCenter = this.rotationalCenter == null ? topLeft : this.rotationalCenter;
 		g.drawLineSegment(topLeft.x, topLeft.y, rotationalCenter.x,
 				rotationalCenter.y);
 		g.drawLineSegment(topRight.x, topRight.y, rotationalCenter.x,
@@ -103,35 +113,144 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 		return this;
 	}
 
-	private void recalculateCoordinates() {
-		topLeft.set(x, y);
-		topRight.set(x + width, y);
-		bottomLeft.set(x, y + height);
-		bottomRight.set(x + width, y + height);
-		center.set(x + (width / 2f), y + (height / 2f));
+	/**
+	 * Returns true if the unrotated and rotated top-left corners are the same,
+	 * i.e. there is no rotation or rotations are performed around the top-left
+	 * corner
+	 */
+	private boolean isTopLeftUnrotated() {
+		return rotation == 0f || rotationalCenter == null;
+	}
+
+	/**
+	 * Returns the x coordinate of the top-left corner before rotation
+	 */
+	private float getUnrotatedX() {
+		if (isTopLeftUnrotated()) {
+			return x;
+		}
+		return (cos * (x - rotationalCenter.x)) + (sin * (y - rotationalCenter.y)) + rotationalCenter.x;
+	}
+
+	/**
+	 * Returns the y coordinate of the top-left corner before rotation
+	 */
+	private float getUnrotatedY() {
+		if (isTopLeftUnrotated()) {
+			return y;
+		}
+		return (cos * (y - rotationalCenter.y)) - (sin * (x - rotationalCenter.x)) + rotationalCenter.y;
+	}
+
+	/**
+	 * Sets the position and size of this {@link Rectangle} before rotation
+	 * and then applies the current rotation around the rotational center
+	 */
+	private void setUnrotated(float unrotatedX, float unrotatedY, float width, float height) {
+		this.width = width;
+		this.height = height;
+		if (isTopLeftUnrotated()) {
+			this.x = unrotatedX;
+			this.y = unrotatedY;
+		} else {
+			float offsetX = unrotatedX - rotationalCenter.x;
+			float offsetY = unrotatedY - rotationalCenter.y;
+			this.x = (cos * offsetX) - (sin * offsetY) + rotationalCenter.x;
+			this.y = (sin * offsetX) + (cos * offsetY) + rotationalCenter.y;
+		}
+		cornersDirty = true;
+		minMaxDirty = true;
+		boundsChanged();
+	}
+
+	private void setRotationValue(float degrees) {
+		rotation = degrees;
+		if (degrees == 0f) {
+			cos = 1f;
+			sin = 0f;
+		} else {
+			cos = MathUtils.cos(degrees * MathUtils.degreesToRadians);
+			sin = MathUtils.sin(degrees * MathUtils.degreesToRadians);
+		}
+		cornersDirty = true;
+		minMaxDirty = true;
+		boundsChanged();
+	}
+
+	/**
+	 * Called after the position, size or rotation of this {@link Rectangle}
+	 * changes
+	 */
+	protected void boundsChanged() {
+	}
+
+	/**
+	 * Returns true if this {@link Rectangle} is the bounding box of another
+	 * shape. Other {@link Rectangle}s then use its
+	 * {@link #intersects(Rectangle)} so that the result is the same in both
+	 * directions.
+	 * 
+	 * @return False by default
+	 */
+	protected boolean isBoundingBox() {
+		return false;
 	}
 
-	private void recalculateMinMax() {
-		minX = topLeft.getX();
-		minY = topLeft.getY();
-		maxX = bottomRight.getX();
-		maxY = bottomRight.getY();
+	/**
+	 * Computes the corners and center of this {@link Rectangle} if they are
+	 * out of date
+	 */
+	void updateCorners() {
+		if (!cornersDirty) {
+			return;
+		}
+		if (topLeft == null) {
+			topLeft = new Point();
+			topRight = new Point();
+			bottomLeft = new Point();
+			bottomRight = new Point();
+			center = new Point();
+		}
+		float widthX = cos * width;
+		float widthY = sin * width;
+		float heightX = -sin * height;
+		float heightY = cos * height;
 
-		checkAgainstMinMax(topLeft);
-		checkAgainstMinMax(topRight);
-		checkAgainstMinMax(bottomLeft);
-		checkAgainstMinMax(bottomRight);
+		topLeft.set(x, y);
+		topRight.set(x + widthX, y + widthY);
+		bottomLeft.set(x + heightX, y + heightY);
+		bottomRight.set(x + widthX + heightX, y + widthY + heightY);
+		center.set(x + ((widthX + heightX) / 2f), y + ((widthY + heightY) / 2f));
+		cornersDirty = false;
 	}
 
-	private void checkAgainstMinMax(Point p) {
-		if (p.getX() < minX)
-			minX = p.getX();
-		if (p.getX() > maxX)
-			maxX = p.getX();
-		if (p.getY() < minY)
-			minY = p.getY();
-		if (p.getY() > maxY)
-			maxY = p.getY();
+	/**
+	 * Computes the min/max coordinates of this {@link Rectangle} if they are
+	 * out of date
+	 */
+	private void updateMinMax() {
+		if (!minMaxDirty) {
+			return;
+		}
+		if (rotation == 0f) {
+			minX = width < 0f ? x + width : x;
+			minY = height < 0f ? y + height : y;
+			maxX = width < 0f ? x : x + width;
+			maxY = height < 0f ? y : y + height;
+			minMaxDirty = false;
+			return;
+		}
+		float widthX = cos * width;
+		float widthY = sin * width;
+		float heightX = -sin * height;
+		float heightY = cos * height;
+
+		//Each corner is offset from the top-left corner by the width, the height or both
+		minX = x + (widthX < 0f ? widthX : 0f) + (heightX < 0f ? heightX : 0f);
+		minY = y + (widthY < 0f ? widthY : 0f) + (heightY < 0f ? heightY : 0f);
+		maxX = x + (widthX > 0f ? widthX : 0f) + (heightX > 0f ? heightX : 0f);
+		maxY = y + (widthY > 0f ? widthY : 0f) + (heightY > 0f ? heightY : 0f);
+		minMaxDirty = false;
 	}
 
 	public float getDistanceTo(Point point) {
@@ -139,6 +258,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	}
 	
 	public float getDistanceTo(float x, float y) {
+		updateCorners();
 	    float topLeftDist = topLeft.getDistanceTo(x, y);
 	    float bottomLeftDist = bottomLeft.getDistanceTo(x, y);
 	    float topRightDist = topRight.getDistanceTo(x, y);
@@ -164,17 +284,16 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	@Override
 	public void setRotation(float degrees) {
-		setRotationAround(topLeft, degrees);
+		setRotationAround(null, degrees);
 	}
 	
 	private void internalSetRotationAround(Point center, float degrees) {
-		//TODO: This operation is very expensive, can this be optimised somehow?
 		degrees = degrees % 360;
-		performRotation(-rotation);
-		rotation = degrees;
+		float unrotatedX = getUnrotatedX();
+		float unrotatedY = getUnrotatedY();
 		rotationalCenter = center;
-		performRotation(rotation);
-		recalculateMinMax();
+		setRotationValue(degrees);
+		setUnrotated(unrotatedX, unrotatedY, width, height);
 	}
 
 	/**
@@ -190,7 +309,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	@Override
 	public void rotate(float degrees) {
-		rotateAround(topLeft, degrees);
+		rotateAround(null, degrees);
 	}
 
 	/**
@@ -198,26 +317,20 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	@Override
 	public void rotateAround(Point center, float degrees) {
-		rotationalCenter = center;
-		performRotation(degrees);
-		rotation += (degrees % 360);
-		recalculateMinMax();
+		internalRotateAround(center, degrees);
 	}
 
-	private void performRotation(float degrees) {
-		if (degrees == 0f)
-			return;
-
-		topRight.rotateAround(rotationalCenter, degrees);
-		bottomLeft.rotateAround(rotationalCenter, degrees);
-		bottomRight.rotateAround(rotationalCenter, degrees);
-		this.center.rotateAround(rotationalCenter, degrees);
-
-		if (!rotationalCenter.equals(topLeft)) {
-			topLeft.rotateAround(rotationalCenter, degrees);
+	private void internalRotateAround(Point center, float degrees) {
+		rotationalCenter = center;
+		if (center != null && degrees != 0f) {
+			float cos = MathUtils.cos(degrees * MathUtils.degreesToRadians);
+			float sin = MathUtils.sin(degrees * MathUtils.degreesToRadians);
+			float offsetX = x - center.x;
+			float offsetY = y - center.y;
+			x = (cos * offsetX) - (sin * offsetY) + center.x;
+			y = (sin * offsetX) + (cos * offsetY) + center.y;
 		}
-		super.setX(topLeft.x);
-		super.setY(topLeft.y);
+		setRotationValue(rotation + (degrees % 360));
 	}
 
 	/**
@@ -225,46 +338,199 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	@Override
 	public boolean intersects(LineSegment lineSegment) {
-		if (lineSegment.intersectsLineSegment(topLeft.x, topLeft.y,
-				bottomLeft.x, bottomLeft.y)) {
+		float x1 = lineSegment.pointA.x, y1 = lineSegment.pointA.y;
+		float x2 = lineSegment.pointB.x, y2 = lineSegment.pointB.y;
+		float topRightX = x + (cos * width), topRightY = y + (sin * width);
+		float bottomLeftX = x - (sin * height), bottomLeftY = y + (cos * height);
+		float bottomRightX = topRightX - (sin * height), bottomRightY = topRightY + (cos * height);
+
+		if (Intersector.intersectSegments(x1, y1, x2, y2, x, y, bottomLeftX, bottomLeftY)) {
 			return true;
 		}
-		if (lineSegment.intersectsLineSegment(bottomLeft.x, bottomLeft.y,
-				bottomRight.x, bottomRight.y)) {
+		if (Intersector.intersectSegments(x1, y1, x2, y2, bottomLeftX, bottomLeftY, bottomRightX, bottomRightY)) {
 			return true;
 		}
-		if (lineSegment.intersectsLineSegment(bottomRight.x, bottomRight.y,
-				topRight.x, topRight.y)) {
+		if (Intersector.intersectSegments(x1, y1, x2, y2, bottomRightX, bottomRightY, topRightX, topRightY)) {
 			return true;
 		}
-		if (lineSegment.intersectsLineSegment(topRight.x, topRight.y,
-				topLeft.x, topLeft.y)) {
+		if (Intersector.intersectSegments(x1, y1, x2, y2, topRightX, topRightY, x, y)) {
 			return true;
 		}
 		return false;
 	}
 
 	/**
-	 * Returns if the specified {@link Rectangle} intersects this one
+	 * Returns how far along a {@link LineSegment} it first touches this
+	 * {@link Rectangle}
+	 * 
+	 * @param lineSegment
+	 *            The {@link LineSegment} to follow from point A to point B
+	 * @return 0 if point A is inside this {@link Rectangle}, up to 1 if it is
+	 *         first touched at point B or -1 if the {@link LineSegment} does
+	 *         not touch this {@link Rectangle}
+	 */
+	public float getIntersectionFraction(LineSegment lineSegment) {
+		Point pointA = lineSegment.getPointA();
+		Point pointB = lineSegment.getPointB();
+		if (contains(pointA.x, pointA.y)) {
+			return 0f;
+		}
+		updateCorners();
+		float result = -1f;
+		result = getIntersectionFraction(result, pointA, pointB, topLeft, topRight);
+		result = getIntersectionFraction(result, pointA, pointB, topRight, bottomRight);
+		result = getIntersectionFraction(result, pointA, pointB, bottomRight, bottomLeft);
+		result = getIntersectionFraction(result, pointA, pointB, bottomLeft, topLeft);
+		return result;
+	}
+
+	private float getIntersectionFraction(float result, Point pointA, Point pointB, Point edgeA, Point edgeB) {
+		float segmentX = pointB.x - pointA.x;
+		float segmentY = pointB.y - pointA.y;
+		float edgeX = edgeB.x - edgeA.x;
+		float edgeY = edgeB.y - edgeA.y;
+
+		float denominator = (segmentX * edgeY) - (segmentY * edgeX);
+		if (denominator == 0f) {
+			//Parallel edges are touched by the adjacent edges first
+			return result;
+		}
+		float offsetX = edgeA.x - pointA.x;
+		float offsetY = edgeA.y - pointA.y;
+		float fraction = ((offsetX * edgeY) - (offsetY * edgeX)) / denominator;
+		float edgeFraction = ((offsetX * segmentY) - (offsetY * segmentX)) / denominator;
+		if (fraction < 0f || fraction > 1f || edgeFraction < 0f || edgeFraction > 1f) {
+			return result;
+		}
+		if (result < 0f || fraction < result) {
+			return fraction;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns if the specified {@link Rectangle} intersects this one. The
+	 * min/max bounds are compared first and rotated {@link Rectangle}s are
+	 * then tested along the axes of their edges (separating axis theorem).
 	 * 
 	 * @param rectangle
 	 *            The {@link Rectangle} to test for intersection
 	 * @return True if the {@link Rectangle}s intersect
 	 */
 	public boolean intersects(Rectangle rectangle) {
-		boolean xAxisOverlaps = true;
-		boolean yAxisOverlaps = true;
+		if (getMaxX() < rectangle.getMinX() || rectangle.getMaxX() < getMinX() || getMaxY() < rectangle.getMinY()
+				|| rectangle.getMaxY() < getMinY()) {
+			return false;
+		}
+		if (rectangle.isBoundingBox()) {
+			return rectangle.intersects(this);
+		}
+		//The bounds comparison already tested the axes of unrotated Rectangles
+		if (rotation != 0f && hasSeparatingAxis(x, y, width, height, cos, sin, rectangle.x, rectangle.y,
+				rectangle.width, rectangle.height, rectangle.cos, rectangle.sin)) {
+			return false;
+		}
+		if (rectangle.rotation != 0f && hasSeparatingAxis(rectangle.x, rectangle.y, rectangle.width,
+				rectangle.height, rectangle.cos, rectangle.sin, x, y, width, height, cos, sin)) {
+			return false;
+		}
+		return true;
+	}
 
-		if (maxX < rectangle.getMinX())
-			xAxisOverlaps = false;
-		if (rectangle.getMaxX() < minX)
-			xAxisOverlaps = false;
-		if (maxY < rectangle.getMinY())
-			yAxisOverlaps = false;
-		if (rectangle.getMaxY() < minY)
-			yAxisOverlaps = false;
+	/**
+	 * Tests multiple {@link Rectangle}s for intersection with this one. The
+	 * bounds of this {@link Rectangle} are only computed once for all of the
+	 * candidates.
+	 * 
+	 * @param candidates
+	 *            The {@link Rectangle}s to test for intersection. Null
+	 *            candidates do not intersect.
+	 * @param offset
+	 *            The index of the first candidate to test
+	 * @param length
+	 *            The amount of candidates to test
+	 * @param results
+	 *            The array to store the results in. The result for the
+	 *            candidate at <code>offset + i</code> is stored at index
+	 *            <code>i</code>.
+	 * @return The amount of candidates that intersect this {@link Rectangle}
+	 */
+	public int intersects(Rectangle[] candidates, int offset, int length, boolean[] results) {
+		float minX = getMinX();
+		float minY = getMinY();
+		float maxX = getMaxX();
+		float maxY = getMaxY();
+
+		int result = 0;
+		for (int i = 0; i < length; i++) {
+			Rectangle candidate = candidates[offset + i];
+			results[i] = false;
+			if (candidate == null) {
+				continue;
+			}
+			if (maxX < candidate.getMinX() || candidate.getMaxX() < minX || maxY < candidate.getMinY()
+					|| candidate.getMaxY() < minY) {
+				continue;
+			}
+			if (candidate.isBoundingBox()) {
+				if (candidate.intersects(this)) {
+					results[i] = true;
+					result++;
+				}
+				continue;
+			}
+			if (rotation != 0f && hasSeparatingAxis(x, y, width, height, cos, sin, candidate.x, candidate.y,
+					candidate.width, candidate.height, candidate.cos, candidate.sin)) {
+				continue;
+			}
+			if (candidate.rotation != 0f && hasSeparatingAxis(candidate.x, candidate.y, candidate.width,
+					candidate.height, candidate.cos, candidate.sin, x, y, width, height, cos, sin)) {
+				continue;
+			}
+			results[i] = true;
+			result++;
+		}
+		return result;
+	}
 
-		return xAxisOverlaps && yAxisOverlaps;
+	/**
+	 * Returns true if the axis along the width or the axis along the height of
+	 * the first rectangle separates it from the second rectangle. Each
+	 * rectangle is given by its (rotated) top-left corner, size and the cosine
+	 * and sine of its rotation.
+	 */
+	private static boolean hasSeparatingAxis(float x, float y, float width, float height, float cos, float sin,
+			float otherX, float otherY, float otherWidth, float otherHeight, float otherCos, float otherSin) {
+		//The axes of the first rectangle are (cos, sin) and (-sin, cos)
+		float widthAxisOffset = (cos * (otherX - x)) + (sin * (otherY - y));
+		float widthOnWidthAxis = otherWidth * ((otherCos * cos) + (otherSin * sin));
+		float heightOnWidthAxis = otherHeight * ((otherCos * sin) - (otherSin * cos));
+		if (isSeparated(widthAxisOffset, widthOnWidthAxis, heightOnWidthAxis, width)) {
+			return true;
+		}
+		float heightAxisOffset = (cos * (otherY - y)) - (sin * (otherX - x));
+		float widthOnHeightAxis = otherWidth * ((otherSin * cos) - (otherCos * sin));
+		float heightOnHeightAxis = otherHeight * ((otherCos * cos) + (otherSin * sin));
+		return isSeparated(heightAxisOffset, widthOnHeightAxis, heightOnHeightAxis, height);
+	}
+
+	/**
+	 * Returns true if a projected {@link Rectangle} does not overlap the
+	 * range between 0 and an extent
+	 * 
+	 * @param offset
+	 *            The projected top-left corner
+	 * @param widthOffset
+	 *            The projected width
+	 * @param heightOffset
+	 *            The projected height
+	 * @param extent
+	 *            The end of the range
+	 */
+	private static boolean isSeparated(float offset, float widthOffset, float heightOffset, float extent) {
+		float min = offset + (widthOffset < 0f ? widthOffset : 0f) + (heightOffset < 0f ? heightOffset : 0f);
+		float max = offset + (widthOffset > 0f ? widthOffset : 0f) + (heightOffset > 0f ? heightOffset : 0f);
+		return max < (extent < 0f ? extent : 0f) || (extent > 0f ? extent : 0f) < min;
 	}
 
 	@Override
@@ -280,13 +546,9 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	public boolean intersects(Parallelogram parallelogram) {
 		if (parallelogram instanceof Rectangle) {
 			return intersects((Rectangle) parallelogram);
-		} else {
-			Rectangle rect = new Rectangle(parallelogram.getX(),
-					parallelogram.getY(), parallelogram.getWidth(),
-					parallelogram.getHeight());
-			rect.rotate(parallelogram.getRotation());
-			return intersects(rect);
 		}
+		return intersects(parallelogram.getX(), parallelogram.getY(), parallelogram.getWidth(),
+				parallelogram.getHeight(), parallelogram.getRotation());
 	}
 
 	/**
@@ -294,8 +556,38 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 */
 	@Override
 	public boolean intersects(float x, float y, float width, float height) {
-		Rectangle rect = new Rectangle(x, y, width, height);
-		return intersects(rect);
+		return intersects(x, y, width, height, 0f);
+	}
+
+	/**
+	 * Returns if a rectangle rotated around its top-left corner intersects
+	 * this {@link Rectangle}
+	 */
+	private boolean intersects(float otherX, float otherY, float otherWidth, float otherHeight, float otherRotation) {
+		float otherCos = 1f, otherSin = 0f;
+		if (otherRotation != 0f) {
+			otherCos = MathUtils.cos(otherRotation * MathUtils.degreesToRadians);
+			otherSin = MathUtils.sin(otherRotation * MathUtils.degreesToRadians);
+		}
+		float widthX = otherCos * otherWidth;
+		float widthY = otherSin * otherWidth;
+		float heightX = -otherSin * otherHeight;
+		float heightY = otherCos * otherHeight;
+		if (getMaxX() < otherX + (widthX < 0f ? widthX : 0f) + (heightX < 0f ? heightX : 0f)
+				|| otherX + (widthX > 0f ? widthX : 0f) + (heightX > 0f ? heightX : 0f) < getMinX()
+				|| getMaxY() < otherY + (widthY < 0f ? widthY : 0f) + (heightY < 0f ? heightY : 0f)
+				|| otherY + (widthY > 0f ? widthY : 0f) + (heightY > 0f ? heightY : 0f) < getMinY()) {
+			return false;
+		}
+		if (rotation != 0f && hasSeparatingAxis(x, y, width, height, cos, sin, otherX, otherY, otherWidth,
+				otherHeight, otherCos, otherSin)) {
+			return false;
+		}
+		if (otherRotation != 0f && hasSeparatingAxis(otherX, otherY, otherWidth, otherHeight, otherCos, otherSin,
+				x, y, width, height, cos, sin)) {
+			return false;
+		}
+		return true;
 	}
 
 	public Rectangle intersection(Rectangle rect) {
@@ -305,8 +597,8 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 
 		float newX = Math.max(getX(), rect.getX());
 		float newY = Math.max(getY(), rect.getY());
-		float newWidth = Math.min(bottomRight.x, rect.bottomRight.x) - newX;
-		float newHeight = Math.min(bottomRight.y, rect.bottomRight.y) - newY;
+		float newWidth = Math.min(x + width, rect.x + rect.width) - newX;
+		float newHeight = Math.min(y + height, rect.y + rect.height) - newY;
 		return new Rectangle(newX, newY, newWidth, newHeight);
 	}
 
@@ -317,23 +609,37 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	public boolean contains(Parallelogram parallelogram) {
 		if (parallelogram instanceof Rectangle) {
 			return contains((Rectangle) parallelogram);
-		} else {
-			Rectangle rect = new Rectangle(parallelogram.getX(),
-					parallelogram.getY(), parallelogram.getWidth(),
-					parallelogram.getHeight());
-			rect.rotate(parallelogram.getRotation());
-			return contains(rect);
 		}
+		float rotation = parallelogram.getRotation();
+		if (rotation == 0f) {
+			return containsCorners(parallelogram.getX(), parallelogram.getY(), parallelogram.getWidth(),
+					parallelogram.getHeight(), 1f, 0f);
+		}
+		return containsCorners(parallelogram.getX(), parallelogram.getY(), parallelogram.getWidth(),
+				parallelogram.getHeight(), MathUtils.cos(rotation * MathUtils.degreesToRadians),
+				MathUtils.sin(rotation * MathUtils.degreesToRadians));
 	}
 
 	/**
 	 * @see Parallelogram#contains(Parallelogram)
 	 */
 	public boolean contains(Rectangle rectangle) {
-		return contains(rectangle.topLeft)
-				&& contains(rectangle.topRight)
-				&& contains(rectangle.bottomLeft)
-				&& contains(rectangle.bottomRight);
+		return containsCorners(rectangle.x, rectangle.y, rectangle.width, rectangle.height, rectangle.cos,
+				rectangle.sin);
+	}
+
+	/**
+	 * Returns if all four corners of a rectangle are within this
+	 * {@link Rectangle}
+	 */
+	private boolean containsCorners(float otherX, float otherY, float otherWidth, float otherHeight,
+			float otherCos, float otherSin) {
+		float topRightX = otherX + (otherCos * otherWidth), topRightY = otherY + (otherSin * otherWidth);
+		float bottomLeftX = otherX - (otherSin * otherHeight), bottomLeftY = otherY + (otherCos * otherHeight);
+		float bottomRightX = topRightX - (otherSin * otherHeight);
+		float bottomRightY = topRightY + (otherCos * otherHeight);
+		return contains(otherX, otherY) && contains(topRightX, topRightY) && contains(bottomLeftX, bottomLeftY)
+				&& contains(bottomRightX, bottomRightY);
 	}
 
 	@Override
@@ -349,8 +655,12 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 
 	@Override
 	public boolean contains(float x, float y) {
-		return triangleContains(x, y, topLeft, topRight, bottomLeft)
-				|| triangleContains(x, y, bottomLeft, topRight, bottomRight);
+		float topRightX = this.x + (cos * width), topRightY = this.y + (sin * width);
+		float bottomLeftX = this.x - (sin * height), bottomLeftY = this.y + (cos * height);
+		float bottomRightX = topRightX - (sin * height), bottomRightY = topRightY + (cos * height);
+		return triangleContains(x, y, this.x, this.y, topRightX, topRightY, bottomLeftX, bottomLeftY)
+				|| triangleContains(x, y, bottomLeftX, bottomLeftY, topRightX, topRightY, bottomRightX,
+						bottomRightY);
 	}
 
 	@Override
@@ -358,19 +668,19 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 		return contains(point.x, point.y);
 	}
 
-	private boolean triangleContains(float x, float y, Point p1, Point p2,
-			Point p3) {
+	private static boolean triangleContains(float x, float y, float x1, float y1, float x2, float y2, float x3,
+			float y3) {
 		boolean b1, b2, b3;
 
-		b1 = sign(x, y, p1, p2) < 0.0f;
-		b2 = sign(x, y, p2, p3) < 0.0f;
-		b3 = sign(x, y, p3, p1) < 0.0f;
+		b1 = sign(x, y, x1, y1, x2, y2) < 0.0f;
+		b2 = sign(x, y, x2, y2, x3, y3) < 0.0f;
+		b3 = sign(x, y, x3, y3, x1, y1) < 0.0f;
 
 		return ((b1 == b2) && (b2 == b3));
 	}
 
-	private float sign(float x, float y, Point p1, Point p2) {
-		return (x - p2.x) * (p1.y - p2.y) - (p1.x - p2.x) * (y - p2.y);
+	private static float sign(float x, float y, float x1, float y1, float x2, float y2) {
+		return (x - x2) * (y1 - y2) - (x1 - x2) * (y - y2);
 	}
 
 	/**
@@ -387,9 +697,10 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	@Override
 	public void draw(Graphics g) {
 		if (rotation == 0f) {
-			g.drawRect(topLeft.x, topLeft.y, width, height);
+			g.drawRect(x, y, width, height);
 			return;
 		}
+		updateCorners();
 		g.drawLineSegment(topLeft.x, topLeft.y, topRight.x, topRight.y);
 		g.drawLineSegment(topRight.x, topRight.y, bottomRight.x, bottomRight.y);
 		g.drawLineSegment(bottomLeft.x, bottomLeft.y, bottomRight.x,
@@ -399,59 +710,35 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 
 	@Override
 	public Rectangle set(float x, float y, float width, float height) {
-		performRotation(-rotation);
-		super.set(x, y, width, height);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(x, y, width, height);
 		return this;
 	}
 
 	public void set(Rectangle rectangle) {
-		performRotation(-rotation);
-		super.set(rectangle);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
 	}
 
 	@Override
 	public com.badlogic.gdx.math.Rectangle set(
 			com.badlogic.gdx.math.Rectangle rectangle) {
-		performRotation(-rotation);
-		super.set(rectangle);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
 		return this;
 	}
 
 	@Override
 	public Rectangle setPosition(float x, float y) {
-		performRotation(-rotation);
-		super.setPosition(x, y);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(x, y, width, height);
 		return this;
 	}
 
 	@Override
 	public Rectangle setPosition(Vector2 position) {
-		performRotation(-rotation);
-		super.setPosition(position);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(position.x, position.y, width, height);
 		return this;
 	}
 	
 	private void internalSetX(float x) {
-		performRotation(-rotation);
-		super.setX(x);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(x, getUnrotatedY(), width, height);
 	}
 
 	@Override
@@ -461,11 +748,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	}
 	
 	private void internalSetY(float y) {
-		performRotation(-rotation);
-		super.setY(y);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(getUnrotatedX(), y, width, height);
 	}
 
 	@Override
@@ -475,11 +758,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	}
 	
 	private void internalSetWidth(float width) {
-		performRotation(-rotation);
-		super.setWidth(width);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(getUnrotatedX(), getUnrotatedY(), width, height);
 	}
 
 	@Override
@@ -489,11 +768,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	}
 	
 	private void internalSetHeight(float height) {
-		performRotation(-rotation);
-		super.setHeight(height);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(getUnrotatedX(), getUnrotatedY(), width, height);
 	}
 
 	@Override
@@ -504,21 +779,13 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 
 	@Override
 	public Rectangle setSize(float width, float height) {
-		performRotation(-rotation);
-		super.setSize(width, height);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(getUnrotatedX(), getUnrotatedY(), width, height);
 		return this;
 	}
 
 	@Override
 	public Rectangle setSize(float sizeXY) {
-		performRotation(-rotation);
-		super.setSize(sizeXY);
-		recalculateCoordinates();
-		performRotation(rotation);
-		recalculateMinMax();
+		setUnrotated(getUnrotatedX(), getUnrotatedY(), sizeXY, sizeXY);
 		return this;
 	}
 
@@ -528,7 +795,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 * @return
 	 */
 	public float getCenterX() {
-		return center.x;
+		return x + (((cos * width) - (sin * height)) / 2f);
 	}
 
 	/**
@@ -537,7 +804,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 * @return
 	 */
 	public float getCenterY() {
-		return center.y;
+		return y + (((sin * width) + (cos * height)) / 2f);
 	}
 
 	/**
@@ -546,6 +813,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 * @return
 	 */
 	public float getMinX() {
+		updateMinMax();
 		return minX;
 	}
 
@@ -555,6 +823,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 * @return
 	 */
 	public float getMinY() {
+		updateMinMax();
 		return minY;
 	}
 
@@ -564,6 +833,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 * @return
 	 */
 	public float getMaxX() {
+		updateMinMax();
 		return maxX;
 	}
 
@@ -573,6 +843,7 @@ public class Rectangle extends com.badlogic.gdx.math.Rectangle implements
 	 * @return
 	 */
 	public float getMaxY() {
+		updateMinMax();
 		return maxY;
 	}
 
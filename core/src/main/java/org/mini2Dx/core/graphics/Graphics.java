@@ -46,6 +46,8 @@ public class Graphics {
 	private float translationX, translationY;
 	private float scaleX, scaleY;
 	private float rotation, rotationX, rotationY;
+	private final Vector3 rotationCenter = new Vector3();
+	private final Vector3 rotationAxis = new Vector3(0, 0, 1);
 	private float currentWidth, currentHeight;
 
 	private int defaultBlendSrcFunc = GL20.GL_SRC_ALPHA,
@@ -776,8 +778,8 @@ public class Graphics {
 		camera.update();
 
 		if (rotation != 0f) {
-			camera.rotateAround(new Vector3(rotationX, rotationY, 0),
-					new Vector3(0, 0, 1), -rotation);
+			rotationCenter.set(rotationX, rotationY, 0);
+			camera.rotateAround(rotationCenter, rotationAxis, -rotation);
 		}
 		camera.update();
 
@@ -791,8 +793,8 @@ public class Graphics {
 	private void undoTransformations() {
 
 		if (rotation != 0f) {
-			camera.rotateAround(new Vector3(rotationX, rotationY, 0),
-					new Vector3(0, 0, 1), rotation);
+			rotationCenter.set(rotationX, rotationY, 0);
+			camera.rotateAround(rotationCenter, rotationAxis, rotation);
 		}
 		camera.update();
 
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link CollisionWorld}
+ */
+public class CollisionWorldTest {
+	private CollisionWorld<CollisionBox> collisionWorld;
+	private List<CollisionBox> walls;
+	private CollisionBox actor1, actor2;
+
+	@Before
+	public void setup() {
+		collisionWorld = new CollisionWorld<CollisionBox>(new RegionQuadTree<CollisionBox>(4, 2, 0, 0, 256, 256));
+		walls = new ArrayList<CollisionBox>();
+		for (int x = 0; x < 256; x += 16) {
+			walls.add(new CollisionBox(x, 0, 16, 16));
+			walls.add(new CollisionBox(x, 240, 16, 16));
+		}
+		collisionWorld.setStaticElements(walls);
+
+		actor1 = new CollisionBox(42, 10, 8, 8);
+		actor2 = new CollisionBox(44, 100, 8, 8);
+		collisionWorld.add(actor1);
+		collisionWorld.add(actor2);
+	}
+
+	@Test
+	public void testTotalElements() {
+		Assert.assertEquals(32, collisionWorld.getTotalStaticElements());
+		Assert.assertEquals(2, collisionWorld.getTotalDynamicElements());
+		Assert.assertEquals(34, collisionWorld.getTotalElements());
+		Assert.assertEquals(2, collisionWorld.getDynamicElements().getTotalElements());
+	}
+
+	@Test
+	public void testGetElementsWithinRegion() {
+		List<CollisionBox> result = collisionWorld.getElementsWithinRegion(new Rectangle(36, 8, 8, 4));
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals(true, containsByIdentity(result, walls.get(4)));
+		Assert.assertEquals(true, containsByIdentity(result, actor1));
+	}
+
+	@Test
+	public void testGetElementsContainingPoint() {
+		List<CollisionBox> result = collisionWorld.getElementsContainingPoint(new Point(46, 102));
+		Assert.assertEquals(1, result.size());
+		Assert.assertEquals(true, result.get(0) == actor2);
+
+		result = collisionWorld.getElementsContainingPoint(new Point(8, 248));
+		Assert.assertEquals(1, result.size());
+		Assert.assertEquals(true, result.get(0) == walls.get(1));
+	}
+
+	@Test
+	public void testMovingElementsOnlyUpdateDynamicElements() {
+		actor2.forceTo(44, 236);
+		List<CollisionBox> result = collisionWorld.getElementsWithinRegion(new Rectangle(44, 236, 8, 8));
+		Assert.assertEquals(3, result.size());
+		Assert.assertEquals(true, containsByIdentity(result, actor2));
+		Assert.assertEquals(2, collisionWorld.getDynamicElements().getTotalElements());
+	}
+
+	@Test
+	public void testFindCollidingPairs() {
+		actor2.forceTo(44, 12);
+		final List<CollisionBox> pairs = new ArrayList<CollisionBox>();
+		collisionWorld.findCollidingPairs(new PairCallback<CollisionBox>() {
+			@Override
+			public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+				pairs.add(elementA);
+				pairs.add(elementB);
+			}
+		});
+		//actor1 and actor2 overlap each other and the walls at x=32 and x=48
+		Assert.assertEquals(10, pairs.size());
+		int staticPairs = 0;
+		for (int i = 0; i < pairs.size(); i += 2) {
+			if (containsByIdentity(walls, pairs.get(i + 1))) {
+				Assert.assertEquals(false, containsByIdentity(walls, pairs.get(i)));
+				staticPairs++;
+			}
+		}
+		Assert.assertEquals(4, staticPairs);
+	}
+
+	@Test
+	public void testForEachElementStops() {
+		final int[] total = new int[1];
+		Assert.assertEquals(false, collisionWorld.forEachElement(new ElementVisitor<CollisionBox>() {
+			@Override
+			public boolean visit(CollisionBox element) {
+				total[0]++;
+				return total[0] < 5;
+			}
+		}));
+		Assert.assertEquals(5, total[0]);
+	}
+
+	private boolean containsByIdentity(List<CollisionBox> result, CollisionBox element) {
+		for (CollisionBox candidate : result) {
+			if (candidate == element) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
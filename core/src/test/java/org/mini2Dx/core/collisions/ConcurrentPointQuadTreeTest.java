@@ -12,14 +12,21 @@
 package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mini2Dx.core.engine.geom.CollisionBox;
 import org.mini2Dx.core.engine.geom.CollisionPoint;
 import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
 import org.mini2Dx.core.geom.Rectangle;
 
 import junit.framework.Assert;
@@ -208,4 +215,311 @@ public class ConcurrentPointQuadTreeTest {
 		Assert.assertEquals(false, CollisionPoints.contains(point3));
 		Assert.assertEquals(true, CollisionPoints.contains(point4));
 	}
+	
+	@Test
+	public void testOptimisticReadQueries() {
+		ConcurrentPointQuadTree<CollisionPoint> optimisticQuad = new ConcurrentPointQuadTree<CollisionPoint>(4, 0,
+				LockStrategy.OPTIMISTIC_READ, 0, 0, 128, 128);
+		rootQuad = new ConcurrentPointQuadTree<CollisionPoint>(4, 0, 0, 128, 128);
+		
+		Random random = new Random();
+		for(int i = 0; i < 100; i++) {
+			CollisionPoint point = new CollisionPoint(random.nextInt(128), random.nextInt(128));
+			rootQuad.add(point);
+			optimisticQuad.add(point);
+		}
+		Assert.assertEquals(LockStrategy.OPTIMISTIC_READ, optimisticQuad.getLockStrategy());
+		Assert.assertEquals(rootQuad.getTotalQuads(), optimisticQuad.getTotalQuads());
+		
+		for(int i = 0; i < 100; i++) {
+			Rectangle region = new Rectangle(random.nextInt(96), random.nextInt(96), random.nextInt(32), random.nextInt(32));
+			List<CollisionPoint> expected = rootQuad.getElementsWithinRegion(region);
+			List<CollisionPoint> actual = optimisticQuad.getElementsWithinRegion(region);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+			
+			CollisionPoint point = rootQuad.getElements().get(random.nextInt(100));
+			expected = rootQuad.getElementsContainingPoint(point);
+			actual = optimisticQuad.getElementsContainingPoint(point);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+			
+			LineSegment lineSegment = new LineSegment(random.nextInt(128), random.nextInt(128), random.nextInt(128), random.nextInt(128));
+			expected = rootQuad.getElementsIntersectingLineSegment(lineSegment);
+			actual = optimisticQuad.getElementsIntersectingLineSegment(lineSegment);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+			
+			float x = random.nextInt(128);
+			float y = random.nextInt(128);
+			expected = rootQuad.getElementsWithinRadius(x, y, 24f);
+			actual = optimisticQuad.getElementsWithinRadius(x, y, 24f);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+			
+			Assert.assertEquals(rootQuad.getNearestElements(x, y, 5), optimisticQuad.getNearestElements(x, y, 5));
+			
+			RaycastResult<CollisionPoint> expectedRaycast = new RaycastResult<CollisionPoint>();
+			RaycastResult<CollisionPoint> actualRaycast = new RaycastResult<CollisionPoint>();
+			Assert.assertEquals(rootQuad.raycast(lineSegment, expectedRaycast),
+					optimisticQuad.raycast(lineSegment, actualRaycast));
+			Assert.assertEquals(expectedRaycast.getDistance(), actualRaycast.getDistance());
+		}
+		
+		final int[] totalPairs = new int[2];
+		rootQuad.findCollidingPairs(new PairCallback<CollisionPoint>() {
+			@Override
+			public void onCollidingPair(CollisionPoint elementA, CollisionPoint elementB) {
+				totalPairs[0]++;
+			}
+		});
+		optimisticQuad.findCollidingPairs(new PairCallback<CollisionPoint>() {
+			@Override
+			public void onCollidingPair(CollisionPoint elementA, CollisionPoint elementB) {
+				totalPairs[1]++;
+			}
+		});
+		Assert.assertEquals(totalPairs[0], totalPairs[1]);
+	}
+	
+	@Test
+	public void testOptimisticReadOfSubdividedQuads() {
+		final ConcurrentPointQuadTree<CollisionPoint> optimisticQuad = new ConcurrentPointQuadTree<CollisionPoint>(4,
+				0, LockStrategy.OPTIMISTIC_READ, 0, 0, 128, 128);
+		optimisticQuad.add(point1);
+		optimisticQuad.add(point2);
+		optimisticQuad.add(point3);
+		optimisticQuad.add(point4);
+		optimisticQuad.add(new CollisionPoint(4, 4));
+		Assert.assertEquals(4, optimisticQuad.getTotalQuads());
+
+		//The write lock can only be taken by the visitor if the search holds no read locks
+		ElementVisitor<CollisionPoint> visitor = new ElementVisitor<CollisionPoint>() {
+			@Override
+			public boolean visit(CollisionPoint element) {
+				Assert.assertEquals(true, optimisticQuad.lock.writeLock().tryLock());
+				optimisticQuad.lock.writeLock().unlock();
+				return true;
+			}
+		};
+		Assert.assertEquals(true, optimisticQuad.forEachWithinRegion(new Rectangle(0, 0, 8, 8), visitor));
+		Assert.assertEquals(true, optimisticQuad.forEachContainingPoint(new Point(4, 4), visitor));
+		Assert.assertEquals(true,
+				optimisticQuad.forEachIntersectingLineSegment(new LineSegment(0, 0, 8, 8), visitor));
+		Assert.assertEquals(true, optimisticQuad.forEachWithinRadius(0, 0, 8, visitor));
+	}
+	
+	@Test
+	public void testOptimisticReadDuringMerge() throws Exception {
+		final ConcurrentPointQuadTree<CollisionPoint> optimisticQuad = new ConcurrentPointQuadTree<CollisionPoint>(4,
+				3, LockStrategy.OPTIMISTIC_READ, 0, 0, 128, 128);
+		final List<CollisionPoint> fillerPoints = new ArrayList<CollisionPoint>();
+		fillerPoints.add(new CollisionPoint(70, 10));
+		fillerPoints.add(new CollisionPoint(80, 10));
+		fillerPoints.add(new CollisionPoint(90, 10));
+		CollisionPoint point1 = new CollisionPoint(10, 10);
+		CollisionPoint point2 = new CollisionPoint(100, 100);
+		optimisticQuad.add(point1);
+		optimisticQuad.add(point2);
+		optimisticQuad.addAll(fillerPoints);
+		Assert.assertEquals(4, optimisticQuad.getTotalQuads());
+
+		//Removing the filler points merges the child quads into the root quad
+		final Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for(CollisionPoint point : fillerPoints) {
+					optimisticQuad.remove(point);
+				}
+			}
+		});
+		final AtomicBoolean mergeDuringRead = new AtomicBoolean(true);
+		Rectangle region = new Rectangle(0, 0, 128, 128) {
+			@Override
+			public boolean contains(float x, float y) {
+				if (mergeDuringRead.compareAndSet(true, false)) {
+					writer.start();
+					try {
+						writer.join(200L);
+					} catch (InterruptedException e) {
+					}
+				}
+				return super.contains(x, y);
+			}
+		};
+		List<CollisionPoint> collisionPoints = optimisticQuad.getElementsWithinRegion(region);
+		writer.join();
+		Assert.assertEquals(1, optimisticQuad.getTotalQuads());
+		Assert.assertEquals(true, collisionPoints.contains(point1));
+		Assert.assertEquals(true, collisionPoints.contains(point2));
+	}
+	
+	@Test
+	public void testDeferredPositionChanges() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		rootQuad.addAll(points);
+		rootQuad.add(point1);
+		
+		rootQuad.setDeferPositionChanges(true);
+		Assert.assertEquals(true, rootQuad.isDeferringPositionChanges());
+		for(int i = 0; i < 10; i++) {
+			point1.set(random.nextInt(128), random.nextInt(128));
+		}
+		point1.set(100.5f, 100.5f);
+		CollisionPoint removedPoint = points.get(0);
+		removedPoint.set(256f, 256f);
+		rootQuad.flushPositionChanges();
+		
+		Assert.assertEquals(true, rootQuad.getElementsWithinRegion(new Rectangle(100f, 100f, 1f, 1f)).contains(point1));
+		Assert.assertEquals(false, rootQuad.getElements().contains(removedPoint));
+		Assert.assertEquals(100, rootQuad.getTotalElements());
+		
+		point1.set(10.5f, 10.5f);
+		Assert.assertEquals(true, rootQuad.remove(point1));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+		
+		CollisionPoint movedPoint = points.get(1);
+		movedPoint.set(50.5f, 50.5f);
+		rootQuad.setDeferPositionChanges(false);
+		Assert.assertEquals(false, rootQuad.isDeferringPositionChanges());
+		Assert.assertEquals(true, rootQuad.getElementsWithinRegion(new Rectangle(50f, 50f, 1f, 1f)).contains(movedPoint));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+	}
+	
+	@Test
+	public void testGetNearestElements() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		rootQuad.addAll(points);
+		
+		Assert.assertEquals(0, rootQuad.getNearestElements(64f, 64f, 0).size());
+		Assert.assertEquals(100, rootQuad.getNearestElements(64f, 64f, 200).size());
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			List<CollisionPoint> result = rootQuad.getNearestElements(x, y, 5);
+			Assert.assertEquals(5, result.size());
+			
+			float furthestDistance = 0f;
+			for(CollisionPoint point : result) {
+				Assert.assertEquals(true, point.dst(x, y) >= furthestDistance);
+				furthestDistance = point.dst(x, y);
+			}
+			for(CollisionPoint point : points) {
+				Assert.assertEquals(true, result.contains(point) || point.dst(x, y) >= furthestDistance);
+			}
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		CollisionPoint near = new CollisionPoint(16, 16);
+		CollisionPoint far = new CollisionPoint(96, 96);
+		rootQuad.add(near);
+		rootQuad.add(far);
+		rootQuad.add(new CollisionPoint(64, 32));
+		rootQuad.add(new CollisionPoint(32, 64));
+		rootQuad.add(new CollisionPoint(100, 8));
+
+		RaycastResult<CollisionPoint> result = new RaycastResult<CollisionPoint>();
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(0, 0, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(16f, result.getX());
+		Assert.assertEquals(16f, result.getY());
+		Assert.assertEquals(near.dst(0, 0), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(128, 128, 0, 0), result));
+		Assert.assertEquals(far, result.getElement());
+		Assert.assertEquals(far.dst(128, 128), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(false, rootQuad.raycast(new LineSegment(0, 120, 128, 120), result));
+		Assert.assertEquals(false, result.isHit());
+		Assert.assertEquals(null, result.getElement());
+	}
+	
+	@Test
+	public void testFindCollidingPairs() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 300; i++) {
+			points.add(new CollisionPoint(random.nextInt(16) * 8, random.nextInt(16) * 8));
+		}
+		rootQuad.addAll(points);
+		
+		int expectedPairs = 0;
+		for(int i = 0; i < points.size(); i++) {
+			for(int j = i + 1; j < points.size(); j++) {
+				if(points.get(i).getX() == points.get(j).getX() && points.get(i).getY() == points.get(j).getY()) {
+					expectedPairs++;
+				}
+			}
+		}
+		
+		final Set<String> pairs = Collections.synchronizedSet(new HashSet<String>());
+		PairCallback<CollisionPoint> callback = new PairCallback<CollisionPoint>() {
+			@Override
+			public void onCollidingPair(CollisionPoint elementA, CollisionPoint elementB) {
+				Assert.assertEquals(elementA.getX(), elementB.getX());
+				Assert.assertEquals(elementA.getY(), elementB.getY());
+				Assert.assertEquals(true, pairs.add(Math.min(elementA.getId(), elementB.getId()) + ":"
+						+ Math.max(elementA.getId(), elementB.getId())));
+			}
+		};
+		rootQuad.findCollidingPairs(callback);
+		Assert.assertEquals(expectedPairs, pairs.size());
+		
+		pairs.clear();
+		rootQuad.findCollidingPairs(callback, new ForkJoinPool());
+		Assert.assertEquals(expectedPairs, pairs.size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRadius() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		rootQuad.addAll(points);
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			float radius = random.nextInt(64);
+			List<CollisionPoint> result = rootQuad.getElementsWithinRadius(x, y, radius);
+			for(CollisionPoint point : points) {
+				Assert.assertEquals(point.dst(x, y) <= radius, result.contains(point));
+			}
+		}
+	}
+
+	@Test
+	public void testVisitorCalledDuringSearch() {
+		rootQuad.add(point1);
+		rootQuad.add(point2);
+		rootQuad.add(point3);
+		rootQuad.add(point4);
+		Assert.assertEquals(4, rootQuad.getTotalQuads());
+
+		final ReentrantReadWriteLock lock = (ReentrantReadWriteLock) rootQuad.lock;
+		final int[] totalVisits = new int[1];
+		Assert.assertEquals(false, rootQuad.forEachElement(new ElementVisitor<CollisionPoint>() {
+			@Override
+			public boolean visit(CollisionPoint element) {
+				Assert.assertEquals(true, lock.getReadHoldCount() > 0);
+				totalVisits[0]++;
+				return false;
+			}
+		}));
+		Assert.assertEquals(1, totalVisits[0]);
+		Assert.assertEquals(0, lock.getReadHoldCount());
+	}
 }
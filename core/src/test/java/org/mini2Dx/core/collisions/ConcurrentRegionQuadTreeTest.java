@@ -12,15 +12,22 @@
 package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mini2Dx.core.engine.geom.CollisionBox;
 import org.mini2Dx.core.engine.geom.CollisionPoint;
 import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Parallelogram;
 import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
 
 import junit.framework.Assert;
 
@@ -293,4 +300,287 @@ public class ConcurrentRegionQuadTreeTest {
 		Assert.assertEquals(1, collisionBoxs.size());
 		Assert.assertEquals(true, collisionBoxs.contains(box4));
 	}
+	
+	@Test
+	public void testOptimisticReadQueries() {
+		ConcurrentRegionQuadTree<CollisionBox> optimisticQuad = new ConcurrentRegionQuadTree<CollisionBox>(4, 0,
+				LockStrategy.OPTIMISTIC_READ, 0, 0, 128, 128);
+		rootQuad = new ConcurrentRegionQuadTree<CollisionBox>(4, 0, 0, 128, 128);
+		
+		Random random = new Random();
+		for(int i = 0; i < 100; i++) {
+			CollisionBox box = new CollisionBox(random.nextInt(96), random.nextInt(96), random.nextInt(32), random.nextInt(32));
+			rootQuad.add(box);
+			optimisticQuad.add(box);
+		}
+		Assert.assertEquals(LockStrategy.OPTIMISTIC_READ, optimisticQuad.getLockStrategy());
+		Assert.assertEquals(rootQuad.getTotalElements(), optimisticQuad.getTotalElements());
+		
+		for(int i = 0; i < 100; i++) {
+			Rectangle region = new Rectangle(random.nextInt(96), random.nextInt(96), random.nextInt(32), random.nextInt(32));
+			List<CollisionBox> expected = rootQuad.getElementsWithinRegion(region);
+			List<CollisionBox> actual = optimisticQuad.getElementsWithinRegion(region);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+			
+			Point point = new Point(random.nextInt(128), random.nextInt(128));
+			expected = rootQuad.getElementsContainingPoint(point);
+			actual = optimisticQuad.getElementsContainingPoint(point);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+			
+			LineSegment lineSegment = new LineSegment(random.nextInt(128), random.nextInt(128), random.nextInt(128), random.nextInt(128));
+			expected = rootQuad.getElementsIntersectingLineSegment(lineSegment);
+			actual = optimisticQuad.getElementsIntersectingLineSegment(lineSegment);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+		}
+	}
+	
+	@Test
+	public void testOptimisticReadsWithConcurrentWriter() throws Exception {
+		final ConcurrentRegionQuadTree<CollisionBox> optimisticQuad = new ConcurrentRegionQuadTree<CollisionBox>(4, 0,
+				LockStrategy.OPTIMISTIC_READ, 0, 0, 128, 128);
+		final List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		Random random = new Random();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(120), random.nextInt(120), 8f, 8f));
+		}
+		optimisticQuad.addAll(boxes);
+		
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread [] readers = new Thread[4];
+		for(int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Rectangle region = new Rectangle(0, 0, 128, 128);
+						for(int j = 0; j < 1000; j++) {
+							optimisticQuad.getElementsWithinRegion(region);
+						}
+					} catch (Throwable e) {
+						synchronized(errors) {
+							errors.add(e);
+						}
+					}
+				}
+			});
+			readers[i].start();
+		}
+		for(int i = 0; i < 1000; i++) {
+			boxes.get(random.nextInt(boxes.size())).setPosition(random.nextInt(120), random.nextInt(120));
+		}
+		for(int i = 0; i < readers.length; i++) {
+			readers[i].join();
+		}
+		Assert.assertEquals(true, errors.isEmpty());
+		Assert.assertEquals(boxes.size(), optimisticQuad.getElementsWithinRegion(new Rectangle(0, 0, 128, 128)).size());
+	}
+	
+	@Test
+	public void testOptimisticReadDuringMerge() throws Exception {
+		final ConcurrentRegionQuadTree<CollisionBox> optimisticQuad = new ConcurrentRegionQuadTree<CollisionBox>(4, 3,
+				LockStrategy.OPTIMISTIC_READ, 0, 0, 128, 128);
+		final List<CollisionBox> fillerBoxes = new ArrayList<CollisionBox>();
+		fillerBoxes.add(new CollisionBox(70, 10, 4, 4));
+		fillerBoxes.add(new CollisionBox(80, 10, 4, 4));
+		fillerBoxes.add(new CollisionBox(90, 10, 4, 4));
+		//Removing the filler boxes merges the child quads into the root quad
+		final Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for(CollisionBox box : fillerBoxes) {
+					optimisticQuad.remove(box);
+				}
+			}
+		});
+		final AtomicBoolean mergeDuringRead = new AtomicBoolean(false);
+		CollisionBox box1 = new CollisionBox(10, 10, 4, 4) {
+			@Override
+			public boolean intersects(Parallelogram parallelogram) {
+				if (mergeDuringRead.compareAndSet(true, false)) {
+					writer.start();
+					try {
+						writer.join(200L);
+					} catch (InterruptedException e) {
+					}
+				}
+				return super.intersects(parallelogram);
+			}
+		};
+		CollisionBox box2 = new CollisionBox(100, 100, 4, 4);
+		optimisticQuad.add(box1);
+		optimisticQuad.add(box2);
+		optimisticQuad.addAll(fillerBoxes);
+		Assert.assertEquals(4, optimisticQuad.getTotalQuads());
+		
+		mergeDuringRead.set(true);
+		List<CollisionBox> collisionBoxes = optimisticQuad.getElementsWithinRegion(new Rectangle(0, 0, 128, 128));
+		writer.join();
+		Assert.assertEquals(1, optimisticQuad.getTotalQuads());
+		Assert.assertEquals(true, collisionBoxes.contains(box1));
+		Assert.assertEquals(true, collisionBoxes.contains(box2));
+	}
+	
+	@Test
+	public void testDeferredPositionChanges() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		rootQuad.addAll(boxes);
+		rootQuad.add(box1);
+		
+		rootQuad.setDeferPositionChanges(true);
+		Assert.assertEquals(true, rootQuad.isDeferringPositionChanges());
+		for(int i = 0; i < 10; i++) {
+			box1.setPosition(random.nextInt(96), random.nextInt(96));
+		}
+		box1.setPosition(80f, 80f);
+		CollisionBox removedBox = boxes.get(0);
+		removedBox.setPosition(256f, 256f);
+		rootQuad.flushPositionChanges();
+		
+		Assert.assertEquals(true, rootQuad.getElementsContainingPoint(new Point(96f, 96f)).contains(box1));
+		Assert.assertEquals(false, rootQuad.getElementsContainingPoint(new Point(60f, 60f)).contains(box1));
+		Assert.assertEquals(false, rootQuad.getElements().contains(removedBox));
+		Assert.assertEquals(100, rootQuad.getTotalElements());
+		
+		box1.setPosition(4f, 4f);
+		Assert.assertEquals(true, rootQuad.remove(box1));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+		
+		CollisionBox movedBox = boxes.get(1);
+		movedBox.setPosition(48f, 48f);
+		rootQuad.setDeferPositionChanges(false);
+		Assert.assertEquals(false, rootQuad.isDeferringPositionChanges());
+		Assert.assertEquals(true, rootQuad.getElementsContainingPoint(new Point(64f, 64f)).contains(movedBox));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+	}
+	
+	@Test
+	public void testGetNearestElements() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		rootQuad.addAll(boxes);
+		
+		Assert.assertEquals(0, rootQuad.getNearestElements(64f, 64f, 0).size());
+		Assert.assertEquals(100, rootQuad.getNearestElements(64f, 64f, 200).size());
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			List<CollisionBox> result = rootQuad.getNearestElements(x, y, 5);
+			Assert.assertEquals(5, result.size());
+			
+			float furthestDistance = 0f;
+			for(CollisionBox box : result) {
+				Assert.assertEquals(true, getDistance(box, x, y) >= furthestDistance);
+				furthestDistance = getDistance(box, x, y);
+			}
+			for(CollisionBox box : boxes) {
+				Assert.assertEquals(true, result.contains(box) || getDistance(box, x, y) >= furthestDistance);
+			}
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		CollisionBox near = new CollisionBox(16, 16, 8, 8);
+		CollisionBox far = new CollisionBox(80, 80, 16, 16);
+		rootQuad.add(near);
+		rootQuad.add(far);
+		rootQuad.add(new CollisionBox(64, 0, 32, 32));
+		rootQuad.add(new CollisionBox(0, 64, 32, 32));
+		rootQuad.add(new CollisionBox(40, 40, 2, 2));
+
+		RaycastResult<CollisionBox> result = new RaycastResult<CollisionBox>();
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(0, 0, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(16f, result.getX(), 0.001f);
+		Assert.assertEquals(16f, result.getY(), 0.001f);
+		Assert.assertEquals(new Point(16, 16).dst(0, 0), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(128, 128, 0, 0), result));
+		Assert.assertEquals(far, result.getElement());
+		Assert.assertEquals(96f, result.getX(), 0.001f);
+		Assert.assertEquals(96f, result.getY(), 0.001f);
+
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(20, 20, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(0f, result.getDistance());
+
+		Assert.assertEquals(false, rootQuad.raycast(new LineSegment(0, 120, 128, 120), result));
+		Assert.assertEquals(false, result.isHit());
+	}
+	
+	@Test
+	public void testFindCollidingPairs() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 300; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 1 + random.nextInt(32), 1 + random.nextInt(32)));
+		}
+		rootQuad.addAll(boxes);
+		
+		int expectedPairs = 0;
+		for(int i = 0; i < boxes.size(); i++) {
+			for(int j = i + 1; j < boxes.size(); j++) {
+				if(boxes.get(i).intersects(boxes.get(j))) {
+					expectedPairs++;
+				}
+			}
+		}
+		
+		final Set<String> pairs = Collections.synchronizedSet(new HashSet<String>());
+		PairCallback<CollisionBox> callback = new PairCallback<CollisionBox>() {
+			@Override
+			public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+				Assert.assertEquals(true, elementA.intersects(elementB));
+				Assert.assertEquals(true, pairs.add(Math.min(elementA.getId(), elementB.getId()) + ":"
+						+ Math.max(elementA.getId(), elementB.getId())));
+			}
+		};
+		rootQuad.findCollidingPairs(callback);
+		Assert.assertEquals(expectedPairs, pairs.size());
+		
+		pairs.clear();
+		rootQuad.findCollidingPairs(callback, new ForkJoinPool());
+		Assert.assertEquals(expectedPairs, pairs.size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRadius() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		rootQuad.addAll(boxes);
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			float radius = random.nextInt(64);
+			List<CollisionBox> result = rootQuad.getElementsWithinRadius(x, y, radius);
+			int expected = 0;
+			for(CollisionBox box : boxes) {
+				if(getDistance(box, x, y) <= radius) {
+					expected++;
+				}
+			}
+			Assert.assertEquals(expected, result.size());
+		}
+	}
+	
+	private float getDistance(CollisionBox box, float x, float y) {
+		float dx = box.getX() - x;
+		float dy = box.getY() - y;
+		return (float) Math.sqrt((dx * dx) + (dy * dy));
+	}
 }
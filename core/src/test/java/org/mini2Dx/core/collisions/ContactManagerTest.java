@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link ContactManager}
+ */
+public class ContactManagerTest implements ContactListener<CollisionBox> {
+	private static final int WARMUP_ITERATIONS = 10000;
+
+	private RegionQuadTree<CollisionBox> quadTree;
+	private ContactManager<CollisionBox> contactManager;
+	private CollisionBox box1, box2, box3;
+
+	private int totalEnters, totalStays, totalExits;
+	private CollisionBox lastElementA, lastElementB;
+
+	@Before
+	public void setUp() {
+		quadTree = new RegionQuadTree<CollisionBox>(8, 0, 0, 256, 256);
+		contactManager = new ContactManager<CollisionBox>(quadTree, this);
+
+		box1 = new CollisionBox(32, 32, 16, 16);
+		box2 = new CollisionBox(40, 40, 16, 16);
+		box3 = new CollisionBox(128, 128, 16, 16);
+		contactManager.add(box1);
+		contactManager.add(box2);
+		contactManager.add(box3);
+	}
+
+	@Test
+	public void testEnterAndStay() {
+		contactManager.update();
+		Assert.assertEquals(1, totalEnters);
+		Assert.assertEquals(0, totalStays);
+		Assert.assertEquals(0, totalExits);
+		Assert.assertEquals(1, contactManager.getTotalContacts());
+		Assert.assertEquals(true, contactManager.isInContact(box1, box2));
+		Assert.assertEquals(true, contactManager.isInContact(box2, box1));
+		Assert.assertEquals(false, contactManager.isInContact(box1, box3));
+
+		resetCounts();
+		contactManager.update();
+		Assert.assertEquals(0, totalEnters);
+		Assert.assertEquals(1, totalStays);
+		Assert.assertEquals(0, totalExits);
+
+		resetCounts();
+		box2.set(36, 36, 16, 16);
+		contactManager.update();
+		Assert.assertEquals(0, totalEnters);
+		Assert.assertEquals(1, totalStays);
+		Assert.assertEquals(0, totalExits);
+	}
+
+	@Test
+	public void testLowerIdFirst() {
+		contactManager.update();
+		Assert.assertEquals(true, lastElementA == box1);
+		Assert.assertEquals(true, lastElementB == box2);
+	}
+
+	@Test
+	public void testExitWhenMovedApart() {
+		contactManager.update();
+		resetCounts();
+
+		box1.setX(96);
+		contactManager.update();
+		Assert.assertEquals(0, totalEnters);
+		Assert.assertEquals(0, totalStays);
+		Assert.assertEquals(1, totalExits);
+		Assert.assertEquals(0, contactManager.getTotalContacts());
+		Assert.assertEquals(false, contactManager.isInContact(box1, box2));
+
+		resetCounts();
+		contactManager.update();
+		Assert.assertEquals(0, totalEnters + totalStays + totalExits);
+	}
+
+	@Test
+	public void testEnterWhenMovedTogether() {
+		contactManager.update();
+		resetCounts();
+
+		box3.setPosition(44, 44);
+		contactManager.update();
+		Assert.assertEquals(2, totalEnters);
+		Assert.assertEquals(1, totalStays);
+		Assert.assertEquals(3, contactManager.getTotalContacts());
+		Assert.assertEquals(true, contactManager.isInContact(box1, box3));
+		Assert.assertEquals(true, contactManager.isInContact(box2, box3));
+	}
+
+	@Test
+	public void testExitWhenRemoved() {
+		box3.setPosition(44, 44);
+		contactManager.update();
+		Assert.assertEquals(3, totalEnters);
+		resetCounts();
+
+		contactManager.remove(box3);
+		contactManager.update();
+		Assert.assertEquals(2, totalExits);
+		Assert.assertEquals(1, totalStays);
+		Assert.assertEquals(1, contactManager.getTotalContacts());
+		Assert.assertEquals(false, quadTree.getElements().contains(box3));
+
+		//Removed elements are no longer tracked
+		resetCounts();
+		box3.setPosition(36, 36);
+		contactManager.update();
+		Assert.assertEquals(0, totalEnters);
+		Assert.assertEquals(1, contactManager.getTotalContacts());
+	}
+
+	@Test
+	public void testRemoveAndAddBeforeUpdate() {
+		contactManager.update();
+		resetCounts();
+
+		contactManager.remove(box2);
+		contactManager.add(box2);
+		contactManager.update();
+		Assert.assertEquals(0, totalEnters);
+		Assert.assertEquals(1, totalStays);
+		Assert.assertEquals(0, totalExits);
+	}
+
+	@Test
+	public void testElementsAddedToQuadTree() {
+		CollisionBox wall = new CollisionBox(128, 0, 16, 256);
+		CollisionBox otherWall = new CollisionBox(120, 0, 16, 256);
+		quadTree.add(wall);
+		quadTree.add(otherWall);
+		contactManager.update();
+		//Walls are only found by the elements added to the ContactManager
+		Assert.assertEquals(false, contactManager.isInContact(wall, otherWall));
+		Assert.assertEquals(true, contactManager.isInContact(box3, wall));
+		Assert.assertEquals(true, contactManager.isInContact(box3, otherWall));
+		Assert.assertEquals(3, contactManager.getTotalContacts());
+
+		resetCounts();
+		box3.setX(160);
+		contactManager.update();
+		Assert.assertEquals(2, totalExits);
+		Assert.assertEquals(1, contactManager.getTotalContacts());
+	}
+
+	@Test
+	public void testContactsWithSameKey() {
+		quadTree = new RegionQuadTree<CollisionBox>(8, 0, 0, 256, 256);
+		contactManager = new ContactManager<CollisionBox>(quadTree, this);
+		box1 = new FixedIdCollisionBox(1L, 32, 32, 16, 16);
+		box2 = new FixedIdCollisionBox(2L, 40, 40, 16, 16);
+		box3 = new FixedIdCollisionBox((1L << 32) + 2L, 20, 20, 16, 16);
+		Assert.assertEquals(ContactManager.getContactKey(box1.getId(), box2.getId()),
+				ContactManager.getContactKey(box1.getId(), box3.getId()));
+		contactManager.add(box1);
+		contactManager.add(box2);
+		contactManager.add(box3);
+
+		contactManager.update();
+		Assert.assertEquals(2, totalEnters);
+		Assert.assertEquals(2, contactManager.getTotalContacts());
+		Assert.assertEquals(true, contactManager.isInContact(box1, box2));
+		Assert.assertEquals(true, contactManager.isInContact(box1, box3));
+		Assert.assertEquals(false, contactManager.isInContact(box2, box3));
+
+		resetCounts();
+		box2.setX(128);
+		contactManager.update();
+		Assert.assertEquals(1, totalExits);
+		Assert.assertEquals(1, totalStays);
+		Assert.assertEquals(false, contactManager.isInContact(box1, box2));
+		Assert.assertEquals(true, contactManager.isInContact(box1, box3));
+
+		resetCounts();
+		box3.setX(128);
+		contactManager.update();
+		Assert.assertEquals(1, totalExits);
+		Assert.assertEquals(0, contactManager.getTotalContacts());
+		Assert.assertEquals(false, contactManager.isInContact(box1, box3));
+	}
+
+	@Test
+	public void testUpdateDoesNotAllocate() {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			moveAndUpdate(i);
+		}
+		long result = Long.MAX_VALUE;
+		//Take the lowest of several measurements to ignore one-off JVM allocations
+		for (int i = 0; i < 5; i++) {
+			long threadId = Thread.currentThread().getId();
+			long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+			for (int j = 0; j < 1000; j++) {
+				moveAndUpdate(j);
+			}
+			result = Math.min(result, threadMXBean.getThreadAllocatedBytes(threadId) - startBytes);
+		}
+		Assert.assertEquals(true, totalEnters > 0);
+		Assert.assertEquals(true, totalExits > 0);
+		Assert.assertEquals(0L, result);
+	}
+
+	private void moveAndUpdate(int iteration) {
+		if (iteration % 2 == 0) {
+			box3.setPosition(44, 44);
+		} else {
+			box3.setPosition(128, 128);
+		}
+		contactManager.update();
+	}
+
+	private void resetCounts() {
+		totalEnters = 0;
+		totalStays = 0;
+		totalExits = 0;
+	}
+
+	@Override
+	public void onEnter(CollisionBox elementA, CollisionBox elementB) {
+		totalEnters++;
+		lastElementA = elementA;
+		lastElementB = elementB;
+	}
+
+	@Override
+	public void onStay(CollisionBox elementA, CollisionBox elementB) {
+		totalStays++;
+	}
+
+	@Override
+	public void onExit(CollisionBox elementA, CollisionBox elementB) {
+		totalExits++;
+	}
+
+	private static class FixedIdCollisionBox extends CollisionBox {
+		private final long id;
+
+		public FixedIdCollisionBox(long id, float x, float y, float width, float height) {
+			super(x, y, width, height);
+			this.id = id;
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (!result.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			result.setThreadAllocatedMemoryEnabled(true);
+			return result;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+}
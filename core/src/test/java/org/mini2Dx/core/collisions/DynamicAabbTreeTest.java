@@ -0,0 +1,406 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link DynamicAabbTree}
+ */
+public class DynamicAabbTreeTest {
+	private DynamicAabbTree<CollisionBox> tree;
+	private CollisionBox box1, box2, box3, box4;
+	
+	@Before
+	public void setup() {
+		tree = new DynamicAabbTree<CollisionBox>(0, 0, 128, 128);
+		
+		box1 = new CollisionBox(0, 0, 32, 32);
+		box2 = new CollisionBox(96, 0, 32, 32);
+		box3 = new CollisionBox(0, 96, 32, 32);
+		box4 = new CollisionBox(96, 96, 32, 32);
+	}
+	
+	@Test
+	public void testAdd() {
+		Random random = new Random();
+		for(int i = 0; i < 100; i++) {
+			Assert.assertEquals(true, tree.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32f, 32f)));
+			Assert.assertEquals(i + 1, tree.getTotalElements());
+			Assert.assertEquals((2 * (i + 1)) - 1, tree.getTotalQuads());
+		}
+		Assert.assertEquals(false, tree.add(new CollisionBox(256f, 256f, 32f, 32f)));
+		Assert.assertEquals(true, tree.add(new CollisionBox(-16f, -16f, 32f, 32f)));
+		Assert.assertEquals(true, tree.add(box1));
+		Assert.assertEquals(false, tree.add(box1));
+		Assert.assertEquals(102, tree.getTotalElements());
+	}
+	
+	@Test
+	public void testAddAll() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32f, 32f));
+		}
+		tree.addAll(boxes);
+		Assert.assertEquals(boxes.size(), tree.getTotalElements());
+		Assert.assertEquals(boxes.size(), tree.getElements().size());
+	}
+	
+	@Test
+	public void testRemove() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 1000; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32f, 32f));
+		}
+		tree.addAll(boxes);
+		for(int i = boxes.size() - 1; i >= 0; i--) {
+			Assert.assertEquals(true, tree.remove(boxes.get(i)));
+			Assert.assertEquals(i, tree.getTotalElements());
+		}
+		Assert.assertEquals(false, tree.remove(box1));
+		Assert.assertEquals(0, tree.getTotalQuads());
+		Assert.assertEquals(-1, tree.getTreeHeight());
+	}
+	
+	@Test
+	public void testRemoveAll() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32f, 32f));
+		}
+		tree.addAll(boxes);
+		tree.removeAll(boxes);
+		Assert.assertEquals(0, tree.getTotalElements());
+		Assert.assertEquals(0, tree.getElements().size());
+	}
+	
+	@Test
+	public void testBalance() {
+		DynamicAabbTree<CollisionBox> tree = new DynamicAabbTree<CollisionBox>(0, 0, 65536, 16);
+		//Sorted inserts would form a list without rotations
+		for(int i = 0; i < 4096; i++) {
+			tree.add(new CollisionBox(i * 16, 0, 8, 8));
+		}
+		Assert.assertEquals(true, tree.getTreeHeight() <= 16);
+		
+		List<CollisionBox> boxes = tree.getElements();
+		for(int i = 0; i < boxes.size(); i += 2) {
+			tree.remove(boxes.get(i));
+		}
+		Assert.assertEquals(2048, tree.getTotalElements());
+		Assert.assertEquals(true, tree.getTreeHeight() <= 15);
+	}
+	
+	@Test
+	public void testPositionChanged() {
+		tree.add(box1);
+		tree.add(box4);
+		
+		//Moves within the margin keep the leaf's bounds
+		box1.setPosition(2f, 2f);
+		Assert.assertEquals(true, tree.getElementsContainingPoint(new Point(33f, 33f)).contains(box1));
+		
+		box1.setPosition(48f, 48f);
+		Assert.assertEquals(true, tree.getElementsContainingPoint(new Point(64f, 64f)).contains(box1));
+		Assert.assertEquals(false, tree.getElementsContainingPoint(new Point(16f, 16f)).contains(box1));
+		Assert.assertEquals(1, tree.getElementsWithinRegion(new Rectangle(40, 40, 8, 8)).size());
+		
+		box1.setPosition(-16f, -16f);
+		Assert.assertEquals(2, tree.getTotalElements());
+		box1.setPosition(-33f, -33f);
+		Assert.assertEquals(1, tree.getTotalElements());
+		Assert.assertEquals(false, tree.getElements().contains(box1));
+	}
+	
+	@Test
+	public void testMixedSizes() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 20; i++) {
+			boxes.add(new CollisionBox(random.nextInt(128), random.nextInt(128), 64 + random.nextInt(64), 2));
+			boxes.add(new CollisionBox(random.nextInt(128), random.nextInt(128), 2, 64 + random.nextInt(64)));
+		}
+		for(int i = 0; i < 200; i++) {
+			boxes.add(new CollisionBox(random.nextInt(128), random.nextInt(128), 1 + random.nextInt(4), 1 + random.nextInt(4)));
+		}
+		tree.addAll(boxes);
+		
+		for(int i = 0; i < 50; i++) {
+			for(int j = 0; j < boxes.size(); j += 3) {
+				CollisionBox box = boxes.get(j);
+				box.setPosition(box.getX() + random.nextInt(17) - 8, box.getY() + random.nextInt(17) - 8);
+			}
+			Rectangle region = new Rectangle(random.nextInt(128), random.nextInt(128), 1 + random.nextInt(32), 1 + random.nextInt(32));
+			List<CollisionBox> result = tree.getElementsWithinRegion(region);
+			int expected = 0;
+			for(CollisionBox box : tree.getElements()) {
+				if(region.contains(box) || region.intersects(box)) {
+					expected++;
+					Assert.assertEquals(true, result.contains(box));
+				}
+			}
+			Assert.assertEquals(expected, result.size());
+		}
+	}
+	
+	@Test
+	public void testGetElementsWithinRegion() {
+		tree.add(box1);
+		tree.add(box2);
+		tree.add(box3);
+		tree.add(box4);
+		
+		Assert.assertEquals(0, tree.getElementsWithinRegion(new CollisionBox(48, 48, 32, 32)).size());
+		
+		CollisionBox box5 = new CollisionBox(24, 24, 2, 2);
+		CollisionBox box6 = new CollisionBox(48, 48, 32, 32);
+		CollisionBox box7 = new CollisionBox(12, 48, 8, 8);
+		tree.add(box5);
+		tree.add(box6);
+		tree.add(box7);
+		
+		Assert.assertEquals(7, tree.getElementsWithinRegion(new CollisionBox(0, 0, 128, 128)).size());
+		
+		List<CollisionBox> boxes = tree.getElementsWithinRegion(new CollisionBox(33, 33, 32, 32));
+		Assert.assertEquals(1, boxes.size());
+		Assert.assertEquals(box6, boxes.get(0));
+		
+		boxes = tree.getElementsWithinRegion(new CollisionBox(16, 16, 24, 24));
+		Assert.assertEquals(2, boxes.size());
+		Assert.assertEquals(true, boxes.contains(box1));
+		Assert.assertEquals(true, boxes.contains(box5));
+	}
+	
+	@Test
+	public void testGetElementsIntersectingLineSegment() {
+		tree.add(box1);
+		tree.add(box2);
+		tree.add(box3);
+		tree.add(box4);
+		
+		List<CollisionBox> boxes = tree.getElementsIntersectingLineSegment(new LineSegment(0, 0, 128, 128));
+		Assert.assertEquals(2, boxes.size());
+		Assert.assertEquals(true, boxes.contains(box1));
+		Assert.assertEquals(true, boxes.contains(box4));
+		
+		boxes = tree.getElementsIntersectingLineSegment(new LineSegment(112, 0, 112, 128));
+		Assert.assertEquals(2, boxes.size());
+		Assert.assertEquals(true, boxes.contains(box2));
+		Assert.assertEquals(true, boxes.contains(box4));
+		
+		Assert.assertEquals(0, tree.getElementsIntersectingLineSegment(new LineSegment(64, 0, 64, 128)).size());
+	}
+	
+	@Test
+	public void testGetElementsContainingPoint() {
+		tree.add(box1);
+		tree.add(box2);
+		tree.add(box3);
+		tree.add(box4);
+		
+		List<CollisionBox> boxes = tree.getElementsContainingPoint(new Point(16, 16));
+		Assert.assertEquals(1, boxes.size());
+		Assert.assertEquals(true, boxes.contains(box1));
+		
+		boxes = tree.getElementsContainingPoint(new Point(112, 112));
+		Assert.assertEquals(1, boxes.size());
+		Assert.assertEquals(true, boxes.contains(box4));
+		
+		Assert.assertEquals(0, tree.getElementsContainingPoint(new Point(64, 64)).size());
+	}
+	
+	@Test
+	public void testDeferredPositionChanges() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		tree.addAll(boxes);
+		tree.add(box1);
+		
+		tree.setDeferPositionChanges(true);
+		Assert.assertEquals(true, tree.isDeferringPositionChanges());
+		for(int i = 0; i < 10; i++) {
+			box1.setPosition(random.nextInt(96), random.nextInt(96));
+		}
+		box1.setPosition(80f, 80f);
+		CollisionBox removedBox = boxes.get(0);
+		removedBox.setPosition(256f, 256f);
+		tree.flushPositionChanges();
+		
+		Assert.assertEquals(true, tree.getElementsContainingPoint(new Point(96f, 96f)).contains(box1));
+		Assert.assertEquals(false, tree.getElementsContainingPoint(new Point(60f, 60f)).contains(box1));
+		Assert.assertEquals(false, tree.getElements().contains(removedBox));
+		Assert.assertEquals(100, tree.getTotalElements());
+		
+		CollisionBox movedBox = boxes.get(1);
+		movedBox.setPosition(48f, 48f);
+		tree.setDeferPositionChanges(false);
+		Assert.assertEquals(false, tree.isDeferringPositionChanges());
+		Assert.assertEquals(true, tree.getElementsContainingPoint(new Point(64f, 64f)).contains(movedBox));
+	}
+	
+	@Test
+	public void testGetNearestElements() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		tree.addAll(boxes);
+		
+		Assert.assertEquals(0, tree.getNearestElements(64f, 64f, 0).size());
+		Assert.assertEquals(100, tree.getNearestElements(64f, 64f, 200).size());
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			List<CollisionBox> result = tree.getNearestElements(x, y, 5);
+			Assert.assertEquals(5, result.size());
+			
+			float furthestDistance = 0f;
+			for(CollisionBox box : result) {
+				Assert.assertEquals(true, getDistance(box, x, y) >= furthestDistance);
+				furthestDistance = getDistance(box, x, y);
+			}
+			for(CollisionBox box : boxes) {
+				Assert.assertEquals(true, result.contains(box) || getDistance(box, x, y) >= furthestDistance);
+			}
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		CollisionBox near = new CollisionBox(16, 16, 8, 8);
+		CollisionBox far = new CollisionBox(80, 80, 16, 16);
+		tree.add(near);
+		tree.add(far);
+		tree.add(new CollisionBox(64, 0, 32, 32));
+		tree.add(new CollisionBox(0, 64, 32, 32));
+		tree.add(new CollisionBox(40, 40, 2, 2));
+
+		RaycastResult<CollisionBox> result = new RaycastResult<CollisionBox>();
+		Assert.assertEquals(true, tree.raycast(new LineSegment(0, 0, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(16f, result.getX(), 0.001f);
+		Assert.assertEquals(16f, result.getY(), 0.001f);
+
+		Assert.assertEquals(true, tree.raycast(new LineSegment(128, 128, 0, 0), result));
+		Assert.assertEquals(far, result.getElement());
+		Assert.assertEquals(96f, result.getX(), 0.001f);
+		Assert.assertEquals(96f, result.getY(), 0.001f);
+
+		Assert.assertEquals(false, tree.raycast(new LineSegment(0, 120, 128, 120), result));
+		Assert.assertEquals(false, result.isHit());
+	}
+	
+	@Test
+	public void testSweep() {
+		CollisionBox wall = new CollisionBox(64, 0, 2, 128);
+		CollisionBox farWall = new CollisionBox(100, 0, 2, 128);
+		CollisionBox bullet = new CollisionBox(8, 60, 4, 4);
+		tree.add(wall);
+		tree.add(farWall);
+		tree.add(bullet);
+
+		bullet.preUpdate();
+		bullet.setX(112);
+		Assert.assertEquals(false, tree.getElementsWithinRegion(bullet).contains(wall));
+
+		SweepResult<CollisionBox> result = new SweepResult<CollisionBox>();
+		Assert.assertEquals(true, tree.sweep(bullet, result));
+		Assert.assertEquals(true, result.getElement() == wall);
+		Assert.assertEquals(0.5f, result.getTimeOfImpact(), 0.001f);
+
+		bullet.preUpdate();
+		bullet.setY(100);
+		Assert.assertEquals(false, tree.sweep(bullet, result));
+		Assert.assertEquals(false, result.isHit());
+	}
+	
+	@Test
+	public void testFindCollidingPairs() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 300; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 1 + random.nextInt(32), 1 + random.nextInt(32)));
+		}
+		tree.addAll(boxes);
+		
+		int expectedPairs = 0;
+		for(int i = 0; i < boxes.size(); i++) {
+			for(int j = i + 1; j < boxes.size(); j++) {
+				if(boxes.get(i).intersects(boxes.get(j))) {
+					expectedPairs++;
+				}
+			}
+		}
+		
+		final Set<String> pairs = new HashSet<String>();
+		tree.findCollidingPairs(new PairCallback<CollisionBox>() {
+			@Override
+			public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+				Assert.assertEquals(true, elementA.intersects(elementB));
+				Assert.assertEquals(true, pairs.add(Math.min(elementA.getId(), elementB.getId()) + ":"
+						+ Math.max(elementA.getId(), elementB.getId())));
+			}
+		});
+		Assert.assertEquals(expectedPairs, pairs.size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRadius() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		tree.addAll(boxes);
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			float radius = random.nextInt(64);
+			int expected = 0;
+			for(CollisionBox box : boxes) {
+				if(getDistance(box, x, y) <= radius) {
+					expected++;
+				}
+			}
+			Assert.assertEquals(expected, tree.getElementsWithinRadius(x, y, radius).size());
+		}
+	}
+	
+	private float getDistance(CollisionBox box, float x, float y) {
+		float dx = box.getX() - x;
+		float dy = box.getY() - y;
+		return (float) Math.sqrt((dx * dx) + (dy * dy));
+	}
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link LooseRegionQuadTree}. Query results are compared
+ * against a {@link RegionQuadTree} containing elements at the same positions.
+ */
+public class LooseRegionQuadTreeTest {
+	private static final int TOTAL_ELEMENTS = 500;
+	private static final int TOTAL_QUERIES = 100;
+
+	private LooseRegionQuadTree<CollisionBox> rootQuad;
+	private RegionQuadTree<CollisionBox> regionQuadTree;
+	private List<CollisionBox> looseElements, regionElements;
+	private Random random;
+
+	@Before
+	public void setup() {
+		rootQuad = new LooseRegionQuadTree<CollisionBox>(4, 2, 0, 0, 512, 512);
+		regionQuadTree = new RegionQuadTree<CollisionBox>(4, 2, 0, 0, 512, 512);
+		looseElements = new ArrayList<CollisionBox>();
+		regionElements = new ArrayList<CollisionBox>();
+		random = new Random(1234L);
+
+		for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+			float x = random.nextInt(480);
+			float y = random.nextInt(480);
+			float width = 1 + random.nextInt(32);
+			float height = 1 + random.nextInt(32);
+			CollisionBox looseElement = new CollisionBox(x, y, width, height);
+			CollisionBox regionElement = new CollisionBox(x, y, width, height);
+			Assert.assertEquals(true, rootQuad.add(looseElement));
+			Assert.assertEquals(true, regionQuadTree.add(regionElement));
+			looseElements.add(looseElement);
+			regionElements.add(regionElement);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoosenessLessThanOne() {
+		new LooseRegionQuadTree<CollisionBox>(4, 0, 0.5f, 0, 0, 128, 128);
+	}
+
+	@Test
+	public void testAddStraddlingElement() {
+		LooseRegionQuadTree<CollisionBox> quad = new LooseRegionQuadTree<CollisionBox>(2, 0, 0, 128, 128);
+		quad.add(new CollisionBox(0, 0, 8, 8));
+		quad.add(new CollisionBox(120, 0, 8, 8));
+		quad.add(new CollisionBox(0, 120, 8, 8));
+		Assert.assertEquals(4, quad.getTotalQuads());
+
+		CollisionBox straddlingElement = new CollisionBox(60, 60, 8, 8);
+		Assert.assertEquals(true, quad.add(straddlingElement));
+		Assert.assertEquals(false, quad.elements.contains(straddlingElement));
+		Assert.assertEquals(true, quad.getElementsWithinRegion(new Rectangle(62, 62, 1, 1)).contains(straddlingElement));
+
+		RegionQuadTree<CollisionBox> regionQuad = new RegionQuadTree<CollisionBox>(2, 0, 0, 128, 128);
+		regionQuad.add(new CollisionBox(0, 0, 8, 8));
+		regionQuad.add(new CollisionBox(120, 0, 8, 8));
+		regionQuad.add(new CollisionBox(0, 120, 8, 8));
+		regionQuad.add(new CollisionBox(60, 60, 8, 8));
+		Assert.assertEquals(1, regionQuad.elements.size());
+	}
+
+	@Test
+	public void testBulkLoad() {
+		LooseRegionQuadTree<CollisionBox> bulkLoadedQuad = new LooseRegionQuadTree<CollisionBox>(4, 2, 0, 0, 512, 512);
+		bulkLoadedQuad.bulkLoad(looseElements);
+		Assert.assertEquals(TOTAL_ELEMENTS, bulkLoadedQuad.getTotalElements());
+		for (CollisionBox element : looseElements) {
+			rootQuad.remove(element);
+		}
+		rootQuad = bulkLoadedQuad;
+		testGetElementsWithinRegion();
+		testFindCollidingPairs();
+	}
+
+	@Test
+	public void testElementPartiallyOutsideRoot() {
+		CollisionBox element = new CollisionBox(-40f, -40f, 64f, 64f);
+		Assert.assertEquals(true, rootQuad.add(element));
+		Assert.assertEquals(true, rootQuad.elements.contains(element));
+		Assert.assertEquals(TOTAL_ELEMENTS + 1, rootQuad.getTotalElements());
+		Assert.assertEquals(true, rootQuad.remove(element));
+		Assert.assertEquals(TOTAL_ELEMENTS, rootQuad.getTotalElements());
+	}
+
+	@Test
+	public void testGetElementsWithinRegion() {
+		for (int i = 0; i < TOTAL_QUERIES; i++) {
+			Rectangle area = new Rectangle(random.nextInt(512), random.nextInt(512), random.nextInt(128),
+					random.nextInt(128));
+			assertSameElements(regionQuadTree.getElementsWithinRegion(area), rootQuad.getElementsWithinRegion(area));
+		}
+	}
+
+	@Test
+	public void testGetElementsContainingPoint() {
+		for (int i = 0; i < TOTAL_QUERIES; i++) {
+			Point point = new Point(random.nextInt(512), random.nextInt(512));
+			assertSameElements(regionQuadTree.getElementsContainingPoint(point),
+					rootQuad.getElementsContainingPoint(point));
+		}
+	}
+
+	@Test
+	public void testGetElementsIntersectingLineSegment() {
+		for (int i = 0; i < TOTAL_QUERIES; i++) {
+			LineSegment lineSegment = new LineSegment(random.nextInt(512), random.nextInt(512), random.nextInt(512),
+					random.nextInt(512));
+			assertSameElements(regionQuadTree.getElementsIntersectingLineSegment(lineSegment),
+					rootQuad.getElementsIntersectingLineSegment(lineSegment));
+		}
+	}
+
+	@Test
+	public void testRaycast() {
+		RaycastResult<CollisionBox> regionResult = new RaycastResult<CollisionBox>();
+		RaycastResult<CollisionBox> looseResult = new RaycastResult<CollisionBox>();
+		for (int i = 0; i < TOTAL_QUERIES; i++) {
+			LineSegment ray = new LineSegment(random.nextInt(512), random.nextInt(512), random.nextInt(512),
+					random.nextInt(512));
+			Assert.assertEquals(regionQuadTree.raycast(ray, regionResult), rootQuad.raycast(ray, looseResult));
+			Assert.assertEquals(regionResult.getDistance(), looseResult.getDistance());
+		}
+	}
+
+	@Test
+	public void testGetElementsWithinRadius() {
+		for (int i = 0; i < TOTAL_QUERIES; i++) {
+			float x = random.nextInt(512);
+			float y = random.nextInt(512);
+			float radius = random.nextInt(64);
+			assertSameElements(regionQuadTree.getElementsWithinRadius(x, y, radius),
+					rootQuad.getElementsWithinRadius(x, y, radius));
+		}
+	}
+
+	@Test
+	public void testFindCollidingPairs() {
+		Assert.assertEquals(getTotalCollidingPairs(regionQuadTree), getTotalCollidingPairs(rootQuad));
+	}
+
+	@Test
+	public void testPositionChanged() {
+		for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+			float x = random.nextInt(480);
+			float y = random.nextInt(480);
+			looseElements.get(i).forceTo(x, y);
+			regionElements.get(i).forceTo(x, y);
+		}
+		Assert.assertEquals(TOTAL_ELEMENTS, rootQuad.getTotalElements());
+		Assert.assertEquals(TOTAL_ELEMENTS, rootQuad.getElements().size());
+		testGetElementsWithinRegion();
+		testFindCollidingPairs();
+	}
+
+	@Test
+	public void testPositionChangedDeferred() {
+		rootQuad.setDeferPositionChanges(true);
+		for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+			float x = random.nextInt(480);
+			float y = random.nextInt(480);
+			looseElements.get(i).forceTo(x, y);
+			regionElements.get(i).forceTo(x, y);
+		}
+		rootQuad.flushPositionChanges();
+		Assert.assertEquals(TOTAL_ELEMENTS, rootQuad.getTotalElements());
+		Assert.assertEquals(TOTAL_ELEMENTS, rootQuad.getElements().size());
+		testGetElementsWithinRegion();
+	}
+
+	@Test
+	public void testRemove() {
+		for (int i = TOTAL_ELEMENTS - 1; i >= 0; i -= 2) {
+			Assert.assertEquals(true, rootQuad.remove(looseElements.remove(i)));
+			Assert.assertEquals(true, regionQuadTree.remove(regionElements.remove(i)));
+		}
+		Assert.assertEquals(looseElements.size(), rootQuad.getTotalElements());
+		testGetElementsWithinRegion();
+
+		for (CollisionBox element : looseElements) {
+			Assert.assertEquals(true, rootQuad.remove(element));
+		}
+		Assert.assertEquals(0, rootQuad.getTotalElements());
+		Assert.assertEquals(1, rootQuad.getTotalQuads());
+	}
+
+	private void assertSameElements(List<CollisionBox> expected, List<CollisionBox> result) {
+		Assert.assertEquals(expected.size(), result.size());
+		Set<Integer> expectedIndices = new HashSet<Integer>();
+		for (CollisionBox element : expected) {
+			expectedIndices.add(indexOf(regionElements, element));
+		}
+		for (CollisionBox element : result) {
+			Assert.assertEquals(true, expectedIndices.contains(indexOf(looseElements, element)));
+		}
+	}
+
+	private static int indexOf(List<CollisionBox> elements, CollisionBox element) {
+		for (int i = 0; i < elements.size(); i++) {
+			if (elements.get(i) == element) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int getTotalCollidingPairs(QuadTree<CollisionBox> quadTree) {
+		final int[] result = new int[1];
+		quadTree.findCollidingPairs(new PairCallback<CollisionBox>() {
+			@Override
+			public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+				result[0]++;
+			}
+		});
+		return result[0];
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link OptimisticReadWriteLock}
+ */
+public class OptimisticReadWriteLockTest {
+	private OptimisticReadWriteLock lock;
+
+	@Before
+	public void setup() {
+		lock = new OptimisticReadWriteLock();
+	}
+
+	@Test
+	public void testValidateWithoutWrite() {
+		long stamp = lock.tryOptimisticRead();
+		Assert.assertEquals(true, stamp != 0L);
+		Assert.assertEquals(true, lock.validate(stamp));
+
+		lock.readLock().lock();
+		lock.readLock().unlock();
+		Assert.assertEquals(true, lock.validate(stamp));
+	}
+
+	@Test
+	public void testValidateAfterWrite() {
+		long stamp = lock.tryOptimisticRead();
+		lock.writeLock().lock();
+		lock.writeLock().unlock();
+		Assert.assertEquals(false, lock.validate(stamp));
+		Assert.assertEquals(true, lock.validate(lock.tryOptimisticRead()));
+	}
+
+	@Test
+	public void testTryOptimisticReadDuringWrite() {
+		lock.writeLock().lock();
+		Assert.assertEquals(0L, lock.tryOptimisticRead());
+		Assert.assertEquals(false, lock.validate(0L));
+		lock.writeLock().unlock();
+		Assert.assertEquals(true, lock.tryOptimisticRead() != 0L);
+	}
+
+	@Test
+	public void testReentrantWrite() {
+		long stamp = lock.tryOptimisticRead();
+		lock.writeLock().lock();
+		lock.writeLock().lock();
+		lock.writeLock().unlock();
+		Assert.assertEquals(0L, lock.tryOptimisticRead());
+		lock.writeLock().unlock();
+
+		long nextStamp = lock.tryOptimisticRead();
+		Assert.assertEquals(true, nextStamp != 0L);
+		Assert.assertEquals(false, lock.validate(stamp));
+	}
+
+	@Test
+	public void testDowngradeWriteToRead() {
+		lock.writeLock().lock();
+		lock.readLock().lock();
+		lock.writeLock().unlock();
+
+		long stamp = lock.tryOptimisticRead();
+		Assert.assertEquals(true, stamp != 0L);
+		lock.readLock().unlock();
+		Assert.assertEquals(true, lock.validate(stamp));
+	}
+}
@@ -12,13 +12,17 @@
 package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mini2Dx.core.engine.geom.CollisionPoint;
 import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
 import org.mini2Dx.core.geom.Rectangle;
 
 import junit.framework.Assert;
@@ -59,6 +63,38 @@ public class PointQuadTreeTest {
 		Assert.assertEquals(points.size(), rootQuad.getTotalElements());
 	}
 	
+	@Test
+	public void testBulkLoad() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 1000; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		points.add(new CollisionPoint(256, 256));
+		
+		QuadTree<CollisionPoint> incrementalQuad = new PointQuadTree<CollisionPoint>(2, 0, 0, 128, 128);
+		incrementalQuad.addAll(points);
+		rootQuad.add(point1);
+		incrementalQuad.add(point1);
+		
+		((PointQuadTree<CollisionPoint>) rootQuad).bulkLoad(points);
+		Assert.assertEquals(incrementalQuad.getTotalElements(), rootQuad.getTotalElements());
+		Assert.assertEquals(points.size(), rootQuad.getTotalElements());
+		
+		for(int i = 0; i < 20; i++) {
+			Rectangle region = new Rectangle(random.nextInt(128), random.nextInt(128), random.nextInt(64) + 1, random.nextInt(64) + 1);
+			List<CollisionPoint> expected = incrementalQuad.getElementsWithinRegion(region);
+			List<CollisionPoint> actual = rootQuad.getElementsWithinRegion(region);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+		}
+		
+		CollisionPoint movedPoint = points.get(0);
+		movedPoint.set(64.5f, 64.5f);
+		Assert.assertEquals(true, rootQuad.getElementsContainingPoint(new Point(64.5f, 64.5f)).contains(movedPoint));
+		Assert.assertEquals(true, rootQuad.remove(movedPoint));
+	}
+	
 	@Test
 	public void testRemove() {
 		Random random = new Random();
@@ -132,6 +168,140 @@ public class PointQuadTreeTest {
 		Assert.assertEquals(true, rootQuad.getElements().contains(point1));
 	}
 	
+	@Test
+	public void testBudgetedMerge() {
+		PointQuadTree<CollisionPoint> quad = new PointQuadTree<CollisionPoint>(4, 3, 0, 0, 128, 128);
+		quad.setMergePolicy(MergePolicy.BUDGETED);
+		quad.add(point1);
+		quad.add(point2);
+		quad.add(point3);
+		quad.add(point4);
+		quad.add(new CollisionPoint(32, 32));
+		Assert.assertEquals(4, quad.getTotalQuads());
+		quad.remove(point4);
+		quad.remove(point3);
+		quad.remove(point2);
+		Assert.assertEquals(4, quad.getTotalQuads());
+		Assert.assertEquals(true, quad.maintain(0L));
+		Assert.assertEquals(1, quad.getTotalQuads());
+		Assert.assertEquals(2, quad.getTotalElements());
+		Assert.assertEquals(true, quad.getElements().contains(point1));
+	}
+	
+	@Test
+	public void testBudgetedMergeWithDeferredPositionChanges() {
+		PointQuadTree<CollisionPoint> quad = new PointQuadTree<CollisionPoint>(4, 3, 0, 0, 128, 128);
+		quad.setMergePolicy(MergePolicy.BUDGETED);
+		CollisionPoint movedPoint = new CollisionPoint(10, 10);
+		CollisionPoint point5 = new CollisionPoint(40, 10);
+		CollisionPoint point6 = new CollisionPoint(10, 40);
+		CollisionPoint point7 = new CollisionPoint(40, 40);
+		quad.add(movedPoint);
+		quad.add(point5);
+		quad.add(point6);
+		quad.add(point7);
+		quad.add(new CollisionPoint(20, 20));
+		quad.add(new CollisionPoint(100, 100));
+		Assert.assertEquals(7, quad.getTotalQuads());
+		quad.remove(point5);
+		quad.remove(point6);
+		quad.remove(point7);
+
+		//The moved point is still recorded against a quad that is merged before the flush
+		quad.setDeferPositionChanges(true);
+		movedPoint.set(100, 20);
+		Assert.assertEquals(true, quad.maintain(Long.MAX_VALUE));
+		Assert.assertEquals(4, quad.getTotalQuads());
+		quad.flushPositionChanges();
+
+		List<CollisionPoint> points = quad.getElementsContainingPoint(new Point(100, 20));
+		Assert.assertEquals(1, points.size());
+		Assert.assertEquals(true, points.contains(movedPoint));
+		Assert.assertEquals(3, quad.getTotalElements());
+	}
+	
+	@Test
+	public void testSubdivideCooldown() {
+		PointQuadTree<CollisionPoint> quad = new PointQuadTree<CollisionPoint>(4, 3, 0, 0, 128, 128);
+		quad.setMergePolicy(MergePolicy.BUDGETED);
+		quad.setSubdivideCooldown(2);
+		quad.add(point1);
+		quad.add(point2);
+		quad.add(point3);
+		quad.add(point4);
+		quad.add(new CollisionPoint(32, 32));
+		quad.remove(point4);
+		quad.remove(point3);
+		quad.remove(point2);
+		quad.maintain(0L);
+		Assert.assertEquals(1, quad.getTotalQuads());
+
+		quad.add(point2);
+		quad.add(point3);
+		quad.add(point4);
+		Assert.assertEquals(1, quad.getTotalQuads());
+		Assert.assertEquals(false, quad.maintain(0L));
+		Assert.assertEquals(1, quad.getTotalQuads());
+		Assert.assertEquals(true, quad.maintain(Long.MAX_VALUE));
+		Assert.assertEquals(4, quad.getTotalQuads());
+		Assert.assertEquals(5, quad.getTotalElements());
+	}
+	
+	@Test
+	public void testImmediateMergePolicyMergesPendingQuads() {
+		PointQuadTree<CollisionPoint> quad = new PointQuadTree<CollisionPoint>(4, 3, 0, 0, 128, 128);
+		quad.setMergePolicy(MergePolicy.BUDGETED);
+		quad.add(point1);
+		quad.add(point2);
+		quad.add(point3);
+		quad.add(point4);
+		quad.add(new CollisionPoint(32, 32));
+		quad.remove(point4);
+		quad.remove(point3);
+		quad.remove(point2);
+		Assert.assertEquals(4, quad.getTotalQuads());
+		quad.setMergePolicy(MergePolicy.IMMEDIATE);
+		Assert.assertEquals(1, quad.getTotalQuads());
+		Assert.assertEquals(2, quad.getTotalElements());
+	}
+	
+	@Test
+	public void testQuadPool() {
+		PointQuadTree<CollisionPoint> quad = new PointQuadTree<CollisionPoint>(4, 3, 0, 0, 128, 128);
+		QuadTreePool<CollisionPoint> pool = quad.getQuadPool();
+		Assert.assertEquals(1, pool.getLiveQuads());
+		quad.add(point1);
+		quad.add(point2);
+		quad.add(point3);
+		quad.add(point4);
+		quad.add(new CollisionPoint(32, 32));
+		Assert.assertEquals(5, pool.getLiveQuads());
+		Assert.assertEquals(0, pool.getFreeQuads());
+		PointQuadTree<CollisionPoint> topLeft = quad.topLeft;
+
+		quad.remove(point4);
+		quad.remove(point3);
+		quad.remove(point2);
+		Assert.assertEquals(1, pool.getLiveQuads());
+		Assert.assertEquals(4, pool.getFreeQuads());
+		Assert.assertEquals(5, pool.getPeakLiveQuads());
+
+		quad.add(point2);
+		quad.add(point3);
+		quad.add(point4);
+		Assert.assertEquals(5, pool.getLiveQuads());
+		Assert.assertEquals(0, pool.getFreeQuads());
+		Assert.assertEquals(4, quad.getTotalQuads());
+		Assert.assertEquals(5, quad.getTotalElements());
+		//Quads are reused in the reverse order they were freed
+		Assert.assertEquals(true, topLeft == quad.bottomRight);
+		Assert.assertEquals(true, quad.getElementsWithinRegion(new Rectangle(96, 96, 32, 32)).contains(point4));
+
+		pool.preallocate(16);
+		Assert.assertEquals(16, pool.getFreeQuads());
+		Assert.assertEquals(5, pool.getLiveQuads());
+	}
+	
 	@Test
 	public void testGetTotalElements() {
 		rootQuad.add(point1);
@@ -200,4 +370,147 @@ public class PointQuadTreeTest {
 		Assert.assertEquals(false, CollisionPoints.contains(point3));
 		Assert.assertEquals(true, CollisionPoints.contains(point4));
 	}
+	
+	@Test
+	public void testDeferredPositionChanges() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		rootQuad.addAll(points);
+		rootQuad.add(point1);
+		
+		rootQuad.setDeferPositionChanges(true);
+		Assert.assertEquals(true, rootQuad.isDeferringPositionChanges());
+		for(int i = 0; i < 10; i++) {
+			point1.set(random.nextInt(128), random.nextInt(128));
+		}
+		point1.set(100.5f, 100.5f);
+		CollisionPoint removedPoint = points.get(0);
+		removedPoint.set(256f, 256f);
+		rootQuad.flushPositionChanges();
+		
+		Assert.assertEquals(true, rootQuad.getElementsWithinRegion(new Rectangle(100f, 100f, 1f, 1f)).contains(point1));
+		Assert.assertEquals(false, rootQuad.getElements().contains(removedPoint));
+		Assert.assertEquals(100, rootQuad.getTotalElements());
+		
+		point1.set(10.5f, 10.5f);
+		Assert.assertEquals(true, rootQuad.remove(point1));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+		
+		CollisionPoint movedPoint = points.get(1);
+		movedPoint.set(50.5f, 50.5f);
+		rootQuad.setDeferPositionChanges(false);
+		Assert.assertEquals(false, rootQuad.isDeferringPositionChanges());
+		Assert.assertEquals(true, rootQuad.getElementsWithinRegion(new Rectangle(50f, 50f, 1f, 1f)).contains(movedPoint));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+	}
+	
+	@Test
+	public void testGetNearestElements() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		rootQuad.addAll(points);
+		
+		Assert.assertEquals(0, rootQuad.getNearestElements(64f, 64f, 0).size());
+		Assert.assertEquals(100, rootQuad.getNearestElements(64f, 64f, 200).size());
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			List<CollisionPoint> result = rootQuad.getNearestElements(x, y, 5);
+			Assert.assertEquals(5, result.size());
+			
+			float furthestDistance = 0f;
+			for(CollisionPoint point : result) {
+				Assert.assertEquals(true, point.dst(x, y) >= furthestDistance);
+				furthestDistance = point.dst(x, y);
+			}
+			for(CollisionPoint point : points) {
+				Assert.assertEquals(true, result.contains(point) || point.dst(x, y) >= furthestDistance);
+			}
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		CollisionPoint near = new CollisionPoint(16, 16);
+		CollisionPoint far = new CollisionPoint(96, 96);
+		rootQuad.add(near);
+		rootQuad.add(far);
+		rootQuad.add(new CollisionPoint(64, 32));
+		rootQuad.add(new CollisionPoint(32, 64));
+		rootQuad.add(new CollisionPoint(100, 8));
+
+		RaycastResult<CollisionPoint> result = new RaycastResult<CollisionPoint>();
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(0, 0, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(16f, result.getX());
+		Assert.assertEquals(16f, result.getY());
+		Assert.assertEquals(near.dst(0, 0), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(128, 128, 0, 0), result));
+		Assert.assertEquals(far, result.getElement());
+		Assert.assertEquals(far.dst(128, 128), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(false, rootQuad.raycast(new LineSegment(0, 120, 128, 120), result));
+		Assert.assertEquals(false, result.isHit());
+		Assert.assertEquals(null, result.getElement());
+	}
+	
+	@Test
+	public void testFindCollidingPairs() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 300; i++) {
+			points.add(new CollisionPoint(random.nextInt(16) * 8, random.nextInt(16) * 8));
+		}
+		rootQuad.addAll(points);
+		
+		int expectedPairs = 0;
+		for(int i = 0; i < points.size(); i++) {
+			for(int j = i + 1; j < points.size(); j++) {
+				if(points.get(i).getX() == points.get(j).getX() && points.get(i).getY() == points.get(j).getY()) {
+					expectedPairs++;
+				}
+			}
+		}
+		
+		final Set<String> pairs = Collections.synchronizedSet(new HashSet<String>());
+		PairCallback<CollisionPoint> callback = new PairCallback<CollisionPoint>() {
+			@Override
+			public void onCollidingPair(CollisionPoint elementA, CollisionPoint elementB) {
+				Assert.assertEquals(elementA.getX(), elementB.getX());
+				Assert.assertEquals(elementA.getY(), elementB.getY());
+				Assert.assertEquals(true, pairs.add(Math.min(elementA.getId(), elementB.getId()) + ":"
+						+ Math.max(elementA.getId(), elementB.getId())));
+			}
+		};
+		rootQuad.findCollidingPairs(callback);
+		Assert.assertEquals(expectedPairs, pairs.size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRadius() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		rootQuad.addAll(points);
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			float radius = random.nextInt(64);
+			List<CollisionPoint> result = rootQuad.getElementsWithinRadius(x, y, radius);
+			for(CollisionPoint point : points) {
+				Assert.assertEquals(point.dst(x, y) <= radius, result.contains(point));
+			}
+		}
+	}
 }
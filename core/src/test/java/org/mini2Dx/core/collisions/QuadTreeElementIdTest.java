@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link QuadTree#getElementById(long)} across all
+ * {@link QuadTree} implementations
+ */
+public class QuadTreeElementIdTest {
+	private static final int TOTAL_ELEMENTS = 200;
+
+	private final List<QuadTree<CollisionBox>> quadTrees = new ArrayList<QuadTree<CollisionBox>>();
+	private final List<List<CollisionBox>> elements = new ArrayList<List<CollisionBox>>();
+
+	@Before
+	public void setup() {
+		quadTrees.add(new PointQuadTree<CollisionBox>(8, 4, 0, 0, 512, 512));
+		quadTrees.add(new RegionQuadTree<CollisionBox>(8, 4, 0, 0, 512, 512));
+		quadTrees.add(new LooseRegionQuadTree<CollisionBox>(8, 4, 0, 0, 512, 512));
+		quadTrees.add(new ConcurrentPointQuadTree<CollisionBox>(8, 4, 0, 0, 512, 512));
+		quadTrees.add(new ConcurrentRegionQuadTree<CollisionBox>(8, 4, 0, 0, 512, 512));
+		quadTrees.add(new SpatialHashGrid<CollisionBox>(32f, 0, 0, 512, 512));
+		quadTrees.add(new DynamicAabbTree<CollisionBox>(0, 0, 512, 512));
+
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			Random random = new Random(4455667L);
+			List<CollisionBox> treeElements = new ArrayList<CollisionBox>();
+			for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+				CollisionBox element = new CollisionBox(random.nextInt(500), random.nextInt(500), 4, 4);
+				treeElements.add(element);
+				Assert.assertEquals(true, quadTree.add(element));
+			}
+			elements.add(treeElements);
+		}
+	}
+
+	@Test
+	public void testGetElementById() {
+		for (int i = 0; i < quadTrees.size(); i++) {
+			QuadTree<CollisionBox> quadTree = quadTrees.get(i);
+			String name = quadTree.getClass().getSimpleName();
+			for (CollisionBox element : elements.get(i)) {
+				Assert.assertEquals(name, true, quadTree.getElementById(element.getId()) == element);
+			}
+			Assert.assertEquals(name, null, quadTree.getElementById(-1L));
+		}
+	}
+
+	@Test
+	public void testRemove() {
+		for (int i = 0; i < quadTrees.size(); i++) {
+			QuadTree<CollisionBox> quadTree = quadTrees.get(i);
+			String name = quadTree.getClass().getSimpleName();
+			List<CollisionBox> treeElements = elements.get(i);
+
+			CollisionBox removed = treeElements.get(0);
+			Assert.assertEquals(name, true, quadTree.remove(removed));
+			Assert.assertEquals(name, null, quadTree.getElementById(removed.getId()));
+
+			List<CollisionBox> removedElements = treeElements.subList(1, 50);
+			quadTree.removeAll(removedElements);
+			for (CollisionBox element : removedElements) {
+				Assert.assertEquals(name, null, quadTree.getElementById(element.getId()));
+			}
+			Assert.assertEquals(name, true, quadTree.getElementById(treeElements.get(50).getId()) == treeElements
+					.get(50));
+
+			quadTree.addAll(removedElements);
+			for (CollisionBox element : removedElements) {
+				Assert.assertEquals(name, true, quadTree.getElementById(element.getId()) == element);
+			}
+		}
+	}
+
+	@Test
+	public void testMovedElements() {
+		for (int i = 0; i < quadTrees.size(); i++) {
+			QuadTree<CollisionBox> quadTree = quadTrees.get(i);
+			String name = quadTree.getClass().getSimpleName();
+			List<CollisionBox> treeElements = elements.get(i);
+
+			for (int j = 0; j < 20; j++) {
+				CollisionBox element = treeElements.get(j);
+				element.forceTo(500 - element.getX(), 500 - element.getY());
+				Assert.assertEquals(name, true, quadTree.getElementById(element.getId()) == element);
+			}
+
+			CollisionBox movedOutside = treeElements.get(20);
+			movedOutside.forceTo(2000, 2000);
+			Assert.assertEquals(name, null, quadTree.getElementById(movedOutside.getId()));
+			Assert.assertEquals(name, TOTAL_ELEMENTS - 1, quadTree.getTotalElements());
+		}
+	}
+
+	@Test
+	public void testDeferredMovedElements() {
+		for (int i = 0; i < quadTrees.size(); i++) {
+			QuadTree<CollisionBox> quadTree = quadTrees.get(i);
+			String name = quadTree.getClass().getSimpleName();
+			List<CollisionBox> treeElements = elements.get(i);
+
+			quadTree.setDeferPositionChanges(true);
+			CollisionBox movedWithin = treeElements.get(0);
+			movedWithin.forceTo(500 - movedWithin.getX(), 500 - movedWithin.getY());
+			CollisionBox movedOutside = treeElements.get(1);
+			movedOutside.forceTo(-2000, -2000);
+			quadTree.flushPositionChanges();
+
+			Assert.assertEquals(name, true, quadTree.getElementById(movedWithin.getId()) == movedWithin);
+			Assert.assertEquals(name, null, quadTree.getElementById(movedOutside.getId()));
+			quadTree.setDeferPositionChanges(false);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link QuadTreeSnapshot} and {@link QuadTreeSnapshotBuffer}
+ */
+public class QuadTreeSnapshotTest {
+	private static final int TOTAL_ELEMENTS = 1000;
+
+	private final List<CollisionBox> elements = new ArrayList<CollisionBox>();
+	private RegionQuadTree<CollisionBox> quadTree;
+	private QuadTreeSnapshotBuffer<CollisionBox> snapshotBuffer;
+
+	@Before
+	public void setup() {
+		quadTree = new RegionQuadTree<CollisionBox>(8, 0, 0, 512, 512);
+		snapshotBuffer = new QuadTreeSnapshotBuffer<CollisionBox>();
+
+		Random random = new Random(5647382L);
+		for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+			CollisionBox element = new CollisionBox(random.nextInt(500), random.nextInt(500), 1 + random.nextInt(12),
+					1 + random.nextInt(12));
+			elements.add(element);
+			quadTree.add(element);
+		}
+	}
+
+	@Test
+	public void testEmptySnapshot() {
+		QuadTreeSnapshot<CollisionBox> snapshot = snapshotBuffer.acquire();
+		Assert.assertEquals(0, snapshot.getTotalElements());
+		Assert.assertEquals(0L, snapshot.getFrame());
+		List<CollisionBox> result = new ArrayList<CollisionBox>();
+		snapshot.getElementsWithinRegion(result, new Rectangle(0, 0, 512, 512));
+		Assert.assertEquals(0, result.size());
+		snapshot.release();
+	}
+
+	@Test
+	public void testForEachWithinArea() {
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> snapshot = snapshotBuffer.acquire();
+		Assert.assertEquals(TOTAL_ELEMENTS, snapshot.getTotalElements());
+		Assert.assertEquals(true, snapshot.getTotalNodes() > 1);
+
+		Random random = new Random(1029384L);
+		List<CollisionBox> result = new ArrayList<CollisionBox>();
+		for (int i = 0; i < 100; i++) {
+			Rectangle area = new Rectangle(random.nextInt(450), random.nextInt(450), random.nextInt(64),
+					random.nextInt(64));
+			result.clear();
+			snapshot.getElementsWithinRegion(result, area);
+			Assert.assertEquals(getTotalOverlapping(area), result.size());
+			for (CollisionBox element : result) {
+				Assert.assertEquals(true, overlaps(element, area));
+			}
+		}
+		snapshot.release();
+	}
+
+	@Test
+	public void testForEachContainingPoint() {
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> snapshot = snapshotBuffer.acquire();
+		CollisionBox element = elements.get(0);
+		final List<CollisionBox> result = new ArrayList<CollisionBox>();
+		snapshot.forEachContainingPoint(element.getCenterX(), element.getCenterY(), new ElementVisitor<CollisionBox>() {
+			@Override
+			public boolean visit(CollisionBox element) {
+				result.add(element);
+				return true;
+			}
+		});
+		Assert.assertEquals(true, containsByIdentity(result, element));
+		snapshot.release();
+	}
+
+	@Test
+	public void testSnapshotIsUnaffectedByUpdates() {
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> snapshot = snapshotBuffer.acquire();
+
+		CollisionBox element = elements.get(0);
+		Rectangle originalArea = new Rectangle(element.getX(), element.getY(), element.getWidth(),
+				element.getHeight());
+		quadTree.remove(element);
+		element.forceTo(element.getX() < 256 ? 508 : 0, element.getY());
+		quadTree.add(element);
+
+		List<CollisionBox> result = new ArrayList<CollisionBox>();
+		snapshot.getElementsWithinRegion(result, originalArea);
+		Assert.assertEquals(true, containsByIdentity(result, element));
+		Assert.assertEquals(TOTAL_ELEMENTS, snapshot.getTotalElements());
+		snapshot.release();
+	}
+
+	@Test
+	public void testSnapshotsAreReusedOnceReleased() {
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> first = snapshotBuffer.acquire();
+		Assert.assertEquals(1L, first.getFrame());
+		first.release();
+
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> second = snapshotBuffer.acquire();
+		Assert.assertEquals(2L, second.getFrame());
+		Assert.assertEquals(false, first == second);
+		second.release();
+
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> third = snapshotBuffer.acquire();
+		Assert.assertEquals(true, first == third);
+		Assert.assertEquals(3L, third.getFrame());
+		third.release();
+	}
+
+	@Test
+	public void testAcquiredSnapshotIsNotRebuilt() {
+		snapshotBuffer.publish(quadTree);
+		QuadTreeSnapshot<CollisionBox> held = snapshotBuffer.acquire();
+
+		quadTree.remove(elements.get(0));
+		snapshotBuffer.publish(quadTree);
+		quadTree.remove(elements.get(1));
+		snapshotBuffer.publish(quadTree);
+
+		Assert.assertEquals(1L, held.getFrame());
+		Assert.assertEquals(TOTAL_ELEMENTS, held.getTotalElements());
+		held.release();
+
+		QuadTreeSnapshot<CollisionBox> latest = snapshotBuffer.acquire();
+		Assert.assertEquals(3L, latest.getFrame());
+		Assert.assertEquals(TOTAL_ELEMENTS - 2, latest.getTotalElements());
+		Assert.assertEquals(false, held == latest);
+		latest.release();
+	}
+
+	private int getTotalOverlapping(Rectangle area) {
+		int result = 0;
+		for (CollisionBox element : elements) {
+			if (overlaps(element, area)) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	private boolean overlaps(CollisionBox element, Rectangle area) {
+		return element.getMinX() <= area.getMaxX() && element.getMaxX() >= area.getMinX()
+				&& element.getMinY() <= area.getMaxY() && element.getMaxY() >= area.getMinY();
+	}
+
+	private boolean containsByIdentity(List<CollisionBox> result, CollisionBox element) {
+		for (CollisionBox candidate : result) {
+			if (candidate == element) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
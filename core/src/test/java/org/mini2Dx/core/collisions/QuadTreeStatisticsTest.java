@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link QuadTreeStatistics}. The build runs this class a
+ * second time in the statisticsTest task with statistics enabled; all other
+ * test runs have statistics disabled.
+ */
+public class QuadTreeStatisticsTest {
+	private final List<QuadTree<CollisionBox>> quadTrees = new ArrayList<QuadTree<CollisionBox>>();
+
+	@Before
+	public void setup() {
+		quadTrees.add(new PointQuadTree<CollisionBox>(4, 0, 0, 128, 128));
+		quadTrees.add(new RegionQuadTree<CollisionBox>(4, 0, 0, 128, 128));
+		quadTrees.add(new LooseRegionQuadTree<CollisionBox>(4, 0, 0, 128, 128));
+		quadTrees.add(new ConcurrentPointQuadTree<CollisionBox>(4, 0, 0, 128, 128));
+		quadTrees.add(new ConcurrentRegionQuadTree<CollisionBox>(4, 0, 0, 128, 128));
+		quadTrees.add(new SpatialHashGrid<CollisionBox>(16f, 0, 0, 128, 128));
+		quadTrees.add(new DynamicAabbTree<CollisionBox>(0, 0, 128, 128));
+
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			for (int x = 0; x < 128; x += 16) {
+				for (int y = 0; y < 128; y += 16) {
+					quadTree.add(new CollisionBox(x + 1, y + 1, 4, 4));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testHistogramBucket() {
+		Assert.assertEquals(0, QuadTreeStatistics.getHistogramBucket(0));
+		Assert.assertEquals(1, QuadTreeStatistics.getHistogramBucket(1));
+		Assert.assertEquals(2, QuadTreeStatistics.getHistogramBucket(2));
+		Assert.assertEquals(2, QuadTreeStatistics.getHistogramBucket(3));
+		Assert.assertEquals(3, QuadTreeStatistics.getHistogramBucket(4));
+		Assert.assertEquals(QuadTreeStatistics.HISTOGRAM_BUCKETS - 1,
+				QuadTreeStatistics.getHistogramBucket(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		Assume.assumeTrue(!QuadTreeStatistics.ENABLED);
+		Rectangle region = new Rectangle(0, 0, 40, 40);
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			String name = quadTree.getClass().getSimpleName();
+			quadTree.getElementsWithinRegion(region);
+			quadTree.getElements().get(0).set(100f, 100f, 4f, 4f);
+			quadTree.updateStatistics();
+			Assert.assertNull(name, quadTree.getStatistics());
+			Assert.assertEquals(name, 64, quadTree.getTotalElements());
+		}
+	}
+
+	@Test
+	public void testStructure() {
+		Assume.assumeTrue(QuadTreeStatistics.ENABLED);
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			String name = quadTree.getClass().getSimpleName();
+			quadTree.updateStatistics();
+			QuadTreeStatistics statistics = quadTree.getStatistics();
+
+			Assert.assertEquals(name, 64, statistics.getTotalElements());
+			Assert.assertEquals(name, true, statistics.getMaxDepth() > 0);
+			Assert.assertEquals(name, true, statistics.getAverageDepth() > 0f);
+			Assert.assertEquals(name, true, statistics.getAverageDepth() <= statistics.getMaxDepth());
+			Assert.assertEquals(name, true, statistics.getTotalLeaves() < statistics.getTotalNodes());
+
+			int totalLeaves = 0;
+			for (int leaves : statistics.getLeafHistogram()) {
+				totalLeaves += leaves;
+			}
+			Assert.assertEquals(name, statistics.getTotalLeaves(), totalLeaves);
+		}
+	}
+
+	@Test
+	public void testQueryCounters() {
+		Assume.assumeTrue(QuadTreeStatistics.ENABLED);
+		Rectangle region = new Rectangle(0, 0, 40, 40);
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			String name = quadTree.getClass().getSimpleName();
+			quadTree.updateStatistics();
+
+			quadTree.getElementsWithinRegion(region);
+			quadTree.getElementsWithinRegion(region);
+			quadTree.updateStatistics();
+
+			QuadTreeStatistics statistics = quadTree.getStatistics();
+			Assert.assertEquals(name, 2, statistics.getQueriesPerFrame());
+			Assert.assertEquals(name, true, statistics.getNodesVisitedPerQuery() > 1f);
+			Assert.assertEquals(name, true, statistics.getElementsTestedPerQuery() >= 9f);
+			Assert.assertEquals(name, true,
+					statistics.getElementsTestedPerFrame() <= 2 * statistics.getTotalElements());
+
+			quadTree.updateStatistics();
+			Assert.assertEquals(name, 0, statistics.getQueriesPerFrame());
+			Assert.assertEquals(name, 0, statistics.getNodesVisitedPerFrame());
+			Assert.assertEquals(0f, statistics.getNodesVisitedPerQuery());
+		}
+	}
+
+	@Test
+	public void testReinsertCounters() {
+		Assume.assumeTrue(QuadTreeStatistics.ENABLED);
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			String name = quadTree.getClass().getSimpleName();
+			quadTree.updateStatistics();
+
+			quadTree.getElements().get(0).set(100f, 100f, 4f, 4f);
+			quadTree.updateStatistics();
+			Assert.assertEquals(name, 1, quadTree.getStatistics().getReinsertsPerFrame());
+		}
+	}
+
+	@Test
+	public void testSubdivisionAndMergeCounters() {
+		Assume.assumeTrue(QuadTreeStatistics.ENABLED);
+		RegionQuadTree<CollisionBox> quadTree = new RegionQuadTree<CollisionBox>(4, 2, 0, 0, 128, 128);
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for (int i = 0; i < 5; i++) {
+			boxes.add(new CollisionBox(i * 16, i * 16, 4, 4));
+		}
+		quadTree.addAll(boxes);
+		quadTree.updateStatistics();
+		Assert.assertEquals(1, quadTree.getStatistics().getSubdivisionsPerFrame());
+		Assert.assertEquals(0, quadTree.getStatistics().getMergesPerFrame());
+
+		quadTree.removeAll(boxes);
+		quadTree.updateStatistics();
+		Assert.assertEquals(0, quadTree.getStatistics().getSubdivisionsPerFrame());
+		Assert.assertEquals(1, quadTree.getStatistics().getMergesPerFrame());
+		Assert.assertEquals(1, quadTree.getStatistics().getTotalNodes());
+	}
+
+	@Test
+	public void testRotationCounters() {
+		Assume.assumeTrue(QuadTreeStatistics.ENABLED);
+		DynamicAabbTree<CollisionBox> tree = new DynamicAabbTree<CollisionBox>(0, 0, 1024, 16);
+		for (int i = 0; i < 64; i++) {
+			tree.add(new CollisionBox(i * 16, 0, 4, 4));
+		}
+		tree.updateStatistics();
+		Assert.assertEquals(true, tree.getStatistics().getRotationsPerFrame() > 0);
+		Assert.assertEquals(tree.getTreeHeight(), tree.getStatistics().getMaxDepth());
+	}
+}
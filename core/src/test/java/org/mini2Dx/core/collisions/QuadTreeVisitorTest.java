@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for the {@link ElementVisitor} queries of all {@link QuadTree}
+ * implementations
+ */
+public class QuadTreeVisitorTest {
+	private static final int TOTAL_ELEMENTS = 1000;
+	private static final int WARMUP_ITERATIONS = 1000;
+	private static final int MEASURED_ITERATIONS = 500;
+
+	private final List<QuadTree<CollisionBox>> quadTrees = new ArrayList<QuadTree<CollisionBox>>();
+	private final Rectangle region = new Rectangle(96f, 96f, 128f, 128f);
+	private final LineSegment lineSegment = new LineSegment(0f, 0f, 1f, 1f);
+	private final Point point = new Point();
+	private final CountingVisitor visitor = new CountingVisitor();
+
+	@Before
+	public void setup() {
+		quadTrees.add(new PointQuadTree<CollisionBox>(8, 0, 0, 512, 512));
+		quadTrees.add(new RegionQuadTree<CollisionBox>(8, 0, 0, 512, 512));
+		quadTrees.add(new LooseRegionQuadTree<CollisionBox>(8, 0, 0, 512, 512));
+		quadTrees.add(new ConcurrentPointQuadTree<CollisionBox>(8, 0, 0, 512, 512));
+		quadTrees.add(new ConcurrentRegionQuadTree<CollisionBox>(8, 0, 0, 512, 512));
+		quadTrees.add(new SpatialHashGrid<CollisionBox>(32f, 0, 0, 512, 512));
+
+		Random random = new Random(9182736L);
+		for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+			float x = random.nextInt(500);
+			float y = random.nextInt(500);
+			float size = 1 + random.nextInt(12);
+			for (QuadTree<CollisionBox> quadTree : quadTrees) {
+				Assert.assertEquals(true, quadTree.add(new CollisionBox(x, y, size, size)));
+			}
+		}
+		//Query through element positions so that point based trees have results
+		List<CollisionBox> elements = quadTrees.get(0).getElements();
+		point.set(elements.get(0).getX(), elements.get(0).getY());
+		lineSegment.set(point.x, point.y, elements.get(1).getX(), elements.get(1).getY());
+	}
+
+	@Test
+	public void testVisitorMatchesCollectionQueries() {
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			String name = quadTree.getClass().getSimpleName();
+
+			visitor.reset(Integer.MAX_VALUE);
+			Assert.assertEquals(name, true, quadTree.forEachWithinRegion(region, visitor));
+			Assert.assertEquals(name, quadTree.getElementsWithinRegion(region).size(), visitor.total);
+
+			visitor.reset(Integer.MAX_VALUE);
+			Assert.assertEquals(name, true, quadTree.forEachContainingPoint(point, visitor));
+			Assert.assertEquals(name, quadTree.getElementsContainingPoint(point).size(), visitor.total);
+
+			visitor.reset(Integer.MAX_VALUE);
+			Assert.assertEquals(name, true, quadTree.forEachIntersectingLineSegment(lineSegment, visitor));
+			Assert.assertEquals(name, quadTree.getElementsIntersectingLineSegment(lineSegment).size(),
+					visitor.total);
+
+			visitor.reset(Integer.MAX_VALUE);
+			Assert.assertEquals(name, true, quadTree.forEachWithinRadius(256f, 256f, 64f, visitor));
+			Assert.assertEquals(name, quadTree.getElementsWithinRadius(256f, 256f, 64f).size(), visitor.total);
+
+			visitor.reset(Integer.MAX_VALUE);
+			Assert.assertEquals(name, true, quadTree.forEachElement(visitor));
+			Assert.assertEquals(name, TOTAL_ELEMENTS, visitor.total);
+		}
+	}
+
+	@Test
+	public void testVisitorStopsEarly() {
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			String name = quadTree.getClass().getSimpleName();
+
+			visitor.reset(3);
+			Assert.assertEquals(name, false, quadTree.forEachWithinRegion(region, visitor));
+			Assert.assertEquals(name, 3, visitor.total);
+
+			visitor.reset(1);
+			Assert.assertEquals(name, false, quadTree.forEachIntersectingLineSegment(lineSegment, visitor));
+			Assert.assertEquals(name, 1, visitor.total);
+
+			visitor.reset(3);
+			Assert.assertEquals(name, false, quadTree.forEachWithinRadius(256f, 256f, 64f, visitor));
+			Assert.assertEquals(name, 3, visitor.total);
+
+			visitor.reset(5);
+			Assert.assertEquals(name, false, quadTree.forEachElement(visitor));
+			Assert.assertEquals(name, 5, visitor.total);
+		}
+	}
+
+	@Test
+	public void testNestedVisitorQueries() {
+		for (final QuadTree<CollisionBox> quadTree : quadTrees) {
+			final int expectedTotal = quadTree.getElementsWithinRadius(256f, 256f, 16f).size();
+			final int[] totals = new int[2];
+			quadTree.forEachWithinRegion(region, new ElementVisitor<CollisionBox>() {
+				@Override
+				public boolean visit(CollisionBox element) {
+					totals[0]++;
+					visitor.reset(Integer.MAX_VALUE);
+					quadTree.forEachWithinRadius(256f, 256f, 16f, visitor);
+					Assert.assertEquals(expectedTotal, visitor.total);
+					return true;
+				}
+			});
+			visitor.reset(Integer.MAX_VALUE);
+			quadTree.forEachWithinRegion(region, visitor);
+			Assert.assertEquals(quadTree.getClass().getSimpleName(), visitor.total, totals[0]);
+		}
+	}
+
+	@Test
+	public void testVisitorQueriesDoNotAllocate() {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		for (QuadTree<CollisionBox> quadTree : quadTrees) {
+			runQueries(quadTree, WARMUP_ITERATIONS);
+
+			long allocatedBytes = Long.MAX_VALUE;
+			//Take the lowest of several measurements to ignore one-off JVM allocations
+			for (int i = 0; i < 5 && allocatedBytes > 0; i++) {
+				long threadId = Thread.currentThread().getId();
+				long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+				runQueries(quadTree, MEASURED_ITERATIONS);
+				allocatedBytes = Math.min(allocatedBytes, threadMXBean.getThreadAllocatedBytes(threadId) - startBytes);
+			}
+			Assert.assertEquals(quadTree.getClass().getSimpleName(), 0L, allocatedBytes);
+		}
+	}
+
+	private void runQueries(QuadTree<CollisionBox> quadTree, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			visitor.reset(Integer.MAX_VALUE);
+			quadTree.forEachWithinRegion(region, visitor);
+			quadTree.forEachContainingPoint(point, visitor);
+			quadTree.forEachIntersectingLineSegment(lineSegment, visitor);
+			quadTree.forEachWithinRadius(256f, 256f, 64f, visitor);
+			quadTree.forEachElement(visitor);
+		}
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (!result.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			result.setThreadAllocatedMemoryEnabled(true);
+			return result;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	private static class CountingVisitor implements ElementVisitor<CollisionBox> {
+		private int limit, total;
+
+		public void reset(int limit) {
+			this.limit = limit;
+			this.total = 0;
+		}
+
+		@Override
+		public boolean visit(CollisionBox element) {
+			total++;
+			return total < limit;
+		}
+	}
+}
@@ -12,14 +12,19 @@
 package org.mini2Dx.core.collisions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mini2Dx.core.engine.geom.CollisionBox;
+import org.mini2Dx.core.engine.geom.CollisionPolygon;
 import org.mini2Dx.core.geom.LineSegment;
 import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
 
 import junit.framework.Assert;
 
@@ -71,6 +76,43 @@ public class RegionQuadTreeTest {
 		Assert.assertEquals(rects.size(), rootQuad.getTotalElements());
 	}
 	
+	@Test
+	public void testBulkLoad() {
+		int totalElements = 1000;
+		Random random = new Random();
+		List<CollisionBox> rects = new ArrayList<CollisionBox>();
+		for(int i = 0; i < totalElements; i++) {
+			rects.add(new CollisionBox(random.nextInt(120), random.nextInt(120), random.nextInt(8) + 1f, random.nextInt(8) + 1f));
+		}
+		rects.add(new CollisionBox(-4f, -4f, 32f, 32f));
+		rects.add(new CollisionBox(256f, 256f, 32f, 32f));
+		
+		RegionQuadTree<CollisionBox> incrementalQuad = new RegionQuadTree<CollisionBox>(2, 0, 0, 128, 128);
+		incrementalQuad.addAll(rects);
+		rootQuad.add(box1);
+		incrementalQuad.add(box1);
+		
+		long startTime = System.nanoTime();
+		rootQuad.bulkLoad(rects);
+		long duration = System.nanoTime() - startTime;
+		System.out.println("Took " + duration + "ns to bulk load " + totalElements + " elements to " + RegionQuadTree.class.getSimpleName());
+		Assert.assertEquals(incrementalQuad.getTotalElements(), rootQuad.getTotalElements());
+		Assert.assertEquals(rects.size(), rootQuad.getTotalElements());
+		
+		for(int i = 0; i < 20; i++) {
+			Rectangle region = new Rectangle(random.nextInt(128), random.nextInt(128), random.nextInt(64) + 1, random.nextInt(64) + 1);
+			List<CollisionBox> expected = incrementalQuad.getElementsWithinRegion(region);
+			List<CollisionBox> actual = rootQuad.getElementsWithinRegion(region);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+		}
+		
+		CollisionBox movedBox = rects.get(0);
+		movedBox.setPosition(64f, 64f);
+		Assert.assertEquals(true, rootQuad.getElementsContainingPoint(new Point(64.5f, 64.5f)).contains(movedBox));
+		Assert.assertEquals(true, rootQuad.remove(movedBox));
+	}
+	
 	@Test
 	public void testRemove() {
 		Random random = new Random();
@@ -153,6 +195,108 @@ public class RegionQuadTreeTest {
 		Assert.assertEquals(true, rootQuad.getElements().contains(box1));
 	}
 	
+	@Test
+	public void testBudgetedMerge() {
+		rootQuad = new RegionQuadTree<CollisionBox>(4, 3, 0, 0, 128, 128);
+		rootQuad.setMergePolicy(MergePolicy.BUDGETED);
+		rootQuad.add(box1);
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		rootQuad.add(new CollisionBox(24, 24, 2, 2));
+		Assert.assertEquals(4, rootQuad.getTotalQuads());
+		rootQuad.remove(box4);
+		rootQuad.remove(box3);
+		rootQuad.remove(box2);
+		Assert.assertEquals(4, rootQuad.getTotalQuads());
+		Assert.assertEquals(true, rootQuad.maintain(0L));
+		Assert.assertEquals(1, rootQuad.getTotalQuads());
+		Assert.assertEquals(2, rootQuad.getTotalElements());
+		Assert.assertEquals(true, rootQuad.getElements().contains(box1));
+	}
+	
+	@Test
+	public void testSubdivideCooldown() {
+		rootQuad = new RegionQuadTree<CollisionBox>(4, 3, 0, 0, 128, 128);
+		rootQuad.setMergePolicy(MergePolicy.BUDGETED);
+		rootQuad.setSubdivideCooldown(2);
+		rootQuad.add(box1);
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		rootQuad.add(new CollisionBox(24, 24, 2, 2));
+		rootQuad.remove(box4);
+		rootQuad.remove(box3);
+		rootQuad.remove(box2);
+		rootQuad.maintain(0L);
+		Assert.assertEquals(1, rootQuad.getTotalQuads());
+
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		Assert.assertEquals(1, rootQuad.getTotalQuads());
+		Assert.assertEquals(false, rootQuad.maintain(0L));
+		Assert.assertEquals(1, rootQuad.getTotalQuads());
+		Assert.assertEquals(true, rootQuad.maintain(0L));
+		Assert.assertEquals(4, rootQuad.getTotalQuads());
+		Assert.assertEquals(5, rootQuad.getTotalElements());
+	}
+	
+	@Test
+	public void testImmediateMergePolicyMergesPendingQuads() {
+		rootQuad = new RegionQuadTree<CollisionBox>(4, 3, 0, 0, 128, 128);
+		rootQuad.setMergePolicy(MergePolicy.BUDGETED);
+		rootQuad.add(box1);
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		rootQuad.add(new CollisionBox(24, 24, 2, 2));
+		rootQuad.remove(box4);
+		rootQuad.remove(box3);
+		rootQuad.remove(box2);
+		Assert.assertEquals(4, rootQuad.getTotalQuads());
+		rootQuad.setMergePolicy(MergePolicy.IMMEDIATE);
+		Assert.assertEquals(1, rootQuad.getTotalQuads());
+		Assert.assertEquals(2, rootQuad.getTotalElements());
+	}
+	
+	@Test
+	public void testQuadPool() {
+		rootQuad = new RegionQuadTree<CollisionBox>(4, 3, 0, 0, 128, 128);
+		QuadTreePool<CollisionBox> pool = rootQuad.getQuadPool();
+		Assert.assertEquals(1, pool.getLiveQuads());
+		rootQuad.add(box1);
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		rootQuad.add(new CollisionBox(24, 24, 2, 2));
+		Assert.assertEquals(5, pool.getLiveQuads());
+		Assert.assertEquals(0, pool.getFreeQuads());
+		PointQuadTree<CollisionBox> topLeft = rootQuad.topLeft;
+
+		rootQuad.remove(box4);
+		rootQuad.remove(box3);
+		rootQuad.remove(box2);
+		Assert.assertEquals(1, pool.getLiveQuads());
+		Assert.assertEquals(4, pool.getFreeQuads());
+		Assert.assertEquals(5, pool.getPeakLiveQuads());
+
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		Assert.assertEquals(5, pool.getLiveQuads());
+		Assert.assertEquals(0, pool.getFreeQuads());
+		Assert.assertEquals(4, rootQuad.getTotalQuads());
+		Assert.assertEquals(5, rootQuad.getTotalElements());
+		//Quads are reused in the reverse order they were freed
+		Assert.assertEquals(true, topLeft == rootQuad.bottomRight);
+		Assert.assertEquals(true, rootQuad.getElementsWithinRegion(new Rectangle(96, 96, 32, 32)).contains(box4));
+
+		pool.preallocate(16);
+		Assert.assertEquals(16, pool.getFreeQuads());
+		Assert.assertEquals(5, pool.getLiveQuads());
+	}
+	
 	@Test
 	public void testGetTotalElements() {
 		rootQuad.add(box1);
@@ -216,6 +360,58 @@ public class RegionQuadTreeTest {
 		Assert.assertEquals(true, CollisionBoxs.contains(CollisionBox7));
 	}
 	
+	@Test
+	public void testGetElementsWithinRegionExcludesRotatedBounds() {
+		CollisionBox rotatedBox = new CollisionBox(64, 64, 16, 16);
+		rotatedBox.rotate(45f);
+		rootQuad.add(rotatedBox);
+		
+		//Overlaps the bounds of the rotated box but not the box itself
+		List<CollisionBox> collisionBoxes = rootQuad.getElementsWithinRegion(new CollisionBox(70, 64, 6, 2));
+		Assert.assertEquals(0, collisionBoxes.size());
+		
+		collisionBoxes = rootQuad.getElementsWithinRegion(new CollisionBox(62, 68, 4, 4));
+		Assert.assertEquals(1, collisionBoxes.size());
+		Assert.assertEquals(true, collisionBoxes.get(0) == rotatedBox);
+	}
+	
+	@Test
+	public void testRotatedElementUpdatesQuadTree() {
+		rootQuad.add(box1);
+		rootQuad.add(box2);
+		rootQuad.add(box3);
+		rootQuad.add(box4);
+		CollisionBox bar = new CollisionBox(64, 40, 40, 8);
+		rootQuad.add(bar);
+		Assert.assertEquals(1, rootQuad.getElementsWithinRegion(new CollisionBox(80, 42, 2, 2)).size());
+		
+		bar.setRotation(90f);
+		Assert.assertEquals(0, rootQuad.getElementsWithinRegion(new CollisionBox(80, 42, 2, 2)).size());
+		List<CollisionBox> collisionBoxes = rootQuad.getElementsWithinRegion(new CollisionBox(58, 60, 2, 2));
+		Assert.assertEquals(1, collisionBoxes.size());
+		Assert.assertEquals(true, collisionBoxes.get(0) == bar);
+		
+		bar.rotate(-90f);
+		Assert.assertEquals(0, rootQuad.getElementsWithinRegion(new CollisionBox(58, 60, 2, 2)).size());
+		Assert.assertEquals(1, rootQuad.getElementsWithinRegion(new CollisionBox(80, 42, 2, 2)).size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRegionExcludesPolygonBounds() {
+		CollisionPolygon triangle = new CollisionPolygon(64, 64, new float[] { 0, 32, 32, 0, 32, 32 });
+		rootQuad.add(triangle);
+		
+		//Overlaps the bounds of the triangle but not the triangle itself
+		Assert.assertEquals(0, rootQuad.getElementsWithinRegion(new CollisionBox(64, 64, 8, 8)).size());
+		Assert.assertEquals(0, rootQuad.getElementsContainingPoint(new Point(68, 68)).size());
+		Assert.assertEquals(0, rootQuad.getElementsIntersectingLineSegment(new LineSegment(64, 64, 72, 72)).size());
+		
+		List<CollisionBox> collisionBoxes = rootQuad.getElementsWithinRegion(new CollisionBox(88, 88, 4, 4));
+		Assert.assertEquals(1, collisionBoxes.size());
+		Assert.assertEquals(true, collisionBoxes.get(0) == triangle);
+		Assert.assertEquals(1, rootQuad.getElementsContainingPoint(new Point(90, 90)).size());
+	}
+	
 	@Test
 	public void testGetElementsIntersectingLineSegment() {
 		rootQuad.add(box1);
@@ -267,4 +463,185 @@ public class RegionQuadTreeTest {
 		Assert.assertEquals(1, collisionBoxs.size());
 		Assert.assertEquals(true, collisionBoxs.contains(box4));
 	}
+	
+	@Test
+	public void testDeferredPositionChanges() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		rootQuad.addAll(boxes);
+		rootQuad.add(box1);
+		
+		rootQuad.setDeferPositionChanges(true);
+		Assert.assertEquals(true, rootQuad.isDeferringPositionChanges());
+		for(int i = 0; i < 10; i++) {
+			box1.setPosition(random.nextInt(96), random.nextInt(96));
+		}
+		box1.setPosition(80f, 80f);
+		CollisionBox removedBox = boxes.get(0);
+		removedBox.setPosition(256f, 256f);
+		rootQuad.flushPositionChanges();
+		
+		Assert.assertEquals(true, rootQuad.getElementsContainingPoint(new Point(96f, 96f)).contains(box1));
+		Assert.assertEquals(false, rootQuad.getElementsContainingPoint(new Point(60f, 60f)).contains(box1));
+		Assert.assertEquals(false, rootQuad.getElements().contains(removedBox));
+		Assert.assertEquals(100, rootQuad.getTotalElements());
+		
+		box1.setPosition(4f, 4f);
+		Assert.assertEquals(true, rootQuad.remove(box1));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+		
+		CollisionBox movedBox = boxes.get(1);
+		movedBox.setPosition(48f, 48f);
+		rootQuad.setDeferPositionChanges(false);
+		Assert.assertEquals(false, rootQuad.isDeferringPositionChanges());
+		Assert.assertEquals(true, rootQuad.getElementsContainingPoint(new Point(64f, 64f)).contains(movedBox));
+		Assert.assertEquals(99, rootQuad.getTotalElements());
+	}
+	
+	@Test
+	public void testGetNearestElements() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		rootQuad.addAll(boxes);
+		
+		Assert.assertEquals(0, rootQuad.getNearestElements(64f, 64f, 0).size());
+		Assert.assertEquals(100, rootQuad.getNearestElements(64f, 64f, 200).size());
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			List<CollisionBox> result = rootQuad.getNearestElements(x, y, 5);
+			Assert.assertEquals(5, result.size());
+			
+			float furthestDistance = 0f;
+			for(CollisionBox box : result) {
+				Assert.assertEquals(true, getDistance(box, x, y) >= furthestDistance);
+				furthestDistance = getDistance(box, x, y);
+			}
+			for(CollisionBox box : boxes) {
+				Assert.assertEquals(true, result.contains(box) || getDistance(box, x, y) >= furthestDistance);
+			}
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		CollisionBox near = new CollisionBox(16, 16, 8, 8);
+		CollisionBox far = new CollisionBox(80, 80, 16, 16);
+		rootQuad.add(near);
+		rootQuad.add(far);
+		rootQuad.add(new CollisionBox(64, 0, 32, 32));
+		rootQuad.add(new CollisionBox(0, 64, 32, 32));
+		rootQuad.add(new CollisionBox(40, 40, 2, 2));
+
+		RaycastResult<CollisionBox> result = new RaycastResult<CollisionBox>();
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(0, 0, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(16f, result.getX(), 0.001f);
+		Assert.assertEquals(16f, result.getY(), 0.001f);
+		Assert.assertEquals(new Point(16, 16).dst(0, 0), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(128, 128, 0, 0), result));
+		Assert.assertEquals(far, result.getElement());
+		Assert.assertEquals(96f, result.getX(), 0.001f);
+		Assert.assertEquals(96f, result.getY(), 0.001f);
+
+		Assert.assertEquals(true, rootQuad.raycast(new LineSegment(20, 20, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(0f, result.getDistance());
+
+		Assert.assertEquals(false, rootQuad.raycast(new LineSegment(0, 120, 128, 120), result));
+		Assert.assertEquals(false, result.isHit());
+	}
+	
+	@Test
+	public void testSweep() {
+		CollisionBox wall = new CollisionBox(64, 0, 2, 128);
+		CollisionBox farWall = new CollisionBox(100, 0, 2, 128);
+		CollisionBox bullet = new CollisionBox(8, 60, 4, 4);
+		rootQuad.add(wall);
+		rootQuad.add(farWall);
+		rootQuad.add(bullet);
+
+		bullet.preUpdate();
+		bullet.setX(112);
+		Assert.assertEquals(false, rootQuad.getElementsWithinRegion(bullet).contains(wall));
+
+		SweepResult<CollisionBox> result = new SweepResult<CollisionBox>();
+		Assert.assertEquals(true, rootQuad.sweep(bullet, result));
+		Assert.assertEquals(true, result.getElement() == wall);
+		Assert.assertEquals(0.5f, result.getTimeOfImpact(), 0.001f);
+
+		bullet.preUpdate();
+		bullet.setY(100);
+		Assert.assertEquals(false, rootQuad.sweep(bullet, result));
+		Assert.assertEquals(false, result.isHit());
+	}
+	
+	@Test
+	public void testFindCollidingPairs() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 300; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 1 + random.nextInt(32), 1 + random.nextInt(32)));
+		}
+		rootQuad.addAll(boxes);
+		
+		int expectedPairs = 0;
+		for(int i = 0; i < boxes.size(); i++) {
+			for(int j = i + 1; j < boxes.size(); j++) {
+				if(boxes.get(i).intersects(boxes.get(j))) {
+					expectedPairs++;
+				}
+			}
+		}
+		
+		final Set<String> pairs = Collections.synchronizedSet(new HashSet<String>());
+		PairCallback<CollisionBox> callback = new PairCallback<CollisionBox>() {
+			@Override
+			public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+				Assert.assertEquals(true, elementA.intersects(elementB));
+				Assert.assertEquals(true, pairs.add(Math.min(elementA.getId(), elementB.getId()) + ":"
+						+ Math.max(elementA.getId(), elementB.getId())));
+			}
+		};
+		rootQuad.findCollidingPairs(callback);
+		Assert.assertEquals(expectedPairs, pairs.size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRadius() {
+		Random random = new Random();
+		List<CollisionBox> boxes = new ArrayList<CollisionBox>();
+		for(int i = 0; i < 100; i++) {
+			boxes.add(new CollisionBox(random.nextInt(96), random.nextInt(96), 32, 32));
+		}
+		rootQuad.addAll(boxes);
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			float radius = random.nextInt(64);
+			List<CollisionBox> result = rootQuad.getElementsWithinRadius(x, y, radius);
+			int expected = 0;
+			for(CollisionBox box : boxes) {
+				if(getDistance(box, x, y) <= radius) {
+					expected++;
+				}
+			}
+			Assert.assertEquals(expected, result.size());
+		}
+	}
+	
+	private float getDistance(CollisionBox box, float x, float y) {
+		float dx = box.getX() - x;
+		float dy = box.getY() - y;
+		return (float) Math.sqrt((dx * dx) + (dy * dy));
+	}
 }
@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.collisions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionPoint;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link SpatialHashGrid}
+ */
+public class SpatialHashGridTest {
+	private QuadTree<CollisionPoint> grid;
+	private CollisionPoint point1, point2, point3, point4;
+
+	@Before
+	public void setup() {
+		grid = new SpatialHashGrid<CollisionPoint>(32, 0, 0, 128, 128);
+		point1 = new CollisionPoint(0, 0);
+		point2 = new CollisionPoint(128, 0);
+		point3 = new CollisionPoint(0, 128);
+		point4 = new CollisionPoint(128, 128);
+	}
+
+	@Test
+	public void testAdd() {
+		Random random = new Random();
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(true, grid.add(new CollisionPoint(random.nextInt(128), random.nextInt(128))));
+			Assert.assertEquals(i + 1, grid.getElements().size());
+		}
+		Assert.assertEquals(false, grid.add(new CollisionPoint(256, 256)));
+		Assert.assertEquals(100, grid.getTotalElements());
+	}
+
+	@Test
+	public void testAddAll() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for (int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		grid.addAll(points);
+		Assert.assertEquals(points.size(), grid.getTotalElements());
+	}
+
+	@Test
+	public void testRemove() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for (int i = 0; i < 1000; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		for (int i = 0; i < points.size(); i++) {
+			Assert.assertEquals(true, grid.add(points.get(i)));
+		}
+		for (int i = points.size() - 1; i >= 0; i--) {
+			Assert.assertEquals(i + 1, grid.getElements().size());
+			Assert.assertEquals(true, grid.remove(points.get(i)));
+			Assert.assertEquals(i, grid.getElements().size());
+		}
+		Assert.assertEquals(false, grid.remove(point1));
+	}
+
+	@Test
+	public void testRemoveAll() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for (int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		grid.addAll(points);
+		Assert.assertEquals(points.size(), grid.getTotalElements());
+		grid.removeAll(points);
+		Assert.assertEquals(0, grid.getTotalElements());
+	}
+
+	@Test
+	public void testGetTotalQuads() {
+		Assert.assertEquals(16, grid.getTotalQuads());
+		Assert.assertEquals(4, new SpatialHashGrid<CollisionPoint>(100, 0, 0, 128, 128).getTotalQuads());
+	}
+
+	@Test
+	public void testGetElementsWithinRegion() {
+		grid.add(point1);
+		grid.add(point2);
+		grid.add(point3);
+		grid.add(point4);
+
+		List<CollisionPoint> points = grid.getElementsWithinRegion(new Rectangle(0, 0, 64, 64));
+		Assert.assertEquals(1, points.size());
+		Assert.assertEquals(point1, points.get(0));
+
+		points = grid.getElementsWithinRegion(new Rectangle(64, 0, 64, 64));
+		Assert.assertEquals(1, points.size());
+		Assert.assertEquals(point2, points.get(0));
+
+		points = grid.getElementsWithinRegion(new Rectangle(0, 64, 64, 64));
+		Assert.assertEquals(1, points.size());
+		Assert.assertEquals(point3, points.get(0));
+
+		points = grid.getElementsWithinRegion(new Rectangle(64, 64, 64, 64));
+		Assert.assertEquals(1, points.size());
+		Assert.assertEquals(point4, points.get(0));
+
+		CollisionPoint point5 = new CollisionPoint(32, 32);
+		CollisionPoint point6 = new CollisionPoint(48, 48);
+		grid.add(point5);
+		grid.add(point6);
+
+		points = grid.getElementsWithinRegion(new Rectangle(0, 0, 64, 64));
+		Assert.assertEquals(3, points.size());
+		Assert.assertEquals(true, points.contains(point1));
+		Assert.assertEquals(true, points.contains(point5));
+		Assert.assertEquals(true, points.contains(point6));
+
+		Assert.assertEquals(0, grid.getElementsWithinRegion(new Rectangle(512, 512, 64, 64)).size());
+	}
+
+	@Test
+	public void testGetElementsContainingPoint() {
+		grid.add(point1);
+		grid.add(point4);
+
+		List<CollisionPoint> points = grid.getElementsContainingPoint(new Point(128, 128));
+		Assert.assertEquals(1, points.size());
+		Assert.assertEquals(point4, points.get(0));
+		Assert.assertEquals(0, grid.getElementsContainingPoint(new Point(64, 64)).size());
+	}
+
+	@Test
+	public void testGetElementsIntersectingLineSegment() {
+		grid.add(point1);
+		grid.add(point2);
+		grid.add(point3);
+		grid.add(point4);
+
+		List<CollisionPoint> points = grid.getElementsIntersectingLineSegment(new LineSegment(0, 0, 128, 128));
+		Assert.assertEquals(true, points.contains(point1));
+		Assert.assertEquals(false, points.contains(point2));
+		Assert.assertEquals(false, points.contains(point3));
+		Assert.assertEquals(true, points.contains(point4));
+
+		points = grid.getElementsIntersectingLineSegment(new LineSegment(128, 0, 0, 128));
+		Assert.assertEquals(false, points.contains(point1));
+		Assert.assertEquals(true, points.contains(point2));
+		Assert.assertEquals(true, points.contains(point3));
+		Assert.assertEquals(false, points.contains(point4));
+	}
+
+	@Test
+	public void testQueriesMatchPointQuadTree() {
+		QuadTree<CollisionPoint> quadTree = new PointQuadTree<CollisionPoint>(4, 0, 0, 128, 128);
+		Random random = new Random(1L);
+		for (int i = 0; i < 500; i++) {
+			CollisionPoint point = new CollisionPoint(random.nextInt(128), random.nextInt(128));
+			quadTree.add(point);
+			grid.add(point);
+		}
+		for (int i = 0; i < 50; i++) {
+			Rectangle region = new Rectangle(random.nextInt(128), random.nextInt(128), random.nextInt(64) + 1,
+					random.nextInt(64) + 1);
+			List<CollisionPoint> expected = quadTree.getElementsWithinRegion(region);
+			List<CollisionPoint> actual = grid.getElementsWithinRegion(region);
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertEquals(true, actual.containsAll(expected));
+		}
+	}
+
+	@Test
+	public void testPositionChanged() {
+		CollisionPoint point = new CollisionPoint(8, 8);
+		grid.add(point);
+
+		point.set(16, 16);
+		Assert.assertEquals(1, grid.getElementsWithinRegion(new Rectangle(0, 0, 31, 31)).size());
+
+		point.set(100, 100);
+		Assert.assertEquals(0, grid.getElementsWithinRegion(new Rectangle(0, 0, 31, 31)).size());
+		Assert.assertEquals(1, grid.getElementsWithinRegion(new Rectangle(96, 96, 31, 31)).size());
+		Assert.assertEquals(1, grid.getTotalElements());
+
+		point.set(256, 256);
+		Assert.assertEquals(0, grid.getTotalElements());
+		Assert.assertEquals(0, grid.getElements().size());
+	}
+	
+	@Test
+	public void testDeferredPositionChanges() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		grid.addAll(points);
+		grid.add(point1);
+		
+		grid.setDeferPositionChanges(true);
+		Assert.assertEquals(true, grid.isDeferringPositionChanges());
+		for(int i = 0; i < 10; i++) {
+			point1.set(random.nextInt(128), random.nextInt(128));
+		}
+		point1.set(100.5f, 100.5f);
+		CollisionPoint removedPoint = points.get(0);
+		removedPoint.set(256f, 256f);
+		grid.flushPositionChanges();
+		
+		Assert.assertEquals(true, grid.getElementsWithinRegion(new Rectangle(100f, 100f, 1f, 1f)).contains(point1));
+		Assert.assertEquals(false, grid.getElements().contains(removedPoint));
+		Assert.assertEquals(100, grid.getTotalElements());
+		
+		point1.set(10.5f, 10.5f);
+		Assert.assertEquals(true, grid.remove(point1));
+		Assert.assertEquals(99, grid.getTotalElements());
+		
+		CollisionPoint movedPoint = points.get(1);
+		movedPoint.set(50.5f, 50.5f);
+		grid.setDeferPositionChanges(false);
+		Assert.assertEquals(false, grid.isDeferringPositionChanges());
+		Assert.assertEquals(true, grid.getElementsWithinRegion(new Rectangle(50f, 50f, 1f, 1f)).contains(movedPoint));
+		Assert.assertEquals(99, grid.getTotalElements());
+	}
+	
+	@Test
+	public void testGetNearestElements() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		grid.addAll(points);
+		
+		Assert.assertEquals(0, grid.getNearestElements(64f, 64f, 0).size());
+		Assert.assertEquals(100, grid.getNearestElements(64f, 64f, 200).size());
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			List<CollisionPoint> result = grid.getNearestElements(x, y, 5);
+			Assert.assertEquals(5, result.size());
+			
+			float furthestDistance = 0f;
+			for(CollisionPoint point : result) {
+				Assert.assertEquals(true, point.dst(x, y) >= furthestDistance);
+				furthestDistance = point.dst(x, y);
+			}
+			for(CollisionPoint point : points) {
+				Assert.assertEquals(true, result.contains(point) || point.dst(x, y) >= furthestDistance);
+			}
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		CollisionPoint near = new CollisionPoint(16, 16);
+		CollisionPoint far = new CollisionPoint(96, 96);
+		grid.add(near);
+		grid.add(far);
+		grid.add(new CollisionPoint(64, 32));
+		grid.add(new CollisionPoint(32, 64));
+		grid.add(new CollisionPoint(100, 8));
+
+		RaycastResult<CollisionPoint> result = new RaycastResult<CollisionPoint>();
+		Assert.assertEquals(true, grid.raycast(new LineSegment(0, 0, 128, 128), result));
+		Assert.assertEquals(near, result.getElement());
+		Assert.assertEquals(16f, result.getX());
+		Assert.assertEquals(16f, result.getY());
+		Assert.assertEquals(near.dst(0, 0), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(true, grid.raycast(new LineSegment(128, 128, 0, 0), result));
+		Assert.assertEquals(far, result.getElement());
+		Assert.assertEquals(far.dst(128, 128), result.getDistance(), 0.001f);
+
+		Assert.assertEquals(false, grid.raycast(new LineSegment(0, 120, 128, 120), result));
+		Assert.assertEquals(false, result.isHit());
+		Assert.assertEquals(null, result.getElement());
+	}
+	
+	@Test
+	public void testFindCollidingPairs() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 300; i++) {
+			points.add(new CollisionPoint(random.nextInt(16) * 8, random.nextInt(16) * 8));
+		}
+		grid.addAll(points);
+		
+		int expectedPairs = 0;
+		for(int i = 0; i < points.size(); i++) {
+			for(int j = i + 1; j < points.size(); j++) {
+				if(points.get(i).getX() == points.get(j).getX() && points.get(i).getY() == points.get(j).getY()) {
+					expectedPairs++;
+				}
+			}
+		}
+		
+		final Set<String> pairs = Collections.synchronizedSet(new HashSet<String>());
+		PairCallback<CollisionPoint> callback = new PairCallback<CollisionPoint>() {
+			@Override
+			public void onCollidingPair(CollisionPoint elementA, CollisionPoint elementB) {
+				Assert.assertEquals(elementA.getX(), elementB.getX());
+				Assert.assertEquals(elementA.getY(), elementB.getY());
+				Assert.assertEquals(true, pairs.add(Math.min(elementA.getId(), elementB.getId()) + ":"
+						+ Math.max(elementA.getId(), elementB.getId())));
+			}
+		};
+		grid.findCollidingPairs(callback);
+		Assert.assertEquals(expectedPairs, pairs.size());
+	}
+	
+	@Test
+	public void testGetElementsWithinRadius() {
+		Random random = new Random();
+		List<CollisionPoint> points = new ArrayList<CollisionPoint>();
+		for(int i = 0; i < 100; i++) {
+			points.add(new CollisionPoint(random.nextInt(128), random.nextInt(128)));
+		}
+		grid.addAll(points);
+		
+		for(int i = 0; i < 20; i++) {
+			float x = random.nextInt(160) - 16;
+			float y = random.nextInt(160) - 16;
+			float radius = random.nextInt(64);
+			List<CollisionPoint> result = grid.getElementsWithinRadius(x, y, radius);
+			for(CollisionPoint point : points) {
+				Assert.assertEquals(point.dst(x, y) <= radius, result.contains(point));
+			}
+		}
+	}
+}
@@ -20,6 +20,7 @@ import org.junit.Test;
 import org.mini2Dx.core.engine.PositionChangeListener;
 import org.mini2Dx.core.geom.LineSegment;
 import org.mini2Dx.core.geom.Point;
+import org.mini2Dx.core.geom.Rectangle;
 
 /**
  * Unit tests for {@link CollisionBox}
@@ -293,6 +294,82 @@ public class CollisionBoxTest implements PositionChangeListener<CollisionBox> {
 		}
 	}
 
+	@Test
+	public void testGetSweptBounds() {
+		rectangle1 = new CollisionBox(10f, 20f, 5f, 5f);
+		rectangle1.preUpdate();
+		rectangle1.set(40f, 10f, 5f, 5f);
+
+		Rectangle sweptBounds = rectangle1.getSweptBounds(new Rectangle());
+		Assert.assertEquals(10f, sweptBounds.getX());
+		Assert.assertEquals(10f, sweptBounds.getY());
+		Assert.assertEquals(35f, sweptBounds.getWidth());
+		Assert.assertEquals(15f, sweptBounds.getHeight());
+	}
+
+	@Test
+	public void testTimeOfImpactThroughThinBox() {
+		rectangle1 = new CollisionBox(0f, 0f, 4f, 4f);
+		rectangle2 = new CollisionBox(50f, -100f, 1f, 200f);
+		rectangle1.preUpdate();
+		rectangle2.preUpdate();
+		rectangle1.setX(100f);
+
+		Assert.assertEquals(false, rectangle1.intersects(rectangle2));
+		Assert.assertEquals(0.46f, rectangle1.getTimeOfImpact(rectangle2), 0.0001f);
+		Assert.assertEquals(0.46f, rectangle2.getTimeOfImpact(rectangle1), 0.0001f);
+		Assert.assertEquals(0.46f, rectangle1.getTimeOfImpact(50f, -100f, 51f, 100f), 0.0001f);
+	}
+
+	@Test
+	public void testTimeOfImpactBothMoving() {
+		rectangle1 = new CollisionBox(0f, 0f, 10f, 10f);
+		rectangle2 = new CollisionBox(100f, 0f, 10f, 10f);
+		rectangle1.preUpdate();
+		rectangle2.preUpdate();
+		rectangle1.setX(80f);
+		rectangle2.setX(20f);
+
+		Assert.assertEquals(0.5625f, rectangle1.getTimeOfImpact(rectangle2), 0.0001f);
+
+		rectangle2.forceTo(85f, 0f);
+		rectangle1.preUpdate();
+		rectangle1.setY(100f);
+		rectangle2.setY(100f);
+		Assert.assertEquals(0f, rectangle1.getTimeOfImpact(rectangle2));
+	}
+
+	@Test
+	public void testTimeOfImpactMissed() {
+		rectangle1 = new CollisionBox(0f, 0f, 4f, 4f);
+		rectangle2 = new CollisionBox(50f, 50f, 10f, 10f);
+		rectangle1.preUpdate();
+		rectangle2.preUpdate();
+		rectangle1.set(100f, 0f, 4f, 4f);
+		Assert.assertEquals(-1f, rectangle1.getTimeOfImpact(rectangle2));
+
+		rectangle1.preUpdate();
+		rectangle1.setX(40f);
+		Assert.assertEquals(-1f, rectangle1.getTimeOfImpact(rectangle2));
+
+		rectangle1.forceTo(0f, 52f);
+		rectangle1.setX(20f);
+		Assert.assertEquals(-1f, rectangle1.getTimeOfImpact(rectangle2));
+	}
+
+	@Test
+	public void testInterpolateBeforePreUpdate() {
+		rectangle1 = new CollisionBox(0f, 0f, 50f, 50f);
+		rectangle1.setX(100f);
+		rectangle1.interpolate(null, 0.5f);
+		Assert.assertEquals(100f, rectangle1.getRenderX());
+
+		rectangle1.preUpdate();
+		rectangle1.setX(200f);
+		rectangle1.interpolate(null, 0.5f);
+		Assert.assertEquals(150f, rectangle1.getRenderX());
+	}
+
 	@Override
 	public void positionChanged(CollisionBox moved) {
 		notificationReceived = true;
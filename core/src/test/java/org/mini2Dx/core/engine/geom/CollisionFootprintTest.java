@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.engine.geom;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.mini2Dx.core.engine.PositionChangeListener;
+
+import junit.framework.Assert;
+
+/**
+ * Measures the memory allocated per instance of {@link CollisionBox},
+ * {@link CollisionPoint} and {@link CollisionCircle}
+ */
+public class CollisionFootprintTest {
+	private static final int TOTAL_INSTANCES = 10000;
+	private static final int WARMUP_ITERATIONS = 1000;
+	private static final long MAX_COLLISION_BOX_BYTES = 128L;
+	private static final long MAX_COLLISION_POINT_BYTES = 48L;
+	private static final long MAX_COLLISION_CIRCLE_BYTES = 80L;
+
+	private final Object[] instances = new Object[TOTAL_INSTANCES];
+
+	@Test
+	public void testCollisionBoxFootprint() {
+		long bytesPerInstance = measureBytesPerInstance(new InstanceFactory() {
+			@Override
+			public Object create(int index) {
+				return new CollisionBox(index, index, 32f, 32f);
+			}
+		});
+		Assert.assertTrue("CollisionBox: " + bytesPerInstance + " bytes per instance",
+				bytesPerInstance <= MAX_COLLISION_BOX_BYTES);
+	}
+
+	@Test
+	public void testCollisionPointFootprint() {
+		long bytesPerInstance = measureBytesPerInstance(new InstanceFactory() {
+			@Override
+			public Object create(int index) {
+				return new CollisionPoint(index, index);
+			}
+		});
+		Assert.assertTrue("CollisionPoint: " + bytesPerInstance + " bytes per instance",
+				bytesPerInstance <= MAX_COLLISION_POINT_BYTES);
+	}
+
+	@Test
+	public void testCollisionCircleFootprint() {
+		long bytesPerInstance = measureBytesPerInstance(new InstanceFactory() {
+			@Override
+			public Object create(int index) {
+				return new CollisionCircle(index, index, 16);
+			}
+		});
+		Assert.assertTrue("CollisionCircle: " + bytesPerInstance + " bytes per instance",
+				bytesPerInstance <= MAX_COLLISION_CIRCLE_BYTES);
+	}
+
+	@Test
+	public void testSingleListenerDoesNotAllocate() {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		PositionChangeListener<CollisionBox> listener = new PositionChangeListener<CollisionBox>() {
+			@Override
+			public void positionChanged(CollisionBox moved) {
+			}
+		};
+		CollisionBox collisionBox = new CollisionBox(0f, 0f, 32f, 32f);
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			collisionBox.addPostionChangeListener(listener);
+			collisionBox.removePositionChangeListener(listener);
+		}
+		long threadId = Thread.currentThread().getId();
+		long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+		collisionBox.addPostionChangeListener(listener);
+		collisionBox.removePositionChangeListener(listener);
+		collisionBox.addPostionChangeListener(listener);
+		Assert.assertEquals(0L, threadMXBean.getThreadAllocatedBytes(threadId) - startBytes);
+	}
+
+	private long measureBytesPerInstance(InstanceFactory factory) {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		long result = Long.MAX_VALUE;
+		//Take the lowest of several measurements to ignore one-off JVM allocations
+		for (int i = 0; i < 5; i++) {
+			long threadId = Thread.currentThread().getId();
+			long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+			for (int j = 0; j < TOTAL_INSTANCES; j++) {
+				instances[j] = factory.create(j);
+			}
+			result = Math.min(result, threadMXBean.getThreadAllocatedBytes(threadId) - startBytes);
+		}
+		return result / TOTAL_INSTANCES;
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (!result.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			result.setThreadAllocatedMemoryEnabled(true);
+			return result;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	private interface InstanceFactory {
+		public Object create(int index);
+	}
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.engine.geom;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.collisions.RaycastResult;
+import org.mini2Dx.core.collisions.RegionQuadTree;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link CollisionPointBuffer}
+ */
+public class CollisionPointBufferTest implements PointCollisionListener<CollisionBox> {
+	private static final int WARMUP_ITERATIONS = 10000;
+
+	private CollisionPointBuffer buffer;
+	private RegionQuadTree<CollisionBox> quadTree;
+	private CollisionBox wall;
+
+	private int totalCollisions;
+	private int lastHandle;
+	private CollisionBox lastElement;
+	private boolean removeOnCollision;
+
+	@Before
+	public void setUp() {
+		buffer = new CollisionPointBuffer(4);
+		quadTree = new RegionQuadTree<CollisionBox>(4, 0, 0, 256, 256);
+		wall = new CollisionBox(100, 0, 2, 256);
+		quadTree.add(wall);
+		quadTree.add(new CollisionBox(200, 200, 32, 32));
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		int handle1 = buffer.add(10, 20);
+		int handle2 = buffer.add(30, 40);
+		int handle3 = buffer.add(50, 60);
+		Assert.assertEquals(3, buffer.size());
+		Assert.assertEquals(true, buffer.getId(handle1) != buffer.getId(handle2));
+
+		long id3 = buffer.getId(handle3);
+		Assert.assertEquals(true, buffer.remove(handle1));
+		Assert.assertEquals(false, buffer.remove(handle1));
+		Assert.assertEquals(false, buffer.contains(handle1));
+		Assert.assertEquals(2, buffer.size());
+
+		//Remaining handles still refer to the same points
+		Assert.assertEquals(30f, buffer.getX(handle2));
+		Assert.assertEquals(40f, buffer.getY(handle2));
+		Assert.assertEquals(50f, buffer.getX(handle3));
+		Assert.assertEquals(60f, buffer.getY(handle3));
+		Assert.assertEquals(id3, buffer.getId(handle3));
+
+		int handle4 = buffer.add(70, 80);
+		Assert.assertEquals(handle1, handle4);
+		Assert.assertEquals(70f, buffer.getX(handle4));
+		Assert.assertEquals(3, buffer.size());
+	}
+
+	@Test
+	public void testGrow() {
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(i, buffer.add(i, i * 2));
+		}
+		Assert.assertEquals(100, buffer.size());
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals((float) i, buffer.getX(i));
+			Assert.assertEquals(i * 2f, buffer.getY(i));
+		}
+	}
+
+	@Test
+	public void testClear() {
+		int handle = buffer.add(10, 20);
+		buffer.add(30, 40);
+		buffer.clear();
+		Assert.assertEquals(0, buffer.size());
+		Assert.assertEquals(false, buffer.contains(handle));
+		buffer.add(50, 60);
+		Assert.assertEquals(1, buffer.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetRemovedHandle() {
+		int handle = buffer.add(10, 20);
+		buffer.remove(handle);
+		buffer.getX(handle);
+	}
+
+	@Test
+	public void testInterpolate() {
+		int handle1 = buffer.add(0, 0);
+		int handle2 = buffer.add(10, 10);
+
+		buffer.preUpdate();
+		buffer.translate(handle1, 10, 20);
+		buffer.set(handle2, 0, 0);
+		buffer.interpolate(0.5f);
+		Assert.assertEquals(5f, buffer.getRenderX(handle1));
+		Assert.assertEquals(10f, buffer.getRenderY(handle1));
+		Assert.assertEquals(5f, buffer.getRenderX(handle2));
+		Assert.assertEquals(5f, buffer.getRenderY(handle2));
+
+		buffer.preUpdate();
+		buffer.interpolate(0.5f);
+		Assert.assertEquals(10f, buffer.getRenderX(handle1));
+		Assert.assertEquals(20f, buffer.getRenderY(handle1));
+
+		buffer.forceTo(handle1, 50, 50);
+		buffer.interpolate(0.5f);
+		Assert.assertEquals(50f, buffer.getRenderX(handle1));
+		Assert.assertEquals(50f, buffer.getRenderY(handle1));
+	}
+
+	@Test
+	public void testFindCollisions() {
+		buffer.add(50, 50);
+		int handle = buffer.add(101, 50);
+		buffer.add(300, 300);
+
+		buffer.findCollisions(quadTree, this);
+		Assert.assertEquals(1, totalCollisions);
+		Assert.assertEquals(handle, lastHandle);
+		Assert.assertEquals(wall, lastElement);
+	}
+
+	@Test
+	public void testFindCollisionsRemovesPoint() {
+		int handle1 = buffer.add(101, 50);
+		int handle2 = buffer.add(50, 50);
+		int handle3 = buffer.add(210, 210);
+		removeOnCollision = true;
+
+		buffer.findCollisions(quadTree, this);
+		Assert.assertEquals(2, totalCollisions);
+		Assert.assertEquals(false, buffer.contains(handle1));
+		Assert.assertEquals(true, buffer.contains(handle2));
+		Assert.assertEquals(false, buffer.contains(handle3));
+		Assert.assertEquals(1, buffer.size());
+	}
+
+	@Test
+	public void testFindSweptCollisions() {
+		int handle = buffer.add(50, 50);
+		buffer.add(150, 50);
+		buffer.preUpdate();
+		buffer.set(handle, 150, 50);
+
+		//The point passes through the wall between updates
+		buffer.findCollisions(quadTree, this);
+		Assert.assertEquals(0, totalCollisions);
+
+		RaycastResult<CollisionBox> result = new RaycastResult<CollisionBox>();
+		buffer.findSweptCollisions(quadTree, result, this);
+		Assert.assertEquals(1, totalCollisions);
+		Assert.assertEquals(handle, lastHandle);
+		Assert.assertEquals(wall, lastElement);
+		Assert.assertEquals(100f, result.getX(), 0.01f);
+	}
+
+	@Test
+	public void testUpdateDoesNotAllocate() {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		for (int i = 0; i < 64; i++) {
+			buffer.add(i * 4, 50);
+		}
+		RaycastResult<CollisionBox> result = new RaycastResult<CollisionBox>();
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			moveAndUpdate(i, result);
+		}
+		long bytes = Long.MAX_VALUE;
+		//Take the lowest of several measurements to ignore one-off JVM allocations
+		for (int i = 0; i < 5; i++) {
+			long threadId = Thread.currentThread().getId();
+			long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+			for (int j = 0; j < 1000; j++) {
+				moveAndUpdate(j, result);
+			}
+			bytes = Math.min(bytes, threadMXBean.getThreadAllocatedBytes(threadId) - startBytes);
+		}
+		Assert.assertEquals(true, totalCollisions > 0);
+		Assert.assertEquals(0L, bytes);
+	}
+
+	@Test
+	public void testAddDoesNotAllocatePerPoint() {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		final int totalPoints = 100000;
+		buffer = new CollisionPointBuffer(totalPoints);
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			buffer.remove(buffer.add(i, i));
+		}
+		long threadId = Thread.currentThread().getId();
+		long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < totalPoints; i++) {
+			buffer.add(i % 256, i % 256);
+		}
+		long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+		Assert.assertEquals(totalPoints, buffer.size());
+		//Allow for one-off JVM allocations but not an object per point
+		Assert.assertEquals(true, bytes < totalPoints);
+	}
+
+	private void moveAndUpdate(int iteration, RaycastResult<CollisionBox> result) {
+		buffer.preUpdate();
+		float offset = iteration % 2 == 0 ? 64f : -64f;
+		for (int i = buffer.size() - 1; i >= 0; i--) {
+			buffer.translate(buffer.getHandle(i), offset, 0f);
+		}
+		buffer.interpolate(0.5f);
+		buffer.findCollisions(quadTree, this);
+		buffer.findSweptCollisions(quadTree, result, this);
+	}
+
+	@Override
+	public boolean onCollision(int handle, CollisionBox element) {
+		totalCollisions++;
+		lastHandle = handle;
+		lastElement = element;
+		if (removeOnCollision) {
+			buffer.remove(handle);
+			return false;
+		}
+		return true;
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (!result.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			result.setThreadAllocatedMemoryEnabled(true);
+			return result;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.engine.geom;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.collisions.PairCallback;
+import org.mini2Dx.core.collisions.RegionQuadTree;
+import org.mini2Dx.core.engine.PositionChangeListener;
+import org.mini2Dx.core.geom.Circle;
+import org.mini2Dx.core.geom.LineSegment;
+import org.mini2Dx.core.geom.Parallelogram;
+import org.mini2Dx.core.geom.Polygon;
+import org.mini2Dx.core.geom.Rectangle;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link CollisionPolygon}
+ */
+public class CollisionPolygonTest implements PositionChangeListener<CollisionPolygon> {
+	private CollisionPolygon polygon;
+	private boolean receivedNotification;
+
+	@Before
+	public void setUp() {
+		polygon = new CollisionPolygon(32f, 32f, new float[] { 0f, 32f, 32f, 0f, 32f, 32f });
+		receivedNotification = false;
+	}
+
+	@Test
+	public void testBounds() {
+		Assert.assertEquals(32f, polygon.getX());
+		Assert.assertEquals(32f, polygon.getY());
+		Assert.assertEquals(32f, polygon.getWidth());
+		Assert.assertEquals(32f, polygon.getHeight());
+		Assert.assertEquals(3, polygon.getNumberOfSides());
+	}
+
+	@Test
+	public void testBoundsWithNegativeVertices() {
+		CollisionPolygon diamond = new CollisionPolygon(0f, 0f, new float[] { -8f, 0f, 0f, -8f, 8f, 0f, 0f, 8f });
+		Assert.assertEquals(-8f, diamond.getX());
+		Assert.assertEquals(-8f, diamond.getY());
+		Assert.assertEquals(16f, diamond.getWidth());
+		Assert.assertEquals(-8f, diamond.getPolygon().getMinX());
+		Assert.assertEquals(0f, diamond.getPolygon().getVertexX(3));
+
+		diamond.setPosition(0f, 0f);
+		Assert.assertEquals(8f, diamond.getPolygon().getVertexX(3));
+		Assert.assertEquals(true, diamond.contains(8f, 8f));
+		Assert.assertEquals(false, diamond.contains(1f, 1f));
+	}
+
+	@Test
+	public void testIntersects() {
+		Assert.assertEquals(false, polygon.intersects(new Rectangle(32f, 32f, 8f, 8f)));
+		Assert.assertEquals(true, polygon.intersects(new Rectangle(56f, 56f, 16f, 16f)));
+		Assert.assertEquals(false, polygon.intersects(32f, 32f, 8f, 8f));
+		Assert.assertEquals(false, polygon.intersects(new Circle(36f, 36f, 4)));
+		Assert.assertEquals(true, polygon.intersects(new LineSegment(32f, 64f, 64f, 64f)));
+		Assert.assertEquals(false, polygon.intersects(new LineSegment(32f, 32f, 44f, 44f)));
+		Assert.assertEquals(false, polygon.contains(36f, 36f));
+		Assert.assertEquals(true, polygon.contains(60f, 60f));
+	}
+
+	@Test
+	public void testIntersectsCollisionPolygon() {
+		CollisionPolygon otherTriangle = new CollisionPolygon(32f, 32f, new float[] { 0f, 0f, 30f, 0f, 0f, 30f });
+		Assert.assertEquals(false, polygon.intersects(otherTriangle));
+		Assert.assertEquals(false, otherTriangle.intersects(polygon));
+
+		otherTriangle.setX(40f);
+		Assert.assertEquals(true, polygon.intersects(otherTriangle));
+		Assert.assertEquals(true, otherTriangle.intersects(polygon));
+	}
+
+	@Test
+	public void testMoveAndInterpolate() {
+		polygon.preUpdate();
+		polygon.setPosition(64f, 64f);
+		Assert.assertEquals(false, polygon.contains(60f, 60f));
+		Assert.assertEquals(true, polygon.contains(92f, 92f));
+
+		polygon.interpolate(null, 0.5f);
+		Assert.assertEquals(48f, polygon.getRenderX());
+		Assert.assertEquals(48f, polygon.getRenderY());
+		Assert.assertEquals(32f, polygon.getRenderWidth());
+	}
+
+	@Test
+	public void testPositionChangeNotification() {
+		polygon.addPostionChangeListener(this);
+		polygon.setX(40f);
+		Assert.assertEquals(true, receivedNotification);
+	}
+
+	@Test
+	public void testIntersectsIsSymmetric() {
+		CollisionBox box = new CollisionBox(0f, 0f, 10f, 10f);
+		//The bounds overlap the box but the triangle does not
+		CollisionPolygon triangle = new CollisionPolygon(8f, 8f, new float[] { 12f, 0f, 12f, 12f, 0f, 12f });
+		Assert.assertEquals(false, box.intersects(triangle));
+		Assert.assertEquals(false, triangle.intersects(box));
+		Assert.assertEquals(false, box.intersects((Parallelogram) triangle));
+
+		boolean[] results = new boolean[2];
+		Assert.assertEquals(0, box.intersects(new Rectangle[] { triangle, polygon }, 0, 2, results));
+		Assert.assertEquals(false, results[0]);
+
+		RegionQuadTree<CollisionBox> quadTree = new RegionQuadTree<CollisionBox>(4, 0f, 0f, 64f, 64f);
+		quadTree.add(box);
+		quadTree.add(triangle);
+		final int[] totalPairs = new int[1];
+		quadTree.findCollidingPairs(new PairCallback<CollisionBox>() {
+			@Override
+			public void onCollidingPair(CollisionBox elementA, CollisionBox elementB) {
+				totalPairs[0]++;
+			}
+		});
+		Assert.assertEquals(0, totalPairs[0]);
+
+		triangle.setPosition(0f, 0f);
+		Assert.assertEquals(true, box.intersects(triangle));
+		Assert.assertEquals(true, triangle.intersects(box));
+		Assert.assertEquals(1, box.intersects(new Rectangle[] { triangle, polygon }, 0, 2, results));
+	}
+
+	@Test
+	public void testRotate() {
+		polygon.addPostionChangeListener(this);
+		polygon.rotate(90f);
+		Assert.assertEquals(true, receivedNotification);
+		Assert.assertEquals(90f, polygon.getRotation());
+		Assert.assertEquals(0f, polygon.getMinX(), 0.001f);
+		Assert.assertEquals(64f, polygon.getMaxY(), 0.001f);
+
+		//The triangle is now (0,32), (32,64), (0,64)
+		Assert.assertEquals(true, polygon.contains(4f, 60f));
+		Assert.assertEquals(false, polygon.contains(28f, 40f));
+		Assert.assertEquals(false, polygon.contains(60f, 60f));
+		Assert.assertEquals(true, polygon.intersects(new Rectangle(2f, 56f, 4f, 4f)));
+		Assert.assertEquals(false, polygon.intersects(new Rectangle(24f, 36f, 4f, 4f)));
+
+		polygon.setRotation(0f);
+		Assert.assertEquals(true, polygon.contains(60f, 60f));
+		Assert.assertEquals(false, polygon.contains(4f, 60f));
+	}
+
+	@Test
+	public void testSetSize() {
+		polygon.addPostionChangeListener(this);
+		polygon.setSize(64f, 64f);
+		Assert.assertEquals(true, receivedNotification);
+		Assert.assertEquals(96f, polygon.getPolygon().getMaxX());
+		Assert.assertEquals(true, polygon.contains(92f, 92f));
+		Assert.assertEquals(false, polygon.contains(60f, 60f));
+
+		polygon.set(0f, 0f, 16f, 32f);
+		Assert.assertEquals(16f, polygon.getPolygon().getMaxX());
+		Assert.assertEquals(32f, polygon.getPolygon().getMaxY());
+		Assert.assertEquals(true, polygon.contains(15f, 31f));
+		Assert.assertEquals(false, polygon.contains(4f, 4f));
+	}
+
+	@Test
+	public void testLerp() {
+		Polygon shape = polygon.getPolygon();
+		polygon.lerp(new Rectangle(64f, 64f, 64f, 64f), 0.5f);
+		Assert.assertEquals(true, shape == polygon.getPolygon());
+		Assert.assertEquals(48f, shape.getMinX());
+		Assert.assertEquals(96f, shape.getMaxX());
+		Assert.assertEquals(true, polygon.contains(94f, 94f));
+		Assert.assertEquals(false, polygon.contains(60f, 60f));
+	}
+
+	@Test
+	public void testForceTo() {
+		polygon.preUpdate();
+		polygon.forceTo(0f, 0f, 64f, 64f);
+		Assert.assertEquals(0f, polygon.getRenderX());
+		Assert.assertEquals(64f, polygon.getRenderWidth());
+		Assert.assertEquals(true, polygon.contains(60f, 60f));
+		Assert.assertEquals(false, polygon.contains(4f, 4f));
+	}
+
+	@Override
+	public void positionChanged(CollisionPolygon moved) {
+		receivedNotification = true;
+	}
+}
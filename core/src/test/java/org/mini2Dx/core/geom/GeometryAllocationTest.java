@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.geom;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Vector2;
+
+import junit.framework.Assert;
+
+/**
+ * Verifies that {@link LineSegment}, {@link Rectangle} and {@link Circle}
+ * intersection math does not allocate memory in steady state
+ */
+public class GeometryAllocationTest {
+	private static final int WARMUP_ITERATIONS = 10000;
+	private static final int ITERATIONS = 1000;
+
+	private LineSegment lineSegment1, lineSegment2;
+	private Rectangle rectangle1, rectangle2;
+	private Circle circle1, circle2;
+	private Vector2 intersection;
+	private int totalHits;
+
+	@Before
+	public void setUp() {
+		lineSegment1 = new LineSegment(0f, 0f, 32f, 32f);
+		lineSegment2 = new LineSegment(0f, 32f, 32f, 0f);
+		rectangle1 = new Rectangle(0f, 0f, 32f, 32f);
+		rectangle2 = new Rectangle(16f, 16f, 32f, 32f);
+		rectangle2.rotate(30f);
+		circle1 = new Circle(0f, 0f, 16);
+		circle2 = new Circle(8f, 8f, 16);
+		intersection = new Vector2();
+	}
+
+	@Test
+	public void testLineSegmentDoesNotAllocate() {
+		assertNoAllocation(new Operation() {
+			@Override
+			public boolean run() {
+				return lineSegment1.contains(16f, 16f) && lineSegment1.intersects(lineSegment2)
+						&& lineSegment1.getIntersection(lineSegment2, intersection)
+						&& lineSegment1.intersects(rectangle1);
+			}
+		});
+	}
+
+	@Test
+	public void testRotatedRectangleDoesNotAllocate() {
+		assertNoAllocation(new Operation() {
+			@Override
+			public boolean run() {
+				return rectangle1.intersects(rectangle2) && rectangle2.intersects(16f, 16f, 8f, 8f)
+						&& rectangle2.intersects(lineSegment1) && rectangle2.contains(20f, 30f)
+						&& !rectangle1.contains(rectangle2);
+			}
+		});
+	}
+
+	@Test
+	public void testRectangleMovementDoesNotAllocate() {
+		assertNoAllocation(new Operation() {
+			@Override
+			public boolean run() {
+				rectangle2.setX(rectangle2.getX() + 1f);
+				rectangle2.rotate(1f);
+				return rectangle2.getMaxX() > rectangle2.getMinX();
+			}
+		});
+	}
+
+	@Test
+	public void testCircleDoesNotAllocate() {
+		assertNoAllocation(new Operation() {
+			@Override
+			public boolean run() {
+				circle1.lerp(circle2, 0.5f);
+				return circle1.intersects(circle2) && circle1.getDistanceTo(0f, 0f) == 0f;
+			}
+		});
+	}
+
+	private void assertNoAllocation(Operation operation) {
+		com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+		Assume.assumeNotNull(threadMXBean);
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			if (operation.run()) {
+				totalHits++;
+			}
+		}
+		long result = Long.MAX_VALUE;
+		//Take the lowest of several measurements to ignore one-off JVM allocations
+		for (int i = 0; i < 5; i++) {
+			long threadId = Thread.currentThread().getId();
+			long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+			for (int j = 0; j < ITERATIONS; j++) {
+				if (operation.run()) {
+					totalHits++;
+				}
+			}
+			result = Math.min(result, threadMXBean.getThreadAllocatedBytes(threadId) - startBytes);
+		}
+		Assert.assertEquals(true, totalHits > 0);
+		Assert.assertEquals(0L, result);
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (!result.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			result.setThreadAllocatedMemoryEnabled(true);
+			return result;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	private interface Operation {
+		public boolean run();
+	}
+}
@@ -52,4 +52,42 @@ public class IntersectorTest {
 		
 		Assert.assertEquals(true, Intersector.intersectLines(line1Start, line1End, line2Start, line2End, new Vector2()));
 	}
+
+	@Test
+	public void testIntersectSegments() {
+		Assert.assertEquals(true, Intersector.intersectSegments(0f, 0f, 32f, 32f, 0f, 32f, 32f, 0f));
+		Assert.assertEquals(false, Intersector.intersectSegments(0f, 0f, 8f, 8f, 0f, 32f, 32f, 0f));
+		Assert.assertEquals(false, Intersector.intersectSegments(0f, 0f, 32f, 0f, 0f, 8f, 32f, 8f));
+	}
+
+	@Test
+	public void testIntersectSegmentsWithIntersection() {
+		Vector2 intersection = new Vector2();
+		Assert.assertEquals(true, Intersector.intersectSegments(0f, 0f, 32f, 32f, 0f, 32f, 32f, 0f, intersection));
+		Assert.assertEquals(16f, intersection.x, 0.001f);
+		Assert.assertEquals(16f, intersection.y, 0.001f);
+
+		intersection.set(-1f, -1f);
+		Assert.assertEquals(false, Intersector.intersectSegments(0f, 0f, 8f, 8f, 0f, 32f, 32f, 0f, intersection));
+		Assert.assertEquals(-1f, intersection.x);
+		Assert.assertEquals(-1f, intersection.y);
+	}
+
+	@Test
+	public void testIntersectSegmentsWithCollinearSegments() {
+		Vector2 intersection = new Vector2();
+		Assert.assertEquals(true, Intersector.intersectSegments(0f, 0f, 16f, 0f, 8f, 0f, 32f, 0f, intersection));
+		Assert.assertEquals(true, Intersector.isPointOnSegment(intersection.x, intersection.y, 0f, 0f, 16f, 0f));
+		Assert.assertEquals(true, Intersector.isPointOnSegment(intersection.x, intersection.y, 8f, 0f, 32f, 0f));
+
+		Assert.assertEquals(false, Intersector.intersectSegments(0f, 0f, 16f, 0f, 24f, 0f, 32f, 0f, intersection));
+	}
+
+	@Test
+	public void testIsPointOnSegment() {
+		Assert.assertEquals(true, Intersector.isPointOnSegment(16f, 16f, 0f, 0f, 32f, 32f));
+		Assert.assertEquals(true, Intersector.isPointOnSegment(0f, 0f, 0f, 0f, 32f, 32f));
+		Assert.assertEquals(false, Intersector.isPointOnSegment(16f, 17f, 0f, 0f, 32f, 32f));
+		Assert.assertEquals(false, Intersector.isPointOnSegment(48f, 48f, 0f, 0f, 32f, 32f));
+	}
 }
@@ -16,6 +16,8 @@ import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.badlogic.gdx.math.Vector2;
+
 /**
  * Implements unit tests for {@link Point}
  */
@@ -111,4 +113,12 @@ public class PointTest {
 		point2.rotateAround(point1, 90f);
 		Assert.assertEquals(10f, point2.getY());
 	}
+	
+	@Test
+	public void testStaticRotateAround() {
+		Vector2 result = new Vector2();
+		Assert.assertSame(result, Point.rotateAround(20f, 0f, 10f, 0f, 90f, result));
+		Assert.assertEquals(10f, result.x, 0.01f);
+		Assert.assertEquals(10f, result.y, 0.01f);
+	}
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.core.geom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link Polygon}
+ */
+public class PolygonTest {
+	private Polygon triangle;
+
+	@Before
+	public void setUp() {
+		//A right-angled triangle sloping down from the top-right corner
+		triangle = new Polygon(32f, 32f, new float[] { 0f, 32f, 32f, 0f, 32f, 32f });
+	}
+
+	@Test
+	public void testBounds() {
+		Assert.assertEquals(32f, triangle.getMinX());
+		Assert.assertEquals(32f, triangle.getMinY());
+		Assert.assertEquals(64f, triangle.getMaxX());
+		Assert.assertEquals(64f, triangle.getMaxY());
+		Assert.assertEquals(32f, triangle.getWidth());
+		Assert.assertEquals(32f, triangle.getHeight());
+		Assert.assertEquals(3, triangle.getNumberOfSides());
+
+		triangle.setPosition(0f, 8f);
+		Assert.assertEquals(0f, triangle.getMinX());
+		Assert.assertEquals(8f, triangle.getMinY());
+		Assert.assertEquals(32f, triangle.getMaxX());
+		Assert.assertEquals(40f, triangle.getMaxY());
+		Assert.assertEquals(32f, triangle.getVertexX(1));
+		Assert.assertEquals(8f, triangle.getVertexY(1));
+	}
+
+	@Test
+	public void testContains() {
+		Assert.assertEquals(true, triangle.contains(60f, 60f));
+		Assert.assertEquals(true, triangle.contains(48f, 48f));
+		Assert.assertEquals(true, triangle.contains(64f, 32f));
+		Assert.assertEquals(false, triangle.contains(36f, 36f));
+		Assert.assertEquals(false, triangle.contains(65f, 60f));
+	}
+
+	@Test
+	public void testContainsWithEitherWinding() {
+		Polygon reversed = new Polygon(32f, 32f, new float[] { 32f, 32f, 32f, 0f, 0f, 32f });
+		Assert.assertEquals(true, reversed.contains(60f, 60f));
+		Assert.assertEquals(false, reversed.contains(36f, 36f));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConcavePolygon() {
+		new Polygon(0f, 0f, new float[] { 0f, 0f, 32f, 0f, 16f, 8f, 32f, 32f, 0f, 32f });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooFewVertices() {
+		new Polygon(0f, 0f, new float[] { 0f, 0f, 32f, 0f });
+	}
+
+	@Test
+	public void testIntersectsRectangle() {
+		Assert.assertEquals(true, triangle.intersects(new Rectangle(56f, 56f, 16f, 16f)));
+		Assert.assertEquals(true, triangle.intersects(new Rectangle(0f, 0f, 128f, 128f)));
+		//Overlaps the bounds of the triangle but not the triangle itself
+		Assert.assertEquals(false, triangle.intersects(new Rectangle(32f, 32f, 8f, 8f)));
+		Assert.assertEquals(false, triangle.intersects(new Rectangle(72f, 32f, 8f, 8f)));
+
+		Assert.assertEquals(true, triangle.intersects(56f, 56f, 16f, 16f));
+		Assert.assertEquals(false, triangle.intersects(32f, 32f, 8f, 8f));
+	}
+
+	@Test
+	public void testIntersectsRotatedRectangle() {
+		//The bounds of the rotated rectangle overlap the triangle
+		Rectangle rectangle = new Rectangle(61f, 69f, 8f, 8f);
+		rectangle.rotate(-45f);
+		Assert.assertEquals(true, rectangle.getMinY() < triangle.getMaxY());
+		Assert.assertEquals(false, triangle.intersects(rectangle));
+
+		rectangle = new Rectangle(60f, 60f, 8f, 8f);
+		rectangle.rotate(45f);
+		Assert.assertEquals(true, triangle.intersects(rectangle));
+	}
+
+	@Test
+	public void testIntersectsCircle() {
+		Assert.assertEquals(true, triangle.intersects(new Circle(60f, 60f, 2)));
+		Assert.assertEquals(true, triangle.intersects(new Circle(48f, 70f, 8)));
+		Assert.assertEquals(false, triangle.intersects(new Circle(36f, 36f, 4)));
+		//Within the bounds and edge projections but beyond the corner
+		Assert.assertEquals(false, triangle.intersects(new Circle(70f, 28f, 6)));
+		Assert.assertEquals(true, triangle.intersects(new Circle(68f, 30f, 6)));
+	}
+
+	@Test
+	public void testIntersectsLineSegment() {
+		Assert.assertEquals(true, triangle.intersects(new LineSegment(32f, 64f, 64f, 64f)));
+		Assert.assertEquals(true, triangle.intersects(new LineSegment(40f, 64f, 80f, 40f)));
+		Assert.assertEquals(true, triangle.intersects(new LineSegment(60f, 60f, 62f, 62f)));
+		Assert.assertEquals(false, triangle.intersects(new LineSegment(32f, 32f, 44f, 44f)));
+		Assert.assertEquals(false, triangle.intersects(new LineSegment(30f, 32f, 30f, 64f)));
+	}
+
+	@Test
+	public void testIntersectsPolygon() {
+		Polygon otherTriangle = new Polygon(32f, 32f, new float[] { 0f, 0f, 30f, 0f, 0f, 30f });
+		Assert.assertEquals(false, triangle.intersects(otherTriangle));
+		Assert.assertEquals(false, otherTriangle.intersects(triangle));
+
+		otherTriangle.setX(40f);
+		Assert.assertEquals(true, triangle.intersects(otherTriangle));
+		Assert.assertEquals(true, otherTriangle.intersects(triangle));
+	}
+
+	@Test
+	public void testGetIntersectionFraction() {
+		Assert.assertEquals(0.5f, triangle.getIntersectionFraction(new LineSegment(64f, 0f, 64f, 64f)), 0.001f);
+		Assert.assertEquals(0f, triangle.getIntersectionFraction(new LineSegment(60f, 60f, 70f, 70f)));
+		Assert.assertEquals(-1f, triangle.getIntersectionFraction(new LineSegment(0f, 0f, 40f, 40f)));
+	}
+}
@@ -117,6 +117,7 @@ public class RectangleTest {
 	public void testRotateAround() {
 		rectangle1 = new Rectangle(0f, 0f, 10f, 10f);
 		rectangle1.rotateAround(new Point(0f, 0f), 90f);
+		rectangle1.updateCorners();
 		
 		Assert.assertEquals(0f, rectangle1.topLeft.x);
 		Assert.assertEquals(0f, rectangle1.topLeft.y);
@@ -134,6 +135,65 @@ public class RectangleTest {
 		Assert.assertEquals(0, MathUtils.round(rectangle1.bottomLeft.y));
 	}
 	
+	@Test
+	public void testRotatedMinMax() {
+		rectangle1 = new Rectangle(0f, 0f, 10f, 20f);
+		rectangle1.rotate(90f);
+		
+		Assert.assertEquals(-20, MathUtils.round(rectangle1.getMinX()));
+		Assert.assertEquals(0, MathUtils.round(rectangle1.getMinY()));
+		Assert.assertEquals(0, MathUtils.round(rectangle1.getMaxX()));
+		Assert.assertEquals(10, MathUtils.round(rectangle1.getMaxY()));
+		Assert.assertEquals(-10, MathUtils.round(rectangle1.getCenterX()));
+		Assert.assertEquals(5, MathUtils.round(rectangle1.getCenterY()));
+		
+		rectangle1.setRotation(0f);
+		Assert.assertEquals(0f, rectangle1.getMinX());
+		Assert.assertEquals(0f, rectangle1.getMinY());
+		Assert.assertEquals(10f, rectangle1.getMaxX());
+		Assert.assertEquals(20f, rectangle1.getMaxY());
+	}
+	
+	@Test
+	public void testSetPositionWhenRotated() {
+		rectangle1 = new Rectangle(0f, 0f, 10f, 10f);
+		rectangle1.rotate(90f);
+		rectangle1.setPosition(20f, 30f);
+		rectangle1.updateCorners();
+		
+		Assert.assertEquals(20f, rectangle1.getX());
+		Assert.assertEquals(30f, rectangle1.getY());
+		Assert.assertEquals(20, MathUtils.round(rectangle1.topRight.x));
+		Assert.assertEquals(40, MathUtils.round(rectangle1.topRight.y));
+		Assert.assertEquals(10, MathUtils.round(rectangle1.bottomRight.x));
+		Assert.assertEquals(40, MathUtils.round(rectangle1.bottomRight.y));
+		
+		rectangle1 = new Rectangle(0f, 0f, 10f, 10f);
+		rectangle1.rotateAround(new Point(5f, 5f), 180f);
+		Assert.assertEquals(10, MathUtils.round(rectangle1.getX()));
+		Assert.assertEquals(10, MathUtils.round(rectangle1.getY()));
+		
+		rectangle1.setX(2f);
+		Assert.assertEquals(8, MathUtils.round(rectangle1.getX()));
+		Assert.assertEquals(10, MathUtils.round(rectangle1.getY()));
+		Assert.assertEquals(-2, MathUtils.round(rectangle1.getMinX()));
+		Assert.assertEquals(8, MathUtils.round(rectangle1.getMaxX()));
+	}
+	
+	@Test
+	public void testLerpRotation() {
+		rectangle1 = new Rectangle(0f, 0f, 10f, 10f);
+		rectangle2 = new Rectangle(10f, 0f, 10f, 10f);
+		rectangle2.setRotation(90f);
+		
+		rectangle1.lerp(rectangle2, 0.5f);
+		Assert.assertEquals(5f, rectangle1.getX());
+		Assert.assertEquals(0f, rectangle1.getY());
+		Assert.assertEquals(45f, rectangle1.getRotation());
+		Assert.assertEquals(5, MathUtils.round(rectangle1.getCenterX()));
+		Assert.assertEquals(7, MathUtils.round(rectangle1.getCenterY()));
+	}
+	
 	@Test
 	public void testContainsPoint() {
 		rectangle1 = new Rectangle(0, 0, 50, 50);
@@ -255,6 +315,58 @@ public class RectangleTest {
 		Assert.assertEquals(true, rectangle2.intersects(rectangle1));
 	}
 
+	@Test
+	public void testIntersectsRotatedRectangleSeparatingAxis() {
+		rectangle1 = new Rectangle(0f, 0f, 10f, 10f);
+		rectangle1.rotate(45f);
+		rectangle2 = new Rectangle(5f, 0f, 5f, 2f);
+		
+		//The bounds overlap but the rotated edge separates the Rectangles
+		Assert.assertEquals(true, rectangle1.getMaxX() > rectangle2.getMinX());
+		Assert.assertEquals(false, rectangle1.intersects(rectangle2));
+		Assert.assertEquals(false, rectangle2.intersects(rectangle1));
+		
+		rectangle2.rotate(45f);
+		Assert.assertEquals(false, rectangle1.intersects(rectangle2));
+		Assert.assertEquals(false, rectangle2.intersects(rectangle1));
+		
+		rectangle2 = new Rectangle(1f, 2f, 2f, 2f);
+		Assert.assertEquals(true, rectangle1.intersects(rectangle2));
+		Assert.assertEquals(true, rectangle2.intersects(rectangle1));
+		
+		rectangle2.rotate(30f);
+		Assert.assertEquals(true, rectangle1.intersects(rectangle2));
+		Assert.assertEquals(true, rectangle2.intersects(rectangle1));
+		
+		rectangle1 = new Rectangle(64f, 64f, 16f, 16f);
+		rectangle1.rotate(45f);
+		rectangle2 = new Rectangle(62f, 68f, 4f, 4f);
+		Assert.assertEquals(true, rectangle1.intersects(rectangle2));
+		Assert.assertEquals(true, rectangle2.intersects(rectangle1));
+	}
+	
+	@Test
+	public void testIntersectsBatch() {
+		rectangle1 = new Rectangle(0f, 0f, 10f, 10f);
+		rectangle1.rotate(45f);
+		
+		Rectangle rotatedCandidate = new Rectangle(1f, 2f, 2f, 2f);
+		rotatedCandidate.rotate(30f);
+		Rectangle[] candidates = new Rectangle[] { new Rectangle(100f, 100f, 1f, 1f), new Rectangle(5f, 0f, 5f, 2f),
+				new Rectangle(1f, 2f, 2f, 2f), null, rotatedCandidate };
+		boolean[] results = new boolean[candidates.length];
+		
+		Assert.assertEquals(2, rectangle1.intersects(candidates, 0, candidates.length, results));
+		for (int i = 0; i < candidates.length; i++) {
+			boolean expected = candidates[i] != null && rectangle1.intersects(candidates[i]);
+			Assert.assertEquals(expected, results[i]);
+		}
+		
+		Assert.assertEquals(1, rectangle1.intersects(candidates, 3, 2, results));
+		Assert.assertEquals(false, results[0]);
+		Assert.assertEquals(true, results[1]);
+	}
+	
 	@Test
 	public void testIntersectsLineWhenNotRotated() {
 		rectangle1 = new Rectangle(100f, 100f, 50f, 50f);
@@ -380,6 +380,14 @@ public class TiledParser implements TiledParserNotifier {
 				object.setGid(gid);
 			}
 			object.setVisible(element.getIntAttribute("visible", 1) == 1);
+			Element polygon = element.getChildByName("polygon");
+			if (polygon != null) {
+				object.setPolygon(polygon.getAttribute("points", null));
+			}
+			Element polyline = element.getChildByName("polyline");
+			if (polyline != null) {
+				object.setPolyline(polyline.getAttribute("points", null));
+			}
 			Element properties = element.getChildByName("properties");
 			if (properties != null) {
 				for (Element property : properties
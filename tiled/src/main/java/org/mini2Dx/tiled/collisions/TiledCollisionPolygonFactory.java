@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.tiled.collisions;
+
+import java.util.StringTokenizer;
+
+import org.mini2Dx.core.engine.geom.CollisionPolygon;
+import org.mini2Dx.tiled.Tile;
+import org.mini2Dx.tiled.TiledObject;
+
+/**
+ * An implementation of {@link TiledCollisionFactory} that creates
+ * {@link CollisionPolygon} instances. Polygon and polyline objects are created
+ * from their points, polylines being closed back to their first point, and
+ * all other objects and tiles are created as rectangular polygons.
+ * 
+ * Polygons and polylines must be convex.
+ */
+public class TiledCollisionPolygonFactory implements TiledCollisionFactory<CollisionPolygon> {
+
+	@Override
+	public CollisionPolygon createCollision(Tile tile, float x, float y, float width, float height) {
+		return new CollisionPolygon(x, y, new float[] { 0f, 0f, width, 0f, width, height, 0f, height });
+	}
+
+	@Override
+	public CollisionPolygon createCollision(TiledObject tiledObject) {
+		String points = tiledObject.getPolygon();
+		if (points == null) {
+			points = tiledObject.getPolyline();
+		}
+		if (points == null) {
+			return createCollision(null, tiledObject.getX(), tiledObject.getY(), tiledObject.getWidth(),
+					tiledObject.getHeight());
+		}
+		return new CollisionPolygon(tiledObject.getX(), tiledObject.getY(), parsePoints(points));
+	}
+
+	/**
+	 * Converts a Tiled points attribute, e.g. "0,0 32,0 32,32", into an
+	 * array of x and y values
+	 * 
+	 * @param points
+	 *            The points attribute of a polygon or polyline
+	 * @return The x and y value of each point in order
+	 */
+	public static float[] parsePoints(String points) {
+		StringTokenizer tokenizer = new StringTokenizer(points, " ,");
+		float[] result = new float[tokenizer.countTokens()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = Float.parseFloat(tokenizer.nextToken());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2015 See AUTHORS file
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ * Neither the name of the mini2Dx nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mini2Dx.tiled.collisions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mini2Dx.core.engine.geom.CollisionPolygon;
+import org.mini2Dx.tiled.TiledObject;
+
+import junit.framework.Assert;
+
+/**
+ * Unit tests for {@link TiledCollisionPolygonFactory}
+ */
+public class TiledCollisionPolygonFactoryTest {
+	private TiledCollisionPolygonFactory collisionFactory;
+
+	@Before
+	public void setUp() {
+		collisionFactory = new TiledCollisionPolygonFactory();
+	}
+
+	@Test
+	public void testParsePoints() {
+		float[] points = TiledCollisionPolygonFactory.parsePoints("0,0 32,-16.5 32,32");
+		Assert.assertEquals(6, points.length);
+		Assert.assertEquals(32f, points[2]);
+		Assert.assertEquals(-16.5f, points[3]);
+		Assert.assertEquals(32f, points[5]);
+	}
+
+	@Test
+	public void testCreateCollisionFromPolygon() {
+		TiledObject tiledObject = new TiledObject(32f, 64f, 0f, 0f);
+		tiledObject.setPolygon("0,32 32,0 32,32");
+
+		CollisionPolygon collision = collisionFactory.createCollision(tiledObject);
+		Assert.assertEquals(32f, collision.getX());
+		Assert.assertEquals(64f, collision.getY());
+		Assert.assertEquals(32f, collision.getWidth());
+		Assert.assertEquals(32f, collision.getHeight());
+		Assert.assertEquals(3, collision.getNumberOfSides());
+		Assert.assertEquals(true, collision.contains(60f, 92f));
+		Assert.assertEquals(false, collision.contains(36f, 68f));
+	}
+
+	@Test
+	public void testCreateCollisionFromPolyline() {
+		TiledObject tiledObject = new TiledObject(0f, 0f, 0f, 0f);
+		tiledObject.setPolyline("0,0 16,0 16,16 0,16");
+
+		CollisionPolygon collision = collisionFactory.createCollision(tiledObject);
+		Assert.assertEquals(4, collision.getNumberOfSides());
+		Assert.assertEquals(16f, collision.getWidth());
+	}
+
+	@Test
+	public void testCreateCollisionFromRectangle() {
+		CollisionPolygon collision = collisionFactory.createCollision(new TiledObject(32f, 64f, 16f, 24f));
+		Assert.assertEquals(32f, collision.getX());
+		Assert.assertEquals(64f, collision.getY());
+		Assert.assertEquals(16f, collision.getWidth());
+		Assert.assertEquals(24f, collision.getHeight());
+		Assert.assertEquals(4, collision.getNumberOfSides());
+	}
+}